@@ -0,0 +1,110 @@
+/*
+ * The Benchmark class is a minimal measurement harness shared by the benchmarks in this package. measure() runs a task
+ * for a number of warm-up iterations, so that the JIT compiler has compiled its hot paths, and then for a number of
+ * measured iterations, reporting the mean wall time per iteration and the mean number of bytes the measuring thread
+ * allocated per iteration. Allocation is read from the HotSpot-specific com.sun.management.ThreadMXBean, which counts
+ * the bytes of every object allocated by a thread; it is the same figure JMH's '-prof gc' reports as 'gc.alloc.rate.norm'.
+ * 
+ * Programs are prepared by prepare(), which runs the Lexer, Parser, Resolver and PurityAnalyser once so that a benchmark of the
+ * Interpreter measures only interpretation. EngineBenchmark measures each of these phases separately over the programs
+ * of Corpus.
+ * 
+ * */
+
+package benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import lexical_analysis.Lexer;
+import luria_interpreter.LuriaInterpreter;
+import semantic_analysis.PurityAnalyser;
+import semantic_analysis.Resolver;
+import syntactic_analysis.Parser;
+import syntactic_analysis.Statement;
+
+public class Benchmark {
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	/*
+	 * The nested Result class holds the means measured by measure().
+	 */
+	public static class Result {
+		public final String name;
+		public final double nanosecondsPerOperation;
+		public final double bytesPerOperation;
+
+		Result(String name, double nanosecondsPerOperation, double bytesPerOperation) {
+			this.name = name;
+			this.nanosecondsPerOperation = nanosecondsPerOperation;
+			this.bytesPerOperation = bytesPerOperation;
+		}
+
+		public double operationsPerSecond() {
+			return 1e9 / nanosecondsPerOperation;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-32s %14.3f ops/s %16.1f B/op %12.1f MB/s alloc", name, operationsPerSecond(),
+					bytesPerOperation, bytesPerOperation * operationsPerSecond() / (1024 * 1024));
+		}
+	}
+
+	/*
+	 * prepare() lexes, parses and resolves the given source code and marks its
+	 * pure functions.
+	 */
+	public static List<Statement> prepare(String sourceCode) {
+		List<Statement> statements = new Parser(new Lexer(sourceCode).lexTokenBuffer(), LuriaInterpreter.CONSOLE).parse();
+		new Resolver().resolve(statements);
+		new PurityAnalyser().analyse(statements);
+		return statements;
+	}
+
+	/*
+	 * measure() runs 'task' for 'warmup' iterations and then measures 'iterations'
+	 * further iterations of it.
+	 */
+	public static Result measure(String name, Runnable task, int warmup, int iterations) {
+		for (int i = 0; i < warmup; i++) {
+			task.run();
+		}
+		long thread = Thread.currentThread().getId();
+		long bytes = THREADS.getThreadAllocatedBytes(thread);
+		long time = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			task.run();
+		}
+		time = System.nanoTime() - time;
+		bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+		return new Result(name, (double) time / iterations, (double) bytes / iterations);
+	}
+
+	/*
+	 * measureFor() is the counterpart of measure() for tasks whose cost is not
+	 * known in advance, as with the corpus of EngineBenchmark. It runs 'task'
+	 * repeatedly for 'warmupMillis' and then measures as many iterations as
+	 * complete within 'measureMillis', as do the time-bounded iterations of JMH.
+	 */
+	public static Result measureFor(String name, Runnable task, long warmupMillis, long measureMillis) {
+		long deadline = System.nanoTime() + warmupMillis * 1000000;
+		while (System.nanoTime() < deadline) {
+			task.run();
+		}
+		long thread = Thread.currentThread().getId();
+		long bytes = THREADS.getThreadAllocatedBytes(thread);
+		long time = System.nanoTime();
+		deadline = time + measureMillis * 1000000;
+		long iterations = 0;
+		do {
+			task.run();
+			iterations++;
+		} while (System.nanoTime() < deadline);
+		time = System.nanoTime() - time;
+		bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+		return new Result(name, (double) time / iterations, (double) bytes / iterations);
+	}
+
+}
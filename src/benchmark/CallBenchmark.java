@@ -0,0 +1,69 @@
+/*
+ * CallBenchmark measures the cost of Luria function calls and returns at the Interpreter. Each program makes a known
+ * number of calls, so that the time and bytes per operation divided by the call count approximate the cost of a single
+ * call. 'call.fibonacci' is dominated by recursive calls that return from within an if statement, 'call.loop' by calls to
+ * a small function that returns a value and 'call.noreturn' by calls to a function that returns by running off the end
+ * of its block. 'call.native' is dominated by calls to sqrt(), a NativeFunction, and is to be compared with 'call.loop'.
+ * 'call.tail' sums by self-recursive tail calls, one per iteration of the loop of 'call.loop', to a depth the Java call
+ * stack of the benchmark could not hold were each a Java call. 'call.memo' runs 'call.fibonacci' with memoisation, by
+ * which fibonacci(n) is executed once for each n and every other call returns a cached result; its ns/call is per call
+ * made by 'call.fibonacci', and so is to be compared with it.
+ *
+ * */
+
+package benchmark;
+
+import java.util.List;
+
+import interpretation.Interpreter;
+import syntactic_analysis.Statement;
+
+public class CallBenchmark {
+	static final int CALLS = 100000;
+
+	// fibonacci(n) makes 2 * fibonacci(n + 1) - 1 calls; fibonacci(22) makes 57313.
+	static final String FIBONACCI = "function fibonacci(n) { if (n < 2) return n;"
+			+ " return fibonacci(n - 1) + fibonacci(n - 2); }"
+			+ "fibonacci(22);";
+	static final int FIBONACCI_CALLS = 57313;
+
+	static final String LOOP = "function twice(x) { return x * 2; }"
+			+ "variable i = 0; variable s = 0;"
+			+ "while (i < " + CALLS + ") { s = s + twice(i); i = i + 1; }";
+
+	static final String NORETURN = "variable s = 0; function increment(x) { s = s + x; }"
+			+ "variable i = 0;"
+			+ "while (i < " + CALLS + ") { increment(i); i = i + 1; }";
+
+	static final String NATIVE = "variable i = 0; variable s = 0;"
+			+ "while (i < " + CALLS + ") { s = s + sqrt(i); i = i + 1; }";
+
+	static final String TAIL = "function sum(i, s) { if (i == " + CALLS + ") return s;"
+			+ " return sum(i + 1, s + i * 2); }"
+			+ "sum(0, 0);";
+
+	public static void main(String[] args) {
+		run("call.fibonacci", FIBONACCI, FIBONACCI_CALLS);
+		run("call.loop", LOOP, CALLS);
+		run("call.noreturn", NORETURN, CALLS);
+		run("call.native", NATIVE, CALLS);
+		run("call.tail", TAIL, CALLS);
+		run("call.memo", FIBONACCI, FIBONACCI_CALLS, 1024);
+	}
+
+	private static void run(String name, String sourceCode, int calls) {
+		run(name, sourceCode, calls, 0);
+	}
+
+	private static void run(String name, String sourceCode, int calls, int memoCapacity) {
+		List<Statement> program = Benchmark.prepare(sourceCode);
+		Benchmark.Result result = Benchmark.measure(name, () -> {
+			Interpreter interpreter = new Interpreter();
+			interpreter.setMemoisation(memoCapacity);
+			interpreter.interpret(program);
+		}, 20, 20);
+		System.out.println(result + String.format(" %10.1f ns/call %10.1f B/call",
+				result.nanosecondsPerOperation / calls, result.bytesPerOperation / calls));
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * The Corpus class holds the Luria programs over which EngineBenchmark measures the Lexer, Parser and Interpreter. Each
+ * program exercises a different hot path: recursive calls and returns, nested loops over arithmetic, array indexing and
+ * allocation, string concatenation and deeply nested blocks. None of the programs print, so that a benchmark measures
+ * the engine rather than the console. The programs are generated once, where their size is a parameter, and are
+ * otherwise constant.
+ *
+ * */
+
+package benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Corpus {
+	static final String FIBONACCI = "function fibonacci(n) {\n"
+			+ "  if (n <= 1) return n;\n"
+			+ "  return fibonacci(n - 2) + fibonacci(n - 1);\n"
+			+ "}\n"
+			+ "variable result = fibonacci(18);\n";
+
+	static final String NESTED_LOOPS = "variable total = 0;\n"
+			+ "variable i = 0;\n"
+			+ "while (i < 200) {\n"
+			+ "  variable j = 0;\n"
+			+ "  while (j < 200) {\n"
+			+ "    total = total + i * j % 7;\n"
+			+ "    j = j + 1;\n"
+			+ "  }\n"
+			+ "  i = i + 1;\n"
+			+ "}\n";
+
+	static final String ARRAYS = "variable a = " + zeros(100) + ";\n"
+			+ "variable sum = 0;\n"
+			+ "variable round = 0;\n"
+			+ "while (round < 20) {\n"
+			+ "  variable i = 0;\n"
+			+ "  while (i < 100) { a[i] = i * round; i = i + 1; }\n"
+			+ "  i = 0;\n"
+			+ "  while (i < 100) { sum = sum + a[i]; i = i + 1; }\n"
+			+ "  round = round + 1;\n"
+			+ "}\n";
+
+	static final String STRINGS = "variable s = \"\";\n"
+			+ "variable i = 0;\n"
+			+ "while (i < 500) {\n"
+			+ "  s = s + \"ab\";\n"
+			+ "  i = i + 1;\n"
+			+ "}\n";
+
+	static final String NESTING = nesting(64);
+
+	/*
+	 * programs() returns the corpus by name, in a fixed order.
+	 */
+	public static Map<String, String> programs() {
+		Map<String, String> programs = new LinkedHashMap<>();
+		programs.put("fibonacci", FIBONACCI);
+		programs.put("nested_loops", NESTED_LOOPS);
+		programs.put("arrays", ARRAYS);
+		programs.put("strings", STRINGS);
+		programs.put("nesting", NESTING);
+		return programs;
+	}
+
+	/*
+	 * zeros() returns an array literal of the given number of zeros.
+	 */
+	private static String zeros(int size) {
+		StringBuilder literal = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			literal.append(i == 0 ? "0" : ",0");
+		}
+		return literal.append("]").toString();
+	}
+
+	/*
+	 * nesting() returns a program of the given depth of nested blocks, each of
+	 * which declares a variable from that of the block enclosing it. The innermost
+	 * block runs a short loop that reads variables declared at the outermost,
+	 * middle and innermost depths.
+	 */
+	private static String nesting(int depth) {
+		StringBuilder program = new StringBuilder("variable v0 = 0;\n");
+		for (int d = 1; d <= depth; d++) {
+			program.append("{ variable v").append(d).append(" = v").append(d - 1).append(" + 1;\n");
+		}
+		program.append("variable k = 0;\n");
+		program.append("while (k < 1000) { k = k + v1 + v").append(depth).append(" - v").append(depth / 2).append("; }\n");
+		for (int d = 1; d <= depth; d++) {
+			program.append("}\n");
+		}
+		return program.toString();
+	}
+
+}
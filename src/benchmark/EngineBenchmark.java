@@ -0,0 +1,84 @@
+/*
+ * EngineBenchmark measures the three phases of the engine separately over each program of Corpus: Lexer.lexSourceCode()
+ * ('lexer.*'), Parser.parse() over tokens lexed in advance ('parser.*') and Interpreter.interpret() over statements
+ * parsed and resolved in advance ('interpreter.*'). 'lexer.buffer.*' and 'parser.buffer.*' measure the first two over a
+ * TokenBuffer, by Lexer.lexTokenBuffer(), rather than a List of Tokens. 'cache.*' measures ProgramCache.compile() upon
+ * a hit, i.e. the cost of hashing the source code and looking it up, which replaces lexing, parsing and resolving for a
+ * program run before.
+ * Each benchmark reports operations per second and the bytes allocated per operation and per second; see Benchmark.
+ *
+ * The names of the benchmarks to run may be given as arguments, each of which selects those benchmarks whose names
+ * contain it, e.g. 'java benchmark.EngineBenchmark parser interpreter.fibonacci'. With no arguments all are run.
+ *
+ * */
+
+package benchmark;
+
+import java.util.List;
+import java.util.Map;
+
+import interpretation.Interpreter;
+import lexical_analysis.Lexer;
+import lexical_analysis.Token;
+import lexical_analysis.TokenBuffer;
+import luria_interpreter.LuriaInterpreter;
+import luria_interpreter.ProgramCache;
+import syntactic_analysis.Parser;
+import syntactic_analysis.Statement;
+
+public class EngineBenchmark {
+	static final long WARMUP_MILLIS = 1000;
+	static final long MEASURE_MILLIS = 2000;
+
+	// The result of each operation is written here so that the JIT compiler cannot
+	// eliminate the work of an operation whose result is otherwise unused.
+	static volatile Object sink;
+
+	public static void main(String[] args) {
+		for (Map.Entry<String, String> program : Corpus.programs().entrySet()) {
+			String sourceCode = program.getValue();
+			run("lexer." + program.getKey(), args, () -> sink = new Lexer(sourceCode).lexSourceCode());
+			run("lexer.buffer." + program.getKey(), args, () -> sink = new Lexer(sourceCode).lexTokenBuffer());
+		}
+		for (Map.Entry<String, String> program : Corpus.programs().entrySet()) {
+			List<Token> tokens = new Lexer(program.getValue()).lexSourceCode();
+			run("parser." + program.getKey(), args, () -> sink = new Parser(tokens).parse());
+			TokenBuffer buffer = new Lexer(program.getValue()).lexTokenBuffer();
+			run("parser.buffer." + program.getKey(), args, () -> sink = new Parser(buffer, LuriaInterpreter.CONSOLE).parse());
+		}
+		ProgramCache cache = new ProgramCache(Corpus.programs().size());
+		for (Map.Entry<String, String> program : Corpus.programs().entrySet()) {
+			String sourceCode = program.getValue();
+			run("cache." + program.getKey(), args, () -> sink = cache.compile(sourceCode, LuriaInterpreter.CONSOLE));
+		}
+		for (Map.Entry<String, String> program : Corpus.programs().entrySet()) {
+			List<Statement> statements = Benchmark.prepare(program.getValue());
+			run("interpreter." + program.getKey(), args, () -> {
+				Interpreter interpreter = new Interpreter();
+				interpreter.interpret(statements);
+				sink = interpreter;
+			});
+		}
+	}
+
+	/*
+	 * run() measures and prints the named benchmark if it is selected by the
+	 * arguments given.
+	 */
+	private static void run(String name, String[] selected, Runnable task) {
+		if (!isSelected(name, selected))
+			return;
+		System.out.println(Benchmark.measureFor(name, task, WARMUP_MILLIS, MEASURE_MILLIS));
+	}
+
+	private static boolean isSelected(String name, String[] selected) {
+		if (selected.length == 0)
+			return true;
+		for (String s : selected) {
+			if (name.contains(s))
+				return true;
+		}
+		return false;
+	}
+
+}
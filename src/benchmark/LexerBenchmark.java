@@ -0,0 +1,73 @@
+/*
+ * LexerBenchmark measures the throughput of lexing a multi-megabyte Luria program into a TokenBuffer, in megabytes of
+ * source code per second: 'lexer.sequential' by a single Lexer, by Lexer.lexTokenBuffer(), 'lexer.stream' by a single
+ * Lexer reading a Reader and returning each Token from next(), as when a source file is compiled, and
+ * 'lexer.parallel.<n>' by a ParallelLexer on a ForkJoinPool of n threads, for n of 2, 4 and so on up to the number of
+ * available processors, or those given as arguments, e.g. 'java benchmark.LexerBenchmark 2 8'. The program is every
+ * program of Corpus declared as the body of a function, COPIES times over; see StartupBenchmark.program().
+ *
+ * The throughput of a ParallelLexer scales with the threads of its pool only so far as there are processors to run them.
+ *
+ * */
+
+package benchmark;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import lexical_analysis.Lexer;
+import lexical_analysis.ParallelLexer;
+import lexical_analysis.TokenType;
+import luria_interpreter.LuriaInterpreter;
+
+public class LexerBenchmark {
+	static final int COPIES = 1000;
+	static final long WARMUP_MILLIS = 2000;
+	static final long MEASURE_MILLIS = 3000;
+
+	static volatile Object sink;
+
+	public static void main(String[] args) {
+		String sourceCode = StartupBenchmark.program(COPIES);
+		System.out.printf("program: %d chars of source code%n", sourceCode.length());
+		report(sourceCode, Benchmark.measureFor("lexer.sequential",
+				() -> sink = new Lexer(sourceCode).lexTokenBuffer(), WARMUP_MILLIS, MEASURE_MILLIS));
+		report(sourceCode, Benchmark.measureFor("lexer.stream", () -> {
+			Lexer lexer = new Lexer(new StringReader(sourceCode), LuriaInterpreter.CONSOLE);
+			while (lexer.next().type != TokenType.EOF) {
+			}
+		}, WARMUP_MILLIS, MEASURE_MILLIS));
+		List<Integer> threads = new ArrayList<>();
+		if (args.length > 0) {
+			for (String arg : args) {
+				threads.add(Integer.parseInt(arg));
+			}
+		} else {
+			for (int n = 2; n <= Math.max(2, Runtime.getRuntime().availableProcessors()); n *= 2) {
+				threads.add(n);
+			}
+		}
+		for (int n : threads) {
+			ForkJoinPool pool = new ForkJoinPool(n);
+			try {
+				ParallelLexer lexer = new ParallelLexer(pool);
+				report(sourceCode, Benchmark.measureFor("lexer.parallel." + n,
+						() -> sink = lexer.lex(sourceCode, LuriaInterpreter.CONSOLE), WARMUP_MILLIS, MEASURE_MILLIS));
+			} finally {
+				pool.shutdown();
+			}
+		}
+	}
+
+	/*
+	 * report() prints a Result with the megabytes of source code lexed per second.
+	 * Bytes allocated are those of the measuring thread alone.
+	 */
+	private static void report(String sourceCode, Benchmark.Result result) {
+		System.out.printf("%s %10.1f MB/s source%n", result,
+				sourceCode.length() * result.operationsPerSecond() / (1024 * 1024));
+	}
+
+}
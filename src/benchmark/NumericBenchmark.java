@@ -0,0 +1,52 @@
+/*
+ * NumericBenchmark measures the time and, principally, the heap allocation of arithmetic-heavy loops run by the
+ * Interpreter. Each program performs a fixed number of loop iterations, so that bytes per operation divided by the
+ * iteration count approximates the bytes each iteration allocates. 'numeric.budgeted' runs 'numeric.accumulate' under
+ * a Budget of time and statements, to be compared with it for the cost of checking the budget at each loop back-edge.
+ * 
+ * */
+
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import interpretation.Budget;
+import interpretation.Interpreter;
+import syntactic_analysis.Statement;
+
+public class NumericBenchmark {
+	static final int ITERATIONS = 100000;
+
+	static final String POLYNOMIAL = "variable i = 0; variable x = 0;"
+			+ "while (i < " + ITERATIONS + ") { x = (i * i * 3 + i * 2 - 7) / (i + 1) % 11; i = i + 1; }";
+
+	static final String ACCUMULATE = "variable i = 0; variable s = 0;"
+			+ "while (i < " + ITERATIONS + ") { s = s + i * 2 - 1; i = i + 1; }";
+
+	static final String COMPARE = "variable i = 0; variable n = 0;"
+			+ "while (i * 2 < " + ITERATIONS * 2 + ") { if (i % 3 == 0 and i * i > 50) n = n + 1; i = i + 1; }";
+
+	public static void main(String[] args) {
+		run("numeric.polynomial", POLYNOMIAL);
+		run("numeric.accumulate", ACCUMULATE);
+		run("numeric.compare", COMPARE);
+		run("numeric.budgeted", ACCUMULATE,
+				new Budget().statements(Integer.MAX_VALUE).time(1, TimeUnit.MINUTES).arrayElements(1000));
+	}
+
+	private static void run(String name, String sourceCode) {
+		run(name, sourceCode, null);
+	}
+
+	private static void run(String name, String sourceCode, Budget budget) {
+		List<Statement> program = Benchmark.prepare(sourceCode);
+		Benchmark.Result result = Benchmark.measure(name, () -> {
+			Interpreter interpreter = new Interpreter();
+			interpreter.setBudget(budget);
+			interpreter.interpret(program);
+		}, 20, 20);
+		System.out.println(result + String.format(" %10.1f B/iteration", result.bytesPerOperation / ITERATIONS));
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * StartupBenchmark measures the time from reading a large Luria program to holding it ready to run, by each of the two
+ * ways it may be done: 'startup.source' lexes, parses and resolves the source code, as does
+ * CompiledProgram.compile(), and 'startup.lurc' loads a .lurc file written in advance, as does CompiledProgram.load()
+ * when the file is found current for the source code, i.e. hashing the source code, mapping the file and rebuilding its
+ * syntax tree. The program is every program of Corpus declared as the body of a function, COPIES times over.
+ *
+ * As startup is paid once per run of a program, the first, cold iteration of each matters as much as the mean of warm
+ * iterations. 'java benchmark.StartupBenchmark --cold source' (or 'lurc') times a single iteration of one in an
+ * otherwise fresh JVM; with no arguments, both are measured warm.
+ *
+ * */
+
+package benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.LuriaInterpreter;
+
+public class StartupBenchmark {
+	static final int COPIES = 100;
+	static final long WARMUP_MILLIS = 2000;
+	static final long MEASURE_MILLIS = 3000;
+
+	static volatile Object sink;
+
+	public static void main(String[] args) throws IOException {
+		String sourceCode = program(COPIES);
+		Path file = Files.createTempFile("startup", ".lurc");
+		try {
+			CompiledProgram.compile(sourceCode, LuriaInterpreter.CONSOLE).write(file);
+			Runnable source = () -> sink = CompiledProgram.compile(sourceCode, LuriaInterpreter.CONSOLE);
+			Runnable lurc = () -> {
+				CompiledProgram program = CompiledProgram.load(file, CompiledProgram.hash(sourceCode));
+				if (program == null)
+					throw new UncheckedIOException(new IOException("Stale .lurc file."));
+				sink = program;
+			};
+			System.out.printf("program: %d bytes of source code, %d bytes of .lurc%n", sourceCode.length(),
+					Files.size(file));
+			if (args.length == 2 && args[0].equals("--cold")) {
+				long time = System.nanoTime();
+				(args[1].equals("lurc") ? lurc : source).run();
+				time = System.nanoTime() - time;
+				System.out.printf("startup.%s cold: %.3f ms%n", args[1], time / 1e6);
+			} else {
+				System.out.println(Benchmark.measureFor("startup.source", source, WARMUP_MILLIS, MEASURE_MILLIS));
+				System.out.println(Benchmark.measureFor("startup.lurc", lurc, WARMUP_MILLIS, MEASURE_MILLIS));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/*
+	 * program() returns the programs of Corpus, each declared as the body of a
+	 * function, the given number of times over.
+	 */
+	static String program(int copies) {
+		StringBuilder program = new StringBuilder();
+		for (int i = 0; i < copies; i++) {
+			for (Map.Entry<String, String> entry : Corpus.programs().entrySet()) {
+				program.append("function ").append(entry.getKey()).append(i).append("() {\n");
+				program.append(entry.getValue());
+				program.append("}\n");
+			}
+		}
+		return program.toString();
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The ArrayFunctions class defines the builtin functions over Luria arrays, each a NativeFunction implemented over the
+ * storage of a LuriaArray:
+ *
+ *     array(n, fill)        a new array of n elements, each 'fill'
+ *     push(a, value)        appends 'value' to a, in amortised constant time
+ *     pop(a)                removes and returns the last element of a
+ *     slice(a, from, to)    a new array of the elements of a from index 'from' up to but excluding 'to'
+ *     copy(a)               a new array of the elements of a
+ *
+ * len(), which also applies to strings, is defined at CoreFunctions. A Luria program may declare a variable of the same
+ * name as a builtin, which hides the builtin from then on. array(), slice() and copy() are pure, as they return a new
+ * array without changing any; push() and pop() change the array given them and are not. Each builtin that allocates
+ * declares how many elements a call will allocate, see NativeFunction.allocates().
+ *
+ * */
+
+package interpretation;
+
+import static interpretation.NativeFunction.array;
+import static interpretation.NativeFunction.integer;
+
+public class ArrayFunctions {
+
+	private ArrayFunctions() {
+	}
+
+	public static void register(NativeRegistry registry) {
+		registry.register(NativeFunction.of("array", (n, fill) -> {
+			int size = integer(n);
+			if (size < 0)
+				throw new InterpreterError(null, "Error: array size must not be negative.");
+			return LuriaArray.filled(size, fill);
+		}).pure().allocates(arguments -> size(arguments.get(0))));
+		registry.register(NativeFunction.of("push", (a, value) -> {
+			array(a).push(value);
+			return null;
+		}).allocates(arguments -> 1));
+		registry.register(NativeFunction.of("pop", a -> {
+			LuriaArray array = array(a);
+			if (array.isEmpty())
+				throw new InterpreterError(null, "Error: array is empty.");
+			return array.pop();
+		}));
+		registry.register(NativeFunction.of("slice", (a, f, t) -> {
+			LuriaArray array = array(a);
+			int from = integer(f);
+			int to = integer(t);
+			if (from < 0 || to > array.size() || from > to)
+				throw new InterpreterError(null, "Error: slice is beyond array range.");
+			return array.slice(from, to);
+		}).pure().allocates(arguments -> {
+			long length = length(arguments.get(0));
+			long from = Math.min(size(arguments.get(1)), length);
+			return Math.max(Math.min(size(arguments.get(2)), length) - from, 0);
+		}));
+		registry.register(NativeFunction.of("copy", a -> array(a).copy()).pure()
+				.allocates(arguments -> length(arguments.get(0))));
+	}
+
+	/*
+	 * size() and length() read an argument as a size, and the length of an array
+	 * argument, leniently for an Allocation, treating a value of the wrong type
+	 * as 0.
+	 */
+	private static long size(Object value) {
+		return value instanceof Double ? Math.max(((Double) value).intValue(), 0) : 0;
+	}
+
+	private static long length(Object value) {
+		return value instanceof LuriaArray ? ((LuriaArray) value).size() : 0;
+	}
+
+}
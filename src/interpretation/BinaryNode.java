@@ -0,0 +1,325 @@
+/*
+ * The BinaryNode class is the executable counterpart of a Binary expression and the means by which the Interpreter
+ * specialises binary operations to the types of the values it observes. Each Binary node of the syntax tree holds a
+ * BinaryNode in its 'node' field, initially UNINITIALISED. Upon first evaluation, UNINITIALISED evaluates the operands,
+ * selects the BinaryNode specialised to the operator and to the types found - NUMBER_ADD, STRING_CONCAT, NUMBER_LESS and
+ * so on - and rewrites the Binary to hold it. Thereafter the Binary is evaluated by the specialised node, which tests only
+ * for the types it expects and neither switches on the operator nor considers any other type. Should a specialised node
+ * encounter other types, it rewrites the Binary to hold the generic node for the operator and defers to it, so that the
+ * rewriting of any one Binary is bounded and always terminates in a node that handles every type.
+ *
+ * As the operands and operator of a Binary are held by the Binary itself, a BinaryNode holds no state and each is a
+ * single shared instance. Arithmetic for which isNumeric() is true requires no type feedback and is rewritten at once to
+ * the arithmetic node for its operator, which may also be executed by executeNumber() to return its value unboxed. What
+ * each operator does to the values is defined once, by Operators, which the Optimiser also calls to fold constants.
+ *
+ * Without partial evaluation as in Truffle, the call to execute() from the Interpreter remains polymorphic. What the
+ * nodes remove is the switch upon the operator and the repeated type tests, and each node is small enough to compile
+ * well in isolation; the polymorphic call also stops the JIT inlining the mutually recursive evaluation of nested
+ * arithmetic into itself until the compiled code grows too large to be of use.
+ *
+ * */
+
+package interpretation;
+
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Expression.Index;
+
+public abstract class BinaryNode {
+	public static final BinaryNode UNINITIALISED = new Uninitialised();
+	static final BinaryNode ARITHMETIC_ADD = new ArithmeticAdd();
+	static final BinaryNode ARITHMETIC_SUBTRACT = new ArithmeticSubtract();
+	static final BinaryNode ARITHMETIC_MULTIPLY = new ArithmeticMultiply();
+	static final BinaryNode ARITHMETIC_DIVIDE = new ArithmeticDivide();
+	static final BinaryNode ARITHMETIC_MODULO = new ArithmeticModulo();
+	static final BinaryNode ARITHMETIC_EXPONENT = new ArithmeticExponent();
+	static final BinaryNode NUMBER_ADD = new NumberAdd();
+	static final BinaryNode STRING_CONCAT = new StringConcat();
+	static final BinaryNode GENERIC_ADD = new GenericAdd();
+	static final BinaryNode NUMBER_GREATER = new NumberGreater();
+	static final BinaryNode NUMBER_GREATER_EQUAL = new NumberGreaterEqual();
+	static final BinaryNode NUMBER_LESS = new NumberLess();
+	static final BinaryNode NUMBER_LESS_EQUAL = new NumberLessEqual();
+	static final BinaryNode EQUAL = new Equal();
+	static final BinaryNode NOT_EQUAL = new NotEqual();
+
+	/*
+	 * execute() evaluates the given Binary, of which this is the current node.
+	 */
+	abstract Object execute(Interpreter interpreter, Binary e);
+
+	/*
+	 * executeNumber() evaluates the given Binary to an unboxed double. It is
+	 * called only upon a Binary for which isNumeric() is true, by way of
+	 * Interpreter.evaluateNumber(), and so is implemented only by the arithmetic
+	 * nodes and UNINITIALISED. A numeric Binary is never rewritten to any other
+	 * node, so reaching this method is a bug in the caller.
+	 */
+	double executeNumber(Interpreter interpreter, Binary e) {
+		throw new AssertionError("executeNumber() called upon " + getClass().getSimpleName() + " for the '"
+				+ e.operator.lexeme + "' at line " + e.operator.location + ", which is not numeric.");
+	}
+
+	/*
+	 * replace() rewrites the given Binary to hold a new node and returns it.
+	 */
+	static BinaryNode replace(Binary e, BinaryNode node) {
+		e.node = node;
+		return node;
+	}
+
+	/*
+	 * The nested Uninitialised class is the node every Binary holds before its
+	 * first evaluation. Its execute() selects a specialised node and rewrites the
+	 * Binary, then completes the first evaluation itself, so that no operand is
+	 * evaluated twice.
+	 */
+	private static class Uninitialised extends BinaryNode {
+		@Override
+		Object execute(Interpreter interpreter, Binary e) {
+			if (e.isNumeric())
+				return arithmetic(e).execute(interpreter, e);
+			switch (e.operator.type) {
+			case PLUS:
+				Object left = interpreter.evaluate(e.left);
+				Object right = interpreter.evaluate(e.right);
+				if (left instanceof Double && right instanceof Double) {
+					replace(e, NUMBER_ADD);
+				} else if (left instanceof String && right instanceof String) {
+					replace(e, STRING_CONCAT);
+				} else {
+					replace(e, GENERIC_ADD);
+				}
+				return Operators.add(e.operator, left, right);
+			case GREATER:
+				return replace(e, NUMBER_GREATER).execute(interpreter, e);
+			case GREATER_EQUAL:
+				return replace(e, NUMBER_GREATER_EQUAL).execute(interpreter, e);
+			case LESS:
+				return replace(e, NUMBER_LESS).execute(interpreter, e);
+			case LESS_EQUAL:
+				return replace(e, NUMBER_LESS_EQUAL).execute(interpreter, e);
+			case EXCLAMATION_EQUAL:
+				return replace(e, NOT_EQUAL).execute(interpreter, e);
+			case EQUAL_EQUAL:
+				return replace(e, EQUAL).execute(interpreter, e);
+			default:
+				return null;
+			}
+		}
+
+		@Override
+		double executeNumber(Interpreter interpreter, Binary e) {
+			return arithmetic(e).executeNumber(interpreter, e);
+		}
+
+		/*
+		 * arithmetic() rewrites a Binary for which isNumeric() is true to the
+		 * arithmetic node for its operator.
+		 */
+		private static BinaryNode arithmetic(Binary e) {
+			switch (e.operator.type) {
+			case PLUS:
+				return replace(e, ARITHMETIC_ADD);
+			case MINUS:
+				return replace(e, ARITHMETIC_SUBTRACT);
+			case ASTERISK:
+				return replace(e, ARITHMETIC_MULTIPLY);
+			case FORWARD_SLASH:
+				return replace(e, ARITHMETIC_DIVIDE);
+			case MODULO:
+				return replace(e, ARITHMETIC_MODULO);
+			default:
+				return replace(e, ARITHMETIC_EXPONENT);
+			}
+		}
+	}
+
+	/*
+	 * The nested Arithmetic class is the base of the nodes for a Binary for which
+	 * isNumeric() is true. Its operands are evaluated by way of
+	 * Interpreter.numericOperand(), so that nested arithmetic is computed without
+	 * boxing; both are evaluated before either is checked, as elsewhere. As such
+	 * an operation is an error upon anything but numbers, these nodes are never
+	 * rewritten.
+	 */
+	private abstract static class Arithmetic extends BinaryNode {
+		@Override
+		final Object execute(Interpreter interpreter, Binary e) {
+			return executeNumber(interpreter, e);
+		}
+
+		@Override
+		final double executeNumber(Interpreter interpreter, Binary e) {
+			double left = interpreter.numericOperand(e.left);
+			boolean numbers = interpreter.operandIsNumber;
+			double right = interpreter.numericOperand(e.right);
+			if (!numbers || !interpreter.operandIsNumber)
+				throw new InterpreterError(e.operator, "Operands must be numbers.");
+			return apply(left, right);
+		}
+
+		abstract double apply(double left, double right);
+	}
+
+	private static class ArithmeticAdd extends Arithmetic {
+		@Override
+		double apply(double left, double right) {
+			return Operators.add(left, right);
+		}
+	}
+
+	private static class ArithmeticSubtract extends Arithmetic {
+		@Override
+		double apply(double left, double right) {
+			return Operators.subtract(left, right);
+		}
+	}
+
+	private static class ArithmeticMultiply extends Arithmetic {
+		@Override
+		double apply(double left, double right) {
+			return Operators.multiply(left, right);
+		}
+	}
+
+	private static class ArithmeticDivide extends Arithmetic {
+		@Override
+		double apply(double left, double right) {
+			return Operators.divide(left, right);
+		}
+	}
+
+	private static class ArithmeticModulo extends Arithmetic {
+		@Override
+		double apply(double left, double right) {
+			return Operators.modulo(left, right);
+		}
+	}
+
+	private static class ArithmeticExponent extends Arithmetic {
+		@Override
+		double apply(double left, double right) {
+			return Operators.exponent(left, right);
+		}
+	}
+
+	/*
+	 * The nested NumberAdd class evaluates a '+' whose operands have so far been
+	 * numbers. A right operand for which isNumeric() is true, as in 's + i * 2',
+	 * is evaluated unboxed, as is an index expression, as in 's + a[i]', which
+	 * reads a numeric LuriaArray unboxed. Should either operand not be a number,
+	 * the Binary is rewritten to GENERIC_ADD.
+	 */
+	private static class NumberAdd extends BinaryNode {
+		@Override
+		Object execute(Interpreter interpreter, Binary e) {
+			Object left = interpreter.evaluate(e.left);
+			if (e.right.isNumeric()) {
+				double right = interpreter.evaluateNumber(e.right);
+				if (left instanceof Double)
+					return Operators.add((double) left, right);
+				replace(e, GENERIC_ADD);
+				return Operators.add(e.operator, left, right);
+			}
+			if (e.right instanceof Index) {
+				double right = interpreter.numericOperand(e.right);
+				if (interpreter.operandIsNumber) {
+					if (left instanceof Double)
+						return Operators.add((double) left, right);
+					replace(e, GENERIC_ADD);
+					return Operators.add(e.operator, left, right);
+				}
+				replace(e, GENERIC_ADD);
+				return Operators.add(e.operator, left, interpreter.operandValue);
+			}
+			Object right = interpreter.evaluate(e.right);
+			if (left instanceof Double && right instanceof Double)
+				return Operators.add((double) left, (double) right);
+			replace(e, GENERIC_ADD);
+			return Operators.add(e.operator, left, right);
+		}
+	}
+
+	private static class StringConcat extends BinaryNode {
+		@Override
+		Object execute(Interpreter interpreter, Binary e) {
+			Object left = interpreter.evaluate(e.left);
+			Object right = interpreter.evaluate(e.right);
+			if (left instanceof String && right instanceof String)
+				return (String) left + (String) right;
+			replace(e, GENERIC_ADD);
+			return Operators.add(e.operator, left, right);
+		}
+	}
+
+	private static class GenericAdd extends BinaryNode {
+		@Override
+		Object execute(Interpreter interpreter, Binary e) {
+			return Operators.add(e.operator, interpreter.evaluate(e.left), interpreter.evaluate(e.right));
+		}
+	}
+
+	/*
+	 * The nested NumberComparison class is the base of the comparison nodes. A
+	 * comparison of anything but numbers is an error, so these nodes are never
+	 * rewritten; specialising them by operator removes the switch on the operator
+	 * type. Both operands are evaluated before either is checked, as elsewhere.
+	 */
+	private abstract static class NumberComparison extends BinaryNode {
+		@Override
+		final Object execute(Interpreter interpreter, Binary e) {
+			double left = interpreter.numericOperand(e.left);
+			boolean numbers = interpreter.operandIsNumber;
+			double right = interpreter.numericOperand(e.right);
+			if (!numbers || !interpreter.operandIsNumber)
+				throw new InterpreterError(e.operator, "Operands must be numbers.");
+			return compare(left, right);
+		}
+
+		abstract boolean compare(double left, double right);
+	}
+
+	private static class NumberGreater extends NumberComparison {
+		@Override
+		boolean compare(double left, double right) {
+			return Operators.greater(left, right);
+		}
+	}
+
+	private static class NumberGreaterEqual extends NumberComparison {
+		@Override
+		boolean compare(double left, double right) {
+			return Operators.greaterEqual(left, right);
+		}
+	}
+
+	private static class NumberLess extends NumberComparison {
+		@Override
+		boolean compare(double left, double right) {
+			return Operators.less(left, right);
+		}
+	}
+
+	private static class NumberLessEqual extends NumberComparison {
+		@Override
+		boolean compare(double left, double right) {
+			return Operators.lessEqual(left, right);
+		}
+	}
+
+	private static class Equal extends BinaryNode {
+		@Override
+		Object execute(Interpreter interpreter, Binary e) {
+			return Interpreter.equal(interpreter.evaluate(e.left), interpreter.evaluate(e.right));
+		}
+	}
+
+	private static class NotEqual extends BinaryNode {
+		@Override
+		Object execute(Interpreter interpreter, Binary e) {
+			return !Interpreter.equal(interpreter.evaluate(e.left), interpreter.evaluate(e.right));
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.LuriaInterpreter;
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Statement.Print;
+
+class BinaryNodeTest {
+	Interpreter interpreter;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		interpreter = new Interpreter(new PrintStream(new ByteArrayOutputStream(), true),
+				new ByteArrayInputStream(new byte[0]), LuriaInterpreter.CONSOLE);
+	}
+
+	/*
+	 * binary() returns the Binary printed by 'print <expression>;', its operands
+	 * being the global variables a and b.
+	 */
+	static Binary binary(String expression) {
+		Binary binary = (Binary) ((Print) CompiledProgram.compile("print " + expression + ";", LuriaInterpreter.CONSOLE)
+				.statements.get(0)).expression;
+		assertSame(BinaryNode.UNINITIALISED, binary.node);
+		return binary;
+	}
+
+	/*
+	 * evaluate() evaluates the Binary with the global variables a and b bound to
+	 * the given values.
+	 */
+	Object evaluate(Binary binary, String a, String b) {
+		assertTrue(interpreter.interpret(CompiledProgram.compile("variable a = " + a + "; variable b = " + b + ";",
+				LuriaInterpreter.CONSOLE).statements));
+		return interpreter.evaluate(binary);
+	}
+
+	@Test
+	final void testNumbersThenStrings() {
+		Binary binary = binary("a + b");
+		assertEquals(3.0, evaluate(binary, "1", "2"));
+		assertSame(BinaryNode.NUMBER_ADD, binary.node);
+		assertEquals(7.5, evaluate(binary, "3", "4.5"));
+		assertSame(BinaryNode.NUMBER_ADD, binary.node);
+		assertEquals("xy", evaluate(binary, "\"x\"", "\"y\""));
+		assertSame(BinaryNode.GENERIC_ADD, binary.node);
+		assertEquals(3.0, evaluate(binary, "1", "2"));
+		assertSame(BinaryNode.GENERIC_ADD, binary.node);
+	}
+
+	@Test
+	final void testStringsThenMixed() {
+		Binary binary = binary("a + b");
+		assertEquals("xy", evaluate(binary, "\"x\"", "\"y\""));
+		assertSame(BinaryNode.STRING_CONCAT, binary.node);
+		InterpreterError error = assertThrows(InterpreterError.class, () -> evaluate(binary, "\"x\"", "1"));
+		assertSame(binary.operator, error.token);
+		assertSame(BinaryNode.GENERIC_ADD, binary.node);
+		assertEquals(3.0, evaluate(binary, "1", "2"));
+		assertEquals("xy", evaluate(binary, "\"x\"", "\"y\""));
+		assertSame(BinaryNode.GENERIC_ADD, binary.node);
+	}
+
+	@Test
+	final void testMixedFirst() {
+		Binary binary = binary("a + b");
+		assertThrows(InterpreterError.class, () -> evaluate(binary, "1", "\"y\""));
+		assertSame(BinaryNode.GENERIC_ADD, binary.node);
+	}
+
+	/*
+	 * testNumericRewrittenAtOnce() evaluates arithmetic that is an error upon
+	 * anything but numbers, which is rewritten to its arithmetic node whatever
+	 * its operands, and never again.
+	 */
+	@Test
+	final void testNumericRewrittenAtOnce() {
+		Binary binary = binary("a - b");
+		assertEquals(-1.0, evaluate(binary, "1", "2"));
+		assertSame(BinaryNode.ARITHMETIC_SUBTRACT, binary.node);
+		assertThrows(InterpreterError.class, () -> evaluate(binary, "\"x\"", "\"y\""));
+		assertSame(BinaryNode.ARITHMETIC_SUBTRACT, binary.node);
+
+		Binary comparison = binary("a < b");
+		assertEquals(true, evaluate(comparison, "1", "2"));
+		assertSame(BinaryNode.NUMBER_LESS, comparison.node);
+	}
+
+}
@@ -0,0 +1,70 @@
+/*
+ * The Budget class sets the limits within which an Interpreter runs each program, so that a program that does not
+ * terminate, or would take more than its share, is stopped with a BudgetExceededError rather than occupying its thread
+ * indefinitely. A Budget may limit, per run of a program:
+ *
+ *     statements       the number of statements executed
+ *     time             the wall time elapsed since the run began
+ *     call depth       the depth of Luria function calls, as at Interpreter.setMaxCallDepth()
+ *     array elements   the number of array elements allocated, by array expressions or builtins
+ *
+ * Each limit is unlimited unless set. cancel() stops every program running under the Budget, from any thread, and any
+ * run under it thereafter; a Budget once cancelled stays so.
+ *
+ * The Interpreter does not check its Budget at every statement. It checks at the back-edge of each loop and upon each
+ * function call, the points through which any long-running program must pass, and there only compares the number of
+ * statements executed with the next 'checkpoint', at most CHECK_INTERVAL statements ahead. Only at a checkpoint does it
+ * read the clock and the cancellation flag. A limit may therefore be overrun by the statements of one iteration of a
+ * loop, and the time limit, or cancellation, take effect up to CHECK_INTERVAL statements late.
+ *
+ * A Budget holds no state of any run, so that one may be shared by the Interpreters of any number of threads, e.g. as the
+ * policy of a pool of workers; cancel() then stops them all.
+ * 
+ * */
+
+package interpretation;
+
+import java.util.concurrent.TimeUnit;
+
+public class Budget {
+	public static final long UNLIMITED = Long.MAX_VALUE;
+	public static final int CHECK_INTERVAL = 1024;
+	long maxStatements = UNLIMITED;
+	long timeout = UNLIMITED;
+	int maxCallDepth = Integer.MAX_VALUE;
+	long maxArrayElements = UNLIMITED;
+	private volatile boolean cancelled = false;
+
+	/*
+	 * Each of these setters sets a limit and returns the Budget, e.g.
+	 * new Budget().statements(1000000).time(1, TimeUnit.SECONDS).
+	 */
+	public Budget statements(long maxStatements) {
+		this.maxStatements = maxStatements;
+		return this;
+	}
+
+	public Budget time(long timeout, TimeUnit unit) {
+		this.timeout = unit.toNanos(timeout);
+		return this;
+	}
+
+	public Budget callDepth(int maxCallDepth) {
+		this.maxCallDepth = maxCallDepth;
+		return this;
+	}
+
+	public Budget arrayElements(long maxArrayElements) {
+		this.maxArrayElements = maxArrayElements;
+		return this;
+	}
+
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * The BudgetExceededError class is the InterpreterError raised when a program exceeds a limit of the Budget under which it
+ * runs, or the Budget is cancelled; see Budget. 'limit' names the limit exceeded, so that an embedding program may tell
+ * a runaway or cancelled program from one that failed of its own accord, e.g. to retry it with a greater budget.
+ * 
+ * */
+
+package interpretation;
+
+import lexical_analysis.Token;
+
+public class BudgetExceededError extends InterpreterError {
+	private static final long serialVersionUID = 1L;
+
+	public enum Limit {
+		STATEMENTS("Error: statement budget exceeded."),
+		TIME("Error: time limit exceeded."),
+		CALL_DEPTH(Interpreter.CALL_DEPTH_EXCEEDED),
+		ARRAY_ELEMENTS("Error: array element budget exceeded."),
+		CANCELLED("Error: program cancelled.");
+
+		final String message;
+
+		Limit(String message) {
+			this.message = message;
+		}
+	}
+
+	public final Limit limit;
+
+	public BudgetExceededError(Token token, Limit limit) {
+		super(token, limit.message);
+		this.limit = limit;
+	}
+
+	@Override
+	InterpreterError at(Token token) {
+		return new BudgetExceededError(token, limit);
+	}
+
+}
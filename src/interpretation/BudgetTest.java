@@ -0,0 +1,143 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import lexical_analysis.Token;
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.ErrorReporter;
+import luria_interpreter.LuriaInterpreter;
+
+class BudgetTest {
+	static final String LOOP = "variable i = 0; while (true) { i = i + 1; }";
+
+	ByteArrayOutputStream output;
+	List<InterpreterError> errors;
+	Interpreter interpreter;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		output = new ByteArrayOutputStream();
+		errors = new ArrayList<>();
+		ErrorReporter reporter = new ErrorReporter() {
+			@Override
+			public void lexerError(int location, String message) {
+			}
+
+			@Override
+			public void parserError(Token token, String message) {
+			}
+
+			@Override
+			public void interpreterError(InterpreterError error) {
+				errors.add(error);
+			}
+		};
+		interpreter = new Interpreter(new PrintStream(output, true), new ByteArrayInputStream(new byte[0]), reporter);
+	}
+
+	boolean run(String sourceCode) {
+		return interpreter.interpret(CompiledProgram.compile(sourceCode, LuriaInterpreter.CONSOLE).statements);
+	}
+
+	/*
+	 * exceeded() returns the limit exceeded by the last program run, which must
+	 * have been stopped by its Budget.
+	 */
+	BudgetExceededError.Limit exceeded() {
+		assertEquals(1, errors.size());
+		InterpreterError error = errors.remove(0);
+		assertTrue(error instanceof BudgetExceededError, error.getMessage());
+		return ((BudgetExceededError) error).limit;
+	}
+
+	@Test
+	final void testStatementsLimited() {
+		interpreter.setBudget(new Budget().statements(100000));
+		assertFalse(run(LOOP));
+		assertEquals(BudgetExceededError.Limit.STATEMENTS, exceeded());
+	}
+
+	@Test
+	final void testStatementsCountedPerRun() {
+		interpreter.setBudget(new Budget().statements(100000));
+		String program = "variable i = 0; while (i < 30000) { i = i + 1; }";
+		assertTrue(run(program));
+		assertTrue(run(program));
+		assertTrue(errors.isEmpty());
+	}
+
+	@Test
+	final void testTimeLimited() {
+		interpreter.setBudget(new Budget().time(50, TimeUnit.MILLISECONDS));
+		assertFalse(run(LOOP));
+		assertEquals(BudgetExceededError.Limit.TIME, exceeded());
+	}
+
+	@Test
+	final void testCallDepthLimited() {
+		interpreter.setBudget(new Budget().callDepth(50));
+		assertTrue(run("function f(n) { if (n == 0) return 0; return 1 + f(n - 1); } print f(40);"));
+		assertFalse(run("print f(60);"));
+		assertEquals(BudgetExceededError.Limit.CALL_DEPTH, exceeded());
+	}
+
+	@Test
+	final void testArrayElementsLimited() {
+		interpreter.setBudget(new Budget().arrayElements(1000));
+		assertTrue(run("variable a = array(500, 0);"));
+		assertFalse(run("variable b = array(2000, 0);"));
+		assertEquals(BudgetExceededError.Limit.ARRAY_ELEMENTS, exceeded());
+		assertFalse(run("variable c = []; while (true) { push(c, 1); }"));
+		assertEquals(BudgetExceededError.Limit.ARRAY_ELEMENTS, exceeded());
+	}
+
+	/*
+	 * testAllocationRefusedBeforeMade() requests arrays far beyond the heap, which
+	 * must be refused by the Budget before the builtin allocates them.
+	 */
+	@Test
+	final void testAllocationRefusedBeforeMade() {
+		interpreter.setBudget(new Budget().arrayElements(1000));
+		assertFalse(run("variable x = array(100000000, 0);"));
+		assertEquals(BudgetExceededError.Limit.ARRAY_ELEMENTS, exceeded());
+		assertFalse(run("variable x = array(2000000000, 0);"));
+		assertEquals(BudgetExceededError.Limit.ARRAY_ELEMENTS, exceeded());
+		assertFalse(run("variable a = array(600, 0); variable b = copy(a); print 1;"));
+		assertEquals(BudgetExceededError.Limit.ARRAY_ELEMENTS, exceeded());
+		assertFalse(run("variable a = array(600, 0); variable b = slice(a, 0, 500); print 1;"));
+		assertEquals(BudgetExceededError.Limit.ARRAY_ELEMENTS, exceeded());
+		assertTrue(run("variable a = array(600, 0); variable b = slice(a, 0, 400);"));
+		assertEquals("", output.toString());
+	}
+
+	@Test
+	final void testCancelledFromAnotherThread() throws InterruptedException {
+		Budget budget = new Budget();
+		interpreter.setBudget(budget);
+		Thread canceller = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+			}
+			budget.cancel();
+		});
+		canceller.start();
+		assertFalse(run(LOOP));
+		canceller.join();
+		assertEquals(BudgetExceededError.Limit.CANCELLED, exceeded());
+		assertTrue(budget.isCancelled());
+		assertFalse(run("while (true) { }"));
+		assertEquals(BudgetExceededError.Limit.CANCELLED, exceeded());
+	}
+
+}
@@ -1,5 +1,7 @@
 /*
- * At present only instances of the Function class implement the Callable interface. See comment at Function.
+ * The Callable interface is implemented by the Function class, for functions declared in Luria, and by the NativeFunction
+ * class, for builtins implemented in Java. See comments at Function and NativeFunction, and at NativeRegistry for how
+ * builtins are bound into global scope.
  * 
  * */
 
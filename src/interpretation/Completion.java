@@ -0,0 +1,15 @@
+/*
+ * Completion enumerates the ways in which the execution of a Statement may complete, and is the type returned by each
+ * statement visit method of the Interpreter. A statement that completes NORMAL passes control to the statement after it.
+ * Upon visiting a ReturnStatement, the Interpreter records the value returned and completes RETURN; blocks, if and while
+ * statements then cease execution and complete RETURN in turn, until the enclosing Function.call() collects the value.
+ * Propagating a return in this way, rather than by throwing an exception, costs a comparison at each enclosing statement
+ * instead of the construction of an exception and the unwinding of the Java call stack.
+ *
+ * */
+
+package interpretation;
+
+public enum Completion {
+	NORMAL, RETURN
+}
@@ -0,0 +1,31 @@
+/*
+ * The CoreFunctions class defines the builtin functions of Luria that are not specific to arrays:
+ *
+ *     clock()     the time in seconds since the epoch, with a resolution of milliseconds
+ *     sqrt(x)     the square root of the number x
+ *     len(x)      the number of chars of the string x, or of elements of the array x
+ *
+ * sqrt() and len() are pure; clock() is not. See NativeFunction.
+ *
+ * */
+
+package interpretation;
+
+public class CoreFunctions {
+
+	private CoreFunctions() {
+	}
+
+	public static void register(NativeRegistry registry) {
+		registry.register(NativeFunction.of("clock", () -> System.currentTimeMillis() / 1000.0));
+		registry.register(NativeFunction.of("sqrt", x -> Math.sqrt(NativeFunction.number(x))).pure());
+		registry.register(NativeFunction.of("len", x -> {
+			if (x instanceof String)
+				return (double) ((String) x).length();
+			if (x instanceof LuriaArray)
+				return (double) ((LuriaArray) x).size();
+			throw new InterpreterError(null, "Error: string or array expected.");
+		}).pure());
+	}
+
+}
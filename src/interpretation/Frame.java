@@ -0,0 +1,52 @@
+/*
+ * The Frame class is the array-backed counterpart of MemoryEnvironment and stores the variables local to a block or
+ * function. Because the Resolver has already determined, for every variable reference, how many enclosing frames
+ * separate it from its declaration ('depth') and the index of its declaration within that frame ('slot'), a Frame
+ * requires neither names nor hashing: a variable is retrieved by following 'outer' depth times and indexing 'slots'.
+ * Variables declared in global scope are not held in a Frame but in the Interpreter's globalScope MemoryEnvironment,
+ * which is keyed by the interned Symbol of each name rather than by slot, so that the prompt can accumulate declarations
+ * across separately resolved lines; see Symbol.
+ *
+ * */
+
+package interpretation;
+
+public class Frame {
+	public final Frame outer;
+	public final Object[] slots;
+
+	public Frame(int size, Frame outer) {
+		this.slots = new Object[size];
+		this.outer = outer;
+	}
+
+	/*
+	 * ancestor() returns the Frame 'depth' frames out from this one. A depth of 0
+	 * is this Frame.
+	 */
+	private Frame ancestor(int depth) {
+		Frame frame = this;
+		for (int i = 0; i < depth; i++) {
+			frame = frame.outer;
+		}
+		return frame;
+	}
+
+	/*
+	 * load() retrieves the value held at the given slot of the Frame at the given
+	 * depth.
+	 */
+	public Object load(int depth, int slot) {
+		return ancestor(depth).slots[slot];
+	}
+
+	/*
+	 * store() assigns a value to the given slot of the Frame at the given depth.
+	 * Declaration and reassignment are not distinguished here as the Resolver has
+	 * guaranteed the slot exists.
+	 */
+	public void store(int depth, int slot, Object value) {
+		ancestor(depth).slots[slot] = value;
+	}
+
+}
@@ -0,0 +1,30 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class FrameTest {
+
+	@Test
+	final void testLoadAndStoreByDepth() {
+		Frame outer = new Frame(2, null);
+		Frame inner = new Frame(1, outer);
+		inner.store(0, 0, "inner");
+		inner.store(1, 1, 2.0);
+		assertEquals("inner", inner.load(0, 0));
+		assertEquals(2.0, inner.load(1, 1));
+		assertEquals(2.0, outer.load(0, 1));
+		assertNull(outer.load(0, 0));
+	}
+
+	@Test
+	final void testSlotsStartEmpty() {
+		Frame frame = new Frame(3, null);
+		assertEquals(3, frame.slots.length);
+		for (Object slot : frame.slots) {
+			assertNull(slot);
+		}
+	}
+
+}
@@ -1,12 +1,17 @@
 /*
  * The Function class implements the Callable interface method call(). Given a reference to the 'calling'
- * Interpreter, the Function call() method instantiates a new MemoryEnvironment. This provides each called
- * function in Luria with its own MemoryEnvironment within which the variables declared within the function
- * block or parameters passed to a function are stored. Variables belonging to the function's outer blocks 
- * remain accessible, but further functions called within a function block (i.e. recursively) become inaccessible.
+ * Interpreter, the Function call() method instantiates a new Frame. This provides each called function in
+ * Luria with its own Frame within which the parameters passed to a function, in its first slots, and the
+ * variables declared within the function block are stored. Variables belonging to the function's outer blocks 
+ * remain accessible by way of the 'closure' Frame captured at declaration, but further functions called within
+ * a function block (i.e. recursively) become inaccessible.
  * 
  * Functions in Luria return null except when a ReturnStatement is encountered upon evaluation of the function
- * block. See also comment at Return. 
+ * block, in which case the function block completes RETURN and the value is collected from the Interpreter. See also
+ * comment at Completion.
+ * 
+ * A Function proven pure by the PurityAnalyser may be given a MemoTable, by which the Interpreter returns the result of
+ * a call made before with the same arguments without executing the function block again.
  * 
  * */
 
@@ -18,26 +23,46 @@ import syntactic_analysis.Statement;
 
 public class Function implements Callable {
 	private final Statement.FunctionDeclaration declaration;
-	private final MemoryEnvironment closure;
+	private final Frame closure;
+	final MemoTable memo;
+
+	public Function(Statement.FunctionDeclaration declaration, Frame closure) {
+		this(declaration, closure, null);
+	}
 
-	public Function(Statement.FunctionDeclaration declaration, MemoryEnvironment closure) {
+	/*
+	 * This constructor gives the Function a MemoTable in which to cache its
+	 * results, which it must have been proven pure to be given.
+	 */
+	Function(Statement.FunctionDeclaration declaration, Frame closure, MemoTable memo) {
 		this.declaration = declaration;
-		this.closure = closure; 
+		this.closure = closure;
+		this.memo = memo;
 	}
 
 	@Override
 	public Object call(Interpreter interpreter, List<Object> arguments) {
-		MemoryEnvironment functionEnvironment = new MemoryEnvironment(closure);
+		Frame functionFrame = frame();
 		for (int i = 0; i < declaration.arguments.size(); i++) {
-			functionEnvironment.store(declaration.arguments.get(i).lexeme, arguments.get(i));
+			functionFrame.slots[i] = arguments.get(i);
 		}
-		try {
-			interpreter.executeBlock(declaration.functionBlock, functionEnvironment);
-		} catch (Return returnValue) {
-			return returnValue.value;
-		}
-		interpreter.executeBlock(declaration.functionBlock, functionEnvironment);
-		return null;
+		return invoke(interpreter, functionFrame);
+	}
+
+	/*
+	 * frame() returns a new Frame for a call of this function, into the first
+	 * slots of which the caller places the arguments before calling invoke().
+	 */
+	Frame frame() {
+		return new Frame(declaration.frameSize, closure);
+	}
+
+	Statement.FunctionDeclaration declaration() {
+		return declaration;
+	}
+
+	Object invoke(Interpreter interpreter, Frame functionFrame) {
+		return interpreter.invoke(this, declaration.functionBlock, functionFrame);
 	}
 
 	@Override
@@ -1,7 +1,35 @@
 /*
  * The Interpreter class implements the Expression and Statement interfaces and therefore defines all methods
  * for interpreting nodes in the syntax tree. Interpreter is an implementation of a tree-walk interpreter. An
- * Interpreter instance has reference to its MemoryEnvironment and a constant reference to 'global' scope.
+ * Interpreter instance has reference to the Frame of the block or function currently executing and a constant
+ * reference to 'global' scope. The syntax tree must first have been annotated by the Resolver, which determines
+ * whether each variable is held in a Frame or in global scope.
+ * 
+ * An Interpreter prints to, reads from and reports errors to the streams and ErrorReporter given upon construction,
+ * by default those of the console. It holds no static state, so that Interpreters may run on separate threads; a single
+ * Interpreter must not be used by more than one thread at once.
+ * 
+ * Each Luria function call is made by a call of invoke() in Java, so the depth of recursion in Luria is bounded by the
+ * Java call stack. Calls deeper than 'maxCallDepth', or too deep for the Java call stack, are reported as an
+ * InterpreterError rather than escaping as a StackOverflowError. A self-recursive call in tail position, as marked by
+ * the Resolver, is instead made by invoke() in a loop, so that it takes neither Java call stack nor call depth.
+ * 
+ * Memoisation is off unless enabled by setMemoisation(), for all functions or for those of a given name. The results of
+ * a function marked pure by the PurityAnalyser are then cached in a MemoTable of the given capacity, one per function
+ * declaration, held by this Interpreter and listed by memoTables(). As global scope outlives a program, at the prompt and
+ * in a LuriaContext, a global function called by a pure function may be rebound after its results were cached; every
+ * MemoTable is therefore cleared before a memoised call whenever global scope has rebound a Callable since the last.
+ * 
+ * Given a Profiler by setProfiler(), the Interpreter reports to it each function call and statement executed; see
+ * Profiler. Without one, each costs only a test of the 'profiler' field.
+ * 
+ * An Interpreter counts the statements it executes, the function calls it makes, the Frames it allocates for them and
+ * for blocks, and the greatest call depth it reaches, in plain fields, as it is confined to a single thread. The counts
+ * are kept until resetCounters() is called; Metrics.recordExecution() reads and resets them after each run.
+ * 
+ * Given a Budget by setBudget(), the Interpreter checks it at the back-edge of each loop and upon each function call,
+ * comparing the number of statements executed with the next 'checkpoint'; see Budget. Without one, 'checkpoint' is never
+ * reached. A limit exceeded is raised as a BudgetExceededError.
  * 
  * */
 
@@ -9,11 +37,19 @@ package interpretation;
 
 import static lexical_analysis.TokenType.*;
 
+import java.io.InputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 import lexical_analysis.Token;
+import luria_interpreter.ErrorReporter;
 import luria_interpreter.LuriaInterpreter;
 import syntactic_analysis.Expression;
 import syntactic_analysis.Statement;
@@ -39,31 +75,85 @@ import syntactic_analysis.Statement.Return;
 import syntactic_analysis.Statement.VariableDeclaration;
 import syntactic_analysis.Statement.While;
 
-public class Interpreter implements Expression.Visitor<Object>, Statement.Visitor<Void> {
+public class Interpreter implements Expression.Visitor<Object>, Expression.NumericVisitor, Statement.Visitor<Completion> {
 	public final MemoryEnvironment globalScope = new MemoryEnvironment();
-	private MemoryEnvironment environment = globalScope;
+	private final PrintStream out;
+	private final InputStream in;
+	private final ErrorReporter errors;
+	private Frame frame = null;
+	private static final NativeRegistry BUILTINS = NativeRegistry.standard();
+	boolean operandIsNumber;
+	Object operandValue;
+	private int subscriptIndex;
+	private Object returnValue;
+	public static final int DEFAULT_MAX_CALL_DEPTH = 10000;
+	public static final String CALL_DEPTH_EXCEEDED = "Error: maximum call depth exceeded.";
+	private int maxCallDepth = DEFAULT_MAX_CALL_DEPTH;
+	private int callDepthLimit = DEFAULT_MAX_CALL_DEPTH;
+	private int callDepth = 0;
+	private Function function = null;
+	private Frame tailFrame = null;
+	private int memoCapacity = 0;
+	private final Map<String, Integer> memoCapacities = new HashMap<>();
+	private final Map<FunctionDeclaration, MemoTable> memoTables = new LinkedHashMap<>();
+	private int memoRebound = 0;
+	private Profiler profiler = null;
+	private long statementsExecuted = 0;
+	private long callsMade = 0;
+	private long blockFramesAllocated = 0;
+	private int peakCallDepth = 0;
+	private Budget budget = null;
+	private long checkpoint = Long.MAX_VALUE;
+	private long budgetStart = 0;
+	private long deadline = 0;
+	private long arrayElements = 0;
+	private long maxArrayElements = Budget.UNLIMITED;
+
+	public Interpreter() {
+		this(System.out, System.in, LuriaInterpreter.CONSOLE);
+	}
+
+	public Interpreter(PrintStream out, InputStream in, ErrorReporter errors) {
+		this.out = out;
+		this.in = in;
+		this.errors = errors;
+		BUILTINS.link(globalScope);
+	}
 
 	/*
 	 * interpret() calls execute() upon each Statement object in List<Statement>. It
-	 * is at this point in the Java call stack that an InterpreterError is caught.
+	 * is at this point in the Java call stack that an InterpreterError is caught
+	 * and reported. interpret() returns false if an error was reported.
 	 */
-	public void interpret(List<Statement> statements) {
+	public boolean interpret(List<Statement> statements) {
+		if (profiler != null)
+			profiler.start();
+		startBudget();
 		try {
 			for (Statement s : statements) {
-				execute(s);
+				if (execute(s) == Completion.RETURN)
+					break;
 			}
+			return true;
 		} catch (InterpreterError error) {
-			LuriaInterpreter.interpreterError(error);
+			errors.interpreterError(error);
+			return false;
+		} finally {
+			if (profiler != null)
+				profiler.stop();
 		}
 	}
 
 	/*
 	 * execute() applies the Visitor pattern, passing this instance to a given
 	 * Statement node and, in turn, calling the relevant method by way of dynamic
-	 * dispatch.
+	 * dispatch. It returns how the Statement completed; see Completion.
 	 */
-	private void execute(Statement s) {
-		s.accept(this);
+	private Completion execute(Statement s) {
+		statementsExecuted++;
+		if (profiler != null)
+			profiler.execute(s);
+		return s.accept(this);
 	}
 
 	/*
@@ -71,55 +161,258 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * Expression node and, in turn, calling the relevant method by way of dynamic
 	 * dispatch.
 	 */
-	private Object evaluate(Expression e) {
+	Object evaluate(Expression e) {
 		return e.accept(this);
 	}
 
 	/*
-	 * executeBlock() is passed the nested List<Statement> and the new
-	 * MemoryEnvironment instantiated at visitBlockStatement(). For duration of
-	 * execution of the block's statements, the current (this) environment is stored
-	 * in a variable, 'previous', and the block's environment applied. The
-	 * interpreter is then returned to the previous environment
+	 * executeBlock() is passed the nested List<Statement> and the new Frame
+	 * instantiated at visitBlockStatement() or Function.call(). For duration of
+	 * execution of the block's statements, the current (this) frame is stored in a
+	 * variable, 'previous', and the block's frame applied. The interpreter is then
+	 * returned to the previous frame. Should a statement complete RETURN, the
+	 * remaining statements are skipped and the block completes RETURN.
 	 */
-	public void executeBlock(List<Statement> statements, MemoryEnvironment environment) {
-		MemoryEnvironment previous = this.environment;
+	public Completion executeBlock(List<Statement> statements, Frame frame) {
+		Frame previous = this.frame;
 		try {
-			this.environment = environment;
+			this.frame = frame;
 			for (Statement s : statements) {
-				execute(s);
+				if (execute(s) == Completion.RETURN)
+					return Completion.RETURN;
 			}
-
+			return Completion.NORMAL;
 		} finally {
-			this.environment = previous;
+			this.frame = previous;
 		}
 	}
 
 	/*
-	 * checkOperand() checks whether a unary operand is of type Java Double.
-	 * Arithmetic in the Luria interpreter is handled in doubles.
+	 * setMaxCallDepth() sets the greatest number of Luria function calls that may
+	 * be in progress at once.
+	 */
+	public void setMaxCallDepth(int maxCallDepth) {
+		this.maxCallDepth = maxCallDepth;
+		callDepthLimit = budget != null ? Math.min(maxCallDepth, budget.maxCallDepth) : maxCallDepth;
+	}
+
+	/*
+	 * setBudget() sets the Budget within which each program is run, or with null,
+	 * runs programs without one. It applies from the next run.
+	 */
+	public void setBudget(Budget budget) {
+		this.budget = budget;
+		setMaxCallDepth(maxCallDepth);
+	}
+
+	/*
+	 * startBudget() begins a run under the Budget, if any, setting the first
+	 * checkpoint at once, so that a cancelled Budget is found at the first loop or
+	 * call.
 	 */
-	private void checkOperand(Token operator, Object operand) {
-		if (operand instanceof Double)
+	private void startBudget() {
+		arrayElements = 0;
+		if (budget == null) {
+			checkpoint = Long.MAX_VALUE;
+			maxArrayElements = Budget.UNLIMITED;
 			return;
-		throw new InterpreterError(operator, "Operand must be a number.");
+		}
+		budgetStart = statementsExecuted;
+		deadline = System.nanoTime() + budget.timeout;
+		maxArrayElements = budget.maxArrayElements;
+		checkpoint = statementsExecuted;
 	}
 
 	/*
-	 * checkOperand() checks whether both binary arithmetic operands are of type
-	 * Java Double.
+	 * checkBudget() is called upon reaching the checkpoint. It raises a
+	 * BudgetExceededError, at the given Token, if a limit is exceeded, else sets
+	 * the next checkpoint: CHECK_INTERVAL statements ahead, or the statement after
+	 * the last of the statement budget, if sooner.
 	 */
-	private void checkOperands(Token operator, Object left, Object right) {
-		if (left instanceof Double && right instanceof Double)
+	private void checkBudget(Token token) {
+		Budget budget = this.budget;
+		if (budget == null) {
+			checkpoint = Long.MAX_VALUE;
 			return;
-		throw new InterpreterError(operator, "Operands must be numbers.");
+		}
+		if (budget.isCancelled())
+			throw new BudgetExceededError(token, BudgetExceededError.Limit.CANCELLED);
+		long executed = statementsExecuted - budgetStart;
+		if (executed > budget.maxStatements)
+			throw new BudgetExceededError(token, BudgetExceededError.Limit.STATEMENTS);
+		if (arrayElements > maxArrayElements)
+			throw new BudgetExceededError(token, BudgetExceededError.Limit.ARRAY_ELEMENTS);
+		if (budget.timeout != Budget.UNLIMITED && System.nanoTime() - deadline > 0)
+			throw new BudgetExceededError(token, BudgetExceededError.Limit.TIME);
+		long remaining = budget.maxStatements - executed;
+		checkpoint = statementsExecuted + (remaining < Budget.CHECK_INTERVAL ? remaining + 1 : Budget.CHECK_INTERVAL);
+	}
+
+	/*
+	 * allocate() counts array elements allocated, moving the checkpoint forward
+	 * to the next loop or call should they exceed the budget.
+	 */
+	private void allocate(long elements) {
+		arrayElements += elements;
+		if (arrayElements > maxArrayElements)
+			checkpoint = statementsExecuted;
+	}
+
+	/*
+	 * setProfiler() sets the Profiler to which calls and statements are reported,
+	 * or with null, stops profiling.
+	 */
+	public void setProfiler(Profiler profiler) {
+		this.profiler = profiler;
+	}
+
+	public long statementsExecuted() {
+		return statementsExecuted;
+	}
+
+	public long callsMade() {
+		return callsMade;
+	}
+
+	// Each call is made in a Frame of its own.
+	public long framesAllocated() {
+		return callsMade + blockFramesAllocated;
+	}
+
+	public int peakCallDepth() {
+		return peakCallDepth;
+	}
+
+	public void resetCounters() {
+		statementsExecuted = 0;
+		callsMade = 0;
+		blockFramesAllocated = 0;
+		peakCallDepth = callDepth;
+	}
+
+	/*
+	 * setMemoisation() sets the capacity of the MemoTable of each pure function,
+	 * or with a name, of the pure functions of that name, overriding the capacity
+	 * set for all. A capacity of 0 disables memoisation. It applies to functions
+	 * declared after it is set.
+	 */
+	public void setMemoisation(int capacity) {
+		this.memoCapacity = capacity;
+	}
+
+	public void setMemoisation(String function, int capacity) {
+		memoCapacities.put(function, capacity);
+	}
+
+	public Collection<MemoTable> memoTables() {
+		return Collections.unmodifiableCollection(memoTables.values());
+	}
+
+	/*
+	 * memoTable() returns the MemoTable for the results of the declared function,
+	 * or null if it is not pure or not to be memoised.
+	 */
+	private MemoTable memoTable(FunctionDeclaration declaration) {
+		if (!declaration.pure)
+			return null;
+		int capacity = memoCapacities.getOrDefault(declaration.symbol.lexeme, memoCapacity);
+		if (capacity <= 0)
+			return null;
+		return memoTables.computeIfAbsent(declaration, d -> new MemoTable(d.symbol.lexeme, capacity));
+	}
+
+	/*
+	 * invoke() executes the body of a Function in the given Frame, into the first
+	 * slots of which the arguments have been placed, and returns its value. A tail
+	 * call of the Function by itself completes RETURN having placed its arguments
+	 * in a new Frame, 'tailFrame', rather than having made the call; see
+	 * visitReturnStatement(). invoke() then executes the body again in that Frame.
+	 */
+	Object invoke(Function function, List<Statement> body, Frame functionFrame) {
+		if (callDepth >= callDepthLimit)
+			throw new BudgetExceededError(null, BudgetExceededError.Limit.CALL_DEPTH);
+		if (statementsExecuted >= checkpoint)
+			checkBudget(null);
+		Function caller = this.function;
+		if (++callDepth > peakCallDepth)
+			peakCallDepth = callDepth;
+		callsMade++;
+		this.function = function;
+		Profiler profiler = this.profiler;
+		if (profiler != null)
+			profiler.enter(function.declaration());
+		try {
+			while (executeBlock(body, functionFrame) == Completion.RETURN) {
+				if (tailFrame == null)
+					return returnValue();
+				functionFrame = tailFrame;
+				tailFrame = null;
+				callsMade++;
+				if (statementsExecuted >= checkpoint)
+					checkBudget(null);
+				if (profiler != null)
+					profiler.tailCall(function.declaration());
+			}
+			return null;
+		} catch (StackOverflowError e) {
+			throw new BudgetExceededError(null, BudgetExceededError.Limit.CALL_DEPTH);
+		} finally {
+			callDepth--;
+			this.function = caller;
+			if (profiler != null)
+				profiler.exit(function.declaration());
+		}
+	}
+
+	/*
+	 * returnValue() hands the value recorded by the most recent ReturnStatement to
+	 * Function.call(), clearing it so that the value is not kept reachable.
+	 */
+	Object returnValue() {
+		Object value = returnValue;
+		returnValue = null;
+		return value;
+	}
+
+	/*
+	 * lookUp() retrieves the value of a variable from the current Frame at the
+	 * depth and slot annotated by the Resolver, else from global scope by name.
+	 */
+	private Object lookUp(VariableExpression expression) {
+		if (expression.depth < 0)
+			return globalScope.load(expression.symbol);
+		return frame.load(expression.depth, expression.slot);
+	}
+
+	/*
+	 * assign() reassigns an existing variable, addressed as at lookUp().
+	 */
+	private void assign(VariableExpression expression, Object value) {
+		if (expression.depth < 0) {
+			globalScope.storeExisting(expression.symbol, value);
+		} else {
+			frame.store(expression.depth, expression.slot, value);
+		}
+	}
+
+	/*
+	 * declare() binds a value to a newly declared variable, either at the given
+	 * slot of the current Frame or, if the Resolver found the declaration to be
+	 * global (slot -1), in global scope.
+	 */
+	private void declare(Token symbol, int slot, Object value) {
+		if (slot < 0) {
+			globalScope.store(symbol.symbol, value);
+		} else {
+			frame.slots[slot] = value;
+		}
 	}
 
 	/*
 	 * truthy() tests for the truth of Luria expressions. truthy() returns false in
 	 * case of a false or null value, else true.
 	 */
-	private boolean truthy(Object o) {
+	public static boolean truthy(Object o) {
 		if (o == null)
 			return false;
 		if (o instanceof Boolean)
@@ -131,7 +424,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * equal() tests for equality of Luria expressions. In Luria, null is only equal
 	 * to null.
 	 */
-	private boolean equal(Object l, Object r) {
+	public static boolean equal(Object l, Object r) {
 		if (l == null && r == null)
 			return true;
 		if (l == null)
@@ -143,7 +436,7 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * stringify() presents whole number doubles as integers, removing '.0' before
 	 * printing.
 	 */
-	private String stringify(Object o) {
+	public static String stringify(Object o) {
 		if (o == null)
 			return "null";
 		if (o instanceof Double) {
@@ -157,60 +450,79 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	}
 
 	/*
-	 * visitBinaryExpression() recursively calls on and evaluates the children of a
-	 * binary node. Evaluation is carried out using Java equivalents to Luria
-	 * operations.
+	 * evaluateNumber() evaluates an expression for which isNumeric() is true and
+	 * returns its value as an unboxed double, applying the Visitor pattern by way
+	 * of the NumericVisitor interface. The operands of a numeric expression are
+	 * themselves evaluated by way of numericOperand(), so that a tree of arithmetic
+	 * is computed without allocating a Double for each intermediate result; only
+	 * the caller that requires an Object boxes the final value.
+	 */
+	double evaluateNumber(Expression e) {
+		return e.acceptNumber(this);
+	}
+
+	/*
+	 * visitBinaryNumber() defers to the arithmetic BinaryNode for the operator,
+	 * as does visitBinaryExpression(); see BinaryNode.
 	 */
 	@Override
-	public Object visitBinaryExpression(Binary e) {
-		Object left = evaluate(e.left);
-		Object right = evaluate(e.right);
-		switch (e.operator.type) {
-		// Arithmetic.
-		case PLUS:
-			if (left instanceof Double && right instanceof Double) {
-				return (double) left + (double) right;
-			}
+	public double visitBinaryNumber(Binary e) {
+		return e.node.executeNumber(this, e);
+	}
 
-			if (left instanceof String && right instanceof String) {
-				return (String) left + (String) right;
-			}
-			throw new InterpreterError(e.operator, "Error: Operands must be of same type.");
-		case MINUS:
-			checkOperands(e.operator, left, right);
-			return (double) left - (double) right;
-		case FORWARD_SLASH:
-			checkOperands(e.operator, left, right);
-			return (double) left / (double) right;
-		case ASTERISK:
-			checkOperands(e.operator, left, right);
-			return (double) left * (double) right;
-		case MODULO:
-			checkOperands(e.operator, left, right);
-			return (double) left % (double) right;
-		case EXPONENT:
-			checkOperands(e.operator, left, right);
-			return Math.pow((double) left, (double) right);
-		// Comparison operations.
-		case GREATER:
-			checkOperands(e.operator, left, right);
-			return (double) left > (double) right;
-		case GREATER_EQUAL:
-			checkOperands(e.operator, left, right);
-			return (double) left >= (double) right;
-		case LESS:
-			checkOperands(e.operator, left, right);
-			return (double) left < (double) right;
-		case LESS_EQUAL:
-			checkOperands(e.operator, left, right);
-			return (double) left <= (double) right;
-		// Equality.
-		case EXCLAMATION_EQUAL:
-			return !equal(left, right);
-		case EQUAL_EQUAL:
-			return equal(left, right);
+	@Override
+	public double visitCombinationNumber(Combination e) {
+		return evaluateNumber(e.expression);
+	}
+
+	@Override
+	public double visitLiteralNumber(Literal e) {
+		return (double) e.value;
+	}
+
+	@Override
+	public double visitUnaryNumber(Unary e) {
+		double right = numericOperand(e.right);
+		if (!operandIsNumber)
+			throw new InterpreterError(e.operator, "Operand must be a number.");
+		return -right;
+	}
+
+	/*
+	 * numericOperand() evaluates the operand of an operator that requires numbers.
+	 * An operand for which isNumeric() is true is evaluated by evaluateNumber(),
+	 * an index expression by indexNumber(), and any other as usual, unboxed if it
+	 * is a Double. Rather than throwing, numericOperand() records in
+	 * 'operandIsNumber' whether the operand was a number, so that the caller
+	 * evaluates both its operands before raising an error, in the same order as
+	 * the boxed path; if it was not, its value is left in 'operandValue'. The
+	 * caller must read these before evaluating anything further.
+	 */
+	double numericOperand(Expression e) {
+		if (e.isNumeric()) {
+			double value = evaluateNumber(e);
+			operandIsNumber = true;
+			return value;
 		}
-		return null;
+		if (e instanceof Index)
+			return indexNumber((Index) e);
+		Object value = evaluate(e);
+		operandIsNumber = value instanceof Double;
+		if (!operandIsNumber) {
+			operandValue = value;
+			return 0;
+		}
+		return (double) value;
+	}
+
+	/*
+	 * visitBinaryExpression() defers to the BinaryNode held by the binary node,
+	 * which is specialised to its operator and to the types of the values
+	 * evaluated so far, and rewritten should these change; see BinaryNode.
+	 */
+	@Override
+	public Object visitBinaryExpression(Binary e) {
+		return e.node.execute(this, e);
 	}
 
 	/*
@@ -231,18 +543,17 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 
 	/*
 	 * visitCombinationExpression() evaluates the operand. If a '-' is encountered,
-	 * the operand is negated and returned. If an '!' is encountered it is evaluated
-	 * for truth by way of truthy(), negated and returned.
+	 * the operand is negated by way of evaluateNumber() and returned. If an '!' is
+	 * encountered it is evaluated for truth by way of truthy(), negated and
+	 * returned.
 	 */
 	@Override
 	public Object visitUnaryExpression(Unary e) {
-		Object right = evaluate(e.right);
 		switch (e.operator.type) {
 		case MINUS:
-			checkOperand(e.operator, right);
-			return -(double) right;
+			return evaluateNumber(e);
 		case EXCLAMATION:
-			return !truthy(right);
+			return !truthy(evaluate(e.right));
 		}
 		return null;
 	}
@@ -251,48 +562,56 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * visitExpressionStatement() evaluates the expression of the statement.
 	 */
 	@Override
-	public Void visitExpressionStatement(Statement.ExpressionStatement statement) {
+	public Completion visitExpressionStatement(Statement.ExpressionStatement statement) {
 		evaluate(statement.expression);
-		return null;
+		return Completion.NORMAL;
 	}
 
 	/*
 	 * visitVariableDeclarationStatement() checks for an assignment value
-	 * expression. If null a variable is stored in the MemoryEnvironment by way of
-	 * store() with a null value. Else, the expression is evaluated and stored with
-	 * the declared variable.
+	 * expression. If null a variable is stored by way of declare() with a null
+	 * value. Else, the expression is evaluated and stored with the declared
+	 * variable.
 	 */
 	@Override
-	public Void visitVariableDeclarationStatement(VariableDeclaration statement) {
+	public Completion visitVariableDeclarationStatement(VariableDeclaration statement) {
 		Object value = null;
 		if (statement.initialisation != null) {
 			value = evaluate(statement.initialisation);
 		}
-		environment.store(statement.symbol.lexeme, value);
-		return null;
+		declare(statement.symbol, statement.slot, value);
+		return Completion.NORMAL;
 	}
 
 	/*
-	 * visitBlockStatement() calls executeBlock() passing a new MemoryEnvironment
-	 * for this block.
+	 * visitBlockStatement() calls executeBlock() passing a new Frame for this
+	 * block, sized by the Resolver, unless the Resolver flattened the block into
+	 * the current Frame, in which case its statements are executed in place.
 	 */
 	@Override
-	public Void visitBlockStatement(Block statement) {
-		executeBlock(statement.statements, new MemoryEnvironment(environment));
-		return null;
+	public Completion visitBlockStatement(Block statement) {
+		if (statement.flattened) {
+			for (Statement s : statement.statements) {
+				if (execute(s) == Completion.RETURN)
+					return Completion.RETURN;
+			}
+			return Completion.NORMAL;
+		}
+		blockFramesAllocated++;
+		return executeBlock(statement.statements, new Frame(statement.frameSize, frame));
 	}
 
 	/*
 	 * visitFunctionDeclarationStatement() constructs a Function object with a
 	 * FunctionDeclaration object consisting of a signifier, parameters and a
-	 * function body of statements. This is then stored in the interpreter
-	 * environment.
+	 * function body of statements. The current Frame is captured as the
+	 * function's closure. The function is then declared as a variable.
 	 */
 	@Override
-	public Void visitFunctionDeclarationStatement(FunctionDeclaration statement) {
-		interpretation.Function function = new interpretation.Function(statement, environment);
-		environment.store(statement.symbol.lexeme, function);
-		return null;
+	public Completion visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+		interpretation.Function function = new interpretation.Function(statement, frame, memoTable(statement));
+		declare(statement.symbol, statement.slot, function);
+		return Completion.NORMAL;
 	}
 
 	/*
@@ -300,13 +619,13 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * See comment at Parser.ifStatement().
 	 */
 	@Override
-	public Void visitIfStatement(If statement) {
+	public Completion visitIfStatement(If statement) {
 		if (truthy(evaluate(statement.condition))) {
-			execute(statement.thenBranch);
+			return execute(statement.thenBranch);
 		} else if (statement.elseBranch != null) {
-			execute(statement.elseBranch);
+			return execute(statement.elseBranch);
 		}
-		return null;
+		return Completion.NORMAL;
 	}
 
 	/*
@@ -328,24 +647,36 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	}
 
 	/*
-	 * visitWhileStatement() mirrors implementation of while in Java.
+	 * visitWhileStatement() mirrors implementation of while in Java. A return
+	 * from within the body ends the loop.
 	 */
 	@Override
-	public Void visitWhileStatement(While statement) {
+	public Completion visitWhileStatement(While statement) {
 		while (truthy(evaluate(statement.condition))) {
-			execute(statement.body);
+			if (execute(statement.body) == Completion.RETURN)
+				return Completion.RETURN;
+			if (statementsExecuted >= checkpoint)
+				checkBudget(new Token(WHILE, "while", null, statement.line));
 		}
-		return null;
+		return Completion.NORMAL;
 	}
 
 	/*
 	 * visitCallExpression() gives arguments to an existing function in Luria. It
 	 * returns the return value of the function called. The Function object is
-	 * passed reference to this Interpreter and its arguments.
+	 * passed reference to this Interpreter and its arguments. Where the number of
+	 * arguments is that expected by a Luria Function, they are evaluated straight
+	 * into the slots of its new Frame, without a List. 'linked' is read once, as
+	 * another Interpreter running the same program may link the call anew.
 	 */
 	@Override
 	public Object visitCallExpression(Call expression) {
 		Object called = evaluate(expression.called);
+		NativeFunction linked = expression.linked;
+		if (called == linked && called != null)
+			return callLinked(expression, linked);
+		if (called instanceof Function && ((Function) called).arity() == expression.arguments.size())
+			return callFunction(expression, (Function) called);
 		List<Object> arguments = new ArrayList<>();
 		for (Expression a : expression.arguments) {
 			arguments.add(evaluate(a));
@@ -359,33 +690,184 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	        throw new InterpreterError(expression.rightParenthesis, "Expecting " +
 	            function.arity() + " arguments.");                    
 	      }   
-		return function.call(this, arguments);
+		if (function instanceof NativeFunction) {
+			expression.linked = (NativeFunction) function;
+			if (budget != null)
+				return callNative(expression, (NativeFunction) function, arguments);
+		}
+		try {
+			return function.call(this, arguments);
+		} catch (InterpreterError e) {
+			throw locate(e, expression);
+		}
+	}
+
+	/*
+	 * callFunction() calls a Luria Function, evaluating the arguments into the
+	 * first slots of the Frame in which its body executes.
+	 */
+	private Object callFunction(Call expression, Function function) {
+		List<Expression> arguments = expression.arguments;
+		Frame functionFrame = function.frame();
+		for (int i = 0; i < arguments.size(); i++) {
+			functionFrame.slots[i] = evaluate(arguments.get(i));
+		}
+		try {
+			if (function.memo != null)
+				return invokeMemoised(function, functionFrame);
+			return function.invoke(this, functionFrame);
+		} catch (InterpreterError e) {
+			throw locate(e, expression);
+		}
+	}
+
+	/*
+	 * invokeMemoised() returns the result cached for the arguments in the first
+	 * slots of the Frame, else invokes the function and caches its result. Every
+	 * MemoTable is first cleared if a Callable in global scope has been rebound.
+	 */
+	private Object invokeMemoised(Function function, Frame functionFrame) {
+		if (globalScope.callablesRebound() != memoRebound) {
+			for (MemoTable table : memoTables.values()) {
+				table.clear();
+			}
+			memoRebound = globalScope.callablesRebound();
+		}
+		MemoTable memo = function.memo;
+		Object key = MemoTable.key(functionFrame.slots, function.arity());
+		if (key == MemoTable.UNCACHEABLE)
+			return function.invoke(this, functionFrame);
+		Object result = memo.lookup(key);
+		if (result != MemoTable.MISSING)
+			return result;
+		result = function.invoke(this, functionFrame);
+		memo.store(key, result);
+		return result;
 	}
 
 	/*
-	 * visitReturnStatement() throws a Return exception. See notes at Return,
-	 * Function and visitCallExpression()
+	 * callLinked() calls the NativeFunction to which a call expression has been
+	 * linked, its number of arguments having been checked upon linking, passing
+	 * the arguments as Java arguments rather than collecting them in a List.
+	 */
+	private Object callLinked(Call expression, NativeFunction function) {
+		List<Expression> arguments = expression.arguments;
+		if (budget != null) {
+			List<Object> values = new ArrayList<>(arguments.size());
+			for (Expression a : arguments) {
+				values.add(evaluate(a));
+			}
+			return callNative(expression, function, values);
+		}
+		try {
+			switch (arguments.size()) {
+			case 0:
+				return function.call0();
+			case 1:
+				return function.call1(evaluate(arguments.get(0)));
+			case 2:
+				return function.call2(evaluate(arguments.get(0)), evaluate(arguments.get(1)));
+			default:
+				return function.call3(evaluate(arguments.get(0)), evaluate(arguments.get(1)),
+						evaluate(arguments.get(2)));
+			}
+		} catch (InterpreterError e) {
+			throw locate(e, expression);
+		}
+	}
+
+	/*
+	 * callNative() calls a builtin under a Budget. An allocation the builtin
+	 * declares beyond the elements remaining is raised before the call, at the
+	 * call; after it, the elements by which it grew the arrays given it and those
+	 * of any new array it returned are counted as allocated.
+	 */
+	private Object callNative(Call expression, NativeFunction function, List<Object> arguments) {
+		long before = elements(arguments);
+		Object result;
+		try {
+			if (function.allocation(arguments) > maxArrayElements - arrayElements)
+				throw new BudgetExceededError(expression.rightParenthesis, BudgetExceededError.Limit.ARRAY_ELEMENTS);
+			result = function.call(this, arguments);
+		} catch (InterpreterError e) {
+			throw locate(e, expression);
+		}
+		long allocated = Math.max(elements(arguments) - before, 0);
+		if (result instanceof LuriaArray && !isArgument(result, arguments))
+			allocated += ((LuriaArray) result).size();
+		allocate(allocated);
+		if (arrayElements > maxArrayElements)
+			throw new BudgetExceededError(expression.rightParenthesis, BudgetExceededError.Limit.ARRAY_ELEMENTS);
+		return result;
+	}
+
+	private static long elements(List<Object> arguments) {
+		long elements = 0;
+		for (Object argument : arguments) {
+			if (argument instanceof LuriaArray)
+				elements += ((LuriaArray) argument).size();
+		}
+		return elements;
+	}
+
+	// LuriaArray.equals() compares elements, so identity is tested here.
+	private static boolean isArgument(Object value, List<Object> arguments) {
+		for (Object argument : arguments) {
+			if (argument == value)
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * locate() gives an error raised by a NativeFunction, which has no Token of
+	 * its own, the Token of the call expression that called it.
+	 */
+	private static InterpreterError locate(InterpreterError e, Call expression) {
+		if (e.token == null)
+			return e.at(expression.rightParenthesis);
+		return e;
+	}
+
+	/*
+	 * visitReturnStatement() records the value returned and completes RETURN. See
+	 * notes at Completion, Function and visitCallExpression(). Of a tail call, if
+	 * the function called is that executing and is given the number of arguments
+	 * it expects, it evaluates the arguments into 'tailFrame' for invoke().
 	 */
 	@Override
-	public Void visitReturnStatement(Return statement) {
+	public Completion visitReturnStatement(Return statement) {
+		if (statement.tailCall) {
+			Call call = (Call) statement.value;
+			if (evaluate(call.called) == function && call.arguments.size() == function.arity()) {
+				Frame next = function.frame();
+				for (int i = 0; i < call.arguments.size(); i++) {
+					next.slots[i] = evaluate(call.arguments.get(i));
+				}
+				tailFrame = next;
+				return Completion.RETURN;
+			}
+		}
 		Object value = null;
 		if (statement.value != null)
 			value = evaluate(statement.value);
-		throw new interpretation.Return(value);
+		returnValue = value;
+		return Completion.RETURN;
 	}
 
 	/*
-	 * visitArrayExpression() returns all values in an array.
+	 * visitArrayExpression() returns all values in an array, a LuriaArray.
 	 */
 	@Override
 	public Object visitArrayExpression(Array expression) {
-		List<Object> components = new ArrayList<>();
-		if (expression.components != null) {
-			for (Expression component : expression.components) {
-				components.add(evaluate(component));
-			}
+		if (expression.components == null)
+			return LuriaArray.of();
+		Object[] components = new Object[expression.components.size()];
+		for (int i = 0; i < components.length; i++) {
+			components[i] = evaluate(expression.components.get(i));
 		}
-		return components;
+		allocate(components.length);
+		return LuriaArray.of(components);
 	}
 
 	/*
@@ -393,40 +875,75 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 */
 	@Override
 	public Object visitIndexExpression(Index expression) {
+		LuriaArray array = subscript(expression);
+		return array.get(subscriptIndex);
+	}
+
+	/*
+	 * indexNumber() is the counterpart of visitIndexExpression() for an index
+	 * expression that is the operand of an operator requiring numbers, reading a
+	 * numeric array without boxing its element; see numericOperand().
+	 */
+	private double indexNumber(Index expression) {
+		LuriaArray array = subscript(expression);
+		if (array.isNumeric()) {
+			operandIsNumber = true;
+			return array.getNumber(subscriptIndex);
+		}
+		Object value = array.get(subscriptIndex);
+		operandIsNumber = value instanceof Double;
+		if (!operandIsNumber) {
+			operandValue = value;
+			return 0;
+		}
+		return (double) value;
+	}
+
+	/*
+	 * subscript() evaluates the array and index of an index expression, checking
+	 * both, and returns the array, leaving the index in 'subscriptIndex'. The index is
+	 * evaluated unboxed where it can be.
+	 */
+	private LuriaArray subscript(Index expression) {
 		Object object = evaluate(expression.object);
-		if (!(object instanceof List)) {
+		if (!(object instanceof LuriaArray)) {
 			throw new InterpreterError(expression.symbol, "Error: array expected.");
 		}
-		List array = (List) object;
-		Object objectIndex = evaluate(expression.index);
-		if (!(objectIndex instanceof Double)) {
+		LuriaArray array = (LuriaArray) object;
+		double objectIndex = numericOperand(expression.index);
+		if (!operandIsNumber) {
 			throw new InterpreterError(expression.symbol, "Error: integer expected.");
 		}
-		int index = ((Double) objectIndex).intValue();
-		if (index >= array.size()) {
+		int i = (int) objectIndex;
+		if (i < 0 || i >= array.size()) {
 			throw new InterpreterError(expression.symbol, "Error: index is beyond array range.");
 		}
-		return array.get(index);
+		subscriptIndex = i;
+		return array;
 	}
 
 	/*
-	 * visitVariableExpression() retrieves the value of a variable held in the
-	 * MemoryEnvironment.
+	 * visitVariableExpression() retrieves the value of a variable by way of
+	 * lookUp().
 	 */
 	@Override
 	public Object visitVariableExpression(VariableExpression expression) {
-		return environment.load(expression.symbol);
+		return lookUp(expression);
 	}
 
 	/*
 	 * visitAssignmentExpression() extracts and evaluates the assignment
-	 * expression's value and reassigns this to the given variable in the
-	 * MemoryEnvironment.
+	 * expression's value and reassigns this to the given variable, either in the
+	 * Frame at the depth and slot annotated by the Resolver or in global scope.
 	 */
 	@Override
 	public Object visitAssignmentExpression(Assignment expression) {
 		Object value = evaluate(expression.value);
-		environment.storeExisting(expression.symbol, value);
+		if (expression.depth < 0) {
+			globalScope.storeExisting(expression.symbol, value);
+		} else {
+			frame.store(expression.depth, expression.slot, value);
+		}
 		return value;
 	}
 
@@ -434,10 +951,10 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * visitPrintStatement() prints its child expression.
 	 */
 	@Override
-	public Void visitPrintStatement(Print statement) {
+	public Completion visitPrintStatement(Print statement) {
 		Object value = evaluate(statement.expression);
-		System.out.println(stringify(value));
-		return null;
+		out.println(stringify(value));
+		return Completion.NORMAL;
 	}
  
 	/*
@@ -447,54 +964,53 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 	 * for a system of type checking. Each read statement applies a Java Scanner
 	 * object to retrieve input from the user. Input is then parsed for the
 	 * applicable terminal (literal) value, else an error is thrown. This value is
-	 * then stored (assigned to) in the MemoryEnvironment.
+	 * then stored (assigned to) by way of assign().
 	 */
 	@Override
-	public Void visitReadBooleanStatement(ReadBoolean statement) {
-		Token t = ((Expression.VariableExpression) statement.expression).symbol;
-		Scanner s = new Scanner(System.in);
+	public Completion visitReadBooleanStatement(ReadBoolean statement) {
+		Expression.VariableExpression variable = (Expression.VariableExpression) statement.expression;
+		Token t = variable.symbol;
+		Scanner s = new Scanner(in);
 		while (true) {
 			String input = s.nextLine();
 			if (input.equals("true")) {
 				Object value = evaluate(new Expression.Literal(input));
-				environment.storeExisting(t, value);
+				assign(variable, value);
 				break;
 			} else if (input.equals("false")) {
 				Object value = evaluate(new Expression.Literal(input));
-				environment.storeExisting(t, value);
+				assign(variable, value);
 				break;
 			} else {
 				throw new InterpreterError(t, "Boolean value expected.");
 			}
 		}
 
-		return null;
+		return Completion.NORMAL;
 	}
 
 	/*
 	 * visitReadStringStatement().
 	 */
 	@Override
-	public Void visitReadStringStatement(ReadString statement) {
-		Scanner s = new Scanner(System.in);
+	public Completion visitReadStringStatement(ReadString statement) {
+		Scanner s = new Scanner(in);
 		String input = s.nextLine();
 		Object value = evaluate(new Expression.Literal(input));
-		Token t = ((Expression.VariableExpression) statement.expression).symbol;
-		environment.storeExisting(t, value);
-		return null;
+		assign((Expression.VariableExpression) statement.expression, value);
+		return Completion.NORMAL;
 	}
 
 	/*
 	 * visitReadNumberStatement().
 	 */
 	@Override
-	public Void visitReadNumberStatement(ReadNumber statement) {
-		Scanner s = new Scanner(System.in);
+	public Completion visitReadNumberStatement(ReadNumber statement) {
+		Scanner s = new Scanner(in);
 		double input = s.nextDouble();
 		Object value = evaluate(new Expression.Literal(input));
-		Token t = ((Expression.VariableExpression) statement.expression).symbol;
-		environment.storeExisting(t, value);
-		return null;
+		assign((Expression.VariableExpression) statement.expression, value);
+		return Completion.NORMAL;
 	}
 
 	/*
@@ -508,20 +1024,25 @@ public class Interpreter implements Expression.Visitor<Object>, Statement.Visito
 			subscript = (Expression.Index) expression.index;
 		}
 		Object listObject = evaluate(subscript.object);
-		if (!(listObject instanceof List)) {
+		if (!(listObject instanceof LuriaArray)) {
 			throw new InterpreterError(expression.symbol, "Expected array.");
 		}
-		List<Object> list = (List) listObject;
-		Object indexObject = evaluate(subscript.index);
-		if (!(indexObject instanceof Double)) {
+		LuriaArray list = (LuriaArray) listObject;
+		double indexNumber = numericOperand(subscript.index);
+		if (!operandIsNumber) {
 			throw new InterpreterError(expression.symbol, "Expected expression for array index.");
 		}
-		int index = ((Double) indexObject).intValue();
-		if (index >= list.size()) {
+		int index = (int) indexNumber;
+		if (index < 0 || index >= list.size()) {
 			throw new InterpreterError(expression.symbol, "Array index out of range.");
 		}
+		if (expression.value.isNumeric()) {
+			double value = evaluateNumber(expression.value);
+			list.storeNumber(index, value);
+			return value;
+		}
 		Object value = evaluate(expression.value);
-		list.set(index, value);
+		list.store(index, value);
 		return value;
 	}
 
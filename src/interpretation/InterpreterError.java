@@ -17,5 +17,14 @@ public class InterpreterError extends RuntimeException {
 		super(message);
 		this.token = token;
 	}
+
+	/*
+	 * at() returns an error of the same type and message at the given Token, by
+	 * which the caller of a function attaches its call to an error raised without
+	 * a Token.
+	 */
+	InterpreterError at(Token token) {
+		return new InterpreterError(token, getMessage());
+	}
 	
 }
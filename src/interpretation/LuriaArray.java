@@ -0,0 +1,223 @@
+/*
+ * The LuriaArray class is the runtime representation of a Luria array. Its elements are stored by one of two strategies:
+ * an array of numbers is held unboxed in a double[], 'numbers', and any other in an Object[], 'objects'. An array takes
+ * the numeric strategy if every element it is created with is a number, and falls back to the generic strategy, for good,
+ * upon the first store of anything else. A numeric array of a million elements thus costs eight bytes per element rather
+ * than the reference and Double of an ArrayList<Object>, and getNumber() and storeNumber() read and write it without
+ * boxing.
+ *
+ * An array grows as elements are pushed onto it: its storage has a capacity beyond its size, which is doubled whenever
+ * it is filled, so that pushing n elements copies O(n) elements in all. Bulk operations copy by way of
+ * System.arraycopy(). See ArrayFunctions for the builtin functions over arrays.
+ *
+ * LuriaArray is a List, so that it prints and compares as did the ArrayList by which arrays were formerly
+ * represented, e.g. '[1.0, a]', and so that an embedding program may read it as a List; see LuriaContext.
+ *
+ * */
+
+package interpretation;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+public class LuriaArray extends AbstractList<Object> implements RandomAccess {
+	private static final double[] EMPTY = {};
+
+	private double[] numbers;
+	private Object[] objects;
+	private int size;
+
+	private LuriaArray(double[] numbers, Object[] objects, int size) {
+		this.numbers = numbers;
+		this.objects = objects;
+		this.size = size;
+	}
+
+	/*
+	 * of() returns an array of the given values, held unboxed if every value is a
+	 * number. The array of values passed may be kept by the LuriaArray, so must
+	 * not be used after.
+	 */
+	public static LuriaArray of(Object... values) {
+		for (Object value : values) {
+			if (!(value instanceof Double))
+				return new LuriaArray(null, values, values.length);
+		}
+		double[] numbers = values.length == 0 ? EMPTY : new double[values.length];
+		for (int i = 0; i < values.length; i++) {
+			numbers[i] = (double) values[i];
+		}
+		return new LuriaArray(numbers, null, values.length);
+	}
+
+	/*
+	 * isNumeric() returns true while the array holds only numbers, i.e. while
+	 * getNumber() may be called.
+	 */
+	public boolean isNumeric() {
+		return numbers != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Object get(int index) {
+		if (numbers != null)
+			return numbers[checkIndex(index)];
+		return objects[checkIndex(index)];
+	}
+
+	public double getNumber(int index) {
+		return numbers[checkIndex(index)];
+	}
+
+	/*
+	 * filled() returns an array of the given size, every element of which is
+	 * 'fill'.
+	 */
+	public static LuriaArray filled(int size, Object fill) {
+		if (fill instanceof Double) {
+			double[] numbers = new double[size];
+			Arrays.fill(numbers, (double) fill);
+			return new LuriaArray(numbers, null, size);
+		}
+		Object[] objects = new Object[size];
+		Arrays.fill(objects, fill);
+		return new LuriaArray(null, objects, size);
+	}
+
+	/*
+	 * push() appends a value to the array, doubling its capacity if full.
+	 */
+	public void push(Object value) {
+		if (size == capacity())
+			grow();
+		size++;
+		store(size - 1, value);
+	}
+
+	/*
+	 * pop() removes and returns the last element of the array, which must not be
+	 * empty.
+	 */
+	public Object pop() {
+		Object value = get(size - 1);
+		if (objects != null)
+			objects[size - 1] = null;
+		size--;
+		return value;
+	}
+
+	/*
+	 * slice() returns a new array of the elements from index 'from', inclusive,
+	 * to 'to', exclusive, held by the same strategy as this array.
+	 */
+	public LuriaArray slice(int from, int to) {
+		if (from < 0 || to > size || from > to)
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + size);
+		if (numbers != null)
+			return new LuriaArray(Arrays.copyOfRange(numbers, from, to), null, to - from);
+		return new LuriaArray(null, Arrays.copyOfRange(objects, from, to), to - from);
+	}
+
+	public LuriaArray copy() {
+		return slice(0, size);
+	}
+
+	private int capacity() {
+		return numbers != null ? numbers.length : objects.length;
+	}
+
+	private void grow() {
+		int capacity = Math.max(capacity() * 2, 8);
+		if (numbers != null) {
+			numbers = Arrays.copyOf(numbers, capacity);
+		} else {
+			objects = Arrays.copyOf(objects, capacity);
+		}
+	}
+
+	/*
+	 * store() is set() without returning the element replaced, which would box it
+	 * if a number. Storing anything but a number into a numeric array moves its
+	 * elements to the generic strategy.
+	 */
+	public void store(int index, Object value) {
+		checkIndex(index);
+		if (numbers != null) {
+			if (value instanceof Double) {
+				numbers[index] = (double) value;
+				return;
+			}
+			generalise();
+		}
+		objects[index] = value;
+	}
+
+	public void storeNumber(int index, double value) {
+		checkIndex(index);
+		if (numbers != null) {
+			numbers[index] = value;
+		} else {
+			objects[index] = value;
+		}
+	}
+
+	@Override
+	public Object set(int index, Object value) {
+		Object previous = get(index);
+		store(index, value);
+		return previous;
+	}
+
+	private void generalise() {
+		Object[] boxed = new Object[numbers.length];
+		for (int i = 0; i < size; i++) {
+			boxed[i] = numbers[i];
+		}
+		objects = boxed;
+		numbers = null;
+	}
+
+	private int checkIndex(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+		return index;
+	}
+
+	/*
+	 * equals() and hashCode() are those of List, but compare and hash two numeric
+	 * arrays without boxing their elements. As at Double.equals(), NaN is equal to
+	 * itself and 0.0 is not equal to -0.0.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (o instanceof LuriaArray && numbers != null && ((LuriaArray) o).numbers != null) {
+			LuriaArray other = (LuriaArray) o;
+			if (size != other.size)
+				return false;
+			for (int i = 0; i < size; i++) {
+				if (Double.doubleToLongBits(numbers[i]) != Double.doubleToLongBits(other.numbers[i]))
+					return false;
+			}
+			return true;
+		}
+		return super.equals(o);
+	}
+
+	@Override
+	public int hashCode() {
+		if (numbers == null)
+			return super.hashCode();
+		int hash = 1;
+		for (int i = 0; i < size; i++) {
+			hash = 31 * hash + Double.hashCode(numbers[i]);
+		}
+		return hash;
+	}
+
+}
@@ -0,0 +1,148 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.PrintingErrorReporter;
+import virtual_machine.VirtualMachine;
+
+class LuriaArrayTest {
+
+	@Test
+	final void testNumericStrategy() {
+		LuriaArray array = LuriaArray.of(1.0, 2.0, 3.0);
+		assertTrue(array.isNumeric());
+		assertEquals(2.0, array.getNumber(1));
+		array.storeNumber(1, 5.0);
+		assertEquals(5.0, array.get(1));
+		assertTrue(LuriaArray.filled(4, 0.0).isNumeric());
+		assertFalse(LuriaArray.of(1.0, "a").isNumeric());
+		assertFalse(LuriaArray.filled(4, null).isNumeric());
+	}
+
+	/*
+	 * testGenericStrategyFallback() stores a string into a numeric array, which
+	 * must move every element to the generic strategy, for good.
+	 */
+	@Test
+	final void testGenericStrategyFallback() {
+		LuriaArray array = LuriaArray.of(1.0, 2.0, 3.0);
+		array.store(2, "c");
+		assertFalse(array.isNumeric());
+		assertEquals(Arrays.asList(1.0, 2.0, "c"), array);
+		array.store(2, 3.0);
+		assertFalse(array.isNumeric());
+		array.storeNumber(0, 7.0);
+		assertEquals(Arrays.asList(7.0, 2.0, 3.0), array);
+		assertEquals(LuriaArray.of(7.0, 2.0, 3.0), array);
+		assertEquals(LuriaArray.of(7.0, 2.0, 3.0).hashCode(), array.hashCode());
+
+		LuriaArray pushed = LuriaArray.of(1.0);
+		pushed.push(null);
+		assertFalse(pushed.isNumeric());
+		assertEquals(Arrays.asList(1.0, null), pushed);
+	}
+
+	@Test
+	final void testPushGrows() {
+		for (LuriaArray array : new LuriaArray[] { LuriaArray.of(), LuriaArray.of("a") }) {
+			int initial = array.size();
+			for (int i = 0; i < 1000; i++) {
+				array.push((double) i);
+			}
+			assertEquals(initial + 1000, array.size());
+			assertEquals(999.0, array.get(initial + 999));
+			assertEquals(0.0, array.get(initial));
+		}
+		// The empty arrays of of() share their storage, which push() must not change.
+		assertEquals(0, LuriaArray.of().size());
+	}
+
+	@Test
+	final void testPop() {
+		LuriaArray array = LuriaArray.of(1.0, "b");
+		assertEquals("b", array.pop());
+		assertEquals(1.0, array.pop());
+		assertTrue(array.isEmpty());
+		assertThrows(IndexOutOfBoundsException.class, () -> array.pop());
+		assertThrows(IndexOutOfBoundsException.class, () -> LuriaArray.of().pop());
+		array.push(2.0);
+		assertEquals(Arrays.asList(2.0), array);
+	}
+
+	@Test
+	final void testSliceBounds() {
+		LuriaArray array = LuriaArray.of(0.0, 1.0, 2.0, 3.0);
+		assertEquals(LuriaArray.of(1.0, 2.0), array.slice(1, 3));
+		assertEquals(LuriaArray.of(), array.slice(4, 4));
+		assertEquals(array, array.slice(0, 4));
+		assertThrows(IndexOutOfBoundsException.class, () -> array.slice(-1, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> array.slice(0, 5));
+		assertThrows(IndexOutOfBoundsException.class, () -> array.slice(3, 2));
+		assertThrows(IndexOutOfBoundsException.class, () -> array.get(4));
+		assertFalse(LuriaArray.of("a", "b", "c").slice(0, 2).isNumeric());
+	}
+
+	@Test
+	final void testCopyIndependent() {
+		LuriaArray array = LuriaArray.of(1.0, 2.0);
+		LuriaArray copy = array.copy();
+		assertEquals(array, copy);
+		copy.store(0, "a");
+		copy.push(3.0);
+		assertEquals(LuriaArray.of(1.0, 2.0), array);
+		assertTrue(array.isNumeric());
+		array.store(1, 9.0);
+		assertEquals(Arrays.asList("a", 2.0, 3.0), copy);
+	}
+
+	/*
+	 * run() compiles and runs the given source code by the Interpreter, or by the
+	 * VirtualMachine, and returns what it printed, errors included.
+	 */
+	static String run(String sourceCode, boolean vm) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		PrintingErrorReporter errors = new PrintingErrorReporter(out);
+		CompiledProgram program = CompiledProgram.compile(sourceCode, errors);
+		if (program != null) {
+			ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+			if (vm)
+				new VirtualMachine(out, in, errors).interpret(program.bytecode());
+			else
+				new Interpreter(out, in, errors).interpret(program.statements);
+		}
+		return bytes.toString().replace("\r\n", "\n");
+	}
+
+	static void assertPrints(String expected, String sourceCode) {
+		assertEquals(expected, run(sourceCode, false), "Interpreter");
+		assertEquals(expected, run(sourceCode, true), "VirtualMachine");
+	}
+
+	@Test
+	final void testBuiltins() {
+		assertPrints("[1.0, 1.0, 1.0, x]\nx\n3\n", "variable a = array(3, 1); push(a, \"x\"); print a;"
+				+ " print pop(a); print len(a);");
+		assertPrints("20\n19\n0\n100\n[2.0, 3.0, 4.0]\n[]\n[0.0, y, 2.0]\n1\n", "variable b = []; variable i = 0;"
+				+ " while (i < 20) { push(b, i); i = i + 1; } print len(b); print b[19];"
+				+ " variable c = copy(b); c[0] = 100; print b[0]; print c[0];"
+				+ " print slice(b, 2, 5); print slice(b, 3, 3);"
+				+ " b[1] = \"y\"; print slice(b, 0, 3); print c[1];");
+	}
+
+	@Test
+	final void testBuiltinErrors() {
+		assertPrints("0\nError: array is empty.\n[@ 2]\n", "print 1 - 1;\nprint pop([]);");
+		assertPrints("Error: slice is beyond array range.\n[@ 1]\n", "print slice([1], 1, 2);");
+		assertPrints("Error: slice is beyond array range.\n[@ 1]\n", "print slice([1, 2], 2, 1);");
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * The MemoTable class is the cache of results by which the Interpreter memoises a pure function; see PurityAnalyser.
+ * Results are keyed by the arguments of the call: a single argument is its own key, and several are keyed by a List of
+ * them. Only calls whose arguments and result are all immutable values - numbers, strings, Booleans or null - are
+ * cached, as an array may be changed after the call, and a call with any other argument is made as usual.
+ *
+ * A MemoTable holds at most 'capacity' results, evicting the least recently used upon storing another; it is a
+ * LinkedHashMap in access order. hits(), misses() and evictions() count its lookups and evictions since its creation.
+ * Like the Interpreter that holds it, a MemoTable must not be used by more than one thread at once.
+ *
+ * */
+
+package interpretation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class MemoTable {
+	static final Object UNCACHEABLE = new Object();
+	static final Object MISSING = new Object();
+	private static final Object NO_ARGUMENTS = new Object();
+	private static final Object NULL = new Object();
+
+	public final String function;
+	public final int capacity;
+	private final Map<Object, Object> results;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	MemoTable(String function, int capacity) {
+		this.function = function;
+		this.capacity = capacity;
+		this.results = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+				if (size() <= MemoTable.this.capacity)
+					return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * key() returns the key for a call with the given arguments, the first
+	 * 'arity' slots of its Frame, else UNCACHEABLE if any argument is mutable.
+	 */
+	static Object key(Object[] slots, int arity) {
+		for (int i = 0; i < arity; i++) {
+			if (!immutable(slots[i]))
+				return UNCACHEABLE;
+		}
+		switch (arity) {
+		case 0:
+			return NO_ARGUMENTS;
+		case 1:
+			return slots[0] == null ? NULL : slots[0];
+		default:
+			return Arrays.asList(Arrays.copyOf(slots, arity));
+		}
+	}
+
+	static boolean immutable(Object value) {
+		return value == null || value instanceof Double || value instanceof String || value instanceof Boolean;
+	}
+
+	/*
+	 * lookup() returns the result cached for the key, else MISSING.
+	 */
+	Object lookup(Object key) {
+		Object result = results.get(key);
+		if (result == null) {
+			misses++;
+			return MISSING;
+		}
+		hits++;
+		return result == NULL ? null : result;
+	}
+
+	/*
+	 * store() caches the result for the key, if it is immutable.
+	 */
+	void store(Object key, Object result) {
+		if (immutable(result))
+			results.put(key, result == null ? NULL : result);
+	}
+
+	/*
+	 * clear() discards every result cached, keeping the counts of lookups.
+	 */
+	void clear() {
+		results.clear();
+	}
+
+	public int size() {
+		return results.size();
+	}
+
+	public long hits() {
+		return hits;
+	}
+
+	public long misses() {
+		return misses;
+	}
+
+	public long evictions() {
+		return evictions;
+	}
+
+	/*
+	 * hitRate() returns the fraction of lookups that found a result, or 0 if
+	 * there have been none.
+	 */
+	public double hitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d of %d results, %.1f%% hits (%d hits, %d misses, %d evictions)", function, size(),
+				capacity, hitRate() * 100, hits, misses, evictions);
+	}
+
+}
@@ -0,0 +1,61 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MemoTableTest {
+
+	@Test
+	final void testKeys() {
+		Object[] slots = { 1.0, "a", null };
+		assertEquals(1.0, MemoTable.key(slots, 1));
+		assertEquals(List.of(1.0, "a"), MemoTable.key(slots, 2));
+		assertNotNull(MemoTable.key(new Object[] { null }, 1));
+		assertSame(MemoTable.key(new Object[0], 0), MemoTable.key(new Object[0], 0));
+		assertSame(MemoTable.UNCACHEABLE, MemoTable.key(new Object[] { 1.0, LuriaArray.of() }, 2));
+	}
+
+	@Test
+	final void testLookupAndStore() {
+		MemoTable table = new MemoTable("f", 4);
+		Object key = MemoTable.key(new Object[] { 2.0 }, 1);
+		assertSame(MemoTable.MISSING, table.lookup(key));
+		table.store(key, 4.0);
+		assertEquals(4.0, table.lookup(key));
+		Object none = MemoTable.key(new Object[] { 3.0 }, 1);
+		table.store(none, null);
+		assertNull(table.lookup(none));
+		table.store(MemoTable.key(new Object[] { 5.0 }, 1), LuriaArray.of());
+		assertEquals(2, table.size());
+		assertEquals(2L, table.hits());
+		assertEquals(1L, table.misses());
+	}
+
+	@Test
+	final void testLeastRecentlyUsedEvicted() {
+		MemoTable table = new MemoTable("f", 2);
+		table.store(1.0, "one");
+		table.store(2.0, "two");
+		table.lookup(1.0);
+		table.store(3.0, "three");
+		assertEquals(2, table.size());
+		assertEquals(1L, table.evictions());
+		assertSame(MemoTable.MISSING, table.lookup(2.0));
+		assertEquals("one", table.lookup(1.0));
+	}
+
+	@Test
+	final void testClearKeepsCounts() {
+		MemoTable table = new MemoTable("f", 2);
+		table.store(1.0, "one");
+		table.lookup(1.0);
+		table.clear();
+		assertEquals(0, table.size());
+		assertEquals(1L, table.hits());
+		assertSame(MemoTable.MISSING, table.lookup(1.0));
+	}
+
+}
@@ -9,18 +9,29 @@
  * given state, the interpreter program has access recursively to those variables or functions declared in its
  * own environment and all those that enclose it.
  * 
+ * Since the introduction of the Resolver, only global scope is held in a MemoryEnvironment; block and function
+ * scopes are held in array-backed Frames. See comment at Frame. Variables are keyed by their interned Symbol rather than
+ * by name, in an open addressed table of 'keys' and 'values' probed linearly from the hash computed upon interning. As
+ * the same name is always the same Symbol, keys are compared by identity, and by equals() only where the Symbol sought
+ * was not interned; see comment at Symbol. Those methods given a name intern it first.
+ * 
+ * 'callablesRebound' counts the times a variable bound to a Callable has been rebound to anything else, by declaration
+ * or assignment, other than a Function of the same declaration, as when a program is run again. The Interpreter reads
+ * it to clear the MemoTables of pure functions, whose results may depend on the global functions they call.
+ * 
  * */
 
 package interpretation;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import lexical_analysis.Symbol;
 import lexical_analysis.Token;
 
 public class MemoryEnvironment {
 	private final MemoryEnvironment outer;
-	private final Map<String, Object> table = new HashMap<>();
+	private Symbol[] keys = new Symbol[64];
+	private Object[] values = new Object[64];
+	private int size = 0;
+	private int callablesRebound = 0;
 
 	public MemoryEnvironment() {
 		outer = null;
@@ -31,14 +42,32 @@ public class MemoryEnvironment {
 	}
 
 	/*
-	 * load() retrieves from the MemoryEnvironment HashMap the value of a variable
+	 * index() returns the index in 'keys' at which the given Symbol is held, else
+	 * that of the empty entry at which it would be held.
+	 */
+	private int index(Symbol symbol) {
+		Symbol[] keys = this.keys;
+		int mask = keys.length - 1;
+		int i = symbol.hash & mask;
+		Symbol key;
+		while ((key = keys[i]) != symbol && key != null) {
+			if (key.hash == symbol.hash && !symbol.interned && key.equals(symbol))
+				break;
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/*
+	 * load() retrieves from the MemoryEnvironment table the value of a variable
 	 * by way of its key, i.e. symbol. If this MemoryEnvironment is not 'global'
 	 * load() is called recursively to check for variables of the given key existing
 	 * in those environments that enclose it.
 	 */
 	public Object load(Token symbols) {
-		if (table.containsKey(symbols.lexeme)) {
-			return table.get(symbols.lexeme);
+		int i = index(symbols.symbol);
+		if (keys[i] != null) {
+			return values[i];
 		}
 		if (outer != null)
 			return outer.load(symbols);
@@ -46,24 +75,105 @@ public class MemoryEnvironment {
 		throw new InterpreterError(symbols, "Variable '" + symbols.lexeme + "' is undefined.");
 	}
 
+	/*
+	 * isDefined() returns true if a variable of the given name is bound in this
+	 * MemoryEnvironment or those enclosing it.
+	 */
+	public boolean isDefined(String symbol) {
+		return isDefined(Symbol.intern(symbol));
+	}
+
+	private boolean isDefined(Symbol symbol) {
+		if (keys[index(symbol)] != null)
+			return true;
+		return outer != null && outer.isDefined(symbol);
+	}
+
+	/*
+	 * get() retrieves the value of a variable by name, as does load(), but returns
+	 * null where the variable is undefined rather than raising an error. It serves
+	 * LuriaContext, which has no Token to report an error at.
+	 */
+	public Object get(String symbol) {
+		return get(Symbol.intern(symbol));
+	}
+
+	private Object get(Symbol symbol) {
+		int i = index(symbol);
+		if (keys[i] != null)
+			return values[i];
+		if (outer != null)
+			return outer.get(symbol);
+		return null;
+	}
+
 	/*
 	 * store() binds a symbol or name to a value, storing it in the
-	 * MemoryEnvironment HashMap. Because store() does not check for an existing
+	 * MemoryEnvironment table. Because store() does not check for an existing
 	 * variable associated with the given symbol, variables can be redeclared. This
-	 * method is called from routines that declare or redeclare variables.
+	 * method is called from routines that declare or redeclare variables. The
+	 * table is doubled once it is half full.
 	 */
+	public void store(Symbol symbol, Object value) {
+		int i = index(symbol);
+		if (keys[i] == null) {
+			if (++size * 2 > keys.length) {
+				grow();
+				i = index(symbol);
+			}
+			keys[i] = symbol;
+		} else {
+			rebind(values[i], value);
+		}
+		values[i] = value;
+	}
+
 	public void store(String symbol, Object value) {
-		table.put(symbol, value);
+		store(Symbol.intern(symbol), value);
+	}
+
+	private void grow() {
+		Symbol[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new Symbol[oldKeys.length * 2];
+		values = new Object[oldKeys.length * 2];
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != null) {
+				int i = index(oldKeys[j]);
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/*
+	 * rebind() counts the rebinding of a variable from the given value to
+	 * another, if the old value is a Callable that the new one does not replace
+	 * in kind.
+	 */
+	private void rebind(Object old, Object value) {
+		if (!(old instanceof Callable) || old == value)
+			return;
+		if (old instanceof Function && value instanceof Function
+				&& ((Function) old).declaration() == ((Function) value).declaration())
+			return;
+		callablesRebound++;
+	}
+
+	public int callablesRebound() {
+		return callablesRebound;
 	}
 
 	/*
 	 * storeExisting() checks for an existing variables of a given key in this
-	 * MemoryEnvironment HashMap or in that of its outer MemoryEnvironment. This is
+	 * MemoryEnvironment table or in that of its outer MemoryEnvironment. This is
 	 * the method called from routines that assign values to existing variables.
 	 */
 	public void storeExisting(Token symbol, Object value) {
-		if (table.containsKey(symbol.lexeme)) {
-			table.put(symbol.lexeme, value);
+		int i = index(symbol.symbol);
+		if (keys[i] != null) {
+			rebind(values[i], value);
+			values[i] = value;
 			return;
 		}
 		if (outer != null) {
@@ -0,0 +1,205 @@
+/*
+ * The NativeFunction class is the Callable by which a function implemented in Java, a builtin, is called from Luria.
+ * A NativeFunction is made by of() from a name and a lambda or method reference of up to three arguments, e.g.
+ *
+ *     NativeFunction.of("sqrt", x -> Math.sqrt(NativeFunction.number(x)))
+ *
+ * and bound into global scope by way of a NativeRegistry.
+ *
+ * Rather than taking its arguments as a List, as does call(), a NativeFunction is called by the method for its arity,
+ * call0() to call3(), with the arguments as Java arguments. The Interpreter 'links' each call expression to the
+ * NativeFunction it calls upon first call, checking the number of arguments once, and thereafter calls it by these
+ * methods without checking or allocating; see Interpreter.visitCallExpression(). call() remains for callers that hold
+ * the arguments as a List.
+ *
+ * A NativeFunction marked pure() is one whose calls have no effect but their result, which is determined by their
+ * arguments alone, so that the PurityAnalyser may consider a Luria function that calls it pure. A NativeFunction that
+ * allocates array elements declares by allocates() how many a call will allocate, so that under a Budget the Interpreter
+ * may refuse an allocation beyond it before it is made.
+ *
+ * As a Callable is not given the call from which it was called, the InterpreterErrors thrown by a NativeFunction carry
+ * no Token; the caller attaches that of the call.
+ *
+ * */
+
+package interpretation;
+
+import java.util.Arrays;
+import java.util.List;
+
+public abstract class NativeFunction implements Callable {
+	public final String name;
+	private final int arity;
+	private boolean pure = false;
+	private Allocation allocation = null;
+
+	private NativeFunction(String name, int arity) {
+		this.name = name;
+		this.arity = arity;
+	}
+
+	/*
+	 * An Allocation returns the number of array elements a call with the given
+	 * arguments will allocate. It is called before the call, so must not reject
+	 * arguments the NativeFunction itself would, but count them as allocating 0.
+	 */
+	public interface Allocation {
+		long elements(List<Object> arguments);
+	}
+
+	public interface Function0 {
+		Object apply();
+	}
+
+	public interface Function1 {
+		Object apply(Object a);
+	}
+
+	public interface Function2 {
+		Object apply(Object a, Object b);
+	}
+
+	public interface Function3 {
+		Object apply(Object a, Object b, Object c);
+	}
+
+	public static NativeFunction of(String name, Function0 function) {
+		return new NativeFunction(name, 0) {
+			@Override
+			public Object call0() {
+				return function.apply();
+			}
+		};
+	}
+
+	public static NativeFunction of(String name, Function1 function) {
+		return new NativeFunction(name, 1) {
+			@Override
+			public Object call1(Object a) {
+				return function.apply(a);
+			}
+		};
+	}
+
+	public static NativeFunction of(String name, Function2 function) {
+		return new NativeFunction(name, 2) {
+			@Override
+			public Object call2(Object a, Object b) {
+				return function.apply(a, b);
+			}
+		};
+	}
+
+	public static NativeFunction of(String name, Function3 function) {
+		return new NativeFunction(name, 3) {
+			@Override
+			public Object call3(Object a, Object b, Object c) {
+				return function.apply(a, b, c);
+			}
+		};
+	}
+
+	/*
+	 * pure() marks the NativeFunction pure and returns it, to be called upon its
+	 * construction, e.g. NativeFunction.of("sqrt", ...).pure().
+	 */
+	public NativeFunction pure() {
+		pure = true;
+		return this;
+	}
+
+	public boolean isPure() {
+		return pure;
+	}
+
+	/*
+	 * allocates() gives the NativeFunction the Allocation of its calls and returns
+	 * it, to be called upon its construction as is pure().
+	 */
+	public NativeFunction allocates(Allocation allocation) {
+		this.allocation = allocation;
+		return this;
+	}
+
+	/*
+	 * allocation() returns the number of array elements a call with the given
+	 * arguments will allocate, or 0 if the NativeFunction declares none.
+	 */
+	public long allocation(List<Object> arguments) {
+		return allocation != null ? allocation.elements(arguments) : 0;
+	}
+
+	/*
+	 * call0() to call3() call the NativeFunction with the given arguments. Each
+	 * NativeFunction overrides the one of these for its arity; the others fall
+	 * back upon call(), which reports that the number of arguments is wrong.
+	 */
+	public Object call0() {
+		return call(null, Arrays.asList());
+	}
+
+	public Object call1(Object a) {
+		return call(null, Arrays.asList(a));
+	}
+
+	public Object call2(Object a, Object b) {
+		return call(null, Arrays.asList(a, b));
+	}
+
+	public Object call3(Object a, Object b, Object c) {
+		return call(null, Arrays.asList(a, b, c));
+	}
+
+	/*
+	 * call() checks the number of arguments, and calls the NativeFunction by the
+	 * method for its arity. The Interpreter is unused.
+	 */
+	@Override
+	public Object call(Interpreter interpreter, List<Object> arguments) {
+		if (arguments.size() != arity)
+			throw new InterpreterError(null, "Expecting " + arity + " arguments.");
+		switch (arity) {
+		case 0:
+			return call0();
+		case 1:
+			return call1(arguments.get(0));
+		case 2:
+			return call2(arguments.get(0), arguments.get(1));
+		default:
+			return call3(arguments.get(0), arguments.get(1), arguments.get(2));
+		}
+	}
+
+	@Override
+	public int arity() {
+		return arity;
+	}
+
+	@Override
+	public String toString() {
+		return "<builtin " + name + ">";
+	}
+
+	/*
+	 * number(), integer() and array() check the type of an argument, returning it
+	 * as the Java type expected.
+	 */
+	public static double number(Object value) {
+		if (!(value instanceof Double))
+			throw new InterpreterError(null, "Error: number expected.");
+		return (double) value;
+	}
+
+	public static int integer(Object value) {
+		if (!(value instanceof Double))
+			throw new InterpreterError(null, "Error: integer expected.");
+		return ((Double) value).intValue();
+	}
+
+	public static LuriaArray array(Object value) {
+		if (!(value instanceof LuriaArray))
+			throw new InterpreterError(null, "Error: array expected.");
+		return (LuriaArray) value;
+	}
+
+}
@@ -0,0 +1,25 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class NativeFunctionTest {
+	NativeFunction add = NativeFunction.of("add", (a, b) -> NativeFunction.number(a) + NativeFunction.number(b));
+
+	@Test
+	final void testCallByArity() {
+		assertEquals(3.0, add.call2(1.0, 2.0));
+		assertEquals(3.0, add.call(null, Arrays.asList(1.0, 2.0)));
+	}
+
+	@Test
+	final void testCallByWrongArity() {
+		assertThrows(InterpreterError.class, () -> add.call1(1.0));
+		assertThrows(InterpreterError.class, () -> add.call3(1.0, 2.0, 3.0));
+		assertThrows(InterpreterError.class, () -> add.call(null, Arrays.asList(1.0)));
+	}
+
+}
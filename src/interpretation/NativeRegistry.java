@@ -0,0 +1,53 @@
+/*
+ * The NativeRegistry class holds a set of NativeFunctions by name, to be bound into the global scope of an Interpreter
+ * or VirtualMachine by link(). standard() returns a registry of the builtins of Luria, those of CoreFunctions and
+ * ArrayFunctions, which every Interpreter and VirtualMachine links upon construction. An embedding program may bind
+ * further NativeFunctions by way of LuriaContext.define().
+ *
+ * */
+
+package interpretation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class NativeRegistry {
+	private final Map<String, NativeFunction> functions = new LinkedHashMap<>();
+
+	/*
+	 * register() adds a NativeFunction to the registry. Two may not share a name.
+	 */
+	public NativeRegistry register(NativeFunction function) {
+		if (functions.putIfAbsent(function.name, function) != null)
+			throw new IllegalArgumentException("A native function named '" + function.name + "' is already registered.");
+		return this;
+	}
+
+	public NativeFunction get(String name) {
+		return functions.get(name);
+	}
+
+	public Collection<NativeFunction> functions() {
+		return Collections.unmodifiableCollection(functions.values());
+	}
+
+	/*
+	 * link() binds each NativeFunction of the registry into the given global
+	 * scope by its name.
+	 */
+	public void link(MemoryEnvironment globals) {
+		for (NativeFunction function : functions.values()) {
+			globals.store(function.name, function);
+		}
+	}
+
+	public static NativeRegistry standard() {
+		NativeRegistry registry = new NativeRegistry();
+		CoreFunctions.register(registry);
+		ArrayFunctions.register(registry);
+		return registry;
+	}
+
+}
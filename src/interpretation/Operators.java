@@ -0,0 +1,137 @@
+/*
+ * The Operators class defines what the Luria operators do to values already evaluated: arithmetic and comparison upon
+ * numbers, '+' upon numbers and strings, equality and negation. It holds no state and evaluates nothing, so that it
+ * may be called by the Interpreter at runtime and by the Optimiser at compile time alike, and a folded expression has
+ * exactly the value, or raises exactly the error, that it would have at runtime.
+ *
+ * The BinaryNodes specialised to an operator call the method for that operator, e.g. subtract(); binary() and unary()
+ * switch upon the operator, for those that hold an operator only as a Token. An operation upon values of the wrong type
+ * throws an InterpreterError carrying the operator.
+ *
+ * */
+
+package interpretation;
+
+import lexical_analysis.Token;
+
+public final class Operators {
+
+	private Operators() {
+	}
+
+	/*
+	 * binary() applies a binary operator, other than 'and' and 'or', which are
+	 * not applied to two values, to its operands.
+	 */
+	public static Object binary(Token operator, Object left, Object right) {
+		switch (operator.type) {
+		case PLUS:
+			return add(operator, left, right);
+		case EQUAL_EQUAL:
+			return Interpreter.equal(left, right);
+		case EXCLAMATION_EQUAL:
+			return !Interpreter.equal(left, right);
+		default:
+			break;
+		}
+		if (!(left instanceof Double && right instanceof Double))
+			throw new InterpreterError(operator, "Operands must be numbers.");
+		double l = (double) left;
+		double r = (double) right;
+		switch (operator.type) {
+		case MINUS:
+			return subtract(l, r);
+		case ASTERISK:
+			return multiply(l, r);
+		case FORWARD_SLASH:
+			return divide(l, r);
+		case MODULO:
+			return modulo(l, r);
+		case EXPONENT:
+			return exponent(l, r);
+		case GREATER:
+			return greater(l, r);
+		case GREATER_EQUAL:
+			return greaterEqual(l, r);
+		case LESS:
+			return less(l, r);
+		case LESS_EQUAL:
+			return lessEqual(l, r);
+		default:
+			return null;
+		}
+	}
+
+	/*
+	 * unary() applies a unary operator to its operand: '-' negates a number and
+	 * '!' the truth of any value.
+	 */
+	public static Object unary(Token operator, Object right) {
+		switch (operator.type) {
+		case MINUS:
+			if (!(right instanceof Double))
+				throw new InterpreterError(operator, "Operand must be a number.");
+			return -(double) right;
+		case EXCLAMATION:
+			return !Interpreter.truthy(right);
+		default:
+			return null;
+		}
+	}
+
+	/*
+	 * add() is the generic '+'. Numbers are added and strings concatenated; any
+	 * other combination is an error.
+	 */
+	public static Object add(Token operator, Object left, Object right) {
+		if (left instanceof Double && right instanceof Double) {
+			return (double) left + (double) right;
+		}
+
+		if (left instanceof String && right instanceof String) {
+			return (String) left + (String) right;
+		}
+		throw new InterpreterError(operator, "Error: Operands must be of same type.");
+	}
+
+	public static double add(double left, double right) {
+		return left + right;
+	}
+
+	public static double subtract(double left, double right) {
+		return left - right;
+	}
+
+	public static double multiply(double left, double right) {
+		return left * right;
+	}
+
+	public static double divide(double left, double right) {
+		return left / right;
+	}
+
+	public static double modulo(double left, double right) {
+		return left % right;
+	}
+
+	public static double exponent(double left, double right) {
+		return Math.pow(left, right);
+	}
+
+	public static boolean greater(double left, double right) {
+		return left > right;
+	}
+
+	public static boolean greaterEqual(double left, double right) {
+		return left >= right;
+	}
+
+	public static boolean less(double left, double right) {
+		return left < right;
+	}
+
+	public static boolean lessEqual(double left, double right) {
+		return left <= right;
+	}
+
+}
@@ -0,0 +1,234 @@
+/*
+ * The Profiler class records where the Interpreter spends its time running a Luria program. Given a Profiler by
+ * setProfiler(), the Interpreter reports to it each Luria function call upon its entry and exit, and each statement it
+ * executes; without one, the Interpreter does no more than test for it. The Profiler records:
+ *
+ *     per function     the number of calls and the inclusive and exclusive wall time of them
+ *     per call stack   the exclusive wall time spent in each distinct stack of calls, as a calling context tree
+ *     per line         the number of statements executed on each line of the source code
+ *
+ * A function's inclusive time is that from the entry of its outermost call in progress to its exit, so that recursion
+ * is not counted twice; its exclusive time excludes that spent in the Luria functions it calls. Time spent in builtins
+ * is counted to their caller. A self-recursive tail call counts as a call without adding to the stack. The code outside
+ * any function is counted to the root of the tree, ROOT.
+ *
+ * writeCollapsed() writes the calling context tree in the 'collapsed stack' format read by flame graph tools, e.g.
+ * flamegraph.pl, one line per stack of the frame names separated by ';' and followed by its exclusive time in
+ * microseconds. writeSummary() writes the per-function and per-line tables as text. Functions are named by their name
+ * and the line of their declaration, e.g. 'fibonacci:1', so that functions of the same name are told apart.
+ *
+ * Like the Interpreter, a Profiler must not be used by more than one thread at once.
+ *
+ * */
+
+package interpretation;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import syntactic_analysis.Statement;
+import syntactic_analysis.Statement.Block;
+import syntactic_analysis.Statement.FunctionDeclaration;
+
+public class Profiler {
+	public static final String ROOT = "main";
+	private final Node root = new Node(ROOT, null);
+	private final Map<FunctionDeclaration, FunctionProfile> functions = new LinkedHashMap<>();
+	private Node current = root;
+	private long[] starts = new long[64];
+	private long[] childTimes = new long[64];
+	private int depth = 0;
+	private long[] lineCounts = new long[64];
+
+	/*
+	 * The nested Node class is a node of the calling context tree: a function
+	 * called from the stack of its ancestors, and the calls and exclusive time
+	 * spent in it from there.
+	 */
+	private static class Node {
+		final String name;
+		final Node parent;
+		final Map<FunctionDeclaration, Node> children = new LinkedHashMap<>();
+		long calls = 0;
+		long exclusive = 0;
+
+		Node(String name, Node parent) {
+			this.name = name;
+			this.parent = parent;
+		}
+	}
+
+	/*
+	 * The nested FunctionProfile class holds the totals of a single function
+	 * across every stack from which it was called.
+	 */
+	private static class FunctionProfile {
+		final String name;
+		long calls = 0;
+		long inclusive = 0;
+		long exclusive = 0;
+		int active = 0;
+
+		FunctionProfile(String name) {
+			this.name = name;
+		}
+	}
+
+	/*
+	 * start() and stop() bracket the running of a program by the Interpreter, so
+	 * that the time spent outside any function is counted to ROOT.
+	 */
+	void start() {
+		push();
+	}
+
+	void stop() {
+		long children = childTimes[depth];
+		long elapsed = pop();
+		root.calls++;
+		root.exclusive += elapsed - children;
+	}
+
+	/*
+	 * enter() records the entry of a call of the declared function, and exit()
+	 * its exit, whether it returned or raised an error.
+	 */
+	void enter(FunctionDeclaration declaration) {
+		Node node = current.children.get(declaration);
+		if (node == null) {
+			node = new Node(name(declaration), current);
+			current.children.put(declaration, node);
+		}
+		current = node;
+		node.calls++;
+		FunctionProfile function = profile(declaration);
+		function.calls++;
+		function.active++;
+		push();
+	}
+
+	void exit(FunctionDeclaration declaration) {
+		long children = childTimes[depth];
+		long elapsed = pop();
+		current.exclusive += elapsed - children;
+		current = current.parent;
+		FunctionProfile function = functions.get(declaration);
+		function.exclusive += elapsed - children;
+		// Only the outermost call in progress counts towards inclusive time.
+		if (--function.active == 0)
+			function.inclusive += elapsed;
+	}
+
+	void tailCall(FunctionDeclaration declaration) {
+		current.calls++;
+		functions.get(declaration).calls++;
+	}
+
+	/*
+	 * execute() counts a statement executed on its line. Blocks are not counted,
+	 * as each of their statements is.
+	 */
+	void execute(Statement statement) {
+		if (statement instanceof Block)
+			return;
+		int line = statement.line;
+		if (line >= lineCounts.length)
+			lineCounts = Arrays.copyOf(lineCounts, Math.max(line + 1, lineCounts.length * 2));
+		lineCounts[line]++;
+	}
+
+	/*
+	 * push() records the start of a call, and pop() returns the time spent in it,
+	 * adding it to the time spent in calls by its caller. childTimes[depth] holds
+	 * the time spent in calls by the call in progress.
+	 */
+	private void push() {
+		if (++depth == starts.length) {
+			starts = Arrays.copyOf(starts, depth * 2);
+			childTimes = Arrays.copyOf(childTimes, depth * 2);
+		}
+		starts[depth] = System.nanoTime();
+		childTimes[depth] = 0;
+	}
+
+	private long pop() {
+		long elapsed = System.nanoTime() - starts[depth];
+		childTimes[--depth] += elapsed;
+		return elapsed;
+	}
+
+	private FunctionProfile profile(FunctionDeclaration declaration) {
+		FunctionProfile function = functions.get(declaration);
+		if (function == null) {
+			function = new FunctionProfile(name(declaration));
+			functions.put(declaration, function);
+		}
+		return function;
+	}
+
+	private static String name(FunctionDeclaration declaration) {
+		return declaration.symbol.lexeme + ":" + declaration.symbol.location;
+	}
+
+	/*
+	 * calls() returns the number of calls recorded of functions of the given
+	 * name, and lineCount() the number of statements executed on the given line.
+	 */
+	public long calls(String function) {
+		long calls = 0;
+		for (FunctionProfile profile : functions.values()) {
+			if (profile.name.startsWith(function + ":"))
+				calls += profile.calls;
+		}
+		return calls;
+	}
+
+	public long lineCount(int line) {
+		return line < lineCounts.length ? lineCounts[line] : 0;
+	}
+
+	/*
+	 * writeCollapsed() writes a line for each stack in which time was spent, e.g.
+	 * 'main;fibonacci:1;fibonacci:1 1520'.
+	 */
+	public void writeCollapsed(PrintStream out) {
+		writeCollapsed(out, root, root.name);
+		out.flush();
+	}
+
+	private void writeCollapsed(PrintStream out, Node node, String stack) {
+		long microseconds = node.exclusive / 1000;
+		if (microseconds > 0)
+			out.println(stack + " " + microseconds);
+		for (Node child : node.children.values()) {
+			writeCollapsed(out, child, stack + ";" + child.name);
+		}
+	}
+
+	/*
+	 * writeSummary() writes the functions called, in descending order of
+	 * exclusive time, and the number of statements executed on each line.
+	 */
+	public void writeSummary(PrintStream out) {
+		List<FunctionProfile> profiles = new ArrayList<>(functions.values());
+		profiles.sort((a, b) -> Long.compare(b.exclusive, a.exclusive));
+		out.println(String.format("%-24s %12s %14s %14s", "function", "calls", "inclusive ms", "exclusive ms"));
+		for (FunctionProfile profile : profiles) {
+			out.println(String.format("%-24s %12d %14.3f %14.3f", profile.name, profile.calls, profile.inclusive / 1e6,
+					profile.exclusive / 1e6));
+		}
+		out.println(String.format("%-24s %12d %14s %14.3f", ROOT, root.calls, "", root.exclusive / 1e6));
+		out.println();
+		out.println(String.format("%-8s %14s", "line", "statements"));
+		for (int line = 0; line < lineCounts.length; line++) {
+			if (lineCounts[line] > 0)
+				out.println(String.format("%-8d %14d", line, lineCounts[line]));
+		}
+		out.flush();
+	}
+
+}
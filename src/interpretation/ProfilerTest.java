@@ -0,0 +1,70 @@
+package interpretation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.LuriaInterpreter;
+
+class ProfilerTest {
+	static final String SOURCE_CODE = "function fib(n) {\n"
+			+ "  if (n < 2) return n;\n"
+			+ "  return fib(n - 1) + fib(n - 2);\n"
+			+ "}\n"
+			+ "function count(n) { if (n == 0) return 0; return count(n - 1); }\n"
+			+ "print fib(15);\n"
+			+ "print count(100000);\n";
+
+	/*
+	 * profile() runs the given source code by an Interpreter given a new Profiler,
+	 * and returns the Profiler.
+	 */
+	static Profiler profile(String sourceCode) {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Interpreter interpreter = new Interpreter(new PrintStream(output, true), new ByteArrayInputStream(new byte[0]),
+				LuriaInterpreter.CONSOLE);
+		Profiler profiler = new Profiler();
+		interpreter.setProfiler(profiler);
+		assertTrue(interpreter.interpret(CompiledProgram.compile(sourceCode, LuriaInterpreter.CONSOLE).statements));
+		assertEquals("610\n0\n", output.toString().replace("\r\n", "\n"));
+		return profiler;
+	}
+
+	@Test
+	final void testCallsAndLinesCounted() {
+		Profiler profiler = profile(SOURCE_CODE);
+		assertEquals(1973, profiler.calls("fib"));
+		assertEquals(100001, profiler.calls("count"));
+		assertEquals(0, profiler.calls("missing"));
+		// The if statement on line 2 is executed by every call, and its return by the 987 that end there.
+		assertEquals(1973 + 987, profiler.lineCount(2));
+		assertEquals(1973 - 987, profiler.lineCount(3));
+		assertEquals(1, profiler.lineCount(6));
+		assertEquals(0, profiler.lineCount(4));
+		assertEquals(0, profiler.lineCount(1000));
+	}
+
+	/*
+	 * testCollapsedStacks() checks the format of the collapsed stacks, in which
+	 * recursion of fib adds a frame per level and the tail calls of count add
+	 * none.
+	 */
+	@Test
+	final void testCollapsedStacks() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		profile(SOURCE_CODE).writeCollapsed(new PrintStream(bytes, true));
+		String[] lines = bytes.toString().replace("\r\n", "\n").split("\n");
+		boolean recursed = false;
+		for (String line : lines) {
+			assertTrue(line.matches("main(;fib:1)* [0-9]+|main;count:5 [0-9]+"), line);
+			recursed |= line.startsWith("main;fib:1;fib:1");
+		}
+		assertTrue(recursed, bytes.toString());
+	}
+
+}
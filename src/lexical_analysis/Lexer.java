@@ -1,10 +1,25 @@
 /*
- * The Lexer class is responsible for the lexical analysis of the input source code passed as a String. It converts reserved
- * character sequences or lexemes, e.g. 'variable', '!=', into atomised tokens and adds them to an ArrayList, else it converts
- * them into STRING, NUMBER, or SIGNIFIER (variable or function identifier) tokens. The ArrayList<Token> represents the output
- * of the Lexer class. All characters the lexer will accept for the purpose of constructing tokens represent the 'alphabet' of
- * Luria as a formal language. In the class' fields, counters 'start' and 'current' orient the lexer when lexing the source code
- * string; 'reservedSequence' is a Map that pairs reserved character sequences, e.g. 'and' with their respective TokenType. 
+ * The Lexer class is responsible for the lexical analysis of the input source code passed as a String or Reader. It converts
+ * reserved character sequences or lexemes, e.g. 'variable', '!=', into atomised tokens, else it converts them into STRING,
+ * NUMBER, or SIGNIFIER (variable or function identifier) tokens. The Lexer is a TokenStream: each call to next() lexes and
+ * returns the next Token, so that the Parser may consume a program without its Tokens all being held in memory;
+ * lexSourceCode() instead returns every Token in a List, and lexTokenBuffer() every Token in a TokenBuffer, without a
+ * Token object for each; see comment at TokenBuffer. All characters the lexer will accept for the purpose of
+ * constructing tokens represent the 'alphabet' of Luria as a formal language. In the class' fields, counters 'start' and
+ * 'current' orient the lexer when lexing the source code in 'buffer'. Reserved character sequences, e.g. 'and', are
+ * told from signifiers by the TokenType of their interned Symbol; see comment at Symbol. 'fixedLexeme' holds, by
+ * TokenType, the lexeme of each Token whose lexeme is always the same, e.g. '!=', so that no String is allocated for it.
+ * 
+ * Source code given as a Reader is read into 'buffer' a block at a time. Upon each refill, the chars of Tokens already
+ * lexed are discarded, so that the buffer need only be as long as the longest Token, and memory is bounded however long
+ * the source code is. lexTokenBuffer() is the exception, reading the whole of the source code before lexing it, as the
+ * TokenBuffer refers to its lexemes by their offsets in 'buffer'. A ParallelLexer lexes large source code into a
+ * TokenBuffer by several Lexers at once, each over a range of the same chars by lexRange().
+ * 
+ * The loops that consume runs of chars, i.e. signifiers, digits, whitespace, comments and strings, scan 'buffer'
+ * directly by skip() and skipTo() rather than a char at a time by lookahead() and process(), each of which checks for
+ * the end of the buffer. skip() classifies a char by a lookup in 'charClass' rather than by comparisons. A number is
+ * parsed by parseNumber() without a String being made of it, unless it has too many digits to be parsed exactly.
  * 
  * */
 
@@ -12,43 +27,145 @@ package lexical_analysis;
 
 import static lexical_analysis.TokenType.*;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
+import luria_interpreter.ErrorReporter;
 import luria_interpreter.LuriaInterpreter;
 
-public class Lexer {
-	 final String sourceCode;
-	 final List<Token> tokens = new ArrayList<>();
+public class Lexer implements TokenStream {
+	 static final int BLOCK_SIZE = 8192;
+	 char[] buffer;
+	 int limit;
+	 Reader reader;
+	 final LexerErrorReporter errors;
+	 Token token;
+	 TokenBuffer output;
 	 int start = 0;
 	 int current = 0;
 	 int location = 1;
-	 static final Map<String, TokenType> reservedSequence;
+	 static final String[] fixedLexeme = new String[TokenType.values().length];
+	 static final int ALPHABETIC = 1, NUMERIC = 2, WHITESPACE = 4;
+	 static final byte[] charClass = new byte[128];
+	 static final double[] POWERS_OF_TEN = new double[23];
 
 	static {
-		reservedSequence = new HashMap<>();
-		reservedSequence.put("and", AND);
-		reservedSequence.put("else", ELSE);
-		reservedSequence.put("false", FALSE);
-		reservedSequence.put("for", FOR);
-		reservedSequence.put("function", FUNCTION);
-		reservedSequence.put("if", IF);
-		reservedSequence.put("null", NULL);
-		reservedSequence.put("or", OR);
-		reservedSequence.put("print", PRINT);
-		reservedSequence.put("readboolean", READ_BOOLEAN);
-		reservedSequence.put("readnumber", READ_NUMBER);
-		reservedSequence.put("readstring", READ_STRING);
-		reservedSequence.put("return", RETURN);
-		reservedSequence.put("true", TRUE);
-		reservedSequence.put("variable", VARIABLE);
-		reservedSequence.put("while", WHILE);
+		for (char c = 'a'; c <= 'z'; c++) {
+			charClass[c] = ALPHABETIC;
+			charClass[Character.toUpperCase(c)] = ALPHABETIC;
+		}
+		charClass['_'] = ALPHABETIC;
+		for (char c = '0'; c <= '9'; c++) {
+			charClass[c] = NUMERIC;
+		}
+		charClass[' '] = WHITESPACE;
+		charClass['\r'] = WHITESPACE;
+		charClass['\t'] = WHITESPACE;
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+		fixedLexeme[ASTERISK.ordinal()] = "*";
+		fixedLexeme[COMMA.ordinal()] = ",";
+		fixedLexeme[EXPONENT.ordinal()] = "^";
+		fixedLexeme[FORWARD_SLASH.ordinal()] = "/";
+		fixedLexeme[FULL_STOP.ordinal()] = ".";
+		fixedLexeme[LEFT_BRACE.ordinal()] = "{";
+		fixedLexeme[LEFT_BRACKET.ordinal()] = "[";
+		fixedLexeme[LEFT_PARENTHESIS.ordinal()] = "(";
+		fixedLexeme[MINUS.ordinal()] = "-";
+		fixedLexeme[MODULO.ordinal()] = "%";
+		fixedLexeme[PLUS.ordinal()] = "+";
+		fixedLexeme[RIGHT_BRACE.ordinal()] = "}";
+		fixedLexeme[RIGHT_BRACKET.ordinal()] = "]";
+		fixedLexeme[RIGHT_PARENTHESIS.ordinal()] = ")";
+		fixedLexeme[SEMI_COLON.ordinal()] = ";";
+		fixedLexeme[EQUAL.ordinal()] = "=";
+		fixedLexeme[EQUAL_EQUAL.ordinal()] = "==";
+		fixedLexeme[EXCLAMATION.ordinal()] = "!";
+		fixedLexeme[EXCLAMATION_EQUAL.ordinal()] = "!=";
+		fixedLexeme[GREATER.ordinal()] = ">";
+		fixedLexeme[GREATER_EQUAL.ordinal()] = ">=";
+		fixedLexeme[LESS.ordinal()] = "<";
+		fixedLexeme[LESS_EQUAL.ordinal()] = "<=";
 	}
 
 	public Lexer(String sourceCode) {
-		this.sourceCode = sourceCode;
+		this(sourceCode, LuriaInterpreter.CONSOLE);
+	}
+
+	public Lexer(String sourceCode, ErrorReporter errors) {
+		this.buffer = sourceCode.toCharArray();
+		this.limit = buffer.length;
+		this.errors = errors;
+	}
+
+	/*
+	 * This constructor lexes the given chars, which are not copied; see
+	 * ParallelLexer.
+	 */
+	Lexer(char[] sourceCode, LexerErrorReporter errors) {
+		this.buffer = sourceCode;
+		this.limit = sourceCode.length;
+		this.errors = errors;
+	}
+
+	/*
+	 * This constructor lexes source code read from the given Reader as it is
+	 * needed. The Reader is not closed.
+	 */
+	public Lexer(Reader reader, ErrorReporter errors) {
+		this.buffer = new char[BLOCK_SIZE];
+		this.limit = 0;
+		this.reader = reader;
+		this.errors = errors;
+	}
+
+	/*
+	 * available() returns true if the char 'offset' chars beyond 'current' is in
+	 * the buffer, refilling the buffer from the Reader if it is not.
+	 */
+	 boolean available(int offset) {
+		while (current + offset >= limit) {
+			if (!fill())
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * fill() reads the next block of source code from the Reader into the buffer,
+	 * first discarding the chars before 'start', which belong to Tokens already
+	 * lexed, and growing the buffer if the Token being lexed fills it. It returns
+	 * false once the Reader is exhausted.
+	 */
+	 boolean fill() {
+		if (reader == null)
+			return false;
+		if (start > 0) {
+			System.arraycopy(buffer, start, buffer, 0, limit - start);
+			limit -= start;
+			current -= start;
+			start = 0;
+		}
+		if (limit == buffer.length)
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		int read;
+		try {
+			read = reader.read(buffer, limit, buffer.length - limit);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (read < 0) {
+			reader = null;
+			return false;
+		}
+		limit += read;
+		return true;
 	}
 
 	/*
@@ -57,7 +174,7 @@ public class Lexer {
 	 */
 	 char process() {
 		current++;
-		return sourceCode.charAt(current - 1);
+		return buffer[current - 1];
 	}
 
 	/*
@@ -65,41 +182,93 @@ public class Lexer {
 	 * lower cases and '_'.
 	 */
 	 boolean alphabeticChar(char c) {
-		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+		return c < 128 && (charClass[c] & ALPHABETIC) != 0;
 	}
 
 	/*
 	 * numericChar() checks whether a char is numeric, '0' to '9'.
 	 */
 	 boolean numericChar(char c) {
-		return c >= '0' && c <= '9';
+		return c < 128 && (charClass[c] & NUMERIC) != 0;
 	}
 
 	/*
 	 * alphanumericChar() checks whether a char is either alphabetic or numeric.
 	 */
 	 boolean alphanumericChar(char c) {
-		return alphabeticChar(c) || numericChar(c);
+		return c < 128 && (charClass[c] & (ALPHABETIC | NUMERIC)) != 0;
+	}
+
+	/*
+	 * skip() consumes chars for as long as they are of any of the given classes of
+	 * 'charClass', scanning the buffer directly rather than by lookahead() and
+	 * process(), and refilling it only once it is exhausted.
+	 */
+	 void skip(int classes) {
+		do {
+			char[] b = buffer;
+			int i = current;
+			int n = limit;
+			while (i < n) {
+				char c = b[i];
+				if (c >= 128 || (charClass[c] & classes) == 0)
+					break;
+				i++;
+			}
+			current = i;
+		} while (current >= limit && available(0));
+	}
+
+	/*
+	 * skipTo() consumes chars up to, but not including, the next of the given
+	 * char, or to the end of the source code, counting the new lines it consumes.
+	 */
+	 void skipTo(char stop) {
+		do {
+			char[] b = buffer;
+			int i = current;
+			int n = limit;
+			int lines = 0;
+			while (i < n) {
+				char c = b[i];
+				if (c == stop)
+					break;
+				if (c == '\n')
+					lines++;
+				i++;
+			}
+			current = i;
+			location += lines;
+		} while (current >= limit && available(0));
 	}
 
 	/*
 	 * addToken() receives a TokenType for construction of a Token at addToken().
 	 * This method provides a null value to Tokens that do not have values that may
-	 * be operated upon (non-terminal), i.e. a number or string value.
+	 * be operated upon (non-terminal), i.e. a number or string value, and their
+	 * fixed lexeme.
 	 */
 	 void addToken(TokenType type) {
-		addToken(type, null);
+		if (output != null)
+			output.add(type, start, current - start, location);
+		else
+			token = new Token(type, fixedLexeme[type.ordinal()], null, location, null);
 	}
 
 	/*
-	 * addToken() constructs a Token object and adds it to the ArrayList<Token>. A
+	 * addToken() constructs a Token object, to be returned by next(). A
 	 * Token has a.) a TokenType, b.) a value (e.g. 'null', '2', 'hello'), c.) a
 	 * lexeme, or the string associated with the Token produced, (e.g. ';',
-	 * 'hello'), and d.) the location, i.e. line count.
+	 * 'hello'), and d.) the location, i.e. line count. Lexing into a TokenBuffer,
+	 * it instead appends the Token to 'output', without a lexeme.
 	 */
 	 void addToken(TokenType type, Object literal) {
-		String lexeme = sourceCode.substring(start, current);
-		tokens.add(new Token(type, lexeme, literal, location));
+		if (output != null) {
+			output.add(type, start, current - start, location, literal);
+			return;
+		}
+		String lexeme = new String(buffer, start, current - start);
+		token = new Token(type, lexeme, literal, location);
 	}
 
 	/*
@@ -114,7 +283,7 @@ public class Lexer {
 		if (end()) {
 			return false;
 		}
-		if (sourceCode.charAt(current) != c) {
+		if (buffer[current] != c) {
 			return false;
 		}
 		current++;
@@ -130,7 +299,7 @@ public class Lexer {
 		if (end()) {
 			return '\0';
 		}
-		return sourceCode.charAt(current);
+		return buffer[current];
 	}
 
 	/*
@@ -139,32 +308,93 @@ public class Lexer {
 	 * e.g. '1.0', not '1.a'.
 	 */
 	 char doubleLookahead() {
-		if (current + 1 >= sourceCode.length()) {
+		if (!available(1)) {
 			return '\0';
 		}
-		return sourceCode.charAt(current + 1);
+		return buffer[current + 1];
 	}
 
 	/*
-	 * end() checks whether the lexer has reached the end of the source code string.
+	 * end() checks whether the lexer has reached the end of the source code.
 	 */
 	 boolean end() {
-		return current >= sourceCode.length();
+		return current >= limit && !available(0);
 	}
 
 	/*
-	 * lexSourceCode() is the primary method of Lexer and returns its output, a
-	 * List<Token>. All lexed programs end with an EOF Token.
+	 * next() is the primary method of Lexer and returns its output, the next
+	 * Token of the source code. All lexed programs end with an EOF Token.
 	 */
-	public List<Token> lexSourceCode() {
-		while (!end()) {
+	@Override
+	public Token next() {
+		while (token == null) {
+			if (end())
+				return new Token(EOF, "", null, location);
 			start = current;
 			lexToken();
 		}
-		tokens.add(new Token(EOF, "", null, location));
+		Token next = token;
+		token = null;
+		return next;
+	}
+
+	/*
+	 * lexSourceCode() lexes the whole of the source code and returns its Tokens
+	 * as a List<Token>, ending with the EOF Token.
+	 */
+	public List<Token> lexSourceCode() {
+		List<Token> tokens = new ArrayList<>();
+		Token t;
+		do {
+			t = next();
+			tokens.add(t);
+		} while (t.type != EOF);
 		return tokens;
 	}
 
+	/*
+	 * lexTokenBuffer() lexes the whole of the source code into a TokenBuffer,
+	 * ending with an EOF Token. The buffer is first filled with the rest of the
+	 * source code, so that no lexeme is discarded.
+	 */
+	public TokenBuffer lexTokenBuffer() {
+		while (fill()) {
+		}
+		TokenBuffer tokens = new TokenBuffer(buffer, Math.max(16, (limit - current) / 4));
+		output = tokens;
+		try {
+			while (!end()) {
+				start = current;
+				lexToken();
+			}
+		} finally {
+			output = null;
+		}
+		tokens.add(EOF, current, 0, location);
+		return tokens;
+	}
+
+	/*
+	 * lexRange() lexes, from the given offset, those Tokens that begin before
+	 * 'to' into the given TokenBuffer, without an EOF Token. A Token begun before
+	 * 'to' is lexed in full, even where it ends beyond it. It returns the offset at
+	 * which the next Token would begin; 'location' is then the line there, counted
+	 * from that at which lexRange() was called.
+	 */
+	 int lexRange(TokenBuffer tokens, int from, int to) {
+		current = from;
+		output = tokens;
+		try {
+			while (current < to && !end()) {
+				start = current;
+				lexToken();
+			}
+		} finally {
+			output = null;
+		}
+		return current;
+	}
+
 	/*
 	 * lexToken() is the body of the Lexer class, applying the above helper methods
 	 * to conditionally decide, at its position in the source code, what Token to
@@ -231,9 +461,7 @@ public class Lexer {
 			break;
 		case '/':
 			if (match('/')) {
-				while (lookahead() != '\n' && !end()) {
-					process();
-				}
+				skipTo('\n');
 			} else {
 				addToken(FORWARD_SLASH);
 			}
@@ -242,6 +470,7 @@ public class Lexer {
 		case ' ':
 		case '\r':
 		case '\t':
+			skip(WHITESPACE);
 			break;
 		case '\n':
 			location++;
@@ -257,27 +486,56 @@ public class Lexer {
 			} else if (alphabeticChar(c)) {
 				lexSignifier();
 			} else {
-				LuriaInterpreter.lexerError(location, "unsupported character.");
+				errors.lexerError(location, "unsupported character.");
 			}
 		}
 	}
 
 	/*
 	 * lexNumber() lexes a number of unknown length upon encountering a numeric
-	 * char. It checks for floating points and parses the numeric string as a Java
-	 * double.
+	 * char. It checks for floating points and parses the number by parseNumber().
 	 */
 	 void lexNumber() {
-		while (numericChar(lookahead())) {
-			process();
-		}
+		skip(NUMERIC);
 		if (lookahead() == '.' && numericChar(doubleLookahead())) {
 			process();
-			while (numericChar(lookahead())) {
-				process();
+			skip(NUMERIC);
+		}
+		double value = parseNumber(buffer, start, current);
+		if (output != null)
+			output.add(NUMBER, start, current - start, location, value);
+		else
+			token = new Token(NUMBER, new String(buffer, start, current - start), value, location);
+	}
+
+	/*
+	 * parseNumber() parses the digits, and at most one '.', in chars[from, to) as
+	 * a double without first copying them into a String. Where there are at most
+	 * 15 significant digits and 22 after the point, the digits are exactly a long
+	 * and the power of ten exactly a double, so that their quotient, rounded once,
+	 * is the double nearest the number, as Double.parseDouble() would return; any
+	 * other number is parsed by Double.parseDouble().
+	 */
+	 static double parseNumber(char[] chars, int from, int to) {
+		long mantissa = 0;
+		int digits = 0;
+		int point = -1;
+		for (int i = from; i < to; i++) {
+			char c = chars[i];
+			if (c == '.') {
+				point = i;
+				continue;
 			}
+			if (mantissa != 0 || c != '0')
+				digits++;
+			if (digits > 15)
+				return Double.parseDouble(new String(chars, from, to - from));
+			mantissa = mantissa * 10 + (c - '0');
 		}
-		addToken(NUMBER, Double.parseDouble(sourceCode.substring(start, current)));
+		int fraction = point < 0 ? 0 : to - point - 1;
+		if (fraction >= POWERS_OF_TEN.length)
+			return Double.parseDouble(new String(chars, from, to - from));
+		return fraction == 0 ? mantissa : mantissa / POWERS_OF_TEN[fraction];
 	}
 
 	/*
@@ -286,34 +544,29 @@ public class Lexer {
 	 * ' is not encountered before the end of the source code, an error is given.
 	 */
 	 void lexString() {
-		while (lookahead() != '"' && !end()) {
-			if (lookahead() == '\n')
-				location++;
-			process();
-		}
+		skipTo('"');
 		if (end()) {
-			LuriaInterpreter.lexerError(location, "string not closed.");
+			errors.lexerError(location, "string not closed.");
 			return;
 		}
 		process();
-		String value = sourceCode.substring(start + 1, current - 1);
+		String value = new String(buffer, start + 1, current - start - 2);
 		addToken(STRING, value);
 	}
 
 	/*
-	 * lexSignifier() checks a char sequence not prefixed with a quotation mark '"'
-	 * against the reserved sequences. If no type (null) is returned, it adds a
-	 * Token of type SIGNIFIER.
+	 * lexSignifier() interns a char sequence not prefixed with a quotation mark
+	 * '"' and adds a Token of the type of its Symbol, i.e. that of a reserved
+	 * sequence, else SIGNIFIER. The lexeme is the name of the Symbol, so that no
+	 * String is allocated for a name already interned.
 	 */
 	 void lexSignifier() {
-		while (alphanumericChar(lookahead())) {
-			process();
-		}
-		String text = sourceCode.substring(start, current);
-		TokenType type = reservedSequence.get(text);
-		if (type == null)
-			type = SIGNIFIER;
-		addToken(type);
+		skip(ALPHABETIC | NUMERIC);
+		Symbol symbol = Symbol.intern(buffer, start, current - start);
+		if (output != null)
+			output.add(symbol.type, start, current - start, location);
+		else
+			token = new Token(symbol.type, symbol.name, null, location, symbol);
 	}
 
 }
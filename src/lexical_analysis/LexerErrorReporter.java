@@ -0,0 +1,14 @@
+/*
+ * The LexerErrorReporter interface is the sink to which a Lexer reports the errors it encounters, the line at which
+ * each was found and its message. It is the part of an ErrorReporter that concerns the Lexer alone, so that a Lexer
+ * may report to a sink that takes no other errors; see ParallelLexer.
+ * 
+ * */
+
+package lexical_analysis;
+
+public interface LexerErrorReporter {
+
+	void lexerError(int location, String message);
+
+}
@@ -0,0 +1,61 @@
+package lexical_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LexerScanningTest {
+
+	static void assertParsedAsDouble(String number) {
+		char[] chars = ("(" + number + ")").toCharArray();
+		assertEquals(Double.doubleToLongBits(Double.parseDouble(number)),
+				Double.doubleToLongBits(Lexer.parseNumber(chars, 1, chars.length - 1)), number);
+	}
+
+	@Test
+	final void testParseNumber() {
+		String[] numbers = { "0", "7", "0.5", "0.1", "1.0", "000123", "0.000", "3.1415926535", "123456789012345",
+				"1234567890123456", "99999999999999999999", "0.1234567890123456789012", "0.00000000000000000000001",
+				"9007199254740993", "1.7976931348623157", "4503599627370497.5" };
+		for (String number : numbers) {
+			assertParsedAsDouble(number);
+		}
+		Random random = new Random(24);
+		for (int n = 0; n < 200000; n++) {
+			StringBuilder number = new StringBuilder();
+			int digits = 1 + random.nextInt(random.nextBoolean() ? 6 : 20);
+			for (int i = 0; i < digits; i++) {
+				number.append((char) ('0' + (random.nextInt(4) == 0 ? 0 : random.nextInt(10))));
+			}
+			if (random.nextBoolean()) {
+				number.append('.');
+				int fraction = 1 + random.nextInt(random.nextBoolean() ? 5 : 25);
+				for (int i = 0; i < fraction; i++) {
+					number.append((char) ('0' + random.nextInt(10)));
+				}
+			}
+			assertParsedAsDouble(number.toString());
+		}
+	}
+
+	@Test
+	final void testScanningCountsLines() {
+		String sourceCode = "  \t// comment \" \r\n"
+				+ "name_1 \"a\nb\n\" \t\r\n"
+				+ "\n"
+				+ "12.50 // trailing";
+		List<Token> tokens = new Lexer(sourceCode).lexSourceCode();
+		assertEquals(4, tokens.size());
+		assertEquals("name_1", tokens.get(0).lexeme);
+		assertEquals(2, tokens.get(0).location);
+		assertEquals("a\nb\n", tokens.get(1).literal);
+		assertEquals(4, tokens.get(1).location);
+		assertEquals(12.5, tokens.get(2).literal);
+		assertEquals(6, tokens.get(2).location);
+		assertEquals(TokenType.EOF, tokens.get(3).type);
+	}
+
+}
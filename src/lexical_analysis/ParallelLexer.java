@@ -0,0 +1,159 @@
+/*
+ * The ParallelLexer class lexes large source code into a TokenBuffer by several Lexers at once, on a ForkJoinPool. The
+ * source code is split into chunks, each ending with a new line, and each chunk is lexed by a Lexer of its own into a
+ * TokenBuffer of its own, counting lines from 1 as though it began the source code. The TokenBuffers are then joined in
+ * order, the lines of each offset by the line at which its chunk in fact begins, i.e. that at which the chunk before
+ * ended, so that the Tokens, their lines and their literals are those that the Lexer would have lexed alone.
+ *
+ * Since a chunk begins after a new line, it cannot begin within a comment, which ends before the new line, but it may
+ * begin within a string, which may span lines. A chunk is lexed as though it begins between Tokens, and where the
+ * chunk before ends with a string that runs beyond it, i.e. its Lexer ended beyond the end of the chunk, that
+ * guess was wrong: the chunk is lexed again, on the calling thread, from where the chunk before ended. This fix-up
+ * pass runs over the chunks in order, so that a chunk lexed again may itself correct the next. Lexer errors are held
+ * by each chunk, and reported once its Tokens are known to be right, in order, so that errors are reported as the
+ * Lexer alone would report them, and none from a wrong guess is reported.
+ *
+ * Source code shorter than PARALLEL_THRESHOLD chars, or lexed on a pool of a single thread, is lexed by a single Lexer.
+ *
+ * */
+
+package lexical_analysis;
+
+import static lexical_analysis.TokenType.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import luria_interpreter.ErrorReporter;
+
+public final class ParallelLexer {
+	public static final int MIN_CHUNK = 1 << 16;
+	public static final int PARALLEL_THRESHOLD = 4 * MIN_CHUNK;
+	private final ForkJoinPool pool;
+
+	public ParallelLexer(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/*
+	 * lex() lexes the whole of the given source code into a TokenBuffer, ending
+	 * with an EOF Token, reporting any errors to the given ErrorReporter.
+	 */
+	public TokenBuffer lex(String sourceCode, ErrorReporter errors) {
+		char[] source = sourceCode.toCharArray();
+		if (source.length < PARALLEL_THRESHOLD || pool.getParallelism() < 2)
+			return new Lexer(source, errors).lexTokenBuffer();
+		int[] bounds = split(source, Math.min(pool.getParallelism() * 4, source.length / MIN_CHUNK));
+		Chunk[] chunks = new Chunk[bounds.length - 1];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = new Chunk(source, bounds[i], bounds[i + 1]);
+			pool.execute(chunks[i]);
+		}
+		for (Chunk chunk : chunks) {
+			chunk.join();
+		}
+		TokenBuffer[] parts = new TokenBuffer[chunks.length];
+		int[] lineOffsets = new int[chunks.length];
+		int end = 0;
+		int line = 1;
+		for (int i = 0; i < chunks.length; i++) {
+			Chunk chunk = chunks[i];
+			if (chunk.from != end)
+				chunk.lex(end);
+			parts[i] = chunk.tokens;
+			lineOffsets[i] = line - 1;
+			chunk.errors.replay(errors, line - 1);
+			end = chunk.end;
+			line += chunk.lines - 1;
+		}
+		TokenBuffer tokens = TokenBuffer.join(source, parts, lineOffsets);
+		tokens.add(EOF, source.length, 0, line);
+		return tokens;
+	}
+
+	/*
+	 * split() returns the offsets at which the given number of chunks, of about
+	 * equal length, begin, each after a new line, followed by the length of the
+	 * source code. There are fewer chunks where there are too few new lines.
+	 */
+	static int[] split(char[] source, int count) {
+		List<Integer> bounds = new ArrayList<>();
+		bounds.add(0);
+		for (int k = 1; k < count; k++) {
+			int bound = (int) ((long) source.length * k / count);
+			while (bound < source.length && source[bound - 1] != '\n') {
+				bound++;
+			}
+			if (bound >= source.length)
+				break;
+			if (bound > bounds.get(bounds.size() - 1))
+				bounds.add(bound);
+		}
+		bounds.add(source.length);
+		int[] offsets = new int[bounds.size()];
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = bounds.get(i);
+		}
+		return offsets;
+	}
+
+	/*
+	 * The nested Chunk class lexes the Tokens that begin within [from, to) of the
+	 * source code, recording the offset at which its Lexer ended, 'end', and the
+	 * line there, 'lines', counted from 1 at 'from'.
+	 */
+	private static final class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final char[] source;
+		private final int to;
+		int from;
+		TokenBuffer tokens;
+		ErrorLog errors;
+		int end;
+		int lines;
+
+		Chunk(char[] source, int from, int to) {
+			this.source = source;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			lex(from);
+		}
+
+		void lex(int from) {
+			this.from = from;
+			errors = new ErrorLog();
+			tokens = new TokenBuffer(source, Math.max(16, (to - from) / 4));
+			Lexer lexer = new Lexer(source, errors);
+			end = lexer.lexRange(tokens, from, to);
+			lines = lexer.location;
+		}
+	}
+
+	/*
+	 * The nested ErrorLog class holds the errors reported by the Lexer of a Chunk
+	 * until they may be reported in order.
+	 */
+	private static final class ErrorLog implements LexerErrorReporter {
+		private final List<Integer> locations = new ArrayList<>();
+		private final List<String> messages = new ArrayList<>();
+
+		@Override
+		public void lexerError(int location, String message) {
+			locations.add(location);
+			messages.add(message);
+		}
+
+		void replay(ErrorReporter errors, int lineOffset) {
+			for (int i = 0; i < messages.size(); i++) {
+				errors.lexerError(locations.get(i) + lineOffset, messages.get(i));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package lexical_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import interpretation.InterpreterError;
+import luria_interpreter.ErrorReporter;
+
+class ParallelLexerTest {
+	static final String[] PIECES = { "variable x = 1.5;\n", "// a \" quote\n", "print \"hi\";\n",
+			"\"multi\nline\nstring\"\n", "while (x < 10) { x = x + 1; }\n", "@#\n", "a[2] = 3 / 4;\n", "\r\n",
+			"\"// not a comment\n\"\n", "12.5.foo\n", "function f(a, b) { return a ^ b % 2; }\n" };
+
+	/*
+	 * ErrorLog records the lexer errors reported as text.
+	 */
+	static class ErrorLog implements ErrorReporter {
+		final List<String> errors = new ArrayList<>();
+
+		@Override
+		public void lexerError(int location, String message) {
+			errors.add(location + " " + message);
+		}
+
+		@Override
+		public void parserError(Token token, String message) {
+			fail(message);
+		}
+
+		@Override
+		public void interpreterError(InterpreterError error) {
+			fail(error.getMessage());
+		}
+	}
+
+	/*
+	 * program() returns random source code of about the given length, made of
+	 * PIECES, and, should 'span' be true, a string that spans many lines, so that
+	 * some chunk is likely to begin inside it.
+	 */
+	static String program(Random random, int length, boolean span) {
+		StringBuilder program = new StringBuilder();
+		while (program.length() < length) {
+			if (span && random.nextInt(200) == 0) {
+				program.append("\"long\n");
+				for (int i = 0; i < 20000; i++) {
+					program.append("x\n");
+				}
+				program.append("\";\n");
+			}
+			program.append(PIECES[random.nextInt(PIECES.length)]);
+		}
+		if (random.nextBoolean())
+			program.append("\"not closed\nat the end");
+		return program.toString();
+	}
+
+	static void assertLexedAlike(ParallelLexer lexer, String sourceCode) {
+		ErrorLog sequentialErrors = new ErrorLog();
+		TokenBuffer sequential = new Lexer(sourceCode, sequentialErrors).lexTokenBuffer();
+		ErrorLog parallelErrors = new ErrorLog();
+		TokenBuffer parallel = lexer.lex(sourceCode, parallelErrors);
+		assertEquals(sequentialErrors.errors, parallelErrors.errors);
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertEquals(sequential.type(i), parallel.type(i));
+			assertEquals(sequential.line(i), parallel.line(i));
+			assertEquals(sequential.lexeme(i), parallel.lexeme(i));
+			assertEquals(sequential.literal(i), parallel.literal(i));
+		}
+	}
+
+	@Test
+	final void testMatchesSequentialLexer() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelLexer lexer = new ParallelLexer(pool);
+			Random random = new Random(23);
+			for (int n = 0; n < 6; n++) {
+				assertLexedAlike(lexer, program(random, ParallelLexer.PARALLEL_THRESHOLD + random.nextInt(500000),
+						n % 2 == 0));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	final void testShortSourceLexedSequentially() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertLexedAlike(new ParallelLexer(pool), program(new Random(5), 1000, false));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	final void testSplitAfterNewLines() {
+		char[] source = "ab\ncd\nef\ngh\n".toCharArray();
+		int[] bounds = ParallelLexer.split(source, 3);
+		assertEquals(0, bounds[0]);
+		assertEquals(source.length, bounds[bounds.length - 1]);
+		for (int i = 1; i < bounds.length - 1; i++) {
+			assertEquals('\n', source[bounds[i] - 1]);
+			assertTrue(bounds[i] > bounds[i - 1]);
+		}
+		assertEquals(2, ParallelLexer.split("no new line".toCharArray(), 4).length);
+	}
+
+}
@@ -0,0 +1,192 @@
+/*
+ * The Symbol class is an interned name: a signifier or reserved sequence of Luria, held once in a table shared by every
+ * Lexer, together with its hash, computed once upon interning, and its TokenType, i.e. the type of a reserved sequence,
+ * e.g. WHILE for 'while', else SIGNIFIER. The Lexer interns each signifier it lexes straight from its buffer by
+ * intern(char[], int, int), which finds a Symbol already interned without allocating a String, so that lexing a name
+ * seen before allocates nothing but its Token, and a reserved sequence is told from a signifier by the type of its
+ * Symbol rather than by a lookup in a Map. The Token of a signifier references its Symbol, and the MemoryEnvironment of
+ * global scope is keyed by Symbol, so that a variable is found by its precomputed hash and, as the same name is always
+ * the same Symbol, by identity.
+ *
+ * The table is shared by all threads. Finding a Symbol takes no lock; interning a new one locks the table. A Symbol is
+ * immutable, and a chain of the table is only ever extended at its head, so that a reader racing a writer sees either
+ * the chain before or after the new Symbol, and a reader that misses it interns it again under the lock, where it is
+ * found. As a long running LuriaEngine may lex any number of distinct names, at most MAX_SYMBOLS are interned; beyond
+ * those, intern() returns a Symbol that is not in the table, and is not 'interned'. Such a Symbol equals another of the
+ * same name, so that lookups remain correct, if no longer by identity.
+ *
+ * */
+
+package lexical_analysis;
+
+import static lexical_analysis.TokenType.*;
+
+public final class Symbol {
+	public static final int MAX_SYMBOLS = 1 << 20;
+	private static volatile Entry[] table = new Entry[1024];
+	private static int size = 0;
+	public final String name;
+	public final TokenType type;
+	public final int hash;
+	public final boolean interned;
+
+	static {
+		reserve("and", AND);
+		reserve("else", ELSE);
+		reserve("false", FALSE);
+		reserve("for", FOR);
+		reserve("function", FUNCTION);
+		reserve("if", IF);
+		reserve("null", NULL);
+		reserve("or", OR);
+		reserve("print", PRINT);
+		reserve("readboolean", READ_BOOLEAN);
+		reserve("readnumber", READ_NUMBER);
+		reserve("readstring", READ_STRING);
+		reserve("return", RETURN);
+		reserve("true", TRUE);
+		reserve("variable", VARIABLE);
+		reserve("while", WHILE);
+	}
+
+	private Symbol(String name, TokenType type, int hash, boolean interned) {
+		this.name = name;
+		this.type = type;
+		this.hash = hash;
+		this.interned = interned;
+	}
+
+	/*
+	 * The nested Entry class is a link of a chain of the table. Entries, rather
+	 * than Symbols, are linked, so that the table may be rehashed without a Symbol
+	 * being replaced by another of the same name.
+	 */
+	private static final class Entry {
+		final Symbol symbol;
+		final Entry next;
+
+		Entry(Symbol symbol, Entry next) {
+			this.symbol = symbol;
+			this.next = next;
+		}
+	}
+
+	private static void reserve(String name, TokenType type) {
+		char[] chars = name.toCharArray();
+		insert(chars, 0, chars.length, hash(chars, 0, chars.length), type);
+	}
+
+	/*
+	 * intern() returns the Symbol of the name held in chars[start, start +
+	 * length), interning it if it is not already. The hash is that of the
+	 * equivalent String, so that it may be computed without one.
+	 */
+	public static Symbol intern(char[] chars, int start, int length) {
+		int hash = hash(chars, start, length);
+		Entry[] t = table;
+		Symbol symbol = find(t[hash & (t.length - 1)], chars, start, length, hash);
+		if (symbol != null)
+			return symbol;
+		return insert(chars, start, length, hash, SIGNIFIER);
+	}
+
+	public static Symbol intern(String name) {
+		return intern(name.toCharArray(), 0, name.length());
+	}
+
+	private static int hash(char[] chars, int start, int length) {
+		int h = 0;
+		for (int i = start; i < start + length; i++) {
+			h = 31 * h + chars[i];
+		}
+		return h;
+	}
+
+	private static Symbol find(Entry chain, char[] chars, int start, int length, int hash) {
+		for (Entry e = chain; e != null; e = e.next) {
+			if (e.symbol.hash == hash && e.symbol.matches(chars, start, length))
+				return e.symbol;
+		}
+		return null;
+	}
+
+	private boolean matches(char[] chars, int start, int length) {
+		if (name.length() != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (name.charAt(i) != chars[start + i])
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * insert() interns a name under the lock of the table, first searching again
+	 * in case another thread has interned it since it was missed, and doubling the
+	 * table once it holds as many Symbols as it has chains.
+	 */
+	private static synchronized Symbol insert(char[] chars, int start, int length, int hash, TokenType type) {
+		Entry[] t = table;
+		int index = hash & (t.length - 1);
+		Symbol symbol = find(t[index], chars, start, length, hash);
+		if (symbol != null)
+			return symbol;
+		String name = new String(chars, start, length);
+		if (size >= MAX_SYMBOLS)
+			return new Symbol(name, type, hash, false);
+		if (size >= t.length) {
+			t = rehash(t);
+			index = hash & (t.length - 1);
+		}
+		symbol = new Symbol(name, type, hash, true);
+		t[index] = new Entry(symbol, t[index]);
+		size++;
+		table = t;
+		return symbol;
+	}
+
+	/*
+	 * rehash() returns a table of twice the length holding the same Symbols. As
+	 * Entries are immutable, each is copied rather than relinked, so that readers
+	 * of the old table are not disturbed.
+	 */
+	private static Entry[] rehash(Entry[] old) {
+		Entry[] t = new Entry[old.length * 2];
+		for (Entry chain : old) {
+			for (Entry e = chain; e != null; e = e.next) {
+				int index = e.symbol.hash & (t.length - 1);
+				t[index] = new Entry(e.symbol, t[index]);
+			}
+		}
+		return t;
+	}
+
+	public boolean isReserved() {
+		return type != SIGNIFIER;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	/*
+	 * equals() compares names only where the Symbols are not the same one, i.e.
+	 * where they were made beyond MAX_SYMBOLS.
+	 */
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof Symbol))
+			return false;
+		Symbol s = (Symbol) o;
+		return hash == s.hash && name.equals(s.name);
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,46 @@
+package lexical_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+
+class SymbolTest {
+
+	@Test
+	final void testSignifiersInterned() {
+		List<Token> tokens = new Lexer("total = total + 1; while (x) {}").lexSourceCode();
+		Symbol total = tokens.get(0).symbol;
+		assertSame(total, tokens.get(2).symbol);
+		assertSame(total, Symbol.intern("total"));
+		assertEquals("total".hashCode(), total.hash);
+		assertTrue(total.interned);
+		assertFalse(total.isReserved());
+		assertEquals(TokenType.WHILE, tokens.get(6).type);
+		assertTrue(Symbol.intern("while").isReserved());
+		assertNull(tokens.get(4).symbol);
+	}
+
+	@Test
+	final void testSymbolsInternedOnceAcrossThreads() throws InterruptedException {
+		ConcurrentLinkedQueue<Symbol> symbols = new ConcurrentLinkedQueue<>();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				for (int i = 0; i < 2000; i++) {
+					symbols.add(Symbol.intern("concurrent" + i));
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (Symbol symbol : symbols) {
+			assertSame(Symbol.intern(symbol.name), symbol);
+		}
+	}
+
+}
@@ -2,7 +2,8 @@
  * The Token class is the token object produced by the lexing process. The data collated in a Token - its type, i.e. its
  * assigned meaning, the substring of the source code associated with it, its value (in the case of a number or string
  * literal), and its line location in the source code - are that which inform the parser how to construct nodes in the
- * syntax tree.
+ * syntax tree. The Token of a signifier or reserved sequence also references its interned Symbol, whose name is its
+ * lexeme; see comment at Symbol.
  * 
  * */
 
@@ -13,12 +14,22 @@ public class Token {
 	public final String lexeme;
 	public final Object literal;
 	public final int location;
+	public final Symbol symbol;
 
+	/*
+	 * This constructor interns the lexeme of a signifier, for Tokens made other
+	 * than by the Lexer, e.g. those read by a TreeReader.
+	 */
 	public Token(TokenType type, String lexeme, Object literal, int location) {
+		this(type, lexeme, literal, location, type == TokenType.SIGNIFIER ? Symbol.intern(lexeme) : null);
+	}
+
+	public Token(TokenType type, String lexeme, Object literal, int location, Symbol symbol) {
 		this.type = type;
 		this.lexeme = lexeme;
 		this.literal = literal;
 		this.location = location;
+		this.symbol = symbol;
 	}
 
 	public String toString() {
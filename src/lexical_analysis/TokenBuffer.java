@@ -0,0 +1,170 @@
+/*
+ * The TokenBuffer class holds the Tokens of a whole program as parallel arrays rather than as a Token object each: the
+ * ordinal of its TokenType in 'types', the offset and length of its lexeme in the source code in 'starts' and
+ * 'lengths', and its line in 'lines'. The literal values of NUMBER and STRING Tokens are held in a side table,
+ * 'literals', beside the indices of their Tokens, 'literalTokens', in ascending order. A TokenBuffer is returned by
+ * Lexer.lexTokenBuffer() or ParallelLexer.lex(), and read by the Parser by index, by way of a cursor; see comment at
+ * Parser.
+ *
+ * A Token object, and its lexeme, is only made by token(), which the Parser calls for those Tokens that the syntax tree
+ * holds, i.e. signifiers and operators, and those at which it reports an error. The lexeme of a signifier or reserved
+ * sequence is the name of its interned Symbol, and that of an operator or punctuation its fixed lexeme, so that only
+ * the lexeme of a NUMBER or STRING is copied from the source code.
+ *
+ * */
+
+package lexical_analysis;
+
+import static lexical_analysis.TokenType.*;
+
+import java.util.Arrays;
+
+public final class TokenBuffer {
+	private static final TokenType[] TYPES = TokenType.values();
+	private final char[] source;
+	private byte[] types;
+	private int[] starts;
+	private int[] lengths;
+	private int[] lines;
+	private int size = 0;
+	private int[] literalTokens = new int[16];
+	private Object[] literals = new Object[16];
+	private int literalCount = 0;
+
+	TokenBuffer(char[] source, int capacity) {
+		this.source = source;
+		this.types = new byte[capacity];
+		this.starts = new int[capacity];
+		this.lengths = new int[capacity];
+		this.lines = new int[capacity];
+	}
+
+	/*
+	 * add() appends a Token, growing the arrays by half again if they are full.
+	 */
+	void add(TokenType type, int start, int length, int line) {
+		if (size == types.length) {
+			int capacity = size + (size >> 1) + 1;
+			types = Arrays.copyOf(types, capacity);
+			starts = Arrays.copyOf(starts, capacity);
+			lengths = Arrays.copyOf(lengths, capacity);
+			lines = Arrays.copyOf(lines, capacity);
+		}
+		types[size] = (byte) type.ordinal();
+		starts[size] = start;
+		lengths[size] = length;
+		lines[size] = line;
+		size++;
+	}
+
+	void add(TokenType type, int start, int length, int line, Object literal) {
+		if (literalCount == literals.length) {
+			literalTokens = Arrays.copyOf(literalTokens, literalCount * 2);
+			literals = Arrays.copyOf(literals, literalCount * 2);
+		}
+		literalTokens[literalCount] = size;
+		literals[literalCount++] = literal;
+		add(type, start, length, line);
+	}
+
+	/*
+	 * join() returns a TokenBuffer holding the Tokens of the given TokenBuffers in
+	 * turn, each over the same source code, adding to the lines of those of each
+	 * the corresponding element of 'lineOffsets'.
+	 */
+	static TokenBuffer join(char[] source, TokenBuffer[] parts, int[] lineOffsets) {
+		int size = 1;
+		int literalCount = 0;
+		for (TokenBuffer part : parts) {
+			size += part.size;
+			literalCount += part.literalCount;
+		}
+		TokenBuffer joined = new TokenBuffer(source, size);
+		joined.literalTokens = new int[Math.max(16, literalCount + 1)];
+		joined.literals = new Object[joined.literalTokens.length];
+		for (int p = 0; p < parts.length; p++) {
+			TokenBuffer part = parts[p];
+			int offset = lineOffsets[p];
+			System.arraycopy(part.types, 0, joined.types, joined.size, part.size);
+			System.arraycopy(part.starts, 0, joined.starts, joined.size, part.size);
+			System.arraycopy(part.lengths, 0, joined.lengths, joined.size, part.size);
+			for (int i = 0; i < part.size; i++) {
+				joined.lines[joined.size + i] = part.lines[i] + offset;
+			}
+			for (int i = 0; i < part.literalCount; i++) {
+				joined.literalTokens[joined.literalCount] = part.literalTokens[i] + joined.size;
+				joined.literals[joined.literalCount++] = part.literals[i];
+			}
+			joined.size += part.size;
+		}
+		return joined;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public TokenType type(int index) {
+		return TYPES[types[index]];
+	}
+
+	public int line(int index) {
+		return lines[index];
+	}
+
+	/*
+	 * literal() returns the literal value of the Token at the given index, found
+	 * by binary search of the side table, or null if it has none.
+	 */
+	public Object literal(int index) {
+		int found = Arrays.binarySearch(literalTokens, 0, literalCount, index);
+		return found >= 0 ? literals[found] : null;
+	}
+
+	/*
+	 * symbol() returns the interned Symbol of a signifier or reserved sequence,
+	 * interning it from the source code without allocating a String where it is
+	 * already interned, else null.
+	 */
+	public Symbol symbol(int index) {
+		TokenType type = type(index);
+		if (!named(type))
+			return null;
+		return Symbol.intern(source, starts[index], lengths[index]);
+	}
+
+	public String lexeme(int index) {
+		TokenType type = type(index);
+		return named(type) ? symbol(index).name : lexeme(type, index);
+	}
+
+	/*
+	 * lexeme() returns the lexeme of a Token that is not named by a Symbol.
+	 */
+	private String lexeme(TokenType type, int index) {
+		String fixed = Lexer.fixedLexeme[type.ordinal()];
+		if (fixed != null)
+			return fixed;
+		if (type == EOF)
+			return "";
+		return new String(source, starts[index], lengths[index]);
+	}
+
+	private static boolean named(TokenType type) {
+		return type != NUMBER && type != STRING && type != EOF && Lexer.fixedLexeme[type.ordinal()] == null;
+	}
+
+	/*
+	 * token() makes the Token object at the given index.
+	 */
+	public Token token(int index) {
+		TokenType type = type(index);
+		if (named(type)) {
+			Symbol symbol = Symbol.intern(source, starts[index], lengths[index]);
+			return new Token(type, symbol.name, null, lines[index], symbol);
+		}
+		Object literal = type == NUMBER || type == STRING ? literal(index) : null;
+		return new Token(type, lexeme(type, index), literal, lines[index], null);
+	}
+
+}
@@ -0,0 +1,85 @@
+package lexical_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import luria_interpreter.LuriaInterpreter;
+
+class TokenBufferTest {
+	static final String SOURCE_CODE = "variable total = 0; // a comment\n"
+			+ "function add(a, b) { return a + b * 2.5 ^ 2 % 7; }\n"
+			+ "while (total <= 10 and !false or null != true) { total = add(total, 1); }\n"
+			+ "print \"a string\nacross lines\" + readnumber;\n"
+			+ "variable array = [1, 2, 3]; array[0] = -1 / 3 - 4; if (total >= 3 == true) print total; else {}\n";
+
+	static void assertSameToken(Token expected, Token actual) {
+		assertEquals(expected.type, actual.type);
+		assertEquals(expected.lexeme, actual.lexeme);
+		assertEquals(expected.literal, actual.literal);
+		assertEquals(expected.location, actual.location);
+	}
+
+	@Test
+	final void testMatchesTokenList() {
+		List<Token> list = new Lexer(SOURCE_CODE).lexSourceCode();
+		TokenBuffer buffer = new Lexer(SOURCE_CODE).lexTokenBuffer();
+		assertEquals(list.size(), buffer.size());
+		for (int i = 0; i < list.size(); i++) {
+			Token token = list.get(i);
+			assertEquals(token.type, buffer.type(i));
+			assertEquals(token.lexeme, buffer.lexeme(i));
+			assertEquals(token.literal, buffer.literal(i));
+			assertEquals(token.location, buffer.line(i));
+			assertSameToken(token, buffer.token(i));
+		}
+		assertEquals(TokenType.EOF, buffer.type(buffer.size() - 1));
+	}
+
+	@Test
+	final void testMatchesTokenStream() {
+		TokenBuffer buffer = new Lexer(SOURCE_CODE).lexTokenBuffer();
+		Lexer stream = new Lexer(new StringReader(SOURCE_CODE), LuriaInterpreter.CONSOLE);
+		for (int i = 0; i < buffer.size(); i++) {
+			assertSameToken(buffer.token(i), stream.next());
+		}
+	}
+
+	@Test
+	final void testSymbolsInterned() {
+		TokenBuffer buffer = new Lexer(SOURCE_CODE).lexTokenBuffer();
+		for (int i = 0; i < buffer.size(); i++) {
+			Symbol symbol = buffer.symbol(i);
+			if (buffer.type(i) == TokenType.SIGNIFIER) {
+				assertSame(Symbol.intern(buffer.lexeme(i)), symbol);
+				assertSame(symbol, buffer.token(i).symbol);
+			} else if (buffer.type(i) == TokenType.NUMBER || buffer.type(i) == TokenType.STRING) {
+				assertNull(symbol);
+				assertNotNull(buffer.literal(i));
+			} else {
+				assertNull(buffer.literal(i));
+			}
+		}
+	}
+
+	@Test
+	final void testJoinOffsetsLines() {
+		char[] source = "a = 1;\nb = \"s\";\n".toCharArray();
+		TokenBuffer first = new TokenBuffer(source, 1);
+		Lexer lexer = new Lexer(source, LuriaInterpreter.CONSOLE);
+		int end = lexer.lexRange(first, 0, 7);
+		TokenBuffer second = new TokenBuffer(source, 1);
+		new Lexer(source, LuriaInterpreter.CONSOLE).lexRange(second, end, source.length);
+		TokenBuffer joined = TokenBuffer.join(source, new TokenBuffer[] { first, second }, new int[] { 0, 1 });
+		joined.add(TokenType.EOF, source.length, 0, 3);
+		TokenBuffer whole = new Lexer(new String(source)).lexTokenBuffer();
+		assertEquals(whole.size(), joined.size());
+		for (int i = 0; i < whole.size(); i++) {
+			assertSameToken(whole.token(i), joined.token(i));
+		}
+	}
+
+}
@@ -0,0 +1,27 @@
+/*
+ * TokenStream is the interface by which the Parser pulls Tokens, one at a time, from the Lexer, so that the Tokens of a
+ * program need not all be held in memory at once. next() returns each Token in order, the last of which is of type EOF;
+ * once it has been returned, next() may not be called again. of() adapts a List of Tokens lexed in advance, as returned
+ * by Lexer.lexSourceCode().
+ *
+ * */
+
+package lexical_analysis;
+
+import java.util.List;
+
+public interface TokenStream {
+	Token next();
+
+	static TokenStream of(List<Token> tokens) {
+		return new TokenStream() {
+			private int current = 0;
+
+			@Override
+			public Token next() {
+				return tokens.get(current++);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,312 @@
+/*
+ * The CompiledProgram class is the product of running the Lexer, Parser, Optimiser, Resolver and PurityAnalyser over a
+ * Luria program once: the optimised and resolved syntax tree, 'statements', together with the SHA-256 hash of the source
+ * code from which it was compiled, and the number of nodes removed by the Optimiser, 'nodesRemoved'.
+ * A CompiledProgram may be run any number of times, by any number of Interpreters, without the source code being lexed
+ * or parsed again; see ProgramCache. Its bytecode for the VirtualMachine is compiled upon first request and kept.
+ *
+ * A CompiledProgram may be shared between threads. Its statements are not modified once resolved, except that the
+ * Interpreter rewrites the BinaryNode of a Binary as it specialises it, and links a Call to the NativeFunction it last
+ * called, in its 'linked' field. Since every BinaryNode evaluates every type of operand correctly, a rewrite lost to a
+ * race costs only a further rewrite. Likewise, 'linked' is only a cache: an Interpreter reads it once per call and uses
+ * it only if it is the very NativeFunction that the Interpreter has just evaluated the callee to, so that a link lost
+ * to a race, or made by another Interpreter whose global scope binds the name to another NativeFunction, costs only a
+ * call by the general path, which links the call again.
+ *
+ * A CompiledProgram may also be written to a '.lurc' file, in the binary format defined at TreeFormat, and loaded from
+ * it by a later run of the program without the Lexer, Parser or Resolver. The file records the hash of the source code,
+ * so that a file written from source code since changed, or in an earlier version of the format, is found stale.
+ *
+ * Source code given as a String is lexed in full into a TokenBuffer before it is parsed, so that no Token object is made
+ * for most Tokens; the Lexer therefore reports all its errors before the Parser reports any. Source code of at least
+ * ParallelLexer.PARALLEL_THRESHOLD chars is lexed by a ParallelLexer on the common ForkJoinPool. A source file is
+ * instead parsed as it is lexed; see compile(Path, String, ErrorReporter).
+ *
+ * Given Metrics, compile() records the time spent in each phase. Where the Parser pulls each Token from the Lexer as it
+ * needs it, the time spent lexing is measured about each pull, and that spent parsing is the remainder.
+ *
+ * */
+
+package luria_interpreter;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import interpretation.InterpreterError;
+import lexical_analysis.Lexer;
+import lexical_analysis.ParallelLexer;
+import lexical_analysis.Token;
+import lexical_analysis.TokenBuffer;
+import lexical_analysis.TokenStream;
+import semantic_analysis.PurityAnalyser;
+import semantic_analysis.Resolver;
+import syntactic_analysis.Optimiser;
+import syntactic_analysis.Parser;
+import syntactic_analysis.Statement;
+import syntactic_analysis.TreeReader;
+import syntactic_analysis.TreeWriter;
+import virtual_machine.BytecodeCompiler;
+import virtual_machine.CompiledFunction;
+
+public class CompiledProgram {
+	private static final ParallelLexer LEXER = new ParallelLexer(ForkJoinPool.commonPool());
+	public final String hash;
+	public final List<Statement> statements;
+	public final int nodesRemoved;
+	private volatile CompiledFunction bytecode;
+
+	private CompiledProgram(String hash, List<Statement> statements, int nodesRemoved) {
+		this.hash = hash;
+		this.statements = Collections.unmodifiableList(statements);
+		this.nodesRemoved = nodesRemoved;
+	}
+
+	/*
+	 * compile() lexes, parses, optimises and resolves the given source code and
+	 * marks its pure functions, reporting any errors to the given ErrorReporter. If any is reported,
+	 * compile() returns null.
+	 */
+	public static CompiledProgram compile(String sourceCode, ErrorReporter errors) {
+		return compile(hash(sourceCode), sourceCode, errors, null);
+	}
+
+	static CompiledProgram compile(String hash, String sourceCode, ErrorReporter errors, Metrics metrics) {
+		ErrorCounter counter = new ErrorCounter(errors);
+		long start = System.nanoTime();
+		TokenBuffer tokens = LEXER.lex(sourceCode, counter);
+		long lexed = System.nanoTime();
+		List<Statement> statements = new Parser(tokens, counter).parse();
+		return analyse(hash, statements, counter, metrics, lexed - start, System.nanoTime() - lexed);
+	}
+
+	/*
+	 * compile() with the path of a source file and its hash, as returned by
+	 * hash(), compiles the file as it is read, so that neither its source code nor
+	 * its Tokens are held in memory in full. The file is decoded in the default
+	 * charset.
+	 */
+	public static CompiledProgram compile(Path sourceFile, String hash, ErrorReporter errors) throws IOException {
+		return compile(sourceFile, hash, errors, null);
+	}
+
+	public static CompiledProgram compile(Path sourceFile, String hash, ErrorReporter errors, Metrics metrics)
+			throws IOException {
+		ErrorCounter counter = new ErrorCounter(errors);
+		try (Reader reader = new InputStreamReader(Files.newInputStream(sourceFile), Charset.defaultCharset())) {
+			return compile(hash, new Lexer(reader, counter), counter, metrics);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// The Parser pulls Tokens from the Lexer as it needs them.
+	private static CompiledProgram compile(String hash, Lexer lexer, ErrorCounter counter, Metrics metrics) {
+		TimedTokenStream tokens = metrics != null ? new TimedTokenStream(lexer) : null;
+		long start = System.nanoTime();
+		Parser parser = new Parser(tokens != null ? tokens : lexer, counter);
+		List<Statement> statements = parser.parse();
+		long lexed = tokens != null ? tokens.nanoseconds : 0;
+		return analyse(hash, statements, counter, metrics, lexed, System.nanoTime() - start - lexed);
+	}
+
+	/*
+	 * analyse() optimises and resolves parsed statements and marks their pure
+	 * functions, unless errors were reported, and records the time spent in each
+	 * phase.
+	 */
+	private static CompiledProgram analyse(String hash, List<Statement> statements, ErrorCounter counter,
+			Metrics metrics, long lexNanoseconds, long parseNanoseconds) {
+		if (counter.errors > 0)
+			return null;
+		long parsed = System.nanoTime();
+		Optimiser optimiser = new Optimiser();
+		statements = optimiser.optimise(statements);
+		new Resolver().resolve(statements);
+		new PurityAnalyser().analyse(statements);
+		if (metrics != null)
+			metrics.recordCompilation(lexNanoseconds, parseNanoseconds, System.nanoTime() - parsed,
+					optimiser.removed());
+		return new CompiledProgram(hash, statements, optimiser.removed());
+	}
+
+	/*
+	 * The nested TimedTokenStream class passes on the Tokens of another
+	 * TokenStream, summing the time spent in its next().
+	 */
+	private static class TimedTokenStream implements TokenStream {
+		private final TokenStream tokens;
+		long nanoseconds = 0;
+
+		TimedTokenStream(TokenStream tokens) {
+			this.tokens = tokens;
+		}
+
+		@Override
+		public Token next() {
+			long start = System.nanoTime();
+			Token token = tokens.next();
+			nanoseconds += System.nanoTime() - start;
+			return token;
+		}
+	}
+
+	/*
+	 * The nested ErrorCounter class passes errors on to another ErrorReporter,
+	 * counting them, so that compile() can tell whether the Lexer or Parser
+	 * reported any.
+	 */
+	private static class ErrorCounter implements ErrorReporter {
+		private final ErrorReporter reporter;
+		int errors = 0;
+
+		ErrorCounter(ErrorReporter reporter) {
+			this.reporter = reporter;
+		}
+
+		@Override
+		public void lexerError(int location, String message) {
+			errors++;
+			reporter.lexerError(location, message);
+		}
+
+		@Override
+		public void parserError(Token token, String message) {
+			errors++;
+			reporter.parserError(token, message);
+		}
+
+		@Override
+		public void interpreterError(InterpreterError error) {
+			errors++;
+			reporter.interpreterError(error);
+		}
+	}
+
+	/*
+	 * write() writes the program to the given file, conventionally with the
+	 * extension '.lurc', from which load() can rebuild it.
+	 */
+	public void write(Path path) throws IOException {
+		Files.write(path, TreeWriter.write(hash, statements));
+	}
+
+	/*
+	 * load() rebuilds a program from a file written by write(). The file is mapped
+	 * into memory rather than copied into the heap and its statements rebuilt
+	 * directly from the mapping. An IOException is raised if the file is not a
+	 * .lurc file, is corrupt or was written in another version of the format.
+	 */
+	public static CompiledProgram load(Path path) throws IOException {
+		TreeReader reader = new TreeReader(map(path));
+		return new CompiledProgram(reader.sourceHash(), reader.read(), 0);
+	}
+
+	/*
+	 * load() with the hash of the source code of a program rebuilds the program
+	 * from the given file only if the file exists and was written from that source
+	 * code in the current version of the format. Otherwise it returns null, and the
+	 * source code should be compiled.
+	 */
+	public static CompiledProgram load(Path path, String sourceHash) {
+		try {
+			TreeReader reader = new TreeReader(map(path));
+			if (!reader.isCurrent() || !reader.sourceHash().equals(sourceHash))
+				return null;
+			return new CompiledProgram(sourceHash, reader.read(), 0);
+		} catch (IOException e) {
+			// A missing or corrupt file is treated as a stale one.
+			return null;
+		}
+	}
+
+	private static ByteBuffer map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+
+	/*
+	 * bytecode() returns the program compiled for the VirtualMachine, compiling it
+	 * upon first call. Should two threads race to compile it, both compile the
+	 * same bytecode and either result is kept.
+	 */
+	public CompiledFunction bytecode() {
+		CompiledFunction script = bytecode;
+		if (script == null) {
+			script = new BytecodeCompiler().compile(statements);
+			bytecode = script;
+		}
+		return script;
+	}
+
+	/*
+	 * hash() returns the SHA-256 hash of the source code, encoded as UTF-8, in
+	 * hexadecimal.
+	 */
+	public static String hash(String sourceCode) {
+		MessageDigest digest = digest();
+		return hex(digest.digest(sourceCode.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/*
+	 * hash() with the path of a source file returns the hash of its source code
+	 * as hash() would were the file read into a String in the default charset, but
+	 * reads the file a block at a time.
+	 */
+	public static String hash(Path sourceFile) throws IOException {
+		MessageDigest digest = digest();
+		CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		CharBuffer chars = CharBuffer.allocate(8192);
+		ByteBuffer bytes = ByteBuffer.allocate(8192 * 3);
+		try (Reader reader = new InputStreamReader(Files.newInputStream(sourceFile), Charset.defaultCharset())) {
+			boolean end = false;
+			while (!end) {
+				end = reader.read(chars) < 0;
+				chars.flip();
+				// A surrogate pair split between blocks is left in 'chars' until the next.
+				encoder.encode(chars, bytes, end);
+				chars.compact();
+				bytes.flip();
+				digest.update(bytes);
+				bytes.clear();
+			}
+		}
+		return hex(digest.digest());
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every implementation of the Java platform is required to support SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+}
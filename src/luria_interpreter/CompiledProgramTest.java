@@ -0,0 +1,106 @@
+package luria_interpreter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import interpretation.Interpreter;
+import syntactic_analysis.TreeWriter;
+import virtual_machine.VirtualMachine;
+
+class CompiledProgramTest {
+	static final String PROGRAM = "variable n = 0;\n"
+			+ "variable s = \"hello\";\n"
+			+ "variable b = false;\n"
+			+ "readnumber n;\n"
+			+ "if (n < 0) { readstring s; readboolean b; }\n"
+			+ "function sum(k, acc) { if (k == 0) return acc; return sum(k - 1, acc + k); }\n"
+			+ "function square(x) { return x * x; }\n"
+			+ "variable a = [1, \"two\", true, null, [3.5]];\n"
+			+ "a[0] = -1 + a[0] * 2 ^ 3 % 5;\n"
+			+ "{ variable i = 0; while (i < n and !b or i == 0) { i = i + 1; } print i; }\n"
+			+ "if (s == \"hello\") print s + \"!\"; else print \"no\";\n"
+			+ "print (1 + 2) * square(n) / 2 >= 1;\n"
+			+ "print sum(n, 0);\n"
+			+ "print a;\n";
+	static final String INPUT = "4\n";
+
+	/*
+	 * run() runs a program by the Interpreter, or by the VirtualMachine, upon
+	 * INPUT, and returns what it printed.
+	 */
+	static String run(CompiledProgram program, boolean vm) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		PrintingErrorReporter errors = new PrintingErrorReporter(out);
+		ByteArrayInputStream in = new ByteArrayInputStream(INPUT.getBytes());
+		if (vm)
+			new VirtualMachine(out, in, errors).interpret(program.bytecode());
+		else
+			new Interpreter(out, in, errors).interpret(program.statements);
+		return bytes.toString().replace("\r\n", "\n");
+	}
+
+	static CompiledProgram compile(String sourceCode) {
+		CompiledProgram program = CompiledProgram.compile(sourceCode, LuriaInterpreter.CONSOLE);
+		assertNotNull(program);
+		return program;
+	}
+
+	@Test
+	final void testRoundTrip() throws IOException {
+		CompiledProgram program = compile(PROGRAM);
+		Path path = Files.createTempFile("program", ".lurc");
+		try {
+			program.write(path);
+			CompiledProgram loaded = CompiledProgram.load(path);
+			assertEquals(program.hash, loaded.hash);
+			assertTrue(Arrays.equals(TreeWriter.write(program.hash, program.statements),
+					TreeWriter.write(loaded.hash, loaded.statements)));
+			String expected = run(program, false);
+			assertEquals("4\nhello!\ntrue\n10\n[2.0, two, true, null, [3.5]]\n", expected);
+			assertEquals(expected, run(loaded, false));
+			assertEquals(expected, run(loaded, true));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	final void testLoadedOnlyWhenCurrent() throws IOException {
+		CompiledProgram program = compile(PROGRAM);
+		Path path = Files.createTempFile("program", ".lurc");
+		try {
+			program.write(path);
+			assertNotNull(CompiledProgram.load(path, CompiledProgram.hash(PROGRAM)));
+			assertNull(CompiledProgram.load(path, CompiledProgram.hash(PROGRAM + "print 1;")));
+		} finally {
+			Files.delete(path);
+		}
+		assertNull(CompiledProgram.load(path, program.hash));
+	}
+
+	@Test
+	final void testCorruptFileRejected() throws IOException {
+		byte[] bytes = TreeWriter.write(CompiledProgram.hash(PROGRAM), compile(PROGRAM).statements);
+		Path path = Files.createTempFile("program", ".lurc");
+		try {
+			Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+			assertNull(CompiledProgram.load(path, CompiledProgram.hash(PROGRAM)));
+			assertThrows(IOException.class, () -> CompiledProgram.load(path));
+			Files.write(path, "not a program".getBytes());
+			assertThrows(IOException.class, () -> CompiledProgram.load(path));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+}
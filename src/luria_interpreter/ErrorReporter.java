@@ -0,0 +1,22 @@
+/*
+ * The ErrorReporter interface is the sink to which the Lexer, Parser, Interpreter and VirtualMachine report the errors
+ * they encounter. Each is given an ErrorReporter upon construction, so that separate LuriaContexts may report errors
+ * separately and concurrently. Those constructed without one report to LuriaInterpreter.CONSOLE, which prints to the
+ * standard error stream and flags the error for the command line; see LuriaInterpreter. lexerError() is that of the
+ * LexerErrorReporter, the narrower sink to which a Lexer reports.
+ * 
+ * */
+
+package luria_interpreter;
+
+import interpretation.InterpreterError;
+import lexical_analysis.LexerErrorReporter;
+import lexical_analysis.Token;
+
+public interface ErrorReporter extends LexerErrorReporter {
+
+	void parserError(Token token, String message);
+
+	void interpreterError(InterpreterError error);
+
+}
@@ -0,0 +1,102 @@
+/*
+ * The LatencyHistogram class records the distribution of the durations of the runs of a script. Durations are counted in
+ * buckets of powers of two nanoseconds, bucket i counting those of at least 2^i and less than 2^(i + 1), so that
+ * percentile() is accurate to within a factor of two at any scale without the histogram growing. Each bucket is a
+ * LongAdder, so that threads recording at once do not contend upon a single counter.
+ *
+ * A LatencyHistogram may be read by way of JMX, as the LatencyHistogramMBean registered by Metrics.register().
+ *
+ * */
+
+package luria_interpreter;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram implements LatencyHistogramMBean {
+	private static final int BUCKETS = 64;
+	private final LongAdder[] buckets = new LongAdder[BUCKETS];
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public LatencyHistogram() {
+		for (int i = 0; i < BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanoseconds) {
+		long duration = Math.max(nanoseconds, 1);
+		buckets[63 - Long.numberOfLeadingZeros(duration)].increment();
+		count.increment();
+		total.add(duration);
+		max.accumulate(duration);
+	}
+
+	/*
+	 * percentile() returns the upper bound, in nanoseconds, of the bucket in which
+	 * the given fraction of durations, e.g. 0.99, had been reached, or 0 if none
+	 * has been recorded. It is no greater than the longest duration recorded.
+	 */
+	public long percentile(double fraction) {
+		long[] counts = new long[BUCKETS];
+		long recorded = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			recorded += counts[i];
+		}
+		if (recorded == 0)
+			return 0;
+		long rank = (long) Math.ceil(fraction * recorded);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0)
+				return i == BUCKETS - 1 ? max.get() : Math.min((1L << (i + 1)) - 1, max.get());
+		}
+		return max.get();
+	}
+
+	long total() {
+		return total.sum();
+	}
+
+	@Override
+	public long getCount() {
+		return count.sum();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		long runs = count.sum();
+		return runs == 0 ? 0 : total.sum() / 1e6 / runs;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return max.get() / 1e6;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return percentile(0.50) / 1e6;
+	}
+
+	@Override
+	public double getP90Millis() {
+		return percentile(0.90) / 1e6;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return percentile(0.99) / 1e6;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d runs, mean %.3f ms, p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms", getCount(),
+				getMeanMillis(), getP50Millis(), getP90Millis(), getP99Millis(), getMaxMillis());
+	}
+
+}
@@ -0,0 +1,22 @@
+/*
+ * LatencyHistogramMBean is the management interface by which a LatencyHistogram is read by way of JMX. Durations are
+ * given in milliseconds.
+ *
+ * */
+
+package luria_interpreter;
+
+public interface LatencyHistogramMBean {
+	long getCount();
+
+	double getMeanMillis();
+
+	double getMaxMillis();
+
+	double getP50Millis();
+
+	double getP90Millis();
+
+	double getP99Millis();
+
+}
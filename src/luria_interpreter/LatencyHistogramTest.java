@@ -0,0 +1,68 @@
+package luria_interpreter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+	@Test
+	final void testEmpty() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.percentile(0.5));
+		assertEquals(0, histogram.percentile(1.0));
+		assertEquals(0, histogram.getCount());
+		assertEquals(0.0, histogram.getMeanMillis());
+		assertEquals(0.0, histogram.getMaxMillis());
+	}
+
+	/*
+	 * testSingleSample() checks that every percentile of a single duration is
+	 * that duration, rather than the upper bound of its bucket.
+	 */
+	@Test
+	final void testSingleSample() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(1000);
+		assertEquals(1000, histogram.percentile(0.0));
+		assertEquals(1000, histogram.percentile(0.5));
+		assertEquals(1000, histogram.percentile(1.0));
+		assertEquals(1, histogram.getCount());
+		assertEquals(0.001, histogram.getMeanMillis());
+	}
+
+	/*
+	 * testBucketBounds() records 90 durations of 100 ns, in the bucket [64, 128),
+	 * and 10 of 5000 ns, in the bucket [4096, 8192).
+	 */
+	@Test
+	final void testBucketBounds() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 90; i++) {
+			histogram.record(100);
+		}
+		for (int i = 0; i < 10; i++) {
+			histogram.record(5000);
+		}
+		assertEquals(127, histogram.percentile(0.5));
+		assertEquals(127, histogram.percentile(0.9));
+		assertEquals(5000, histogram.percentile(0.91));
+		assertEquals(5000, histogram.percentile(0.99));
+		assertEquals(5000, histogram.percentile(1.0));
+		assertEquals(100, histogram.getCount());
+		assertEquals(590 * 100 / 1e6 / 100, histogram.getMeanMillis(), 1e-12);
+		assertEquals(5000 / 1e6, histogram.getMaxMillis());
+	}
+
+	@Test
+	final void testExtremeDurations() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(0);
+		histogram.record(-5);
+		assertEquals(1, histogram.percentile(1.0));
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(1, histogram.percentile(0.5));
+		assertEquals(Long.MAX_VALUE, histogram.percentile(1.0));
+	}
+
+}
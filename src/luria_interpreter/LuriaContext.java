@@ -0,0 +1,150 @@
+/*
+ * The LuriaContext class runs Luria programs on behalf of an embedding program. Each context has an Interpreter of its
+ * own, and so its own global variables, output and input streams and ErrorReporter, and shares only compiled programs
+ * with the other contexts of its LuriaEngine. Like the prompt, a context keeps its global variables between programs,
+ * so that a program may use the functions and variables declared by those run before it in the same context.
+ *
+ * A LuriaContext must be used by one thread at a time. Separate contexts may be used by separate threads at once.
+ *
+ * Each run is recorded in the Metrics of the engine, under the name of its script: that given to eval() or run(), else
+ * the first twelve digits of the hash of its source code.
+ *
+ * */
+
+package luria_interpreter;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Collection;
+
+import interpretation.Budget;
+import interpretation.Interpreter;
+import interpretation.MemoTable;
+import interpretation.NativeFunction;
+import interpretation.Profiler;
+
+public class LuriaContext {
+	private final LuriaEngine engine;
+	private final Interpreter interpreter;
+	private final ErrorReporter errors;
+
+	LuriaContext(LuriaEngine engine, PrintStream out, InputStream in, ErrorReporter errors) {
+		this.engine = engine;
+		this.interpreter = new Interpreter(out, in, errors);
+		this.errors = errors;
+	}
+
+	/*
+	 * eval() compiles the given source code by way of the engine and runs it. It
+	 * returns false if an error was reported, whether upon compilation or at
+	 * runtime.
+	 */
+	public boolean eval(String sourceCode) {
+		return eval(sourceCode, null);
+	}
+
+	public boolean eval(String sourceCode, String script) {
+		CompiledProgram program = engine.compile(sourceCode, errors);
+		if (program == null)
+			return false;
+		return run(program, script);
+	}
+
+	/*
+	 * run() runs a program already compiled, returning false if a runtime error
+	 * was reported.
+	 */
+	public boolean run(CompiledProgram program) {
+		return run(program, null);
+	}
+
+	public boolean run(CompiledProgram program, String script) {
+		long start = System.nanoTime();
+		try {
+			return interpreter.interpret(program.statements);
+		} finally {
+			String name = script != null ? script : program.hash.substring(0, 12);
+			engine.metrics().recordExecution(name, System.nanoTime() - start, interpreter);
+		}
+	}
+
+	/*
+	 * getGlobal() returns the value of the global variable of the given name, or
+	 * null if there is none. Values are represented as at the Interpreter: numbers
+	 * as Double, strings as String, Booleans as Boolean and arrays as LuriaArray,
+	 * which is a List.
+	 */
+	public Object getGlobal(String name) {
+		return interpreter.globalScope.get(name);
+	}
+
+	public boolean hasGlobal(String name) {
+		return interpreter.globalScope.isDefined(name);
+	}
+
+	/*
+	 * setGlobal() declares or reassigns a global variable, by which an embedding
+	 * program may pass values to the programs it runs. The value must be
+	 * represented as at getGlobal(); a Java int, for instance, must be passed as a
+	 * Double.
+	 */
+	public void setGlobal(String name, Object value) {
+		interpreter.globalScope.store(name, value);
+	}
+
+	/*
+	 * setMaxCallDepth() sets the greatest depth of Luria function calls in
+	 * programs run in this context, beyond which an error is reported; by default
+	 * Interpreter.DEFAULT_MAX_CALL_DEPTH. A depth too great for the call stack of
+	 * the thread running the program is reported as the same error.
+	 */
+	public void setMaxCallDepth(int maxCallDepth) {
+		interpreter.setMaxCallDepth(maxCallDepth);
+	}
+
+	/*
+	 * setBudget() sets the limits within which programs are run in this context,
+	 * or with null, removes them; see Budget. A program exceeding its budget, or
+	 * whose Budget is cancelled from another thread, is stopped and reported as a
+	 * BudgetExceededError. Untrusted programs should be run under a Budget.
+	 */
+	public void setBudget(Budget budget) {
+		interpreter.setBudget(budget);
+	}
+
+	/*
+	 * setProfiler() profiles the programs run in this context by the given
+	 * Profiler, or with null, stops profiling them; see Profiler.
+	 */
+	public void setProfiler(Profiler profiler) {
+		interpreter.setProfiler(profiler);
+	}
+
+	/*
+	 * setMemoisation() enables the memoisation of the pure functions of programs
+	 * run in this context, caching up to 'capacity' results of each; a capacity of
+	 * 0, the default, disables it. See Interpreter.setMemoisation() and
+	 * memoTables(), by which the hit rate of each cache may be read.
+	 */
+	public void setMemoisation(int capacity) {
+		interpreter.setMemoisation(capacity);
+	}
+
+	public void setMemoisation(String function, int capacity) {
+		interpreter.setMemoisation(function, capacity);
+	}
+
+	public Collection<MemoTable> memoTables() {
+		return interpreter.memoTables();
+	}
+
+	/*
+	 * define() binds a function implemented in Java into global scope, by which
+	 * an embedding program may extend Luria with functions of its own; see
+	 * NativeFunction.
+	 */
+	public void define(NativeFunction function) {
+		interpreter.globalScope.store(function.name, function);
+	}
+
+}
@@ -0,0 +1,98 @@
+package luria_interpreter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import interpretation.MemoTable;
+import interpretation.NativeFunction;
+
+class LuriaContextTest {
+	ByteArrayOutputStream output;
+	LuriaContext context;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		output = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(output, true);
+		context = new LuriaEngine().createContext(out, new ByteArrayInputStream(new byte[0]),
+				new PrintingErrorReporter(out));
+	}
+
+	/*
+	 * printed() returns what the context has printed since last called.
+	 */
+	String printed() {
+		String s = output.toString().replace("\r\n", "\n");
+		output.reset();
+		return s;
+	}
+
+	@Test
+	final void testGlobalsKeptBetweenPrograms() {
+		assertTrue(context.eval("variable x = 2;"));
+		assertTrue(context.eval("print x * 3;"));
+		assertEquals("6\n", printed());
+	}
+
+	@Test
+	final void testMemoisedResultsClearedWhenCalleeRedeclared() {
+		context.setMemoisation(16);
+		assertTrue(context.eval("function f(x) { return x; } function g(x) { return f(x); }"));
+		assertTrue(context.eval("print g(1);"));
+		assertTrue(context.eval("function f(x) { return x + 100; }"));
+		assertTrue(context.eval("print g(1);"));
+		assertEquals("1\n101\n", printed());
+	}
+
+	@Test
+	final void testMemoisedResultsClearedWhenCalleeSetByEmbedder() {
+		context.setMemoisation(16);
+		assertTrue(context.eval("function f(x) { return x; } function g(x) { return f(x); } print g(1);"));
+		context.define(NativeFunction.of("f", x -> (Double) x * 2));
+		assertTrue(context.eval("print g(1);"));
+		context.setGlobal("f", null);
+		assertFalse(context.eval("print g(1);"));
+		assertTrue(printed().startsWith("1\n2\n"));
+	}
+
+	@Test
+	final void testMemoisedResultsKeptWhenProgramRunAgain() {
+		context.setMemoisation(16);
+		CompiledProgram program = CompiledProgram.compile(
+				"function square(x) { return x * x; } print square(3);", LuriaInterpreter.CONSOLE);
+		assertTrue(context.run(program));
+		assertTrue(context.run(program));
+		assertEquals("9\n9\n", printed());
+		MemoTable square = context.memoTables().iterator().next();
+		assertEquals(1L, square.hits());
+		assertEquals(1L, square.misses());
+	}
+
+	@Test
+	final void testMemoisedResultsMatchUnmemoised() {
+		String program = "function fib(n) { if (n <= 1) return n; return fib(n - 1) + fib(n - 2); }"
+				+ " function first(a) { return a[0]; }"
+				+ " variable a = [1]; print fib(20); print first(a); a[0] = 2; print first(a);";
+		assertTrue(context.eval(program));
+		String expected = printed();
+		assertEquals("6765\n1\n2\n", expected);
+		context.setMemoisation(64);
+		assertTrue(context.eval(program));
+		assertEquals(expected, printed());
+		MemoTable fib = null;
+		for (MemoTable table : context.memoTables()) {
+			if (table.function.equals("fib"))
+				fib = table;
+		}
+		assertNotNull(fib);
+		assertEquals(21L, fib.misses());
+		assertTrue(fib.hits() > 0);
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * The LuriaEngine class is the entry point for programs that embed Luria. An engine compiles programs, caching them in a
+ * ProgramCache so that a program compiled once is shared by every run of it, and creates LuriaContexts in which to run
+ * them. An engine holds no state but its cache and its Metrics and may be shared by any number of threads; each thread
+ * should run programs in a LuriaContext of its own. For example, a server may hold a single LuriaEngine and, for each
+ * request, evaluate a script in a new context:
+ *
+ *     LuriaContext context = engine.createContext(out, in, errors);
+ *     context.eval(script);
+ *
+ * The Metrics of an engine count the work done by the programs it compiles and its contexts run; see Metrics, and its
+ * register() by which they are exposed by way of JMX.
+ *
+ * */
+
+package luria_interpreter;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+public class LuriaEngine {
+	private final ProgramCache programCache;
+	private final Metrics metrics = new Metrics();
+
+	public LuriaEngine() {
+		this(256);
+	}
+
+	public LuriaEngine(int cacheCapacity) {
+		this.programCache = new ProgramCache(cacheCapacity);
+	}
+
+	/*
+	 * compile() returns the CompiledProgram for the given source code by way of
+	 * the engine's ProgramCache, reporting errors to the given ErrorReporter. It
+	 * returns null if the source code has errors.
+	 */
+	public CompiledProgram compile(String sourceCode, ErrorReporter errors) {
+		return programCache.compile(sourceCode, errors, metrics);
+	}
+
+	/*
+	 * createContext() returns a new LuriaContext that prints to the standard
+	 * output stream, reads from the standard input stream and prints errors to the
+	 * standard error stream.
+	 */
+	public LuriaContext createContext() {
+		return createContext(System.out, System.in, new PrintingErrorReporter(System.err));
+	}
+
+	/*
+	 * createContext() returns a new LuriaContext with the given streams and
+	 * ErrorReporter. Contexts do not share globals.
+	 */
+	public LuriaContext createContext(PrintStream out, InputStream in, ErrorReporter errors) {
+		return new LuriaContext(this, out, in, errors);
+	}
+
+	public ProgramCache programCache() {
+		return programCache;
+	}
+
+	public Metrics metrics() {
+		return metrics;
+	}
+
+}
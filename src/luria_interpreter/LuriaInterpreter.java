@@ -2,6 +2,32 @@
  * The LuriaInterpreter class is the site of the main() and is responsible for receiving source code. Source code can be given
  * to the program read from a .txt file or given as single-line instructions by way of prompt. The concern of reporting errors
  * is handled here, separating it from the interpreter components, i.e. the lexer and parser, that generate those errors.
+ * Programs are run by the tree-walk Interpreter unless the '--vm' flag is given, in which case they are compiled to
+ * bytecode and run by the VirtualMachine. '--max-depth=<n>' sets the greatest depth of Luria function calls, by default
+ * Interpreter.DEFAULT_MAX_CALL_DEPTH. As the Interpreter recurses in Java upon each Luria call, programs are run on a
+ * thread with a call stack of STACK_SIZE bytes, rather than the main thread, so that this depth may be reached.
+ * '--memoise' caches the results of pure functions, up to MEMO_CAPACITY of each or '--memoise=<n>', and reports the
+ * hit rate of each cache to the standard error stream upon exit. The VirtualMachine does not memoise.
+ * 
+ * '--profile' runs a program file under a Profiler, writing a summary of the calls of each function and the statements
+ * executed on each line to the standard error stream and the time spent in each stack of calls, in the collapsed stack
+ * format of flame graph tools, to a '.collapsed' file beside the program, or to the file given by '--profile=<file>'.
+ * Only the Interpreter is profiled.
+ * 
+ * '--timeout=<ms>' and '--max-statements=<n>' run programs under a Budget, stopping a program that runs longer or
+ * executes more statements; the VirtualMachine is not budgeted.
+ * 
+ * '--metrics' counts the work done in Metrics, registered by way of JMX as 'luria:type=Metrics,name=console', and
+ * writes them to the standard error stream upon exit; the VirtualMachine reports only the duration of each run.
+ * 
+ * 'compile <file>' lexes, parses, optimises and resolves a program and writes it, as a CompiledProgram, to a '.lurc'
+ * file beside it. A .lurc file may be run directly. A source file is run from the .lurc file beside it, without the
+ * Lexer, Parser, Optimiser or Resolver, unless that file is missing or stale, i.e. written from other source code or
+ * by another version of Luria.
+ * 
+ * The Lexer, Parser, Interpreter and VirtualMachine report errors to an ErrorReporter. Here, CONSOLE is the ErrorReporter
+ * that prints to the standard error stream and sets the 'error' and 'runtimeError' flags of the command line. Programs
+ * embedding Luria should use LuriaEngine and LuriaContext, which share none of the static state of this class.
  * 
  * */
 
@@ -10,67 +36,252 @@ package luria_interpreter;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.charset.Charset;
+import java.io.PrintStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
 
+import interpretation.Budget;
 import interpretation.Interpreter;
 import interpretation.InterpreterError;
-import lexical_analysis.Lexer;
+import interpretation.MemoTable;
+import interpretation.Profiler;
 import lexical_analysis.Token;
-import lexical_analysis.TokenType;
-import syntactic_analysis.Parser;
-import syntactic_analysis.Statement;
+import virtual_machine.VirtualMachine;
 
 public class LuriaInterpreter {
+	// CONSOLE is declared before the Interpreter and VirtualMachine below, which
+	// take it upon their construction.
+	private static final PrintingErrorReporter standardError = new PrintingErrorReporter(System.err);
+	public static final ErrorReporter CONSOLE = new ErrorReporter() {
+		@Override
+		public void lexerError(int location, String message) {
+			LuriaInterpreter.lexerError(location, message);
+		}
+
+		@Override
+		public void parserError(Token token, String message) {
+			LuriaInterpreter.parserError(token, message);
+		}
+
+		@Override
+		public void interpreterError(InterpreterError error) {
+			LuriaInterpreter.interpreterError(error);
+		}
+	};
+
 	private static final Interpreter interpreter = new Interpreter();
+	private static final VirtualMachine virtualMachine = new VirtualMachine();
+	public static final ProgramCache programCache = new ProgramCache(64);
+	static final String COMPILED_EXTENSION = ".lurc";
+	static final String PROFILE_EXTENSION = ".collapsed";
+	static final long STACK_SIZE = 256L * 1024 * 1024;
+	static final int MEMO_CAPACITY = 1024;
+	static boolean useVirtualMachine = false;
+	static Profiler profiler = null;
+	static Metrics metrics = null;
+	static Budget budget = null;
+	static String profilePath = null;
 	static boolean error = false;
 	static boolean runtimeError = false;
 
 	/*
-	 * main(). On receipt of a single argument, i.e. a file name, the file is read;
-	 * else the program enters the prompt state.
+	 * main(). Arguments prefixed '--' are read as flags. On receipt of a single
+	 * further argument, i.e. a file name, the file is read; else the program enters
+	 * the prompt state. 'compile' followed by a file name compiles the file.
 	 */
-	public static void main(String[] args) throws IOException {
-		if (args.length > 1) {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		List<String> files = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.equals("--vm")) {
+				useVirtualMachine = true;
+			} else if (arg.startsWith("--max-depth=")) {
+				int depth = Integer.parseInt(arg.substring("--max-depth=".length()));
+				interpreter.setMaxCallDepth(depth);
+				virtualMachine.setMaxCallDepth(depth);
+			} else if (arg.equals("--profile")) {
+				profiler = new Profiler();
+			} else if (arg.startsWith("--profile=")) {
+				profiler = new Profiler();
+				profilePath = arg.substring("--profile=".length());
+			} else if (arg.startsWith("--timeout=")) {
+				budget().time(Long.parseLong(arg.substring("--timeout=".length())), TimeUnit.MILLISECONDS);
+			} else if (arg.startsWith("--max-statements=")) {
+				budget().statements(Long.parseLong(arg.substring("--max-statements=".length())));
+			} else if (arg.equals("--metrics")) {
+				metrics = new Metrics();
+			} else if (arg.equals("--memoise")) {
+				interpreter.setMemoisation(MEMO_CAPACITY);
+			} else if (arg.startsWith("--memoise=")) {
+				interpreter.setMemoisation(Integer.parseInt(arg.substring("--memoise=".length())));
+			} else {
+				files.add(arg);
+			}
+		}
+		if (metrics != null)
+			registerMetrics();
+		IOException[] failure = new IOException[1];
+		Thread thread = new Thread(null, () -> {
+			try {
+				run(files);
+			} catch (IOException e) {
+				failure[0] = e;
+			}
+		}, "luria", STACK_SIZE);
+		thread.start();
+		thread.join();
+		if (failure[0] != null)
+			throw failure[0];
+	}
+
+	// The Budget is created by the first flag to set a limit.
+	private static Budget budget() {
+		if (budget == null) {
+			budget = new Budget();
+			interpreter.setBudget(budget);
+		}
+		return budget;
+	}
+
+	private static void registerMetrics() {
+		try {
+			metrics.register("console");
+		} catch (JMException e) {
+			System.err.println("Metrics not registered: " + e.getMessage());
+		}
+	}
+
+	private static void run(List<String> files) throws IOException {
+		if (files.size() == 2 && files.get(0).equals("compile")) {
+			compileFile(files.get(1));
+		} else if (files.size() > 1) {
 			System.exit(1);
-		} else if (args.length == 1) {
-			readFile(args[0]);
+		} else if (files.size() == 1) {
+			interpreter.setProfiler(profiler);
+			readFile(files.get(0));
+			for (MemoTable memo : interpreter.memoTables()) {
+				System.err.println(memo);
+			}
+			if (profiler != null)
+				writeProfile(files.get(0));
+			if (metrics != null)
+				System.err.println(metrics);
 		} else {
 			runPrompt();
 		}
 	}
 
 	/*
-	 * readFile() extracts the contents of the file as an array of binary data and
-	 * decodes it as a String representing the source code. This is then passed to
-	 * runLuria(), beginning the interpretation procedure. If an error occurs, this
-	 * is flagged and the program will terminate.
+	 * readFile() compiles the file as it is read, rather than reading it whole
+	 * into a String first, so that a large program is never held in memory as
+	 * source code and Tokens at once; see CompiledProgram.compile(). The
+	 * CompiledProgram is then run. If an error occurs, this is flagged and the
+	 * program will terminate.
 	 */
 	public static void readFile(String PATH) throws IOException {
-		byte[] bytes = Files.readAllBytes(Paths.get(PATH));
+		Path path = Paths.get(PATH);
+		if (PATH.endsWith(COMPILED_EXTENSION)) {
+			runProgram(loadFile(path), path.getFileName().toString());
+			return;
+		}
+		String hash = CompiledProgram.hash(path);
 		if (error)
 			System.exit(1);
 		if (runtimeError)
 			System.exit(1);
-		runLuria(new String(bytes, Charset.defaultCharset()));
+		CompiledProgram program = CompiledProgram.load(compiledPath(path), hash);
+		if (program == null)
+			program = CompiledProgram.compile(path, hash, CONSOLE, metrics);
+		if (program != null)
+			runProgram(program, path.getFileName().toString());
+	}
+
+	/*
+	 * compileFile() compiles the file and writes the CompiledProgram beside it,
+	 * with the extension '.lurc' in place of its own. If an error occurs, nothing
+	 * is written and the program will terminate.
+	 */
+	public static void compileFile(String PATH) throws IOException {
+		Path path = Paths.get(PATH);
+		CompiledProgram program = CompiledProgram.compile(path, CompiledProgram.hash(path), CONSOLE);
+		if (program == null)
+			System.exit(1);
+		program.write(compiledPath(path));
+	}
+
+	/*
+	 * writeProfile() writes the summary of the profile of the given program to the
+	 * standard error stream and its collapsed stacks to 'profilePath', else to
+	 * the '.collapsed' file beside the program.
+	 */
+	private static void writeProfile(String PATH) throws IOException {
+		profiler.writeSummary(System.err);
+		Path path = profilePath != null ? Paths.get(profilePath) : siblingPath(Paths.get(PATH), PROFILE_EXTENSION);
+		try (PrintStream out = new PrintStream(Files.newOutputStream(path))) {
+			profiler.writeCollapsed(out);
+		}
+	}
+
+	private static CompiledProgram loadFile(Path path) {
+		try {
+			return CompiledProgram.load(path);
+		} catch (IOException e) {
+			System.err.println(path + ": " + e.getMessage());
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/*
+	 * compiledPath() returns the path of the .lurc file for the given source
+	 * file, e.g. 'program.lurc' for 'program.txt'.
+	 */
+	static Path compiledPath(Path path) {
+		return siblingPath(path, COMPILED_EXTENSION);
+	}
+
+	private static Path siblingPath(Path path, String extension) {
+		String name = path.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		if (dot > 0)
+			name = name.substring(0, dot);
+		return path.resolveSibling(name + extension);
 	}
 
 	/*
 	 * runLuria() is the procedure passing the output of each interpretation phase
-	 * to the next. If an error is flagged, the procedure is escaped before the
-	 * Interpreter attempts to evaluate the syntax tree, avoiding a
+	 * to the next. The Lexer, Parser, Optimiser and Resolver are run by way of
+	 * 'programCache', so that source code run before is not lexed or parsed again;
+	 * see ProgramCache. If an error is flagged, the procedure is escaped before
+	 * the Interpreter attempts to evaluate the syntax tree, avoiding a
 	 * NullPointerException.
 	 */
 	public static void runLuria(String sourceString) {
-		Lexer lexer = new Lexer(sourceString);
-		List<Token> tokens = lexer.lexSourceCode();
-		Parser parser = new Parser(tokens);
-		List<Statement> statements = parser.parse();
-		if (error)
+		CompiledProgram program = programCache.compile(sourceString, CONSOLE, metrics);
+		if (program == null)
 			return;
-		interpreter.interpret(statements);
+		runProgram(program, "prompt");
+	}
+
+	/*
+	 * runProgram() runs a CompiledProgram by way of the Interpreter or, if the
+	 * '--vm' flag was given, the VirtualMachine, recording the run under the given
+	 * script name if the '--metrics' flag was given.
+	 */
+	public static void runProgram(CompiledProgram program, String script) {
+		long start = System.nanoTime();
+		if (useVirtualMachine) {
+			virtualMachine.interpret(program.bytecode());
+		} else {
+			interpreter.interpret(program.statements);
+		}
+		if (metrics != null)
+			metrics.recordExecution(script, System.nanoTime() - start, useVirtualMachine ? null : interpreter);
 	}
 
 	/*
@@ -92,43 +303,29 @@ public class LuriaInterpreter {
 	}
 
 	/*
-	 * errorReport() is a private method called only within the LuriaInterpreter
-	 * class. It concatenates a string for error printing composed of the line, i.e.
-	 * location, at which the error occurred, the lexeme of the Token object
-	 * following the erroneous syntax, and a relevant message.
-	 */
-	private static void errorReport(int line, String lexeme, String message) {
-		System.err.println("[@ line " + line + "] Error @" + lexeme + ": " + message);
-		error = true;
-	}
-
-	/*
-	 * lexerError() collates error data from those occurring in the Lexer class and
-	 * passes these to errorReport().
+	 * lexerError() reports errors occurring in the Lexer class to the standard
+	 * error stream by way of 'standardError' and flags the error.
 	 */
 	public static void lexerError(int location, String message) {
-		String empty = "";
-		errorReport(location, empty, message);
+		standardError.lexerError(location, message);
+		error = true;
 	}
 
 	/*
-	 * parserError() collates error data from those occurring in the Parser class
-	 * and passes these to errorReport().
+	 * parserError() reports errors occurring in the Parser class to the standard
+	 * error stream by way of 'standardError' and flags the error.
 	 */
 	public static void parserError(Token token, String message) {
-		if (token.type == TokenType.EOF) {
-			errorReport(token.location, " EOF", message);
-		} else {
-			errorReport(token.location, " '" + token.lexeme + "'", message);
-		}
+		standardError.parserError(token, message);
+		error = true;
 	}
 
 	/*
-	 * parserError() collates error data from those occurring in the Interpreter
-	 * class and passes these to errorReport().
+	 * interpreterError() reports errors occurring in the Interpreter class to the
+	 * standard error stream by way of 'standardError' and flags the error.
 	 */
 	public static void interpreterError(InterpreterError error) {
-		System.err.println(error.getMessage() + "\n[@ " + error.token.location + "]");
+		standardError.interpreterError(error);
 		runtimeError = true;
 	}
 
@@ -0,0 +1,206 @@
+/*
+ * The Metrics class counts the work done by the contexts of a LuriaEngine, or by the command line when given the
+ * '--metrics' flag: statements executed, function calls made, Frames allocated and the greatest call depth reached by
+ * the Interpreter; the time spent lexing, parsing and analysing each program compiled, i.e. optimising, resolving and
+ * analysing purity, and the nodes the Optimiser removed from it; and the time spent executing each run, in a
+ * LatencyHistogram for all runs and one for each script.
+ *
+ * Metrics may be updated by any number of threads at once. Each count is a LongAdder, which spreads contended updates
+ * over several cells rather than having threads contend upon one; moreover, an Interpreter counts in plain fields of its
+ * own and its context adds these to the Metrics once per run, so that executing a statement updates no shared state. At
+ * most MAX_SCRIPTS scripts are given histograms of their own; the runs of further scripts are counted only among all.
+ *
+ * register() registers the Metrics and its histograms with the platform MBeanServer, by which they may be read by way
+ * of JMX, e.g. in JConsole, under the domain 'luria'.
+ *
+ * */
+
+package luria_interpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import interpretation.Interpreter;
+
+public class Metrics implements MetricsMBean {
+	public static final int MAX_SCRIPTS = 1024;
+	private final LongAdder statements = new LongAdder();
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder frames = new LongAdder();
+	private final LongAccumulator peakCallDepth = new LongAccumulator(Math::max, 0);
+	private final LongAdder compilations = new LongAdder();
+	private final LongAdder lexNanoseconds = new LongAdder();
+	private final LongAdder parseNanoseconds = new LongAdder();
+	private final LongAdder analyseNanoseconds = new LongAdder();
+	private final LongAdder nodesRemoved = new LongAdder();
+	private final LatencyHistogram executions = new LatencyHistogram();
+	private final ConcurrentMap<String, LatencyHistogram> scripts = new ConcurrentHashMap<>();
+	private volatile String name = null;
+
+	/*
+	 * recordCompilation() records the time spent in each phase of compiling a
+	 * program and the number of nodes the Optimiser removed from it; see
+	 * CompiledProgram.compile().
+	 */
+	void recordCompilation(long lexNanoseconds, long parseNanoseconds, long analyseNanoseconds, int nodesRemoved) {
+		compilations.increment();
+		this.lexNanoseconds.add(lexNanoseconds);
+		this.parseNanoseconds.add(parseNanoseconds);
+		this.analyseNanoseconds.add(analyseNanoseconds);
+		this.nodesRemoved.add(nodesRemoved);
+	}
+
+	/*
+	 * recordExecution() records a run of the given script and the work counted by
+	 * the Interpreter that ran it, resetting its counters for the next run. A run
+	 * by the VirtualMachine is recorded with a null Interpreter.
+	 */
+	void recordExecution(String script, long nanoseconds, Interpreter interpreter) {
+		if (interpreter != null) {
+			statements.add(interpreter.statementsExecuted());
+			calls.add(interpreter.callsMade());
+			frames.add(interpreter.framesAllocated());
+			peakCallDepth.accumulate(interpreter.peakCallDepth());
+			interpreter.resetCounters();
+		}
+		executions.record(nanoseconds);
+		LatencyHistogram histogram = script(script);
+		if (histogram != null)
+			histogram.record(nanoseconds);
+	}
+
+	/*
+	 * script() returns the histogram of the given script, creating and, if the
+	 * Metrics are registered, registering it upon first call, or null if there
+	 * are MAX_SCRIPTS histograms already.
+	 */
+	private LatencyHistogram script(String script) {
+		LatencyHistogram histogram = scripts.get(script);
+		if (histogram != null || scripts.size() >= MAX_SCRIPTS)
+			return histogram;
+		LatencyHistogram created = new LatencyHistogram();
+		histogram = scripts.putIfAbsent(script, created);
+		if (histogram != null)
+			return histogram;
+		String registered = name;
+		if (registered != null)
+			registerScript(registered, script, created);
+		return created;
+	}
+
+	public LatencyHistogram executions() {
+		return executions;
+	}
+
+	public LatencyHistogram executions(String script) {
+		return scripts.get(script);
+	}
+
+	/*
+	 * register() registers the Metrics with the platform MBeanServer as
+	 * 'luria:type=Metrics,name=<name>', the histogram of all runs as
+	 * 'luria:type=Latency,engine=<name>' and that of each script as
+	 * 'luria:type=ScriptLatency,engine=<name>,script=<script>'.
+	 */
+	public void register(String name) throws JMException {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		server.registerMBean(this, new ObjectName("luria:type=Metrics,name=" + ObjectName.quote(name)));
+		server.registerMBean(executions, new ObjectName("luria:type=Latency,engine=" + ObjectName.quote(name)));
+		this.name = name;
+		for (Map.Entry<String, LatencyHistogram> script : scripts.entrySet()) {
+			registerScript(name, script.getKey(), script.getValue());
+		}
+	}
+
+	private static void registerScript(String name, String script, LatencyHistogram histogram) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(histogram, new ObjectName(
+					"luria:type=ScriptLatency,engine=" + ObjectName.quote(name) + ",script=" + ObjectName.quote(script)));
+		} catch (JMException e) {
+			// A histogram already registered, e.g. by a race between two threads, is kept.
+		}
+	}
+
+	@Override
+	public long getStatementsExecuted() {
+		return statements.sum();
+	}
+
+	@Override
+	public long getCallsMade() {
+		return calls.sum();
+	}
+
+	@Override
+	public long getFramesAllocated() {
+		return frames.sum();
+	}
+
+	@Override
+	public long getPeakCallDepth() {
+		return peakCallDepth.get();
+	}
+
+	@Override
+	public long getCompilations() {
+		return compilations.sum();
+	}
+
+	@Override
+	public double getLexMillis() {
+		return lexNanoseconds.sum() / 1e6;
+	}
+
+	@Override
+	public double getParseMillis() {
+		return parseNanoseconds.sum() / 1e6;
+	}
+
+	@Override
+	public double getAnalyseMillis() {
+		return analyseNanoseconds.sum() / 1e6;
+	}
+
+	@Override
+	public long getNodesRemoved() {
+		return nodesRemoved.sum();
+	}
+
+	@Override
+	public long getExecutions() {
+		return executions.getCount();
+	}
+
+	@Override
+	public double getExecuteMillis() {
+		return executions.total() / 1e6;
+	}
+
+	@Override
+	public String[] getScripts() {
+		return scripts.keySet().toArray(new String[0]);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("statements executed %d, calls made %d, frames allocated %d, peak call depth %d%n",
+				getStatementsExecuted(), getCallsMade(), getFramesAllocated(), getPeakCallDepth()));
+		s.append(String.format("compilations %d: lex %.3f ms, parse %.3f ms, analyse %.3f ms, nodes removed %d%n",
+				getCompilations(), getLexMillis(), getParseMillis(), getAnalyseMillis(), getNodesRemoved()));
+		s.append("executions: ").append(executions);
+		for (Map.Entry<String, LatencyHistogram> script : scripts.entrySet()) {
+			s.append(String.format("%n  %s: %s", script.getKey(), script.getValue()));
+		}
+		return s.toString();
+	}
+
+}
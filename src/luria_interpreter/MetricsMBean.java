@@ -0,0 +1,34 @@
+/*
+ * MetricsMBean is the management interface by which the Metrics of a LuriaEngine are read by way of JMX. Counts are
+ * totals since the Metrics were created; durations are given in milliseconds.
+ *
+ * */
+
+package luria_interpreter;
+
+public interface MetricsMBean {
+	long getStatementsExecuted();
+
+	long getCallsMade();
+
+	long getFramesAllocated();
+
+	long getPeakCallDepth();
+
+	long getCompilations();
+
+	double getLexMillis();
+
+	double getParseMillis();
+
+	double getAnalyseMillis();
+
+	long getNodesRemoved();
+
+	long getExecutions();
+
+	double getExecuteMillis();
+
+	String[] getScripts();
+
+}
@@ -0,0 +1,80 @@
+package luria_interpreter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+import interpretation.Interpreter;
+
+class MetricsTest {
+	static final String SOURCE_CODE = "function f(n) { if (n == 0) return 0; return 1 + f(n - 1); }\nprint f(3);";
+
+	static Interpreter run(Interpreter interpreter) {
+		assertTrue(interpreter.interpret(CompiledProgram.compile(SOURCE_CODE, LuriaInterpreter.CONSOLE).statements));
+		return interpreter;
+	}
+
+	/*
+	 * testExecutionsAddCounters() records two runs of the same Interpreter, whose
+	 * counters must be added to the Metrics and reset for the next run by each.
+	 */
+	@Test
+	final void testExecutionsAddCounters() {
+		Interpreter interpreter = new Interpreter(new PrintStream(new ByteArrayOutputStream(), true),
+				new ByteArrayInputStream(new byte[0]), LuriaInterpreter.CONSOLE);
+		Metrics metrics = new Metrics();
+		run(interpreter);
+		long statements = interpreter.statementsExecuted();
+		assertTrue(statements > 0);
+		assertEquals(4, interpreter.callsMade());
+		assertEquals(4, interpreter.peakCallDepth());
+		metrics.recordExecution("f", 1000, interpreter);
+		assertEquals(0, interpreter.statementsExecuted());
+		assertEquals(0, interpreter.callsMade());
+		assertEquals(statements, metrics.getStatementsExecuted());
+		assertEquals(4, metrics.getCallsMade());
+		assertEquals(4, metrics.getPeakCallDepth());
+
+		metrics.recordExecution("f", 3000, run(interpreter));
+		assertEquals(2 * statements, metrics.getStatementsExecuted());
+		assertEquals(8, metrics.getCallsMade());
+		assertEquals(4, metrics.getPeakCallDepth());
+		assertEquals(2, metrics.getExecutions());
+		assertEquals(0.004, metrics.getExecuteMillis());
+		assertEquals(2, metrics.executions("f").getCount());
+
+		metrics.recordExecution("f", 2000, null);
+		assertEquals(2 * statements, metrics.getStatementsExecuted());
+		assertEquals(3, metrics.getExecutions());
+	}
+
+	@Test
+	final void testScriptHistogramsCapped() {
+		Metrics metrics = new Metrics();
+		for (int i = 0; i < Metrics.MAX_SCRIPTS + 10; i++) {
+			metrics.recordExecution("script" + i, 1000, null);
+		}
+		metrics.recordExecution("script0", 1000, null);
+		assertEquals(Metrics.MAX_SCRIPTS, metrics.getScripts().length);
+		assertEquals(2, metrics.executions("script0").getCount());
+		assertNull(metrics.executions("script" + Metrics.MAX_SCRIPTS));
+		assertEquals(Metrics.MAX_SCRIPTS + 11, metrics.executions().getCount());
+	}
+
+	@Test
+	final void testCompilationsRecorded() {
+		Metrics metrics = new Metrics();
+		String sourceCode = "print 1 + 2 * 3; if (false) print 4;";
+		CompiledProgram program = CompiledProgram.compile(CompiledProgram.hash(sourceCode), sourceCode,
+				LuriaInterpreter.CONSOLE, metrics);
+		assertTrue(program.nodesRemoved > 0);
+		assertEquals(1, metrics.getCompilations());
+		assertEquals(program.nodesRemoved, metrics.getNodesRemoved());
+		assertTrue(metrics.toString().contains("nodes removed " + program.nodesRemoved), metrics.toString());
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+ * The PrintingErrorReporter class implements ErrorReporter by printing each error to a given PrintStream in the format
+ * of the command line, and counting the errors reported. It is the ErrorReporter of a LuriaContext unless another is
+ * given.
+ * 
+ * */
+
+package luria_interpreter;
+
+import java.io.PrintStream;
+
+import interpretation.InterpreterError;
+import lexical_analysis.Token;
+import lexical_analysis.TokenType;
+
+public class PrintingErrorReporter implements ErrorReporter {
+	private final PrintStream err;
+	private int errors = 0;
+
+	public PrintingErrorReporter(PrintStream err) {
+		this.err = err;
+	}
+
+	/*
+	 * report() concatenates a string for error printing composed of the line, i.e.
+	 * location, at which the error occurred, the lexeme of the Token object
+	 * following the erroneous syntax, and a relevant message.
+	 */
+	private void report(int line, String lexeme, String message) {
+		err.println("[@ line " + line + "] Error @" + lexeme + ": " + message);
+		errors++;
+	}
+
+	@Override
+	public void lexerError(int location, String message) {
+		report(location, "", message);
+	}
+
+	@Override
+	public void parserError(Token token, String message) {
+		if (token.type == TokenType.EOF) {
+			report(token.location, " EOF", message);
+		} else {
+			report(token.location, " '" + token.lexeme + "'", message);
+		}
+	}
+
+	@Override
+	public void interpreterError(InterpreterError error) {
+		err.println(error.getMessage() + "\n[@ " + error.token.location + "]");
+		errors++;
+	}
+
+	/*
+	 * errorCount() returns the number of errors reported so far.
+	 */
+	public int errorCount() {
+		return errors;
+	}
+
+}
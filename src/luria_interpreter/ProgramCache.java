@@ -0,0 +1,104 @@
+/*
+ * The ProgramCache class holds CompiledPrograms keyed by the SHA-256 hash of their source code, so that a program run
+ * repeatedly is lexed, parsed and resolved only upon its first run. The cache holds at most 'capacity' programs; when
+ * full, the least recently used is evicted. Counts of hits, misses and evictions are kept for the purpose of monitoring.
+ *
+ * A ProgramCache may be shared between threads and between Interpreters. Lookup and insertion are synchronized upon the
+ * cache, but compilation of a missing program is not, so that a long compilation does not hold up other threads. Should
+ * two threads compile the same program at once, the first to finish is cached and both run it. Programs with errors are
+ * never cached.
+ *
+ * */
+
+package luria_interpreter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ProgramCache {
+	private final int capacity;
+	private final Map<String, CompiledProgram> programs;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	public ProgramCache(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		this.capacity = capacity;
+		// A LinkedHashMap in access order iterates from least to most recently used.
+		this.programs = new LinkedHashMap<String, CompiledProgram>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledProgram> eldest) {
+				if (size() <= ProgramCache.this.capacity)
+					return false;
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/*
+	 * compile() returns the CompiledProgram for the given source code, from the
+	 * cache if present, else compiling and caching it. As at
+	 * CompiledProgram.compile(), errors are reported to the given ErrorReporter and
+	 * compile() returns null if the source code has any.
+	 */
+	public CompiledProgram compile(String sourceCode, ErrorReporter errors) {
+		return compile(sourceCode, errors, null);
+	}
+
+	/*
+	 * compile() with Metrics records in them the time spent compiling a program
+	 * missing from the cache.
+	 */
+	public CompiledProgram compile(String sourceCode, ErrorReporter errors, Metrics metrics) {
+		String hash = CompiledProgram.hash(sourceCode);
+		synchronized (this) {
+			CompiledProgram program = programs.get(hash);
+			if (program != null) {
+				hits++;
+				return program;
+			}
+			misses++;
+		}
+		CompiledProgram program = CompiledProgram.compile(hash, sourceCode, errors, metrics);
+		if (program == null)
+			return null;
+		synchronized (this) {
+			CompiledProgram existing = programs.putIfAbsent(hash, program);
+			return existing != null ? existing : program;
+		}
+	}
+
+	public synchronized void clear() {
+		programs.clear();
+	}
+
+	public synchronized int size() {
+		return programs.size();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public synchronized long hits() {
+		return hits;
+	}
+
+	public synchronized long misses() {
+		return misses;
+	}
+
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "ProgramCache[size=" + programs.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses
+				+ ", evictions=" + evictions + "]";
+	}
+
+}
@@ -0,0 +1,100 @@
+package luria_interpreter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class ProgramCacheTest {
+	static final ErrorReporter ERRORS = new PrintingErrorReporter(new PrintStream(new ByteArrayOutputStream(), true));
+
+	@Test
+	final void testHitsAndMisses() {
+		ProgramCache cache = new ProgramCache(4);
+		CompiledProgram program = cache.compile("print 1;", ERRORS);
+		assertNotNull(program);
+		assertSame(program, cache.compile("print 1;", ERRORS));
+		assertSame(program, cache.compile("print 1;", ERRORS));
+		assertNotSame(program, cache.compile("print 2;", ERRORS));
+		assertEquals(2, cache.hits());
+		assertEquals(2, cache.misses());
+		assertEquals(2, cache.size());
+
+		// A program with errors is counted as a miss each time, and never cached.
+		assertNull(cache.compile("print ;", ERRORS));
+		assertNull(cache.compile("print ;", ERRORS));
+		assertEquals(4, cache.misses());
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNotSame(program, cache.compile("print 1;", ERRORS));
+		assertEquals(5, cache.misses());
+	}
+
+	/*
+	 * testLeastRecentlyUsedEvicted() fills a cache of two programs, uses the first
+	 * again, then adds a third, which must evict the second.
+	 */
+	@Test
+	final void testLeastRecentlyUsedEvicted() {
+		ProgramCache cache = new ProgramCache(2);
+		CompiledProgram first = cache.compile("print 1;", ERRORS);
+		CompiledProgram second = cache.compile("print 2;", ERRORS);
+		assertSame(first, cache.compile("print 1;", ERRORS));
+		cache.compile("print 3;", ERRORS);
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.evictions());
+		assertSame(first, cache.compile("print 1;", ERRORS));
+		assertNotSame(second, cache.compile("print 2;", ERRORS));
+		assertEquals(2, cache.evictions());
+		assertEquals(2, cache.hits());
+		assertEquals(4, cache.misses());
+		assertThrows(IllegalArgumentException.class, () -> new ProgramCache(0));
+	}
+
+	/*
+	 * testConcurrentCompilation() compiles the same program on several threads at
+	 * once, all of which must be given the one CompiledProgram that is cached.
+	 */
+	@Test
+	final void testConcurrentCompilation() throws InterruptedException {
+		ProgramCache cache = new ProgramCache(4);
+		StringBuilder sourceCode = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			sourceCode.append("variable v").append(i).append(" = ").append(i).append(" * 2;\n");
+		}
+		String program = sourceCode.toString();
+		CompiledProgram[] compiled = new CompiledProgram[8];
+		Thread[] threads = new Thread[compiled.length];
+		CountDownLatch start = new CountDownLatch(1);
+		for (int t = 0; t < threads.length; t++) {
+			int index = t;
+			threads[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				compiled[index] = cache.compile(program, ERRORS);
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		CompiledProgram cached = cache.compile(program, ERRORS);
+		assertNotNull(cached);
+		for (CompiledProgram c : compiled) {
+			assertSame(cached, c);
+		}
+		assertEquals(1, cache.size());
+		assertEquals(compiled.length + 1, cache.hits() + cache.misses());
+		assertTrue(cache.misses() >= 1);
+	}
+
+}
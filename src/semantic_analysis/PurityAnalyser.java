@@ -0,0 +1,369 @@
+/*
+ * The PurityAnalyser class is a static pass over the resolved syntax tree that marks as 'pure' each function declaration
+ * whose calls can be proven to have no effect but their result, a result determined by their arguments alone. Such a
+ * function may have its results memoised by the Interpreter; see MemoTable.
+ *
+ * A function is impure if its body, excluding the bodies of functions declared within it:
+ *
+ *     prints or reads, by a print or read statement
+ *     assigns to a variable not declared within the function
+ *     stores into an array, which may be shared with its caller
+ *     refers to a name not declared within the function, unless it names a pure function or pure builtin
+ *     calls anything but such a name, e.g. a function passed as an argument
+ *
+ * As variables declared outside a function may change between its calls, the only names from outside that a pure
+ * function may refer to are those of other functions, and those only if fixed: declared as a function exactly once in the
+ * program and never otherwise declared, assigned or used as a parameter. The builtins referred to must likewise not be
+ * hidden. Purity is then a greatest fixed point, so that recursive and mutually recursive functions may be pure: every
+ * function without effects of its own is assumed pure, and those that refer to a function found impure are marked impure
+ * in turn, until none changes.
+ *
+ * The analysis sees only the program given it. A global function may yet be rebound after it, by an embedding program,
+ * by way of LuriaContext, or by a later program in the same global scope, e.g. at the prompt; the Interpreter then
+ * clears the results it has memoised, so that none computed by way of the old function is returned. See Interpreter.
+ *
+ * */
+
+package semantic_analysis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import interpretation.NativeFunction;
+import interpretation.NativeRegistry;
+import lexical_analysis.Token;
+import syntactic_analysis.Expression;
+import syntactic_analysis.Statement;
+import syntactic_analysis.Expression.Allocation;
+import syntactic_analysis.Expression.Array;
+import syntactic_analysis.Expression.Assignment;
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Expression.Call;
+import syntactic_analysis.Expression.Combination;
+import syntactic_analysis.Expression.Index;
+import syntactic_analysis.Expression.Literal;
+import syntactic_analysis.Expression.Logical;
+import syntactic_analysis.Expression.Unary;
+import syntactic_analysis.Expression.VariableExpression;
+import syntactic_analysis.Statement.Block;
+import syntactic_analysis.Statement.ExpressionStatement;
+import syntactic_analysis.Statement.FunctionDeclaration;
+import syntactic_analysis.Statement.If;
+import syntactic_analysis.Statement.Print;
+import syntactic_analysis.Statement.ReadBoolean;
+import syntactic_analysis.Statement.ReadNumber;
+import syntactic_analysis.Statement.ReadString;
+import syntactic_analysis.Statement.Return;
+import syntactic_analysis.Statement.VariableDeclaration;
+import syntactic_analysis.Statement.While;
+
+public class PurityAnalyser implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+	private static final NativeRegistry BUILTINS = NativeRegistry.standard();
+	private final Map<FunctionDeclaration, Analysis> analyses = new LinkedHashMap<>();
+	private final Map<String, Integer> declarations = new HashMap<>();
+	private final Map<String, Analysis> named = new HashMap<>();
+	private final Set<String> rebound = new HashSet<>();
+	private final Deque<Analysis> functions = new ArrayDeque<>();
+
+	/*
+	 * The nested Analysis class records, of a single function, the names declared
+	 * in each of its scopes, whether it has an effect of its own and the names from
+	 * outside it to which it refers.
+	 */
+	private static class Analysis {
+		final List<Set<String>> scopes = new ArrayList<>();
+		final Set<String> outer = new HashSet<>();
+		boolean effects = false;
+		boolean pure;
+
+		boolean declares(String name) {
+			for (Set<String> scope : scopes) {
+				if (scope.contains(name))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/*
+	 * analyse() is the entry method of the PurityAnalyser and sets the 'pure'
+	 * field of each function declaration among the statements.
+	 */
+	public void analyse(List<Statement> statements) {
+		visit(statements);
+		for (Analysis analysis : analyses.values()) {
+			analysis.pure = !analysis.effects;
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Analysis analysis : analyses.values()) {
+				if (analysis.pure && !referencesPure(analysis)) {
+					analysis.pure = false;
+					changed = true;
+				}
+			}
+		}
+		for (Map.Entry<FunctionDeclaration, Analysis> entry : analyses.entrySet()) {
+			entry.getKey().pure = entry.getValue().pure;
+		}
+	}
+
+	/*
+	 * referencesPure() returns true if every name from outside the function to
+	 * which it refers is that of a fixed function currently thought pure, or of a
+	 * pure builtin not hidden by the program.
+	 */
+	private boolean referencesPure(Analysis analysis) {
+		for (String name : analysis.outer) {
+			if (rebound.contains(name))
+				return false;
+			int count = declarations.getOrDefault(name, 0);
+			if (count == 0) {
+				NativeFunction builtin = BUILTINS.get(name);
+				if (builtin == null || !builtin.isPure())
+					return false;
+			} else if (count > 1 || !named.get(name).pure) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void visit(List<Statement> statements) {
+		for (Statement s : statements) {
+			visit(s);
+		}
+	}
+
+	private void visit(Statement s) {
+		if (s != null)
+			s.accept(this);
+	}
+
+	private void visit(Expression e) {
+		if (e != null)
+			e.accept(this);
+	}
+
+	/*
+	 * declare() records a name bound otherwise than by a function declaration and,
+	 * within a function, declares it in the innermost scope.
+	 */
+	private void declare(Token symbol) {
+		rebound.add(symbol.lexeme);
+		Analysis function = functions.peek();
+		if (function != null)
+			function.scopes.get(function.scopes.size() - 1).add(symbol.lexeme);
+	}
+
+	/*
+	 * effect() records an effect of the function being analysed, if any.
+	 */
+	private void effect() {
+		Analysis function = functions.peek();
+		if (function != null)
+			function.effects = true;
+	}
+
+	private boolean local(String name) {
+		Analysis function = functions.peek();
+		return function != null && function.declares(name);
+	}
+
+	/*
+	 * Statements.
+	 */
+
+	@Override
+	public Void visitBlockStatement(Block statement) {
+		Analysis function = functions.peek();
+		if (function == null) {
+			visit(statement.statements);
+			return null;
+		}
+		function.scopes.add(new HashSet<>());
+		visit(statement.statements);
+		function.scopes.remove(function.scopes.size() - 1);
+		return null;
+	}
+
+	@Override
+	public Void visitExpressionStatement(ExpressionStatement statement) {
+		visit(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+		declarations.merge(statement.symbol.lexeme, 1, Integer::sum);
+		Analysis enclosing = functions.peek();
+		if (enclosing != null)
+			enclosing.scopes.get(enclosing.scopes.size() - 1).add(statement.symbol.lexeme);
+		Analysis analysis = new Analysis();
+		analyses.put(statement, analysis);
+		named.put(statement.symbol.lexeme, analysis);
+		functions.push(analysis);
+		analysis.scopes.add(new HashSet<>());
+		for (Token argument : statement.arguments) {
+			declare(argument);
+		}
+		visit(statement.functionBlock);
+		functions.pop();
+		return null;
+	}
+
+	@Override
+	public Void visitIfStatement(If statement) {
+		visit(statement.condition);
+		visit(statement.thenBranch);
+		visit(statement.elseBranch);
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStatement(Print statement) {
+		effect();
+		visit(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReadBooleanStatement(ReadBoolean statement) {
+		return read(statement.expression);
+	}
+
+	@Override
+	public Void visitReadNumberStatement(ReadNumber statement) {
+		return read(statement.expression);
+	}
+
+	@Override
+	public Void visitReadStringStatement(ReadString statement) {
+		return read(statement.expression);
+	}
+
+	private Void read(Expression variable) {
+		effect();
+		rebound.add(((VariableExpression) variable).symbol.lexeme);
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStatement(Return statement) {
+		visit(statement.value);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableDeclarationStatement(VariableDeclaration statement) {
+		visit(statement.initialisation);
+		declare(statement.symbol);
+		return null;
+	}
+
+	@Override
+	public Void visitWhileStatement(While statement) {
+		visit(statement.condition);
+		visit(statement.body);
+		return null;
+	}
+
+	/*
+	 * Expressions.
+	 */
+
+	@Override
+	public Void visitAllocationExpression(Allocation expression) {
+		effect();
+		visit(expression.index);
+		visit(expression.value);
+		return null;
+	}
+
+	@Override
+	public Void visitArrayExpression(Array expression) {
+		if (expression.components != null) {
+			for (Expression component : expression.components) {
+				visit(component);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitAssignmentExpression(Assignment expression) {
+		visit(expression.value);
+		rebound.add(expression.symbol.lexeme);
+		if (!local(expression.symbol.lexeme))
+			effect();
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryExpression(Binary expression) {
+		visit(expression.left);
+		visit(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitCallExpression(Call expression) {
+		// Only a name from outside the function is known to be bound to a function.
+		if (!(expression.called instanceof VariableExpression)
+				|| local(((VariableExpression) expression.called).symbol.lexeme))
+			effect();
+		visit(expression.called);
+		for (Expression argument : expression.arguments) {
+			visit(argument);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitCombinationExpression(Combination expression) {
+		visit(expression.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitIndexExpression(Index expression) {
+		visit(expression.object);
+		visit(expression.index);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralExpression(Literal expression) {
+		return null;
+	}
+
+	@Override
+	public Void visitLogicalExpression(Logical expression) {
+		visit(expression.left);
+		visit(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitUnaryExpression(Unary expression) {
+		visit(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableExpression(VariableExpression expression) {
+		Analysis function = functions.peek();
+		if (function != null && !function.declares(expression.symbol.lexeme))
+			function.outer.add(expression.symbol.lexeme);
+		return null;
+	}
+
+}
@@ -0,0 +1,73 @@
+package semantic_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import lexical_analysis.Lexer;
+import syntactic_analysis.Parser;
+import syntactic_analysis.Statement;
+
+class PurityAnalyserTest {
+
+	/*
+	 * purity() analyses the given source code and returns whether each function
+	 * declared in global scope was found pure, by name.
+	 */
+	static Map<String, Boolean> purity(String sourceCode) {
+		List<Statement> statements = new Parser(new Lexer(sourceCode).lexSourceCode()).parse();
+		new Resolver().resolve(statements);
+		new PurityAnalyser().analyse(statements);
+		Map<String, Boolean> purity = new HashMap<>();
+		for (Statement s : statements) {
+			if (s instanceof Statement.FunctionDeclaration) {
+				Statement.FunctionDeclaration f = (Statement.FunctionDeclaration) s;
+				purity.put(f.symbol.lexeme, f.pure);
+			}
+		}
+		return purity;
+	}
+
+	@Test
+	final void testArithmeticAndRecursionPure() {
+		Map<String, Boolean> purity = purity("function square(x) { variable y = x * x; return y; }"
+				+ " function fib(n) { if (n <= 1) return n; return fib(n - 1) + fib(n - 2); }"
+				+ " function isEven(n) { if (n == 0) return true; return isOdd(n - 1); }"
+				+ " function isOdd(n) { if (n == 0) return false; return isEven(n - 1); }"
+				+ " function root(x) { return sqrt(square(x)); }");
+		assertTrue(purity.get("square"));
+		assertTrue(purity.get("fib"));
+		assertTrue(purity.get("isEven"));
+		assertTrue(purity.get("isOdd"));
+		assertTrue(purity.get("root"));
+	}
+
+	@Test
+	final void testEffectsImpure() {
+		Map<String, Boolean> purity = purity("variable count = 0; variable a = [1];"
+				+ " function printer(x) { print x; return x; }"
+				+ " function counter() { count = count + 1; return count; }"
+				+ " function reader() { return count; }"
+				+ " function storer(b) { b[0] = 1; return b; }"
+				+ " function caller(g) { return g(1); }"
+				+ " function indirect(x) { return printer(x) + 1; }");
+		assertFalse(purity.get("printer"));
+		assertFalse(purity.get("counter"));
+		assertFalse(purity.get("reader"));
+		assertFalse(purity.get("storer"));
+		assertFalse(purity.get("caller"));
+		assertFalse(purity.get("indirect"));
+	}
+
+	@Test
+	final void testCalleeNotFixedImpure() {
+		Map<String, Boolean> purity = purity("function f(x) { return x; } function g(x) { return f(x); }"
+				+ " f = 1;");
+		assertFalse(purity.get("g"));
+	}
+
+}
@@ -0,0 +1,440 @@
+/*
+ * The Resolver class is a static pass over the syntax tree, run between the Parser and the Interpreter. It implements the
+ * Expression and Statement Visitor interfaces and walks the tree once, tracking the lexical scopes introduced by blocks and
+ * function declarations in a stack, 'scopes'. Each scope maps the names declared within it to a slot index. Upon visiting a
+ * variable reference or assignment, the Resolver searches the stack from the innermost scope outward and annotates the node
+ * with the number of scopes crossed ('depth') and the slot of the declaration found. The Interpreter can then retrieve a
+ * local variable from an array-backed Frame without hashing or comparing strings. References that are not found in any
+ * enclosing scope are left with a depth of -1 and are looked up by name in global scope at runtime, as are declarations
+ * made in global scope (slot -1). Blocks and function declarations are annotated with the number of slots, 'frameSize',
+ * their Frame must hold.
+ *
+ * A block nested within a function or another block, and declaring no function, is 'flattened': its variables are given
+ * slots in the Frame of the enclosing function or block rather than a Frame of its own, so that executing it allocates
+ * nothing, and references from within it cross no further Frame. Its slots are released when it ends, to be reused by
+ * the blocks that follow. A block that declares a function, at any depth, keeps its own Frame, as each function captures
+ * the Frame of its declaration and a Frame created per execution keeps the variables captured in, e.g., each iteration
+ * of a loop distinct.
+ *
+ * A return statement whose value is a call of the function in which it is written, by that function's own name, is
+ * marked as a 'tailCall', which the Interpreter and VirtualMachine make without growing the Java or Luria call stack; see
+ * Interpreter.invoke(). Whether the name still refers to the function when the call is made is checked at runtime.
+ *
+ * As the Resolver binds a reference to a declaration in scope, and a function may be called after the variables and
+ * functions declared after it in the same block, upon entering a block or function the Resolver reserves a slot for
+ * each name declared directly within it, 'reserved', before resolving any of their bodies. The body of a function may
+ * refer to any name so reserved in an enclosing scope, so that it sees a variable declared after it, or calls a
+ * function declared after it, e.g. one of a pair of mutually recursive functions, as it would in global scope. Read
+ * before its declaration has run, such a variable holds nil.
+ *
+ * */
+
+package semantic_analysis;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lexical_analysis.Token;
+import syntactic_analysis.Expression;
+import syntactic_analysis.Statement;
+import syntactic_analysis.Expression.Allocation;
+import syntactic_analysis.Expression.Array;
+import syntactic_analysis.Expression.Assignment;
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Expression.Call;
+import syntactic_analysis.Expression.Combination;
+import syntactic_analysis.Expression.Index;
+import syntactic_analysis.Expression.Literal;
+import syntactic_analysis.Expression.Logical;
+import syntactic_analysis.Expression.Unary;
+import syntactic_analysis.Expression.VariableExpression;
+import syntactic_analysis.Statement.Block;
+import syntactic_analysis.Statement.ExpressionStatement;
+import syntactic_analysis.Statement.FunctionDeclaration;
+import syntactic_analysis.Statement.If;
+import syntactic_analysis.Statement.Print;
+import syntactic_analysis.Statement.ReadBoolean;
+import syntactic_analysis.Statement.ReadNumber;
+import syntactic_analysis.Statement.ReadString;
+import syntactic_analysis.Statement.Return;
+import syntactic_analysis.Statement.VariableDeclaration;
+import syntactic_analysis.Statement.While;
+
+public class Resolver implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+	private final List<Scope> scopes = new ArrayList<>();
+	private FunctionDeclaration function = null;
+	private int functionScope;
+
+	/*
+	 * The nested Scope class pairs the names declared in a block or function with
+	 * their slots. 'frame' is the Scope whose Frame holds them: the Scope itself,
+	 * unless it is that of a flattened block. Of a Scope that has its own Frame,
+	 * 'size' counts the slots in use and 'frameSize' the most ever in use.
+	 * 'reserved' holds the slots reserved for the names declared directly in it.
+	 */
+	private static class Scope {
+		final Map<String, Integer> slots = new HashMap<>();
+		final Map<String, Integer> reserved = new HashMap<>();
+		final Scope frame;
+		int size = 0;
+		int frameSize = 0;
+
+		Scope(Scope frame) {
+			this.frame = frame != null ? frame : this;
+		}
+
+		int allocate() {
+			int slot = frame.size++;
+			frame.frameSize = Math.max(frame.frameSize, frame.size);
+			return slot;
+		}
+	}
+
+	/*
+	 * resolve() is the entry method of the Resolver and annotates each Statement
+	 * in the list in place.
+	 */
+	public void resolve(List<Statement> statements) {
+		for (Statement s : statements) {
+			resolve(s);
+		}
+	}
+
+	private void resolve(Statement s) {
+		if (s != null)
+			s.accept(this);
+	}
+
+	private void resolve(Expression e) {
+		if (e != null)
+			e.accept(this);
+	}
+
+	private void beginScope() {
+		scopes.add(new Scope(null));
+	}
+
+	/*
+	 * endScope() discards the innermost scope and returns the number of slots its
+	 * Frame must hold.
+	 */
+	private int endScope() {
+		return scopes.remove(scopes.size() - 1).frameSize;
+	}
+
+	/*
+	 * declare() binds a name in the innermost scope to the slot reserved for it,
+	 * if any. In global scope it returns -1. Redeclaring a name in the same scope
+	 * reuses its slot, mirroring store() at MemoryEnvironment, which overwrites
+	 * the existing entry.
+	 */
+	private int declare(Token symbol) {
+		if (scopes.isEmpty())
+			return -1;
+		Scope scope = scopes.get(scopes.size() - 1);
+		Integer slot = scope.slots.get(symbol.lexeme);
+		if (slot == null)
+			slot = scope.reserved.get(symbol.lexeme);
+		if (slot == null)
+			slot = scope.allocate();
+		scope.slots.put(symbol.lexeme, slot);
+		return slot;
+	}
+
+	/*
+	 * reserve() reserves a slot in the innermost scope for each variable and
+	 * function declared directly among the statements, before any is resolved.
+	 */
+	private void reserve(List<Statement> statements) {
+		Scope scope = scopes.get(scopes.size() - 1);
+		for (Statement s : statements) {
+			Token symbol;
+			if (s instanceof FunctionDeclaration)
+				symbol = ((FunctionDeclaration) s).symbol;
+			else if (s instanceof VariableDeclaration)
+				symbol = ((VariableDeclaration) s).symbol;
+			else
+				continue;
+			if (!scope.slots.containsKey(symbol.lexeme) && !scope.reserved.containsKey(symbol.lexeme))
+				scope.reserved.put(symbol.lexeme, scope.allocate());
+		}
+	}
+
+	/*
+	 * declareParameter() always allocates a fresh slot so that parameter i of a
+	 * function occupies slot i of its Frame, even where a parameter name repeats.
+	 */
+	private void declareParameter(Token symbol) {
+		Scope scope = scopes.get(scopes.size() - 1);
+		scope.slots.put(symbol.lexeme, scope.allocate());
+	}
+
+	/*
+	 * lookup() searches the scopes from innermost to outermost and returns the
+	 * depth and slot of the nearest declaration, else null if the name is global.
+	 * The depth counts the Frames crossed, i.e. the scopes with Frames of their
+	 * own. A name reserved in a scope enclosing the function being resolved is
+	 * found even before its declaration.
+	 */
+	private int[] lookup(Token symbol) {
+		int depth = 0;
+		for (int i = scopes.size() - 1; i >= 0; i--) {
+			Scope scope = scopes.get(i);
+			Integer slot = scope.slots.get(symbol.lexeme);
+			if (slot == null && function != null && i < functionScope)
+				slot = scope.reserved.get(symbol.lexeme);
+			if (slot != null) {
+				return new int[] { depth, slot };
+			}
+			if (scope.frame == scope)
+				depth++;
+		}
+		return null;
+	}
+
+	/*
+	 * Statements.
+	 */
+
+	@Override
+	public Void visitExpressionStatement(ExpressionStatement statement) {
+		resolve(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStatement(Print statement) {
+		resolve(statement.expression);
+		return null;
+	}
+
+	/*
+	 * visitVariableDeclarationStatement() resolves the initialisation before
+	 * declaring the variable, so that in 'variable x = x + 1;' the right-hand 'x'
+	 * refers to any 'x' of an enclosing scope.
+	 */
+	@Override
+	public Void visitVariableDeclarationStatement(VariableDeclaration statement) {
+		resolve(statement.initialisation);
+		statement.slot = declare(statement.symbol);
+		return null;
+	}
+
+	@Override
+	public Void visitBlockStatement(Block statement) {
+		if (scopes.isEmpty() || declaresFunction(statement.statements)) {
+			beginScope();
+			reserve(statement.statements);
+			resolve(statement.statements);
+			statement.frameSize = endScope();
+			return null;
+		}
+		Scope enclosing = scopes.get(scopes.size() - 1).frame;
+		int size = enclosing.size;
+		scopes.add(new Scope(enclosing));
+		resolve(statement.statements);
+		scopes.remove(scopes.size() - 1);
+		enclosing.size = size;
+		statement.flattened = true;
+		return null;
+	}
+
+	/*
+	 * declaresFunction() returns true if any of the statements declares a
+	 * function, or contains a statement that does.
+	 */
+	private static boolean declaresFunction(List<Statement> statements) {
+		for (Statement s : statements) {
+			if (declaresFunction(s))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean declaresFunction(Statement s) {
+		if (s instanceof FunctionDeclaration)
+			return true;
+		if (s instanceof Block)
+			return declaresFunction(((Block) s).statements);
+		if (s instanceof If)
+			return declaresFunction(((If) s).thenBranch) || declaresFunction(((If) s).elseBranch);
+		if (s instanceof While)
+			return declaresFunction(((While) s).body);
+		return false;
+	}
+
+	/*
+	 * visitFunctionDeclarationStatement() declares the function's name before
+	 * resolving its body, allowing the function to call itself recursively. The
+	 * parameters and the statements of the function block share a single scope,
+	 * as they share a single Frame at Function.call().
+	 */
+	@Override
+	public Void visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+		statement.slot = declare(statement.symbol);
+		FunctionDeclaration enclosing = function;
+		int enclosingScope = functionScope;
+		function = statement;
+		functionScope = scopes.size();
+		beginScope();
+		for (Token argument : statement.arguments) {
+			declareParameter(argument);
+		}
+		reserve(statement.functionBlock);
+		resolve(statement.functionBlock);
+		statement.frameSize = endScope();
+		function = enclosing;
+		functionScope = enclosingScope;
+		return null;
+	}
+
+	@Override
+	public Void visitIfStatement(If statement) {
+		resolve(statement.condition);
+		resolve(statement.thenBranch);
+		resolve(statement.elseBranch);
+		return null;
+	}
+
+	@Override
+	public Void visitWhileStatement(While statement) {
+		resolve(statement.condition);
+		resolve(statement.body);
+		return null;
+	}
+
+	@Override
+	public Void visitReadNumberStatement(ReadNumber statement) {
+		resolve(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReadStringStatement(ReadString statement) {
+		resolve(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReadBooleanStatement(ReadBoolean statement) {
+		resolve(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStatement(Return statement) {
+		resolve(statement.value);
+		statement.tailCall = function != null && callsItself(statement.value);
+		return null;
+	}
+
+	/*
+	 * callsItself() returns true if the expression is a call of the function being
+	 * resolved by its own name, where no parameter or variable of the function
+	 * hides that name.
+	 */
+	private boolean callsItself(Expression value) {
+		if (!(value instanceof Call) || !(((Call) value).called instanceof VariableExpression))
+			return false;
+		String name = ((VariableExpression) ((Call) value).called).symbol.lexeme;
+		if (!name.equals(function.symbol.lexeme))
+			return false;
+		for (int i = functionScope; i < scopes.size(); i++) {
+			if (scopes.get(i).slots.containsKey(name))
+				return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Expressions.
+	 */
+
+	@Override
+	public Void visitAllocationExpression(Allocation expression) {
+		resolve(expression.index);
+		resolve(expression.value);
+		return null;
+	}
+
+	@Override
+	public Void visitArrayExpression(Array expression) {
+		if (expression.components != null) {
+			for (Expression component : expression.components) {
+				resolve(component);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitAssignmentExpression(Assignment expression) {
+		resolve(expression.value);
+		int[] address = lookup(expression.symbol);
+		if (address != null) {
+			expression.depth = address[0];
+			expression.slot = address[1];
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryExpression(Binary expression) {
+		resolve(expression.left);
+		resolve(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitCallExpression(Call expression) {
+		resolve(expression.called);
+		for (Expression argument : expression.arguments) {
+			resolve(argument);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitCombinationExpression(Combination expression) {
+		resolve(expression.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitIndexExpression(Index expression) {
+		resolve(expression.object);
+		resolve(expression.index);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralExpression(Literal expression) {
+		return null;
+	}
+
+	@Override
+	public Void visitLogicalExpression(Logical expression) {
+		resolve(expression.left);
+		resolve(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitUnaryExpression(Unary expression) {
+		resolve(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableExpression(VariableExpression expression) {
+		int[] address = lookup(expression.symbol);
+		if (address != null) {
+			expression.depth = address[0];
+			expression.slot = address[1];
+		}
+		return null;
+	}
+
+}
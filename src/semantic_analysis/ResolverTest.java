@@ -0,0 +1,142 @@
+package semantic_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import interpretation.Interpreter;
+import lexical_analysis.Lexer;
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.PrintingErrorReporter;
+import syntactic_analysis.Expression;
+import syntactic_analysis.Parser;
+import syntactic_analysis.Statement;
+import virtual_machine.VirtualMachine;
+
+class ResolverTest {
+
+	/*
+	 * run() compiles and runs the given source code by the Interpreter, or by the
+	 * VirtualMachine, and returns what it printed, errors included.
+	 */
+	static String run(String sourceCode, boolean vm) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		PrintingErrorReporter errors = new PrintingErrorReporter(out);
+		CompiledProgram program = CompiledProgram.compile(sourceCode, errors);
+		if (program != null) {
+			ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+			if (vm)
+				new VirtualMachine(out, in, errors).interpret(program.bytecode());
+			else
+				new Interpreter(out, in, errors).interpret(program.statements);
+		}
+		return bytes.toString().replace("\r\n", "\n");
+	}
+
+	static void assertPrints(String expected, String sourceCode) {
+		assertEquals(expected, run(sourceCode, false), "Interpreter");
+		assertEquals(expected, run(sourceCode, true), "VirtualMachine");
+	}
+
+	@Test
+	final void testLocalForwardCall() {
+		assertPrints("7\n", "{ function f() { return g(); } function g() { return 7; } print f(); }");
+	}
+
+	@Test
+	final void testLocalMutualRecursion() {
+		assertPrints("true\nfalse\n", "function outer(n) {\n"
+				+ "  function isEven(k) { if (k == 0) return true; return isOdd(k - 1); }\n"
+				+ "  function isOdd(k) { if (k == 0) return false; return isEven(k - 1); }\n"
+				+ "  return isEven(n);\n"
+				+ "}\n"
+				+ "print outer(10);\n"
+				+ "print outer(7);\n");
+	}
+
+	@Test
+	final void testLocalVariableCapturedByFunction() {
+		assertPrints("1\n", "{ variable x = 1; function h() { return x; } print h(); }");
+	}
+
+	@Test
+	final void testLocalFunctionSeesLaterVariable() {
+		assertPrints("5\n", "function main(){ function show(){ print count; } variable count = 5; show(); } main();");
+		assertPrints("2\n", "function outer() {\n"
+				+ "  variable x = 1;\n"
+				+ "  { function g() { return x; } variable x = x + 1; print g(); }\n"
+				+ "}\n"
+				+ "outer();\n");
+	}
+
+	@Test
+	final void testInitialisationRefersToEnclosingVariable() {
+		assertPrints("2\n", "{ variable x = 1; { variable x = x + 1; print x; } }");
+	}
+
+	/*
+	 * resolve() parses and resolves the given source code, without optimising it.
+	 */
+	static List<Statement> resolve(String sourceCode) {
+		List<Statement> statements = new Parser(new Lexer(sourceCode).lexSourceCode()).parse();
+		new Resolver().resolve(statements);
+		return statements;
+	}
+
+	static Expression.VariableExpression printed(Statement s) {
+		return (Expression.VariableExpression) ((Statement.Print) s).expression;
+	}
+
+	@Test
+	final void testGlobalsLeftToGlobalScope() {
+		List<Statement> statements = resolve("variable x = 1; print x;");
+		assertEquals(-1, ((Statement.VariableDeclaration) statements.get(0)).slot);
+		assertEquals(-1, printed(statements.get(1)).depth);
+	}
+
+	@Test
+	final void testLocalsGivenDepthAndSlot() {
+		List<Statement> statements = resolve("function f(a, b) { variable c = a; { function g() { print b; } print c; } }");
+		Statement.FunctionDeclaration f = (Statement.FunctionDeclaration) statements.get(0);
+		assertEquals(3, f.frameSize);
+		Statement.Block block = (Statement.Block) f.functionBlock.get(1);
+		assertFalse(block.flattened);
+		Statement.FunctionDeclaration g = (Statement.FunctionDeclaration) block.statements.get(0);
+		Expression.VariableExpression b = printed(g.functionBlock.get(0));
+		assertEquals(2, b.depth);
+		assertEquals(1, b.slot);
+		Expression.VariableExpression c = printed(block.statements.get(1));
+		assertEquals(1, c.depth);
+		assertEquals(2, c.slot);
+	}
+
+	@Test
+	final void testFlattenedBlocksShareSlots() {
+		List<Statement> statements = resolve("{ variable a = 1; { variable b = 2; print b; } { variable c = 3; print c; } }");
+		Statement.Block outer = (Statement.Block) statements.get(0);
+		assertEquals(2, outer.frameSize);
+		Statement.Block first = (Statement.Block) outer.statements.get(1);
+		Statement.Block second = (Statement.Block) outer.statements.get(2);
+		assertTrue(first.flattened);
+		assertTrue(second.flattened);
+		assertEquals(0, printed(first.statements.get(1)).depth);
+		assertEquals(1, printed(first.statements.get(1)).slot);
+		assertEquals(1, printed(second.statements.get(1)).slot);
+	}
+
+	@Test
+	final void testSelfCallInTailPositionMarked() {
+		List<Statement> statements = resolve(
+				"function sum(n, acc) { if (n == 0) return acc; return sum(n - 1, acc + n); }");
+		List<Statement> body = ((Statement.FunctionDeclaration) statements.get(0)).functionBlock;
+		assertFalse(((Statement.Return) ((Statement.If) body.get(0)).thenBranch).tailCall);
+		assertTrue(((Statement.Return) body.get(1)).tailCall);
+	}
+
+}
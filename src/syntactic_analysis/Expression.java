@@ -7,7 +7,11 @@
  * which implements the Visitor interface.
  * 
  * Significance of each subclass' fields is elaborated upon in comments at the Parser and Interpreter classes
- * that construct and evaluate these objects, respectively. 
+ * that construct and evaluate these objects, respectively. The mutable 'depth' and 'slot' fields of variable
+ * references are not set by the Parser but annotated afterwards by the Resolver; see comment at Resolver.
+ * Likewise, the mutable 'node' field of a Binary is rewritten by the Interpreter as it specialises the
+ * operation to the types it observes; see comment at BinaryNode. The mutable 'linked' field of a Call caches the
+ * NativeFunction it calls; see comment at NativeFunction.
  * 
  * */
 
@@ -15,11 +19,39 @@ package syntactic_analysis;
 
 import java.util.List;
 
+import interpretation.BinaryNode;
+import interpretation.NativeFunction;
 import lexical_analysis.Token;
+import lexical_analysis.TokenType;
 
 public abstract class Expression {
+	boolean numeric = false;
 
 	public abstract <T> T accept(Visitor<T> visitor);
+
+	/*
+	 * isNumeric() returns true if the expression is statically known to evaluate to
+	 * a number, if to anything, i.e. it either yields a number or raises an error.
+	 * The Interpreter evaluates such expressions without boxing intermediate
+	 * results; see Interpreter.evaluateNumber(). The flag is set once, upon
+	 * construction of the numeric subclasses, so that the check is a field read.
+	 */
+	public final boolean isNumeric() {
+		return numeric;
+	}
+
+	/*
+	 * acceptNumber() is the counterpart of accept() for expressions for which
+	 * isNumeric() is true, dispatching to a NumericVisitor that returns the value
+	 * of the expression as an unboxed double. Whether an expression is numeric
+	 * depends upon its operands, not only its class, so the contract is checked
+	 * here: the subclasses that may be numeric override it, and calling it upon
+	 * any other expression is a bug in the caller.
+	 */
+	public double acceptNumber(NumericVisitor visitor) {
+		throw new AssertionError("acceptNumber() called upon a " + getClass().getSimpleName()
+				+ ", which is never numeric; check isNumeric() first.");
+	}
 	
 	public interface Visitor<T> {
 		T visitAllocationExpression(Allocation expression);
@@ -36,6 +68,14 @@ public abstract class Expression {
 
 	}
 
+	public interface NumericVisitor {
+		double visitBinaryNumber(Binary expression);
+		double visitCombinationNumber(Combination expression);
+		double visitLiteralNumber(Literal expression);
+		double visitUnaryNumber(Unary expression);
+
+	}
+
     public static class Allocation extends Expression {
         public final Expression index;
         public final Token symbol;
@@ -71,6 +111,8 @@ public abstract class Expression {
 	public static class Assignment extends Expression {
 		public final Token symbol;
 		public final Expression value;
+		public int depth = -1;
+		public int slot = -1;
 
 		Assignment(Token symbol, Expression value) {
 			this.symbol = symbol;
@@ -87,23 +129,50 @@ public abstract class Expression {
 		public final Expression left;
 		public final Token operator;
 		public final Expression right;
+		public BinaryNode node = BinaryNode.UNINITIALISED;
 
 		public Binary(Expression left, Token operator, Expression right) {
 			this.left = left;
 			this.operator = operator;
 			this.right = right;
+			this.numeric = numericOperator(operator.type) || (operator.type == TokenType.PLUS && left.isNumeric()
+					&& right.isNumeric());
+		}
+
+		/*
+		 * numericOperator() returns true for the arithmetic operators other than '+',
+		 * which also concatenates strings and so is numeric only when both its
+		 * operands are.
+		 */
+		private static boolean numericOperator(TokenType type) {
+			switch (type) {
+			case MINUS:
+			case FORWARD_SLASH:
+			case ASTERISK:
+			case MODULO:
+			case EXPONENT:
+				return true;
+			default:
+				return false;
+			}
 		}
 
 		public <T> T accept(Visitor<T> visitor) {
 			return visitor.visitBinaryExpression(this);
 		}
 
+		@Override
+		public double acceptNumber(NumericVisitor visitor) {
+			return visitor.visitBinaryNumber(this);
+		}
+
 	}
 	
 	public static class Call extends Expression {
 		public final Expression called;
 		public final Token rightParenthesis;
 		public final List<Expression> arguments;
+		public NativeFunction linked;
 
 		public Call(Expression called, Token rightParenthesis, List<Expression> arguments) {
 			this.called = called;
@@ -123,12 +192,18 @@ public abstract class Expression {
 
 		public Combination(Expression expression) {
 			this.expression = expression;
+			this.numeric = expression.numeric;
 		}
 
 		public <T> T accept(Visitor<T> visitor) {
 			return visitor.visitCombinationExpression(this);
 		}
 
+		@Override
+		public double acceptNumber(NumericVisitor visitor) {
+			return visitor.visitCombinationNumber(this);
+		}
+
 	}
 	
 	public static class Index extends Expression {
@@ -155,12 +230,18 @@ public abstract class Expression {
 
 		public Literal(Object value) {
 			this.value = value;
+			this.numeric = value instanceof Double;
 		}
 
 		public <T> T accept(Visitor<T> visitor) {
 			return visitor.visitLiteralExpression(this);
 		}
 
+		@Override
+		public double acceptNumber(NumericVisitor visitor) {
+			return visitor.visitLiteralNumber(this);
+		}
+
 	}
 	
 	public static class Logical extends Expression {
@@ -188,16 +269,24 @@ public abstract class Expression {
 		public Unary(Token operator, Expression right) {
 			this.operator = operator;
 			this.right = right;
+			this.numeric = operator.type == TokenType.MINUS;
 		}
 
 		public <T> T accept(Visitor<T> visitor) {
 			return visitor.visitUnaryExpression(this);
 		}
 
+		@Override
+		public double acceptNumber(NumericVisitor visitor) {
+			return visitor.visitUnaryNumber(this);
+		}
+
 	}
 
 	public static class VariableExpression extends Expression {
 		public final Token symbol;
+		public int depth = -1;
+		public int slot = -1;
 
 		VariableExpression(Token symbol) {
 			this.symbol = symbol;
@@ -0,0 +1,467 @@
+/*
+ * The Optimiser class is a pass over the syntax tree, run between the Parser and the Resolver, that does at compile
+ * time what would otherwise be done upon every execution. It implements the Expression and Statement Visitor
+ * interfaces, each visit returning the node to take the place of the node visited: the node itself, if nothing beneath
+ * it changed, else a new node with the optimised children, as the fields of the nodes are final.
+ *
+ * Constant folding replaces a Binary, Unary or Combination whose operands are all literals with a Literal of its value,
+ * as computed by Operators, which define the operators for the Interpreter too, so that a folded expression has exactly
+ * the value it would have had at runtime, under either the Interpreter or the VirtualMachine. An expression whose
+ * evaluation raises an error, e.g. '"a" - 1', is left as it is, so that the error is still raised at runtime at its
+ * original Token. A Logical whose left operand is a literal is replaced by whichever operand it would yield, e.g.
+ * 'false or x' by 'x'.
+ *
+ * Dead branch elimination replaces an If whose condition is a literal by the branch it would take, and removes a While
+ * whose condition is a literal false. As the Parser admits a declaration as a branch or body only within a block, which
+ * is a scope of its own, no branch removed declares a name to which statements after it may refer.
+ *
+ * removed() returns the number of nodes by which the optimised tree is smaller than the tree parsed.
+ *
+ * */
+
+package syntactic_analysis;
+
+import static lexical_analysis.TokenType.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import interpretation.Interpreter;
+import interpretation.InterpreterError;
+import interpretation.Operators;
+import syntactic_analysis.Expression.Allocation;
+import syntactic_analysis.Expression.Array;
+import syntactic_analysis.Expression.Assignment;
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Expression.Call;
+import syntactic_analysis.Expression.Combination;
+import syntactic_analysis.Expression.Index;
+import syntactic_analysis.Expression.Literal;
+import syntactic_analysis.Expression.Logical;
+import syntactic_analysis.Expression.Unary;
+import syntactic_analysis.Expression.VariableExpression;
+import syntactic_analysis.Statement.Block;
+import syntactic_analysis.Statement.ExpressionStatement;
+import syntactic_analysis.Statement.FunctionDeclaration;
+import syntactic_analysis.Statement.If;
+import syntactic_analysis.Statement.Print;
+import syntactic_analysis.Statement.ReadBoolean;
+import syntactic_analysis.Statement.ReadNumber;
+import syntactic_analysis.Statement.ReadString;
+import syntactic_analysis.Statement.Return;
+import syntactic_analysis.Statement.VariableDeclaration;
+import syntactic_analysis.Statement.While;
+
+public class Optimiser implements Expression.Visitor<Expression>, Statement.Visitor<Statement> {
+	private int removed = 0;
+
+	/*
+	 * optimise() is the entry method of the Optimiser and returns the optimised
+	 * statements, less those removed.
+	 */
+	public List<Statement> optimise(List<Statement> statements) {
+		int before = NodeCounter.count(statements);
+		List<Statement> optimised = optimiseAll(statements);
+		removed += before - NodeCounter.count(optimised);
+		return optimised;
+	}
+
+	public int removed() {
+		return removed;
+	}
+
+	private List<Statement> optimiseAll(List<Statement> statements) {
+		List<Statement> optimised = new ArrayList<>(statements.size());
+		boolean changed = false;
+		for (Statement s : statements) {
+			Statement o = optimise(s);
+			changed |= o != s;
+			if (o != null)
+				optimised.add(o);
+		}
+		return changed ? optimised : statements;
+	}
+
+	// A statement rebuilt by the Optimiser takes the line of the statement it replaces.
+	private Statement optimise(Statement s) {
+		if (s == null)
+			return null;
+		Statement o = s.accept(this);
+		if (o != null && o.line == 0)
+			o.line = s.line;
+		return o;
+	}
+
+	/*
+	 * optimiseBody() optimises a statement that must be present, i.e. the body of
+	 * an If or While, replacing it with an empty block if it is removed.
+	 */
+	private Statement optimiseBody(Statement s) {
+		Statement o = optimise(s);
+		return o != null ? o : new Block(Collections.emptyList());
+	}
+
+	private Expression optimise(Expression e) {
+		return e == null ? null : e.accept(this);
+	}
+
+	private List<Expression> optimiseExpressions(List<Expression> expressions) {
+		if (expressions == null)
+			return null;
+		List<Expression> optimised = new ArrayList<>(expressions.size());
+		boolean changed = false;
+		for (Expression e : expressions) {
+			Expression o = optimise(e);
+			changed |= o != e;
+			optimised.add(o);
+		}
+		return changed ? optimised : expressions;
+	}
+
+	/*
+	 * fold() returns a Literal of the value of an operator applied to literals
+	 * alone, else the expression itself if its application raises an error.
+	 */
+	private Expression fold(Binary e) {
+		try {
+			return new Literal(Operators.binary(e.operator, ((Literal) e.left).value, ((Literal) e.right).value));
+		} catch (InterpreterError error) {
+			return e;
+		}
+	}
+
+	private Expression fold(Unary e) {
+		try {
+			return new Literal(Operators.unary(e.operator, ((Literal) e.right).value));
+		} catch (InterpreterError error) {
+			return e;
+		}
+	}
+
+	/*
+	 * Statements.
+	 */
+
+	@Override
+	public Statement visitBlockStatement(Block statement) {
+		List<Statement> statements = optimiseAll(statement.statements);
+		return statements == statement.statements ? statement : new Block(statements);
+	}
+
+	@Override
+	public Statement visitExpressionStatement(ExpressionStatement statement) {
+		Expression expression = optimise(statement.expression);
+		return expression == statement.expression ? statement : new ExpressionStatement(expression);
+	}
+
+	@Override
+	public Statement visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+		List<Statement> functionBlock = optimiseAll(statement.functionBlock);
+		if (functionBlock == statement.functionBlock)
+			return statement;
+		return new FunctionDeclaration(statement.symbol, statement.arguments, functionBlock);
+	}
+
+	@Override
+	public Statement visitIfStatement(If statement) {
+		Expression condition = optimise(statement.condition);
+		Statement thenBranch = optimiseBody(statement.thenBranch);
+		Statement elseBranch = optimise(statement.elseBranch);
+		if (condition instanceof Literal)
+			return Interpreter.truthy(((Literal) condition).value) ? thenBranch : elseBranch;
+		if (condition == statement.condition && thenBranch == statement.thenBranch
+				&& elseBranch == statement.elseBranch)
+			return statement;
+		return new If(condition, thenBranch, elseBranch);
+	}
+
+	@Override
+	public Statement visitPrintStatement(Print statement) {
+		Expression expression = optimise(statement.expression);
+		return expression == statement.expression ? statement : new Print(expression);
+	}
+
+	// The operand of a read statement is the variable read into, so is left as it is.
+
+	@Override
+	public Statement visitReadBooleanStatement(ReadBoolean statement) {
+		return statement;
+	}
+
+	@Override
+	public Statement visitReadNumberStatement(ReadNumber statement) {
+		return statement;
+	}
+
+	@Override
+	public Statement visitReadStringStatement(ReadString statement) {
+		return statement;
+	}
+
+	@Override
+	public Statement visitReturnStatement(Return statement) {
+		Expression value = optimise(statement.value);
+		return value == statement.value ? statement : new Return(statement.symbol, value);
+	}
+
+	@Override
+	public Statement visitVariableDeclarationStatement(VariableDeclaration statement) {
+		Expression initialisation = optimise(statement.initialisation);
+		if (initialisation == statement.initialisation)
+			return statement;
+		return new VariableDeclaration(statement.symbol, initialisation);
+	}
+
+	@Override
+	public Statement visitWhileStatement(While statement) {
+		Expression condition = optimise(statement.condition);
+		Statement body = optimiseBody(statement.body);
+		if (condition instanceof Literal && !Interpreter.truthy(((Literal) condition).value))
+			return null;
+		if (condition == statement.condition && body == statement.body)
+			return statement;
+		return new While(condition, body);
+	}
+
+	/*
+	 * Expressions.
+	 */
+
+	@Override
+	public Expression visitAllocationExpression(Allocation expression) {
+		Expression index = optimise(expression.index);
+		Expression value = optimise(expression.value);
+		if (index == expression.index && value == expression.value)
+			return expression;
+		return new Allocation(index, expression.symbol, value);
+	}
+
+	@Override
+	public Expression visitArrayExpression(Array expression) {
+		List<Expression> components = optimiseExpressions(expression.components);
+		return components == expression.components ? expression : new Array(components);
+	}
+
+	@Override
+	public Expression visitAssignmentExpression(Assignment expression) {
+		Expression value = optimise(expression.value);
+		return value == expression.value ? expression : new Assignment(expression.symbol, value);
+	}
+
+	@Override
+	public Expression visitBinaryExpression(Binary expression) {
+		Expression left = optimise(expression.left);
+		Expression right = optimise(expression.right);
+		Binary optimised = expression;
+		if (left != expression.left || right != expression.right)
+			optimised = new Binary(left, expression.operator, right);
+		if (left instanceof Literal && right instanceof Literal)
+			return fold(optimised);
+		return optimised;
+	}
+
+	@Override
+	public Expression visitCallExpression(Call expression) {
+		Expression called = optimise(expression.called);
+		List<Expression> arguments = optimiseExpressions(expression.arguments);
+		if (called == expression.called && arguments == expression.arguments)
+			return expression;
+		return new Call(called, expression.rightParenthesis, arguments);
+	}
+
+	@Override
+	public Expression visitCombinationExpression(Combination expression) {
+		Expression inner = optimise(expression.expression);
+		if (inner instanceof Literal)
+			return inner;
+		return inner == expression.expression ? expression : new Combination(inner);
+	}
+
+	@Override
+	public Expression visitIndexExpression(Index expression) {
+		Expression object = optimise(expression.object);
+		Expression index = optimise(expression.index);
+		if (object == expression.object && index == expression.index)
+			return expression;
+		return new Index(object, expression.symbol, index);
+	}
+
+	@Override
+	public Expression visitLiteralExpression(Literal expression) {
+		return expression;
+	}
+
+	@Override
+	public Expression visitLogicalExpression(Logical expression) {
+		Expression left = optimise(expression.left);
+		Expression right = optimise(expression.right);
+		if (left instanceof Literal) {
+			boolean truth = Interpreter.truthy(((Literal) left).value);
+			boolean yieldsLeft = expression.operator.type == OR ? truth : !truth;
+			return yieldsLeft ? left : right;
+		}
+		if (left == expression.left && right == expression.right)
+			return expression;
+		return new Logical(left, expression.operator, right);
+	}
+
+	@Override
+	public Expression visitUnaryExpression(Unary expression) {
+		Expression right = optimise(expression.right);
+		Unary optimised = right == expression.right ? expression : new Unary(expression.operator, right);
+		if (right instanceof Literal)
+			return fold(optimised);
+		return optimised;
+	}
+
+	@Override
+	public Expression visitVariableExpression(VariableExpression expression) {
+		return expression;
+	}
+
+	/*
+	 * The nested NodeCounter class counts the nodes of a syntax tree, by which
+	 * optimise() measures what it removed.
+	 */
+	private static class NodeCounter implements Expression.Visitor<Integer>, Statement.Visitor<Integer> {
+		private static final NodeCounter COUNTER = new NodeCounter();
+
+		static int count(List<Statement> statements) {
+			int count = 0;
+			for (Statement s : statements) {
+				count += COUNTER.count(s);
+			}
+			return count;
+		}
+
+		private int count(Statement s) {
+			return s == null ? 0 : s.accept(this);
+		}
+
+		private int count(Expression e) {
+			return e == null ? 0 : e.accept(this);
+		}
+
+		private int countExpressions(List<Expression> expressions) {
+			if (expressions == null)
+				return 0;
+			int count = 0;
+			for (Expression e : expressions) {
+				count += count(e);
+			}
+			return count;
+		}
+
+		@Override
+		public Integer visitBlockStatement(Block statement) {
+			return 1 + count(statement.statements);
+		}
+
+		@Override
+		public Integer visitExpressionStatement(ExpressionStatement statement) {
+			return 1 + count(statement.expression);
+		}
+
+		@Override
+		public Integer visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+			return 1 + count(statement.functionBlock);
+		}
+
+		@Override
+		public Integer visitIfStatement(If statement) {
+			return 1 + count(statement.condition) + count(statement.thenBranch) + count(statement.elseBranch);
+		}
+
+		@Override
+		public Integer visitPrintStatement(Print statement) {
+			return 1 + count(statement.expression);
+		}
+
+		@Override
+		public Integer visitReadBooleanStatement(ReadBoolean statement) {
+			return 1 + count(statement.expression);
+		}
+
+		@Override
+		public Integer visitReadNumberStatement(ReadNumber statement) {
+			return 1 + count(statement.expression);
+		}
+
+		@Override
+		public Integer visitReadStringStatement(ReadString statement) {
+			return 1 + count(statement.expression);
+		}
+
+		@Override
+		public Integer visitReturnStatement(Return statement) {
+			return 1 + count(statement.value);
+		}
+
+		@Override
+		public Integer visitVariableDeclarationStatement(VariableDeclaration statement) {
+			return 1 + count(statement.initialisation);
+		}
+
+		@Override
+		public Integer visitWhileStatement(While statement) {
+			return 1 + count(statement.condition) + count(statement.body);
+		}
+
+		@Override
+		public Integer visitAllocationExpression(Allocation expression) {
+			return 1 + count(expression.index) + count(expression.value);
+		}
+
+		@Override
+		public Integer visitArrayExpression(Array expression) {
+			return 1 + countExpressions(expression.components);
+		}
+
+		@Override
+		public Integer visitAssignmentExpression(Assignment expression) {
+			return 1 + count(expression.value);
+		}
+
+		@Override
+		public Integer visitBinaryExpression(Binary expression) {
+			return 1 + count(expression.left) + count(expression.right);
+		}
+
+		@Override
+		public Integer visitCallExpression(Call expression) {
+			return 1 + count(expression.called) + countExpressions(expression.arguments);
+		}
+
+		@Override
+		public Integer visitCombinationExpression(Combination expression) {
+			return 1 + count(expression.expression);
+		}
+
+		@Override
+		public Integer visitIndexExpression(Index expression) {
+			return 1 + count(expression.object) + count(expression.index);
+		}
+
+		@Override
+		public Integer visitLiteralExpression(Literal expression) {
+			return 1;
+		}
+
+		@Override
+		public Integer visitLogicalExpression(Logical expression) {
+			return 1 + count(expression.left) + count(expression.right);
+		}
+
+		@Override
+		public Integer visitUnaryExpression(Unary expression) {
+			return 1 + count(expression.right);
+		}
+
+		@Override
+		public Integer visitVariableExpression(VariableExpression expression) {
+			return 1;
+		}
+	}
+
+}
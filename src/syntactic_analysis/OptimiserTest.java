@@ -0,0 +1,84 @@
+package syntactic_analysis;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import lexical_analysis.Lexer;
+
+class OptimiserTest {
+
+	static List<Statement> optimise(String sourceCode) {
+		return new Optimiser().optimise(new Parser(new Lexer(sourceCode).lexSourceCode()).parse());
+	}
+
+	/*
+	 * printed() returns the expression of the single print statement of the given
+	 * source code, once optimised.
+	 */
+	static Expression printed(String sourceCode) {
+		List<Statement> statements = optimise(sourceCode);
+		assertEquals(1, statements.size());
+		return ((Statement.Print) statements.get(0)).expression;
+	}
+
+	static void assertFolds(Object expected, String expression) {
+		Expression e = printed("print " + expression + ";");
+		assertTrue(e instanceof Expression.Literal, expression);
+		assertEquals(expected, ((Expression.Literal) e).value, expression);
+	}
+
+	@Test
+	final void testArithmeticFolded() {
+		assertFolds(7.0, "1 + 2 * 3");
+		assertFolds(9.0, "(1 + 2) * 3");
+		assertFolds(8.0, "2 ^ 3");
+		assertFolds(1.0, "7 % 3");
+		assertFolds(0.5, "1 / 2");
+		assertFolds(-1.0, "1 - 2");
+	}
+
+	@Test
+	final void testComparisonAndEqualityFolded() {
+		assertFolds(true, "1 < 2");
+		assertFolds(false, "2 <= 1");
+		assertFolds(true, "1 + 1 == 2");
+		assertFolds(true, "\"a\" != \"b\"");
+		assertFolds(false, "!true");
+	}
+
+	@Test
+	final void testConcatenationFolded() {
+		assertFolds("ab", "\"a\" + \"b\"");
+	}
+
+	@Test
+	final void testErrorLeftForRuntime() {
+		assertTrue(printed("print \"a\" - 1;") instanceof Expression.Binary);
+		assertTrue(printed("print \"a\" + 1;") instanceof Expression.Binary);
+		assertTrue(printed("print 1 < \"a\";") instanceof Expression.Binary);
+	}
+
+	@Test
+	final void testLogicalYieldsOperand() {
+		assertTrue(printed("print false or x;") instanceof Expression.VariableExpression);
+		assertFolds(false, "false and x");
+		assertFolds(1.0, "1 or x");
+	}
+
+	@Test
+	final void testDeadBranchesRemoved() {
+		assertEquals(0, optimise("if (false) print 1; while (false) print 2;").size());
+		assertTrue(optimise("if (true) print 1; else print 2;").get(0) instanceof Statement.Print);
+	}
+
+	@Test
+	final void testRemovedCounted() {
+		Optimiser optimiser = new Optimiser();
+		optimiser.optimise(new Parser(new Lexer("print 1 + 2;").lexSourceCode()).parse());
+		assertEquals(2, optimiser.removed());
+	}
+
+}
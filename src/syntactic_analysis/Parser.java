@@ -1,11 +1,17 @@
 /*
- * The Parser class is an implementation of a recursive descent parser. In its fields are the list of Token objects
- * constructed in-order by the lexer, 'tokens', representing the parser's input, and a counter, 'current', that orients
- * the parser as it parses the Token object sequence. Available to the parser are a methods for useful actions such as a
- * parser lookahead. These provide the infrastructure necessary for it to carry out the process of constructing and nesting
- * the syntax tree nodes, which are either of type Statement or Expression. The output of the parser is a list of Statement
- * objects, 'statements', which is declared at and returned from the parse() method. The order of recursive method calls in
- * the parser mirrors the production rules of the Luria context-free grammar.
+ * The Parser class is an implementation of a recursive descent parser. In its fields is a cursor over the Tokens
+ * constructed in-order by the lexer, 'tokens', representing the parser's input, which holds a window of the two Tokens
+ * that orient the parser as it parses the Token sequence: the current Token and that before it. As the parser never
+ * looks further back or ahead than these, a cursor over a TokenStream pulls each Token from the stream only as it
+ * advances, and Tokens it has passed may be discarded. A cursor over a TokenBuffer instead moves an index through the
+ * buffer, and the parser tests the types of Tokens without a Token object being made; one is made only for a Token
+ * that the syntax tree holds, e.g. a signifier or operator, or at which an error is reported. Available to the parser
+ * are a methods for useful actions such as a parser lookahead. These provide the infrastructure necessary for it to
+ * carry out the process of constructing and nesting the syntax tree nodes, which are either of type Statement or
+ * Expression. The output of the parser is a list of Statement objects, 'statements', which is declared at and returned
+ * from the parse() method. The order of recursive method calls in the parser mirrors the production rules of the Luria
+ * context-free grammar, except for infix operators, which are parsed by precedence climbing in a single method,
+ * binary(), upon the level of each operator in 'precedence', rather than by a method for each level of precedence.
  * 
  * */
 
@@ -15,17 +21,191 @@ import java.util.ArrayList;
 import java.util.List;
 
 import lexical_analysis.Token;
+import lexical_analysis.TokenBuffer;
+import lexical_analysis.TokenStream;
 import lexical_analysis.TokenType;
+import luria_interpreter.ErrorReporter;
 import luria_interpreter.LuriaInterpreter;
 
 import static lexical_analysis.TokenType.*;
 
 public class Parser {
-	private final List<Token> tokens;
-	private int current = 0;
+	private static final int OR_PRECEDENCE = 1;
+	private static final int AND_PRECEDENCE = 2;
+	private static final int EQUALITY_PRECEDENCE = 3;
+	private static final int COMPARISON_PRECEDENCE = 4;
+	private static final int ADDITION_PRECEDENCE = 5;
+	private static final int MULTIPLICATION_PRECEDENCE = 6;
+	private static final int EXPONENT_PRECEDENCE = 7;
+	private static final int[] precedence = new int[TokenType.values().length];
+	private final Cursor tokens;
+	private final ErrorReporter errors;
+
+	static {
+		precedence[OR.ordinal()] = OR_PRECEDENCE;
+		precedence[AND.ordinal()] = AND_PRECEDENCE;
+		precedence[EXCLAMATION_EQUAL.ordinal()] = EQUALITY_PRECEDENCE;
+		precedence[EQUAL_EQUAL.ordinal()] = EQUALITY_PRECEDENCE;
+		precedence[GREATER.ordinal()] = COMPARISON_PRECEDENCE;
+		precedence[GREATER_EQUAL.ordinal()] = COMPARISON_PRECEDENCE;
+		precedence[LESS.ordinal()] = COMPARISON_PRECEDENCE;
+		precedence[LESS_EQUAL.ordinal()] = COMPARISON_PRECEDENCE;
+		precedence[PLUS.ordinal()] = ADDITION_PRECEDENCE;
+		precedence[MINUS.ordinal()] = ADDITION_PRECEDENCE;
+		precedence[FORWARD_SLASH.ordinal()] = MULTIPLICATION_PRECEDENCE;
+		precedence[ASTERISK.ordinal()] = MULTIPLICATION_PRECEDENCE;
+		precedence[MODULO.ordinal()] = MULTIPLICATION_PRECEDENCE;
+		precedence[EXPONENT.ordinal()] = EXPONENT_PRECEDENCE;
+	}
 
 	public Parser(List<Token> tokens) {
-		this.tokens = tokens;
+		this(tokens, LuriaInterpreter.CONSOLE);
+	}
+
+	public Parser(List<Token> tokens, ErrorReporter errors) {
+		this(TokenStream.of(tokens), errors);
+	}
+
+	/*
+	 * This constructor parses Tokens pulled from the given TokenStream, e.g. a
+	 * Lexer, as they are needed.
+	 */
+	public Parser(TokenStream tokens, ErrorReporter errors) {
+		this.tokens = new StreamCursor(tokens);
+		this.errors = errors;
+	}
+
+	public Parser(TokenBuffer tokens, ErrorReporter errors) {
+		this.tokens = new BufferCursor(tokens);
+		this.errors = errors;
+	}
+
+	/*
+	 * The nested Cursor class is the parser's window upon its input: the types
+	 * of the current and previous Tokens, the line of the current Token, the
+	 * literal value of the previous Token and, made upon request, either Token
+	 * itself. advance() moves the window on by one Token; start() pulls the first,
+	 * upon the parser's first reading of 'type'.
+	 */
+	private abstract static class Cursor {
+		TokenType type;
+		TokenType previousType;
+
+		abstract void start();
+
+		abstract void advance();
+
+		abstract int line();
+
+		abstract Token current();
+
+		abstract Token previous();
+
+		abstract Object previousLiteral();
+	}
+
+	/*
+	 * The nested StreamCursor class is a Cursor over the Tokens pulled from a
+	 * TokenStream.
+	 */
+	private static class StreamCursor extends Cursor {
+		private final TokenStream stream;
+		private Token current;
+		private Token previous;
+
+		StreamCursor(TokenStream stream) {
+			this.stream = stream;
+		}
+
+		@Override
+		void start() {
+			current = stream.next();
+			type = current.type;
+		}
+
+		@Override
+		void advance() {
+			previous = current;
+			previousType = type;
+			current = stream.next();
+			type = current.type;
+		}
+
+		@Override
+		int line() {
+			return current.location;
+		}
+
+		@Override
+		Token current() {
+			return current;
+		}
+
+		@Override
+		Token previous() {
+			return previous;
+		}
+
+		@Override
+		Object previousLiteral() {
+			return previous.literal;
+		}
+	}
+
+	/*
+	 * The nested BufferCursor class is a Cursor over a TokenBuffer, 'position'
+	 * being the index of the current Token. The Token last made is kept, as the
+	 * parser may ask for the same one more than once.
+	 */
+	private static class BufferCursor extends Cursor {
+		private final TokenBuffer buffer;
+		private int position = 0;
+		private Token made;
+		private int madeAt = -1;
+
+		BufferCursor(TokenBuffer buffer) {
+			this.buffer = buffer;
+			start();
+		}
+
+		@Override
+		void start() {
+			type = buffer.type(0);
+		}
+
+		@Override
+		void advance() {
+			previousType = type;
+			type = buffer.type(++position);
+		}
+
+		@Override
+		int line() {
+			return buffer.line(position);
+		}
+
+		@Override
+		Token current() {
+			return token(position);
+		}
+
+		@Override
+		Token previous() {
+			return position == 0 ? null : token(position - 1);
+		}
+
+		private Token token(int index) {
+			if (madeAt != index) {
+				made = buffer.token(index);
+				madeAt = index;
+			}
+			return made;
+		}
+
+		@Override
+		Object previousLiteral() {
+			return buffer.literal(position - 1);
+		}
 	}
 
 	/*
@@ -36,19 +216,36 @@ public class Parser {
 	}
 
 	/*
-	 * error() calls the Luria.parserError() method to which is passes the Token
-	 * object at which the error occurred and a relevant error message.
+	 * error() calls the parserError() method of the Parser's ErrorReporter, to
+	 * which it passes the Token object at which the error occurred and a relevant
+	 * error message.
 	 */
 	private ParserError error(Token token, String error) {
-		LuriaInterpreter.parserError(token, error);
+		errors.parserError(token, error);
 		return new ParserError();
 	}
 
 	/*
-	 * lookahead() returns the current, yet to be processed Token in 'tokens'.
+	 * type() returns the type of the current, yet to be processed Token, pulling
+	 * the first Token from 'tokens' upon first call, and line() its line.
+	 */
+	private TokenType type() {
+		if (tokens.type == null)
+			tokens.start();
+		return tokens.type;
+	}
+
+	private int line() {
+		type();
+		return tokens.line();
+	}
+
+	/*
+	 * lookahead() returns the current, yet to be processed Token.
 	 */
 	private Token lookahead() {
-		return tokens.get(current);
+		type();
+		return tokens.current();
 	}
 
 	/*
@@ -56,23 +253,28 @@ public class Parser {
 	 * reached the last Token in 'tokens'.
 	 */
 	private boolean end() {
-		return lookahead().type == EOF;
+		return type() == EOF;
 	}
 
 	/*
 	 * previous() returns the Token object previous to the current.
 	 */
 	private Token lookprevious() {
-		return tokens.get(current - 1);
+		return tokens.previous();
 	}
 
 	/*
-	 * next() increments the 'current' count and returns the now previous Token
-	 * object, i.e. it advances the parser and is akin to process() in Lexer.
+	 * advance() moves the parser on to the next Token, i.e. it is akin to
+	 * process() in Lexer, and next() does so and returns the now previous Token
+	 * object.
 	 */
-	private Token next() {
+	private void advance() {
 		if (!end())
-			current++;
+			tokens.advance();
+	}
+
+	private Token next() {
+		advance();
 		return lookprevious();
 	}
 
@@ -84,13 +286,15 @@ public class Parser {
 	private boolean check(TokenType t) {
 		if (end())
 			return false;
-		return lookahead().type == t;
+		return tokens.type == t;
 	}
 
 	/*
 	 * process() 'consumes' expected Token objects, advancing the parser to the next
 	 * Token. If an unexpected Token is encountered, process() throws an error
 	 * composed of the now current Token object's data and a relevant error message.
+	 * expect() does the same for a Token that the syntax tree does not hold, e.g.
+	 * a ';', without returning it.
 	 */
 	private Token process(TokenType type, String error) {
 		if (check(type))
@@ -98,16 +302,37 @@ public class Parser {
 		throw error(lookahead(), error);
 	}
 
+	private void expect(TokenType type, String error) {
+		if (!check(type))
+			throw error(lookahead(), error);
+		advance();
+	}
+
 	/*
 	 * match() checks for each of the TokenTypes passed to it whether it is equal to
 	 * that of the current Token object, by way of check(). If true, it advances the
 	 * parser by way of next() and returns true, else false. This is the primary
-	 * checking method of the parser.
+	 * checking method of the parser. Those of one and two TokenTypes are called in
+	 * preference to that of any number, so that no array is allocated per call.
 	 */
+	private boolean match(TokenType type) {
+		if (!check(type))
+			return false;
+		advance();
+		return true;
+	}
+
+	private boolean match(TokenType first, TokenType second) {
+		if (!check(first) && !check(second))
+			return false;
+		advance();
+		return true;
+	}
+
 	private boolean match(TokenType... types) {
 		for (TokenType t : types) {
 			if (check(t)) {
-				next();
+				advance();
 				return true;
 			}
 		}
@@ -124,11 +349,11 @@ public class Parser {
 	 * erroneous Token continually throws errors.
 	 */
 	private void sync() {
-		next();
+		advance();
 		while (!end()) {
-			if (lookprevious().type == SEMI_COLON)
+			if (tokens.previousType == SEMI_COLON)
 				return;
-			switch (lookahead().type) {
+			switch (tokens.type) {
 			case FUNCTION:
 			case VARIABLE:
 			case FOR:
@@ -141,7 +366,7 @@ public class Parser {
 			case READ_STRING:
 				return;
 			}
-			next();
+			advance();
 		}
 	}
 
@@ -167,10 +392,11 @@ public class Parser {
 	 */
 	private Statement declaration() {
 		try {
+			int line = line();
 			if (match(VARIABLE))
-				return variableDeclaration();
+				return located(variableDeclaration(), line);
 			if (match(FUNCTION))
-				return functionDeclaration();
+				return located(functionDeclaration(), line);
 			return statement();
 		} catch (ParserError error) {
 			sync();
@@ -178,6 +404,15 @@ public class Parser {
 		}
 	}
 
+	/*
+	 * located() records upon a statement the line on which it begins, that of the
+	 * Token at which the parser began parsing it.
+	 */
+	private Statement located(Statement statement, int line) {
+		statement.line = line;
+		return statement;
+	}
+
 	/*
 	 * variableDeclariation() instantiates a SIGNIFIER token object and if an EQUAL
 	 * token is next encountered by the parser, returns a Variable object with its
@@ -190,7 +425,7 @@ public class Parser {
 		if (match(EQUAL)) {
 			initialisation = expression();
 		}
-		process(SEMI_COLON, "Invalid variable declaration. ';' expected after variable declaration.");
+		expect(SEMI_COLON, "Invalid variable declaration. ';' expected after variable declaration.");
 		return new Statement.VariableDeclaration(symbol, initialisation);
 	}
 
@@ -202,15 +437,15 @@ public class Parser {
 	 */
 	private Statement functionDeclaration() {
 		Token symbol = process(SIGNIFIER, "Invalid function declaration");
-		process(LEFT_PARENTHESIS, "'(' expected to open arguments.");
+		expect(LEFT_PARENTHESIS, "'(' expected to open arguments.");
 		List<Token> arguments = new ArrayList<>();
 		if (!check(RIGHT_PARENTHESIS)) {
 			do {
 				arguments.add(process(SIGNIFIER, "Invalid argument."));
 			} while (match(COMMA));
 		}
-		process(RIGHT_PARENTHESIS, "')' expected to close arguments.");
-		process(LEFT_BRACE, "'{' expected to open block.");
+		expect(RIGHT_PARENTHESIS, "')' expected to close arguments.");
+		expect(LEFT_BRACE, "'{' expected to open block.");
 		List<Statement> functionBlock = block();
 		return new Statement.FunctionDeclaration(symbol, arguments, functionBlock);
 	}
@@ -223,23 +458,24 @@ public class Parser {
 	 * statement() manages the recursive calls to relevant statement methods.
 	 */
 	private Statement statement() {
+		int line = line();
 		if (match(IF))
-			return ifStatement();
+			return located(ifStatement(), line);
 		if (match(WHILE))
-			return whileStatement();
+			return located(whileStatement(), line);
 		if (match(PRINT))
-			return printStatement();
+			return located(printStatement(), line);
 		if (match(RETURN))
-			return returnStatement();
+			return located(returnStatement(), line);
 		if (match(READ_NUMBER))
-			return readNumberStatement();
+			return located(readNumberStatement(), line);
 		if (match(READ_STRING))
-			return readStringStatement();
+			return located(readStringStatement(), line);
 		if (match(READ_BOOLEAN))
-			return readBooleanStatement();
+			return located(readBooleanStatement(), line);
 		if (match(LEFT_BRACE))
-			return new Statement.Block(block());
-		return expressionStatement();
+			return located(new Statement.Block(block()), line);
+		return located(expressionStatement(), line);
 	}
 
 	/*
@@ -250,9 +486,9 @@ public class Parser {
 	 * convention from C has been implemented.
 	 */
 	private Statement ifStatement() {
-		process(LEFT_PARENTHESIS, "'(' expected to start condition.");
+		expect(LEFT_PARENTHESIS, "'(' expected to start condition.");
 		Expression condition = expression();
-		process(RIGHT_PARENTHESIS, "')' expected to end condition.");
+		expect(RIGHT_PARENTHESIS, "')' expected to end condition.");
 		Statement thenBranch = statement();
 		Statement elseBranch = null;
 		if (match(ELSE)) {
@@ -266,9 +502,9 @@ public class Parser {
 	 * (either a single statement or a block).
 	 */
 	private Statement whileStatement() {
-		process(LEFT_PARENTHESIS, "'(' expected to start condition.");
+		expect(LEFT_PARENTHESIS, "'(' expected to start condition.");
 		Expression condition = expression();
-		process(RIGHT_PARENTHESIS, "')' expected to end condition.");
+		expect(RIGHT_PARENTHESIS, "')' expected to end condition.");
 		Statement body = statement();
 		return new Statement.While(condition, body);
 	}
@@ -279,7 +515,7 @@ public class Parser {
 	 */
 	private Statement printStatement() {
 		Expression value = expression();
-		process(SEMI_COLON, "';' expected to end statement.");
+		expect(SEMI_COLON, "';' expected to end statement.");
 		return new Statement.Print(value);
 	}
 
@@ -293,7 +529,7 @@ public class Parser {
 		if (!check(SEMI_COLON)) {
 			value = expression();
 		}
-		process(SEMI_COLON, "';' expected after return expression.");
+		expect(SEMI_COLON, "';' expected after return expression.");
 		return new Statement.Return(symbol, value);
 	}
 
@@ -303,7 +539,7 @@ public class Parser {
 	 */
 	private Statement readBooleanStatement() {
 		Expression value = expression();
-		process(SEMI_COLON, "';' expected to end statement.");
+		expect(SEMI_COLON, "';' expected to end statement.");
 		return new Statement.ReadBoolean(value);
 	}
 
@@ -313,7 +549,7 @@ public class Parser {
 	 */
 	private Statement readStringStatement() {
 		Expression value = expression();
-		process(SEMI_COLON, "';' expected to end statement.");
+		expect(SEMI_COLON, "';' expected to end statement.");
 		return new Statement.ReadString(value);
 	}
 
@@ -323,7 +559,7 @@ public class Parser {
 	 */
 	private Statement readNumberStatement() {
 		Expression value = expression();
-		process(SEMI_COLON, "';' expected to end statement.");
+		expect(SEMI_COLON, "';' expected to end statement.");
 		return new Statement.ReadNumber(value);
 	}
 
@@ -336,7 +572,7 @@ public class Parser {
 		while (!check(RIGHT_BRACE) && !end()) {
 			block.add(declaration());
 		}
-		process(RIGHT_BRACE, "'}' expected to end block.");
+		expect(RIGHT_BRACE, "'}' expected to end block.");
 		return block;
 	}
 
@@ -346,7 +582,7 @@ public class Parser {
 	 */
 	private Statement expressionStatement() {
 		Expression e = expression();
-		process(SEMI_COLON, "';' expected to end statement.");
+		expect(SEMI_COLON, "';' expected to end statement.");
 		return new Statement.ExpressionStatement(e);
 	}
 
@@ -385,101 +621,62 @@ public class Parser {
 	}
 
 	/*
-	 * or() constructs a 'logical expression' node, consisting of an 'or' operator
-	 * and its operands.
+	 * or(), and(), equality(), comparison(), addition(), multiplication() and
+	 * exponent() are the levels of precedence of the infix operators of Luria, from
+	 * lowest to highest; each parses an expression of at least its level by
+	 * binary().
 	 */
 	private Expression or() {
-		Expression e = and();
-		while (match(OR)) {
-			Token operator = lookprevious();
-			Expression right = and();
-			e = new Expression.Logical(e, operator, right);
-		}
-		return e;
+		return binary(OR_PRECEDENCE);
 	}
 
-	/*
-	 * and() constructs a 'logical expression' node, consisting of an 'or' operator
-	 * and its operands.
-	 */
 	private Expression and() {
-		Expression e = equality();
-		while (match(AND)) {
-			Token operator = lookprevious();
-			Expression right = equality();
-			e = new Expression.Logical(e, operator, right);
-		}
-		return e;
+		return binary(AND_PRECEDENCE);
 	}
 
-	/*
-	 * equality() constructs a 'binary expression' node, consisting of an operator
-	 * and its operands. lookprevious() allows for the parser to retrieve the
-	 * operator token, having called match(), enabling parsing of infix expressions.
-	 * The order of operations for binary expressions are expressed by the order of
-	 * recursive calls toward higher precedence, i.e. equality -> comparison() ->
-	 * addition() -> multiplication() -> exponent().
-	 */
 	private Expression equality() {
-		Expression e = comparison();
-		while (match(EXCLAMATION_EQUAL, EQUAL_EQUAL)) {
-			Token operator = lookprevious();
-			Expression right = comparison();
-			e = new Expression.Binary(e, operator, right);
-		}
-		return e;
+		return binary(EQUALITY_PRECEDENCE);
 	}
 
-	/*
-	 * comparison().
-	 */
 	private Expression comparison() {
-		Expression e = addition();
-		while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
-			Token operator = lookprevious();
-			Expression right = addition();
-			e = new Expression.Binary(e, operator, right);
-		}
-		return e;
+		return binary(COMPARISON_PRECEDENCE);
 	}
 
-	/*
-	 * addition().
-	 */
 	private Expression addition() {
-		Expression e = multiplication();
-		while (match(PLUS, MINUS)) {
-			Token operator = lookprevious();
-			Expression rightOperand = multiplication();
-			e = new Expression.Binary(e, operator, rightOperand);
-		}
-		return e;
+		return binary(ADDITION_PRECEDENCE);
 	}
 
-	/*
-	 * multiplication().
-	 */
 	private Expression multiplication() {
-		Expression e = exponent();
-		while (match(FORWARD_SLASH, ASTERISK, MODULO)) {
-			Token operator = lookprevious();
-			Expression rightOperand = exponent();
-			e = new Expression.Binary(e, operator, rightOperand);
-		}
-		return e;
+		return binary(MULTIPLICATION_PRECEDENCE);
+	}
+
+	private Expression exponent() {
+		return binary(EXPONENT_PRECEDENCE);
 	}
 
 	/*
-	 * exponent().
+	 * binary() parses infix expressions by precedence climbing. It parses an
+	 * operand by unary(), then, for as long as the current Token is an operator of
+	 * at least the given precedence, looked up in 'precedence', consumes it and
+	 * parses its right operand as an expression of strictly higher precedence, so
+	 * that operators of the same level associate to the left. 'or' and 'and'
+	 * construct a 'logical expression' node, the rest a 'binary expression' node.
+	 * The syntax tree is that of one recursive method per level, but an operand is
+	 * parsed by one call of binary() rather than a call of each level.
 	 */
-	private Expression exponent() {
+	private Expression binary(int minimum) {
 		Expression e = unary();
-		while (match(EXPONENT)) {
-			Token operator = lookprevious();
-			Expression rightOperand = unary();
-			e = new Expression.Binary(e, operator, rightOperand);
+		while (true) {
+			int level = precedence[type().ordinal()];
+			if (level < minimum)
+				return e;
+			Token operator = next();
+			Expression right = binary(level + 1);
+			if (level <= AND_PRECEDENCE)
+				e = new Expression.Logical(e, operator, right);
+			else
+				e = new Expression.Binary(e, operator, right);
 		}
-		return e;
 	}
 
 	/*
@@ -497,12 +694,16 @@ public class Parser {
 
 	/*
 	 * call() constructs a 'function call' node, composed of the function SIGNIFIER
-	 * token and its arguments. Else, it constructs an 'array index' node.
+	 * token and its arguments. Else, it constructs an 'array index' node, holding
+	 * the last Token of the indexed expression, which is made only upon the first
+	 * '['.
 	 */
 	private Expression call() {
 		Expression e = literal();
-		Token symbol = lookprevious();
+		Token symbol = null;
 		while (true) {
+			if (symbol == null && check(LEFT_BRACKET))
+				symbol = lookprevious();
 			if (match(LEFT_PARENTHESIS)) {
 				List<Expression> arguments = new ArrayList<>();
 				if (!check(RIGHT_PARENTHESIS)) {
@@ -515,7 +716,7 @@ public class Parser {
 
 			} else if (match(LEFT_BRACKET)) {
 				Expression array = expression();
-				Token rightBracket = process(RIGHT_BRACKET, "expected ']' after index.");
+				expect(RIGHT_BRACKET, "expected ']' after index.");
 				e = new Expression.Index(e, symbol, array);
 			} else {
 				break;
@@ -527,26 +728,33 @@ public class Parser {
 	/*
 	 * literal() concerns the terminals of the language, including Boolean values,
 	 * numbers and strings. It is also the site at which combinations, i.e.
-	 * expressions enclosed within parenthesis, and arrays are parsed.
+	 * expressions enclosed within parenthesis, and arrays are parsed. Which is
+	 * parsed is decided by a switch upon the type of the current Token.
 	 */
 	private Expression literal() {
-		if (match(FALSE))
+		switch (type()) {
+		case FALSE:
+			advance();
 			return new Expression.Literal(false);
-		if (match(TRUE))
+		case TRUE:
+			advance();
 			return new Expression.Literal(true);
-		if (match(NULL))
+		case NULL:
+			advance();
 			return new Expression.Literal(null);
-		if (match(NUMBER, STRING))
-			return new Expression.Literal(lookprevious().literal);
-		if (match(SIGNIFIER)) {
-			return new Expression.VariableExpression(lookprevious());
-		}
-		if (match(LEFT_PARENTHESIS)) {
+		case NUMBER:
+		case STRING:
+			advance();
+			return new Expression.Literal(tokens.previousLiteral());
+		case SIGNIFIER:
+			return new Expression.VariableExpression(next());
+		case LEFT_PARENTHESIS:
+			advance();
 			Expression e = expression();
-			process(RIGHT_PARENTHESIS, "')' expected after expression.");
+			expect(RIGHT_PARENTHESIS, "')' expected after expression.");
 			return new Expression.Combination(e);
-		}
-		if (match(LEFT_BRACKET)) {
+		case LEFT_BRACKET:
+			advance();
 			List<Expression> components = new ArrayList<>();
 			if (match(RIGHT_BRACKET)) {
 				return new Expression.Array(null);
@@ -557,10 +765,11 @@ public class Parser {
 					components.add(component);
 				} while (match(COMMA));
 			}
-			process(RIGHT_BRACKET, "']' expected to close array declaration.");
+			expect(RIGHT_BRACKET, "']' expected to close array declaration.");
 			return new Expression.Array(components);
+		default:
+			throw error(lookahead(), "expression expected.");
 		}
-		throw error(lookahead(), "expression expected.");
 	}
 
 }
@@ -1,14 +1,22 @@
 package syntactic_analysis;
 
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import javax.annotation.processing.Generated;
 
 import org.junit.Test;
 import org.junit.tools.configuration.base.MethodRef;
 
+import interpretation.InterpreterError;
+import lexical_analysis.Lexer;
 import lexical_analysis.Token;
 import lexical_analysis.TokenType;
+import luria_interpreter.ErrorReporter;
 import mockit.Deencapsulation;
 
 @Generated(value = "org.junit-tools-1.1.0")
@@ -407,4 +415,164 @@ public class ParserTest {
 		testSubject = createTestSubject();
 		result = Deencapsulation.invoke(testSubject, "whileStatement");
 	}
-}
\ No newline at end of file
+
+	private static final String[] CURSOR_TEST_CODE = {
+			"variable x = 1 + 2 * 3; print x;",
+			"function f(a, b) { if (a < b) return a; else return f(b, a); } print f(2, 1);",
+			"variable a = [1, \"s\", true, null]; a[0] = a[1] + 2.5; while (x != 0 and !false) { x = x - 1; }",
+			"{ readnumber n; readstring s; readboolean b; print (n); }",
+			"variable = 1; print 2",
+			"print 1 +; function (a) {} if x) print y; variable b = [1, 2;" };
+
+	/*
+	 * ErrorLog records the errors reported by the Lexer and Parser as text.
+	 */
+	private static class ErrorLog implements ErrorReporter {
+		final List<String> errors = new ArrayList<>();
+
+		@Override
+		public void lexerError(int location, String message) {
+			errors.add(location + " " + message);
+		}
+
+		@Override
+		public void parserError(Token token, String message) {
+			errors.add(token.type + " '" + token.lexeme + "' " + token.location + " " + message);
+		}
+
+		@Override
+		public void interpreterError(InterpreterError error) {
+			errors.add(error.getMessage());
+		}
+	}
+
+	private static final String HASH = "0000000000000000000000000000000000000000000000000000000000000000";
+
+	/*
+	 * testCursorsAgree() parses the same source code from a List of Tokens, from
+	 * a Lexer streaming Tokens from a Reader and from a TokenBuffer, which must
+	 * yield the same syntax tree and the same errors.
+	 */
+	@Test
+	public void testCursorsAgree() throws Exception {
+		for (String sourceCode : CURSOR_TEST_CODE) {
+			ErrorLog listErrors = new ErrorLog();
+			List<Statement> fromList = new Parser(new Lexer(sourceCode, listErrors).lexSourceCode(), listErrors)
+					.parse();
+			ErrorLog streamErrors = new ErrorLog();
+			List<Statement> fromStream = new Parser(new Lexer(new StringReader(sourceCode), streamErrors),
+					streamErrors).parse();
+			ErrorLog bufferErrors = new ErrorLog();
+			List<Statement> fromBuffer = new Parser(new Lexer(sourceCode, bufferErrors).lexTokenBuffer(),
+					bufferErrors).parse();
+			assertEquals(sourceCode, listErrors.errors, streamErrors.errors);
+			assertEquals(sourceCode, listErrors.errors, bufferErrors.errors);
+			if (listErrors.errors.isEmpty()) {
+				byte[] tree = TreeWriter.write(HASH, fromList);
+				assertArrayEquals(sourceCode, tree, TreeWriter.write(HASH, fromStream));
+				assertArrayEquals(sourceCode, tree, TreeWriter.write(HASH, fromBuffer));
+			}
+		}
+	}
+
+	/*
+	 * The operators of each level of precedence, from the lowest.
+	 */
+	private static final String[][] PRECEDENCE_TEST_LEVELS = { { "or" }, { "and" }, { "==", "!=" },
+			{ "<", "<=", ">", ">=" }, { "+", "-" }, { "*", "/", "%" }, { "^" } };
+
+	/*
+	 * parenthesised() parses a single expression statement and returns its
+	 * expression written with every binary and logical expression parenthesised,
+	 * and no parentheses of the source code.
+	 */
+	private static String parenthesised(String expression) {
+		ErrorLog errors = new ErrorLog();
+		List<Statement> statements = new Parser(new Lexer(expression + ";", errors).lexTokenBuffer(), errors)
+				.parse();
+		assertEquals(expression, new ArrayList<String>(), errors.errors);
+		return parenthesised(((Statement.ExpressionStatement) statements.get(0)).expression);
+	}
+
+	private static String parenthesised(Expression e) {
+		if (e instanceof Expression.Combination)
+			return parenthesised(((Expression.Combination) e).expression);
+		if (e instanceof Expression.Binary) {
+			Expression.Binary b = (Expression.Binary) e;
+			return "(" + parenthesised(b.left) + " " + b.operator.lexeme + " " + parenthesised(b.right) + ")";
+		}
+		if (e instanceof Expression.Logical) {
+			Expression.Logical l = (Expression.Logical) e;
+			return "[" + parenthesised(l.left) + " " + l.operator.lexeme + " " + parenthesised(l.right) + "]";
+		}
+		if (e instanceof Expression.Unary) {
+			Expression.Unary u = (Expression.Unary) e;
+			return u.operator.lexeme + parenthesised(u.right);
+		}
+		if (e instanceof Expression.Literal)
+			return String.valueOf(((Expression.Literal) e).value);
+		return ((Expression.VariableExpression) e).symbol.lexeme;
+	}
+
+	@Test
+	public void testPrecedenceTable() throws Exception {
+		assertEquals("[[a and b] or [c and d]]", parenthesised("a and b or c and d"));
+		assertEquals("[(a == b) and (c != d)]", parenthesised("a == b and c != d"));
+		assertEquals("((a < b) == (c >= d))", parenthesised("a < b == c >= d"));
+		assertEquals("((a + b) <= (c - d))", parenthesised("a + b <= c - d"));
+		assertEquals("((a * b) + (c % d))", parenthesised("a * b + c % d"));
+		assertEquals("((a ^ b) / (c ^ d))", parenthesised("a ^ b / c ^ d"));
+		assertEquals("((1.0 - 2.0) - 3.0)", parenthesised("1 - 2 - 3"));
+		assertEquals("((a ^ b) ^ c)", parenthesised("a ^ b ^ c"));
+		assertEquals("[[a or b] or c]", parenthesised("a or b or c"));
+		assertEquals("(a * (b + c))", parenthesised("a * (b + c)"));
+		assertEquals("(-1.0 + !x)", parenthesised("-1 + !x"));
+	}
+
+	/*
+	 * testRandomExpressionsParsed() makes random expression trees, writes each with
+	 * only the parentheses that precedence and left associativity require, and
+	 * checks that the parser rebuilds the same tree.
+	 */
+	@Test
+	public void testRandomExpressionsParsed() throws Exception {
+		Random random = new Random(25);
+		for (int n = 0; n < 20000; n++) {
+			RandomExpression expression = new RandomExpression(random, 5);
+			assertEquals(expression.written, expression.parenthesised, parenthesised(expression.written));
+		}
+	}
+
+	/*
+	 * RandomExpression is a random expression, as written with the fewest
+	 * parentheses and as written fully parenthesised, of the given level of
+	 * precedence, that of an operand being above every operator.
+	 */
+	private static class RandomExpression {
+		static final int OPERAND = PRECEDENCE_TEST_LEVELS.length;
+		final String written;
+		final String parenthesised;
+		final int level;
+
+		RandomExpression(Random random, int depth) {
+			if (depth == 0 || random.nextInt(4) == 0) {
+				String operand = random.nextBoolean() ? "v" + random.nextInt(3) : Integer.toString(random.nextInt(10));
+				String value = Character.isDigit(operand.charAt(0)) ? operand + ".0" : operand;
+				String prefix = random.nextInt(3) == 0 ? (random.nextBoolean() ? "!" : "-") : "";
+				written = prefix + operand;
+				parenthesised = prefix + value;
+				level = OPERAND;
+				return;
+			}
+			level = random.nextInt(PRECEDENCE_TEST_LEVELS.length);
+			String[] operators = PRECEDENCE_TEST_LEVELS[level];
+			String operator = operators[random.nextInt(operators.length)];
+			RandomExpression left = new RandomExpression(random, depth - 1);
+			RandomExpression right = new RandomExpression(random, depth - 1);
+			written = (left.level < level ? "(" + left.written + ")" : left.written) + " " + operator + " "
+					+ (right.level <= level ? "(" + right.written + ")" : right.written);
+			String inner = left.parenthesised + " " + operator + " " + right.parenthesised;
+			parenthesised = level <= 1 ? "[" + inner + "]" : "(" + inner + ")";
+		}
+	}
+}
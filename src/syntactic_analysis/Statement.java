@@ -7,7 +7,10 @@
  * which implements the Visitor interface.
  * 
  * Significance of each subclass' fields is elaborated upon in comments at the Parser and Interpreter classes
- * that construct and evaluate these objects, respectively. 
+ * that construct and evaluate these objects, respectively. The mutable 'slot', 'frameSize', 'flattened' and
+ * 'tailCall' fields are annotated by the Resolver after parsing; see comment at Resolver. The 'pure' field of a
+ * function declaration is annotated by the PurityAnalyser. The 'line' of every statement, that on which it begins in
+ * the source code, is recorded by the Parser; see Profiler.
  * 
  * */
 
@@ -19,6 +22,7 @@ import interpretation.Interpreter;
 import lexical_analysis.Token;
 
 public abstract class Statement {
+	public int line;
 	
 	public interface Visitor<T> {
 		T visitExpressionStatement(ExpressionStatement statement);
@@ -82,6 +86,7 @@ public abstract class Statement {
 	public static class Return extends Statement {
 		public final Token symbol;
 		public final Expression value;
+		public boolean tailCall;
 
 		public Return(Token symbol, Expression value) {
 			this.symbol = symbol;
@@ -97,6 +102,8 @@ public abstract class Statement {
 	
 	public static class Block extends Statement {
 		public final List<Statement> statements;
+		public int frameSize;
+		public boolean flattened;
 
 		Block(List<Statement> statements) {
 			this.statements = statements;
@@ -126,6 +133,9 @@ public abstract class Statement {
 		public final Token symbol;
 		public final List<Token> arguments;
 		public final List<Statement> functionBlock;
+		public int slot = -1;
+		public int frameSize;
+		public boolean pure;
 
 		public FunctionDeclaration(Token symbol, List<Token> arguments, List<Statement> functionBlock) {
 			this.symbol = symbol;
@@ -189,6 +199,7 @@ public abstract class Statement {
 	public static class VariableDeclaration extends Statement {
 		public final Token symbol;
 		public final Expression initialisation;
+		public int slot = -1;
 
 		VariableDeclaration(Token symbol, Expression initialisation) {
 			this.symbol = symbol;
@@ -0,0 +1,88 @@
+/*
+ * TreeFormat defines the binary format, '.lurc', in which TreeWriter stores a parsed and resolved syntax tree and from
+ * which TreeReader rebuilds it without the Lexer, Parser or Resolver. A .lurc file consists of:
+ *
+ *     header      the four bytes 'LURC', a two-byte VERSION and the 32-byte SHA-256 hash of the source code
+ *     statements  a count followed by each top-level statement
+ *
+ * Each node is written as a one-byte tag followed by its fields in the order they are declared at Statement and
+ * Expression, children recursively, and each statement is followed by its line; an absent node, e.g. a missing else
+ * branch, is written as the tag NONE. The annotations of the Resolver ('depth', 'slot', 'frameSize', 'flattened' and
+ * 'tailCall') and PurityAnalyser ('pure') are written with the nodes they annotate. Integers are written as unsigned
+ * variable-length quantities, seven bits to a byte, with values that may be -1 stored plus one. Numbers are written as eight-byte doubles, and booleans as a byte, 0 or 1.
+ *
+ * Strings, i.e. lexemes and string literals, are pooled as they are written: the first occurrence of a string is written
+ * as 0 followed by its length and UTF-8 bytes, and each later occurrence as its index in the pool plus one. A Token is
+ * written as the ordinal of its TokenType, its lexeme and its line location. A Token's literal is not written, as only
+ * the Parser reads it, having copied its value into a Literal.
+ *
+ * VERSION must be incremented upon any change to this format, to the nodes of the syntax tree or to the order of
+ * TokenType, so that files written by earlier versions are rejected rather than misread.
+ *
+ * */
+
+package syntactic_analysis;
+
+final class TreeFormat {
+	static final byte[] MAGIC = { 'L', 'U', 'R', 'C' };
+	static final int VERSION = 5;
+	static final int HASH_LENGTH = 32;
+
+	static final int NONE = 0;
+
+	// Statements.
+	static final int BLOCK = 1;
+	static final int EXPRESSION_STATEMENT = 2;
+	static final int FUNCTION_DECLARATION = 3;
+	static final int IF = 4;
+	static final int PRINT = 5;
+	static final int READ_BOOLEAN = 6;
+	static final int READ_NUMBER = 7;
+	static final int READ_STRING = 8;
+	static final int RETURN = 9;
+	static final int VARIABLE_DECLARATION = 10;
+	static final int WHILE = 11;
+
+	// Expressions.
+	static final int ALLOCATION = 12;
+	static final int ARRAY = 13;
+	static final int ASSIGNMENT = 14;
+	static final int BINARY = 15;
+	static final int CALL = 16;
+	static final int COMBINATION = 17;
+	static final int INDEX = 18;
+	static final int LITERAL_NULL = 19;
+	static final int LITERAL_TRUE = 20;
+	static final int LITERAL_FALSE = 21;
+	static final int LITERAL_NUMBER = 22;
+	static final int LITERAL_STRING = 23;
+	static final int LOGICAL = 24;
+	static final int UNARY = 25;
+	static final int VARIABLE = 26;
+
+	private TreeFormat() {
+	}
+
+	/*
+	 * decodeHash() returns the bytes of a hash given in hexadecimal, as by
+	 * CompiledProgram.hash().
+	 */
+	static byte[] decodeHash(String hex) {
+		if (hex.length() != HASH_LENGTH * 2)
+			throw new IllegalArgumentException("Expected a SHA-256 hash in hexadecimal.");
+		byte[] bytes = new byte[HASH_LENGTH];
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			bytes[i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4) | Character.digit(hex.charAt(2 * i + 1), 16));
+		}
+		return bytes;
+	}
+
+	static String encodeHash(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return hex.toString();
+	}
+
+}
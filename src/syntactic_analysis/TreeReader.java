@@ -0,0 +1,250 @@
+/*
+ * The TreeReader class rebuilds a syntax tree from the binary format defined at TreeFormat, as written by TreeWriter.
+ * The tree is rebuilt as the Parser and Resolver left it, so that it may be run without the Lexer, Parser or Resolver.
+ * Tokens are rebuilt without their literal values, which only the Parser reads.
+ *
+ * The header is read upon construction, so that the version and source hash of a file may be checked before its
+ * statements are read. A buffer that does not begin with the magic number, or whose statements are malformed or of
+ * another version, raises an IOException.
+ *
+ * */
+
+package syntactic_analysis;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import lexical_analysis.Token;
+import lexical_analysis.TokenType;
+
+public class TreeReader {
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	private final ByteBuffer buffer;
+	private final List<String> strings = new ArrayList<>();
+	private final int version;
+	private final String sourceHash;
+
+	public TreeReader(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		try {
+			for (byte b : TreeFormat.MAGIC) {
+				if (buffer.get() != b)
+					throw new IOException("Not a .lurc file.");
+			}
+			this.version = buffer.getShort() & 0xFFFF;
+			byte[] hash = new byte[TreeFormat.HASH_LENGTH];
+			buffer.get(hash);
+			this.sourceHash = TreeFormat.encodeHash(hash);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Not a .lurc file.");
+		}
+	}
+
+	public int version() {
+		return version;
+	}
+
+	/*
+	 * isCurrent() returns true if the file was written in the format this
+	 * TreeReader reads.
+	 */
+	public boolean isCurrent() {
+		return version == TreeFormat.VERSION;
+	}
+
+	/*
+	 * sourceHash() returns the SHA-256 hash, in hexadecimal, of the source code
+	 * from which the file was written, so that a file may be found stale when its
+	 * source code has since changed.
+	 */
+	public String sourceHash() {
+		return sourceHash;
+	}
+
+	/*
+	 * read() returns the statements of the file, resolved.
+	 */
+	public List<Statement> read() throws IOException {
+		if (!isCurrent())
+			throw new IOException("Unsupported .lurc version " + version + "; expected " + TreeFormat.VERSION + ".");
+		try {
+			List<Statement> statements = readStatements();
+			if (buffer.hasRemaining())
+				throw new IOException("Malformed .lurc file: trailing bytes.");
+			return statements;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+				| NegativeArraySizeException e) {
+			throw new IOException("Malformed .lurc file: truncated or corrupt.");
+		}
+	}
+
+	private List<Statement> readStatements() throws IOException {
+		int size = readInteger();
+		List<Statement> statements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			statements.add(readStatement());
+		}
+		return statements;
+	}
+
+	private Statement readStatement() throws IOException {
+		int tag = buffer.get();
+		if (tag == TreeFormat.NONE)
+			return null;
+		Statement statement = readStatement(tag);
+		statement.line = readInteger();
+		return statement;
+	}
+
+	private Statement readStatement(int tag) throws IOException {
+		switch (tag) {
+		case TreeFormat.BLOCK: {
+			Statement.Block block = new Statement.Block(readStatements());
+			block.frameSize = readInteger();
+			block.flattened = buffer.get() != 0;
+			return block;
+		}
+		case TreeFormat.EXPRESSION_STATEMENT:
+			return new Statement.ExpressionStatement(readExpression());
+		case TreeFormat.FUNCTION_DECLARATION: {
+			Token symbol = readToken();
+			int size = readInteger();
+			List<Token> arguments = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				arguments.add(readToken());
+			}
+			Statement.FunctionDeclaration function = new Statement.FunctionDeclaration(symbol, arguments,
+					readStatements());
+			function.slot = readInteger() - 1;
+			function.frameSize = readInteger();
+			function.pure = buffer.get() != 0;
+			return function;
+		}
+		case TreeFormat.IF:
+			return new Statement.If(readExpression(), readStatement(), readStatement());
+		case TreeFormat.PRINT:
+			return new Statement.Print(readExpression());
+		case TreeFormat.READ_BOOLEAN:
+			return new Statement.ReadBoolean(readExpression());
+		case TreeFormat.READ_NUMBER:
+			return new Statement.ReadNumber(readExpression());
+		case TreeFormat.READ_STRING:
+			return new Statement.ReadString(readExpression());
+		case TreeFormat.RETURN: {
+			Statement.Return statement = new Statement.Return(readToken(), readExpression());
+			statement.tailCall = buffer.get() != 0;
+			return statement;
+		}
+		case TreeFormat.VARIABLE_DECLARATION: {
+			Statement.VariableDeclaration declaration = new Statement.VariableDeclaration(readToken(),
+					readExpression());
+			declaration.slot = readInteger() - 1;
+			return declaration;
+		}
+		case TreeFormat.WHILE:
+			return new Statement.While(readExpression(), readStatement());
+		default:
+			throw new IOException("Malformed .lurc file: unknown statement tag " + tag + ".");
+		}
+	}
+
+	// Java evaluates the arguments of a constructor from left to right, so the
+	// fields of a node are read in the order they were written.
+	private Expression readExpression() throws IOException {
+		int tag = buffer.get();
+		switch (tag) {
+		case TreeFormat.NONE:
+			return null;
+		case TreeFormat.ALLOCATION:
+			return new Expression.Allocation(readExpression(), readToken(), readExpression());
+		case TreeFormat.ARRAY: {
+			int size = readInteger() - 1;
+			if (size < 0)
+				return new Expression.Array(null);
+			List<Expression> components = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				components.add(readExpression());
+			}
+			return new Expression.Array(components);
+		}
+		case TreeFormat.ASSIGNMENT: {
+			Expression.Assignment assignment = new Expression.Assignment(readToken(), readExpression());
+			assignment.depth = readInteger() - 1;
+			assignment.slot = readInteger() - 1;
+			return assignment;
+		}
+		case TreeFormat.BINARY:
+			return new Expression.Binary(readExpression(), readToken(), readExpression());
+		case TreeFormat.CALL: {
+			Expression called = readExpression();
+			Token rightParenthesis = readToken();
+			int size = readInteger();
+			List<Expression> arguments = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				arguments.add(readExpression());
+			}
+			return new Expression.Call(called, rightParenthesis, arguments);
+		}
+		case TreeFormat.COMBINATION:
+			return new Expression.Combination(readExpression());
+		case TreeFormat.INDEX:
+			return new Expression.Index(readExpression(), readToken(), readExpression());
+		case TreeFormat.LITERAL_NULL:
+			return new Expression.Literal(null);
+		case TreeFormat.LITERAL_TRUE:
+			return new Expression.Literal(true);
+		case TreeFormat.LITERAL_FALSE:
+			return new Expression.Literal(false);
+		case TreeFormat.LITERAL_NUMBER:
+			return new Expression.Literal(buffer.getDouble());
+		case TreeFormat.LITERAL_STRING:
+			return new Expression.Literal(readString());
+		case TreeFormat.LOGICAL:
+			return new Expression.Logical(readExpression(), readToken(), readExpression());
+		case TreeFormat.UNARY:
+			return new Expression.Unary(readToken(), readExpression());
+		case TreeFormat.VARIABLE: {
+			Expression.VariableExpression variable = new Expression.VariableExpression(readToken());
+			variable.depth = readInteger() - 1;
+			variable.slot = readInteger() - 1;
+			return variable;
+		}
+		default:
+			throw new IOException("Malformed .lurc file: unknown expression tag " + tag + ".");
+		}
+	}
+
+	private int readInteger() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed .lurc file: integer too long.");
+	}
+
+	private String readString() throws IOException {
+		int index = readInteger();
+		if (index > 0)
+			return strings.get(index - 1);
+		byte[] bytes = new byte[readInteger()];
+		buffer.get(bytes);
+		String s = new String(bytes, StandardCharsets.UTF_8);
+		strings.add(s);
+		return s;
+	}
+
+	private Token readToken() throws IOException {
+		TokenType type = TOKEN_TYPES[readInteger()];
+		String lexeme = readString();
+		return new Token(type, lexeme, null, readInteger());
+	}
+
+}
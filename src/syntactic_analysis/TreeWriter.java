@@ -0,0 +1,338 @@
+/*
+ * The TreeWriter class encodes a parsed and resolved syntax tree in the binary format defined at TreeFormat, so that
+ * TreeReader may later rebuild it without lexing, parsing or resolving the source code again. Like the Resolver, it
+ * implements the Expression and Statement Visitor interfaces and walks the tree once, each visit writing its node's tag
+ * and fields and then visiting its children.
+ *
+ * */
+
+package syntactic_analysis;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lexical_analysis.Token;
+import syntactic_analysis.Expression.Allocation;
+import syntactic_analysis.Expression.Array;
+import syntactic_analysis.Expression.Assignment;
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Expression.Call;
+import syntactic_analysis.Expression.Combination;
+import syntactic_analysis.Expression.Index;
+import syntactic_analysis.Expression.Literal;
+import syntactic_analysis.Expression.Logical;
+import syntactic_analysis.Expression.Unary;
+import syntactic_analysis.Expression.VariableExpression;
+import syntactic_analysis.Statement.Block;
+import syntactic_analysis.Statement.ExpressionStatement;
+import syntactic_analysis.Statement.FunctionDeclaration;
+import syntactic_analysis.Statement.If;
+import syntactic_analysis.Statement.Print;
+import syntactic_analysis.Statement.ReadBoolean;
+import syntactic_analysis.Statement.ReadNumber;
+import syntactic_analysis.Statement.ReadString;
+import syntactic_analysis.Statement.Return;
+import syntactic_analysis.Statement.VariableDeclaration;
+import syntactic_analysis.Statement.While;
+
+public class TreeWriter implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+	private final ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+	private final Map<String, Integer> strings = new HashMap<>();
+
+	private TreeWriter() {
+	}
+
+	/*
+	 * write() returns the given statements, resolved, encoded with a header
+	 * holding the SHA-256 hash of the source code from which they were parsed, in
+	 * hexadecimal.
+	 */
+	public static byte[] write(String sourceHash, List<Statement> statements) {
+		TreeWriter writer = new TreeWriter();
+		writer.out.write(TreeFormat.MAGIC, 0, TreeFormat.MAGIC.length);
+		writer.out.write(TreeFormat.VERSION >>> 8);
+		writer.out.write(TreeFormat.VERSION);
+		byte[] hash = TreeFormat.decodeHash(sourceHash);
+		writer.out.write(hash, 0, hash.length);
+		writer.writeStatements(statements);
+		return writer.out.toByteArray();
+	}
+
+	private void writeStatements(List<Statement> statements) {
+		writeInteger(statements.size());
+		for (Statement s : statements) {
+			writeStatement(s);
+		}
+	}
+
+	private void writeStatement(Statement s) {
+		if (s == null) {
+			out.write(TreeFormat.NONE);
+		} else {
+			s.accept(this);
+			writeInteger(s.line);
+		}
+	}
+
+	private void writeExpression(Expression e) {
+		if (e == null) {
+			out.write(TreeFormat.NONE);
+		} else {
+			e.accept(this);
+		}
+	}
+
+	/*
+	 * writeInteger() writes a non-negative integer seven bits to a byte, least
+	 * significant first, setting the high bit of each byte but the last.
+	 */
+	private void writeInteger(int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private void writeNumber(double value) {
+		long bits = Double.doubleToRawLongBits(value);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (bits >>> shift));
+		}
+	}
+
+	/*
+	 * writeString() writes a string by its index in the pool if it has been
+	 * written before, else in full, adding it to the pool.
+	 */
+	private void writeString(String s) {
+		Integer index = strings.get(s);
+		if (index != null) {
+			writeInteger(index + 1);
+			return;
+		}
+		strings.put(s, strings.size());
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeInteger(0);
+		writeInteger(bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private void writeToken(Token token) {
+		writeInteger(token.type.ordinal());
+		writeString(token.lexeme);
+		writeInteger(token.location);
+	}
+
+	@Override
+	public Void visitExpressionStatement(ExpressionStatement statement) {
+		out.write(TreeFormat.EXPRESSION_STATEMENT);
+		writeExpression(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStatement(Print statement) {
+		out.write(TreeFormat.PRINT);
+		writeExpression(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableDeclarationStatement(VariableDeclaration statement) {
+		out.write(TreeFormat.VARIABLE_DECLARATION);
+		writeToken(statement.symbol);
+		writeExpression(statement.initialisation);
+		writeInteger(statement.slot + 1);
+		return null;
+	}
+
+	@Override
+	public Void visitBlockStatement(Block statement) {
+		out.write(TreeFormat.BLOCK);
+		writeStatements(statement.statements);
+		writeInteger(statement.frameSize);
+		out.write(statement.flattened ? 1 : 0);
+		return null;
+	}
+
+	@Override
+	public Void visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+		out.write(TreeFormat.FUNCTION_DECLARATION);
+		writeToken(statement.symbol);
+		writeInteger(statement.arguments.size());
+		for (Token argument : statement.arguments) {
+			writeToken(argument);
+		}
+		writeStatements(statement.functionBlock);
+		writeInteger(statement.slot + 1);
+		writeInteger(statement.frameSize);
+		out.write(statement.pure ? 1 : 0);
+		return null;
+	}
+
+	@Override
+	public Void visitIfStatement(If statement) {
+		out.write(TreeFormat.IF);
+		writeExpression(statement.condition);
+		writeStatement(statement.thenBranch);
+		writeStatement(statement.elseBranch);
+		return null;
+	}
+
+	@Override
+	public Void visitWhileStatement(While statement) {
+		out.write(TreeFormat.WHILE);
+		writeExpression(statement.condition);
+		writeStatement(statement.body);
+		return null;
+	}
+
+	@Override
+	public Void visitReadNumberStatement(ReadNumber statement) {
+		out.write(TreeFormat.READ_NUMBER);
+		writeExpression(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReadStringStatement(ReadString statement) {
+		out.write(TreeFormat.READ_STRING);
+		writeExpression(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReadBooleanStatement(ReadBoolean statement) {
+		out.write(TreeFormat.READ_BOOLEAN);
+		writeExpression(statement.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStatement(Return statement) {
+		out.write(TreeFormat.RETURN);
+		writeToken(statement.symbol);
+		writeExpression(statement.value);
+		out.write(statement.tailCall ? 1 : 0);
+		return null;
+	}
+
+	@Override
+	public Void visitAllocationExpression(Allocation expression) {
+		out.write(TreeFormat.ALLOCATION);
+		writeExpression(expression.index);
+		writeToken(expression.symbol);
+		writeExpression(expression.value);
+		return null;
+	}
+
+	@Override
+	public Void visitArrayExpression(Array expression) {
+		out.write(TreeFormat.ARRAY);
+		// An empty array literal is parsed with no list of components.
+		if (expression.components == null) {
+			writeInteger(0);
+			return null;
+		}
+		writeInteger(expression.components.size() + 1);
+		for (Expression component : expression.components) {
+			writeExpression(component);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitAssignmentExpression(Assignment expression) {
+		out.write(TreeFormat.ASSIGNMENT);
+		writeToken(expression.symbol);
+		writeExpression(expression.value);
+		writeInteger(expression.depth + 1);
+		writeInteger(expression.slot + 1);
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryExpression(Binary expression) {
+		out.write(TreeFormat.BINARY);
+		writeExpression(expression.left);
+		writeToken(expression.operator);
+		writeExpression(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitCallExpression(Call expression) {
+		out.write(TreeFormat.CALL);
+		writeExpression(expression.called);
+		writeToken(expression.rightParenthesis);
+		writeInteger(expression.arguments.size());
+		for (Expression argument : expression.arguments) {
+			writeExpression(argument);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitCombinationExpression(Combination expression) {
+		out.write(TreeFormat.COMBINATION);
+		writeExpression(expression.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitIndexExpression(Index expression) {
+		out.write(TreeFormat.INDEX);
+		writeExpression(expression.object);
+		writeToken(expression.symbol);
+		writeExpression(expression.index);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralExpression(Literal expression) {
+		Object value = expression.value;
+		if (value == null) {
+			out.write(TreeFormat.LITERAL_NULL);
+		} else if (value instanceof Boolean) {
+			out.write((Boolean) value ? TreeFormat.LITERAL_TRUE : TreeFormat.LITERAL_FALSE);
+		} else if (value instanceof Double) {
+			out.write(TreeFormat.LITERAL_NUMBER);
+			writeNumber((Double) value);
+		} else {
+			out.write(TreeFormat.LITERAL_STRING);
+			writeString((String) value);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitLogicalExpression(Logical expression) {
+		out.write(TreeFormat.LOGICAL);
+		writeExpression(expression.left);
+		writeToken(expression.operator);
+		writeExpression(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitUnaryExpression(Unary expression) {
+		out.write(TreeFormat.UNARY);
+		writeToken(expression.operator);
+		writeExpression(expression.right);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableExpression(VariableExpression expression) {
+		out.write(TreeFormat.VARIABLE);
+		writeToken(expression.symbol);
+		writeInteger(expression.depth + 1);
+		writeInteger(expression.slot + 1);
+		return null;
+	}
+
+}
@@ -0,0 +1,489 @@
+/*
+ * The BytecodeCompiler class translates a resolved syntax tree into bytecode for the VirtualMachine. Like the Interpreter
+ * it implements the Expression and Statement Visitor interfaces, but rather than evaluating each node it appends to the
+ * current Chunk the instructions that will evaluate it. Expressions leave their value on the VirtualMachine's operand
+ * stack; statements leave the stack as they found it. Variables are addressed by the depth and slot annotated by the
+ * Resolver, and each block not flattened by the Resolver compiles to a PUSH_FRAME and POP_FRAME pair, so that the
+ * VirtualMachine holds variables in the same Frames as the Interpreter. Jumps are emitted with a placeholder offset that is patched once the target is
+ * known.
+ *
+ * The order in which the emitted instructions evaluate operands and check their types mirrors the Interpreter, so that
+ * a program produces the same output, and the same errors, under either.
+ *
+ * */
+
+package virtual_machine;
+
+import static lexical_analysis.TokenType.*;
+
+import java.util.List;
+
+import lexical_analysis.Token;
+import syntactic_analysis.Expression;
+import syntactic_analysis.Statement;
+import syntactic_analysis.Expression.Allocation;
+import syntactic_analysis.Expression.Array;
+import syntactic_analysis.Expression.Assignment;
+import syntactic_analysis.Expression.Binary;
+import syntactic_analysis.Expression.Call;
+import syntactic_analysis.Expression.Combination;
+import syntactic_analysis.Expression.Index;
+import syntactic_analysis.Expression.Literal;
+import syntactic_analysis.Expression.Logical;
+import syntactic_analysis.Expression.Unary;
+import syntactic_analysis.Expression.VariableExpression;
+import syntactic_analysis.Statement.Block;
+import syntactic_analysis.Statement.ExpressionStatement;
+import syntactic_analysis.Statement.FunctionDeclaration;
+import syntactic_analysis.Statement.If;
+import syntactic_analysis.Statement.Print;
+import syntactic_analysis.Statement.ReadBoolean;
+import syntactic_analysis.Statement.ReadNumber;
+import syntactic_analysis.Statement.ReadString;
+import syntactic_analysis.Statement.Return;
+import syntactic_analysis.Statement.VariableDeclaration;
+import syntactic_analysis.Statement.While;
+
+public class BytecodeCompiler implements Expression.Visitor<Void>, Statement.Visitor<Void> {
+	private Chunk chunk;
+	private int stackDepth = 0;
+
+	/*
+	 * compile() is the entry method of the BytecodeCompiler and returns the
+	 * top-level program as a CompiledFunction named 'script'.
+	 */
+	public CompiledFunction compile(List<Statement> statements) {
+		chunk = new Chunk();
+		for (Statement s : statements) {
+			compile(s);
+		}
+		emit(OpCode.NULL, null);
+		emit(OpCode.RETURN, null);
+		chunk.seal();
+		return new CompiledFunction("script", 0, 0, chunk);
+	}
+
+	private void compile(Statement s) {
+		s.accept(this);
+	}
+
+	private void compile(Expression e) {
+		e.accept(this);
+	}
+
+	/*
+	 * emit() appends an instruction to the current Chunk and tracks the depth of
+	 * the operand stack it leaves, by way of adjust().
+	 */
+	private void emit(int opCode, Token token) {
+		chunk.write(opCode, token);
+		adjust(OpCode.STACK_EFFECT[opCode]);
+	}
+
+	/*
+	 * operand() appends an operand of the preceding instruction and returns its
+	 * position.
+	 */
+	private int operand(int value) {
+		return chunk.write(value, null);
+	}
+
+	/*
+	 * adjust() records a change in the depth of the operand stack and the maximum
+	 * depth the current Chunk reaches, which the VirtualMachine reserves upon
+	 * calling its function.
+	 */
+	private void adjust(int effect) {
+		stackDepth += effect;
+		if (stackDepth > chunk.maxStack)
+			chunk.maxStack = stackDepth;
+	}
+
+	/*
+	 * emitJump() appends a jump instruction with a placeholder offset and returns
+	 * the position of that offset for patchJump().
+	 */
+	private int emitJump(int opCode) {
+		emit(opCode, null);
+		return operand(0);
+	}
+
+	/*
+	 * patchJump() sets the offset at the given position to jump to the next
+	 * instruction to be emitted.
+	 */
+	private void patchJump(int position) {
+		chunk.code[position] = chunk.count - (position + 1);
+	}
+
+	/*
+	 * emitLoop() appends a backward jump to the given position.
+	 */
+	private void emitLoop(int target) {
+		emit(OpCode.JUMP, null);
+		int position = operand(0);
+		chunk.code[position] = target - (position + 1);
+	}
+
+	/*
+	 * emitDefine() binds the value on top of the stack to a newly declared
+	 * variable, either in the current Frame or, for slot -1, in global scope.
+	 */
+	private void emitDefine(Token symbol, int slot) {
+		if (slot < 0) {
+			emit(OpCode.DEFINE_GLOBAL, symbol);
+			operand(chunk.addConstant(symbol.symbol));
+		} else {
+			emit(OpCode.DEFINE_LOCAL, symbol);
+			operand(slot);
+		}
+	}
+
+	/*
+	 * emitAssign() reassigns an existing variable, leaving the assigned value on
+	 * the stack.
+	 */
+	private void emitAssign(Token symbol, int depth, int slot) {
+		if (depth < 0) {
+			emit(OpCode.SET_GLOBAL, symbol);
+			operand(chunk.addConstant(symbol.symbol));
+		} else {
+			emit(OpCode.SET_LOCAL, symbol);
+			operand(depth);
+			operand(slot);
+		}
+	}
+
+	/*
+	 * Statements.
+	 */
+
+	@Override
+	public Void visitExpressionStatement(ExpressionStatement statement) {
+		compile(statement.expression);
+		emit(OpCode.POP, null);
+		return null;
+	}
+
+	@Override
+	public Void visitPrintStatement(Print statement) {
+		compile(statement.expression);
+		emit(OpCode.PRINT, null);
+		return null;
+	}
+
+	@Override
+	public Void visitVariableDeclarationStatement(VariableDeclaration statement) {
+		if (statement.initialisation != null) {
+			compile(statement.initialisation);
+		} else {
+			emit(OpCode.NULL, null);
+		}
+		emitDefine(statement.symbol, statement.slot);
+		return null;
+	}
+
+	@Override
+	public Void visitBlockStatement(Block statement) {
+		if (statement.flattened) {
+			for (Statement s : statement.statements) {
+				compile(s);
+			}
+			return null;
+		}
+		emit(OpCode.PUSH_FRAME, null);
+		operand(statement.frameSize);
+		for (Statement s : statement.statements) {
+			compile(s);
+		}
+		emit(OpCode.POP_FRAME, null);
+		return null;
+	}
+
+	/*
+	 * visitFunctionDeclarationStatement() compiles the function block into a Chunk
+	 * of its own, ending with an implicit 'return null', and emits a CLOSURE
+	 * instruction that captures the current Frame when the declaration is executed.
+	 */
+	@Override
+	public Void visitFunctionDeclarationStatement(FunctionDeclaration statement) {
+		Chunk enclosing = chunk;
+		int enclosingDepth = stackDepth;
+		chunk = new Chunk();
+		stackDepth = 0;
+		for (Statement s : statement.functionBlock) {
+			compile(s);
+		}
+		emit(OpCode.NULL, null);
+		emit(OpCode.RETURN, null);
+		chunk.seal();
+		CompiledFunction function = new CompiledFunction(statement.symbol.lexeme, statement.arguments.size(),
+				statement.frameSize, chunk);
+		chunk = enclosing;
+		stackDepth = enclosingDepth;
+		emit(OpCode.CLOSURE, statement.symbol);
+		operand(chunk.addConstant(function));
+		emitDefine(statement.symbol, statement.slot);
+		return null;
+	}
+
+	/*
+	 * visitIfStatement() leaves the condition on the stack across the jump so that
+	 * each branch begins by popping it. As the else branch is reached with the
+	 * condition still on the stack, the tracked depth is restored before its POP.
+	 */
+	@Override
+	public Void visitIfStatement(If statement) {
+		compile(statement.condition);
+		int elseJump = emitJump(OpCode.JUMP_IF_FALSE);
+		emit(OpCode.POP, null);
+		compile(statement.thenBranch);
+		int endJump = emitJump(OpCode.JUMP);
+		patchJump(elseJump);
+		adjust(1);
+		emit(OpCode.POP, null);
+		if (statement.elseBranch != null)
+			compile(statement.elseBranch);
+		patchJump(endJump);
+		return null;
+	}
+
+	@Override
+	public Void visitWhileStatement(While statement) {
+		int loopStart = chunk.count;
+		compile(statement.condition);
+		int exitJump = emitJump(OpCode.JUMP_IF_FALSE);
+		emit(OpCode.POP, null);
+		compile(statement.body);
+		emitLoop(loopStart);
+		patchJump(exitJump);
+		adjust(1);
+		emit(OpCode.POP, null);
+		return null;
+	}
+
+	/*
+	 * The read statements push the value read and then assign it to the variable
+	 * as an assignment expression statement would.
+	 */
+	@Override
+	public Void visitReadNumberStatement(ReadNumber statement) {
+		return read(OpCode.READ_NUMBER, (VariableExpression) statement.expression);
+	}
+
+	@Override
+	public Void visitReadStringStatement(ReadString statement) {
+		return read(OpCode.READ_STRING, (VariableExpression) statement.expression);
+	}
+
+	@Override
+	public Void visitReadBooleanStatement(ReadBoolean statement) {
+		return read(OpCode.READ_BOOLEAN, (VariableExpression) statement.expression);
+	}
+
+	private Void read(int opCode, VariableExpression variable) {
+		emit(opCode, variable.symbol);
+		emitAssign(variable.symbol, variable.depth, variable.slot);
+		emit(OpCode.POP, null);
+		return null;
+	}
+
+	@Override
+	public Void visitReturnStatement(Return statement) {
+		if (statement.tailCall) {
+			compileCall((Call) statement.value, OpCode.TAIL_CALL);
+		} else if (statement.value != null) {
+			compile(statement.value);
+		} else {
+			emit(OpCode.NULL, null);
+		}
+		emit(OpCode.RETURN, statement.symbol);
+		return null;
+	}
+
+	/*
+	 * Expressions.
+	 */
+
+	/*
+	 * visitAllocationExpression() checks the array and index before compiling the
+	 * assigned value, as does the Interpreter.
+	 */
+	@Override
+	public Void visitAllocationExpression(Allocation expression) {
+		Index subscript = (Index) expression.index;
+		compile(subscript.object);
+		emit(OpCode.CHECK_ARRAY, expression.symbol);
+		operand(chunk.addConstant("Expected array."));
+		compile(subscript.index);
+		emit(OpCode.CHECK_INDEX, expression.symbol);
+		compile(expression.value);
+		emit(OpCode.STORE_INDEX, expression.symbol);
+		return null;
+	}
+
+	@Override
+	public Void visitArrayExpression(Array expression) {
+		int size = 0;
+		if (expression.components != null) {
+			for (Expression component : expression.components) {
+				compile(component);
+			}
+			size = expression.components.size();
+		}
+		emit(OpCode.ARRAY, null);
+		operand(size);
+		adjust(-size);
+		return null;
+	}
+
+	@Override
+	public Void visitAssignmentExpression(Assignment expression) {
+		compile(expression.value);
+		emitAssign(expression.symbol, expression.depth, expression.slot);
+		return null;
+	}
+
+	@Override
+	public Void visitBinaryExpression(Binary expression) {
+		compile(expression.left);
+		compile(expression.right);
+		switch (expression.operator.type) {
+		case PLUS:
+			emit(OpCode.ADD, expression.operator);
+			break;
+		case MINUS:
+			emit(OpCode.SUBTRACT, expression.operator);
+			break;
+		case FORWARD_SLASH:
+			emit(OpCode.DIVIDE, expression.operator);
+			break;
+		case ASTERISK:
+			emit(OpCode.MULTIPLY, expression.operator);
+			break;
+		case MODULO:
+			emit(OpCode.MODULO, expression.operator);
+			break;
+		case EXPONENT:
+			emit(OpCode.EXPONENT, expression.operator);
+			break;
+		case GREATER:
+			emit(OpCode.GREATER, expression.operator);
+			break;
+		case GREATER_EQUAL:
+			emit(OpCode.GREATER_EQUAL, expression.operator);
+			break;
+		case LESS:
+			emit(OpCode.LESS, expression.operator);
+			break;
+		case LESS_EQUAL:
+			emit(OpCode.LESS_EQUAL, expression.operator);
+			break;
+		case EXCLAMATION_EQUAL:
+			emit(OpCode.NOT_EQUAL, expression.operator);
+			break;
+		case EQUAL_EQUAL:
+			emit(OpCode.EQUAL, expression.operator);
+			break;
+		default:
+			emit(OpCode.POP, null);
+			emit(OpCode.POP, null);
+			emit(OpCode.NULL, null);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitCallExpression(Call expression) {
+		compileCall(expression, OpCode.CALL);
+		return null;
+	}
+
+	/*
+	 * compileCall() compiles a call as a CALL or, of a return statement marked by
+	 * the Resolver, a TAIL_CALL.
+	 */
+	private void compileCall(Call expression, int opCode) {
+		compile(expression.called);
+		for (Expression argument : expression.arguments) {
+			compile(argument);
+		}
+		emit(opCode, expression.rightParenthesis);
+		operand(expression.arguments.size());
+		adjust(-expression.arguments.size());
+	}
+
+	@Override
+	public Void visitCombinationExpression(Combination expression) {
+		compile(expression.expression);
+		return null;
+	}
+
+	@Override
+	public Void visitIndexExpression(Index expression) {
+		compile(expression.object);
+		emit(OpCode.CHECK_ARRAY, expression.symbol);
+		operand(chunk.addConstant("Error: array expected."));
+		compile(expression.index);
+		emit(OpCode.INDEX, expression.symbol);
+		return null;
+	}
+
+	@Override
+	public Void visitLiteralExpression(Literal expression) {
+		if (expression.value == null) {
+			emit(OpCode.NULL, null);
+		} else if (expression.value instanceof Boolean) {
+			emit((Boolean) expression.value ? OpCode.TRUE : OpCode.FALSE, null);
+		} else {
+			emit(OpCode.CONSTANT, null);
+			operand(chunk.addConstant(expression.value));
+		}
+		return null;
+	}
+
+	/*
+	 * visitLogicalExpression() short circuits by jumping over the right operand,
+	 * leaving the left operand as the value of the expression.
+	 */
+	@Override
+	public Void visitLogicalExpression(Logical expression) {
+		compile(expression.left);
+		int endJump = emitJump(expression.operator.type == OR ? OpCode.JUMP_IF_TRUE : OpCode.JUMP_IF_FALSE);
+		emit(OpCode.POP, null);
+		compile(expression.right);
+		patchJump(endJump);
+		return null;
+	}
+
+	@Override
+	public Void visitUnaryExpression(Unary expression) {
+		compile(expression.right);
+		switch (expression.operator.type) {
+		case MINUS:
+			emit(OpCode.NEGATE, expression.operator);
+			break;
+		case EXCLAMATION:
+			emit(OpCode.NOT, expression.operator);
+			break;
+		default:
+			emit(OpCode.POP, null);
+			emit(OpCode.NULL, null);
+		}
+		return null;
+	}
+
+	@Override
+	public Void visitVariableExpression(VariableExpression expression) {
+		if (expression.depth < 0) {
+			emit(OpCode.GET_GLOBAL, expression.symbol);
+			operand(chunk.addConstant(expression.symbol.symbol));
+		} else {
+			emit(OpCode.GET_LOCAL, expression.symbol);
+			operand(expression.depth);
+			operand(expression.slot);
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * The Chunk class holds the bytecode of a single compiled function, or of the top-level program. 'code' is a flat array
+ * of instruction words (see OpCode) and 'constants' its constant pool, holding the numbers, strings, Symbols and nested
+ * CompiledFunctions the instructions refer to by index. 'tokens' runs parallel to 'code' and records, at the
+ * position of each instruction, the Token from which it was compiled, so that the VirtualMachine can report an
+ * InterpreterError at the same location as the Interpreter would. 'maxStack' is the greatest depth of operand stack the
+ * code reaches, as tracked by the BytecodeCompiler.
+ * 
+ * */
+
+package virtual_machine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lexical_analysis.Symbol;
+import lexical_analysis.Token;
+
+class Chunk {
+	int[] code = new int[32];
+	Token[] tokens = new Token[32];
+	int count = 0;
+	int maxStack = 0;
+	Object[] constants;
+	private final List<Object> constantList = new ArrayList<>();
+	private final Map<Object, Integer> constantIndex = new HashMap<>();
+
+	/*
+	 * write() appends a word to the code array, growing it if necessary, and
+	 * returns its position.
+	 */
+	int write(int word, Token token) {
+		if (count == code.length) {
+			code = Arrays.copyOf(code, count * 2);
+			tokens = Arrays.copyOf(tokens, count * 2);
+		}
+		code[count] = word;
+		tokens[count] = token;
+		return count++;
+	}
+
+	/*
+	 * addConstant() adds a value to the constant pool and returns its index.
+	 * Numbers, strings and Symbols already in the pool are reused, found by way
+	 * of 'constantIndex' rather than by searching the pool.
+	 */
+	int addConstant(Object value) {
+		boolean reusable = value instanceof Double || value instanceof String || value instanceof Symbol;
+		if (reusable) {
+			Integer existing = constantIndex.get(value);
+			if (existing != null)
+				return existing;
+		}
+		constantList.add(value);
+		int index = constantList.size() - 1;
+		if (reusable)
+			constantIndex.put(value, index);
+		return index;
+	}
+
+	/*
+	 * seal() trims the code array and freezes the constant pool once compilation of
+	 * the chunk is complete.
+	 */
+	void seal() {
+		code = Arrays.copyOf(code, count);
+		tokens = Arrays.copyOf(tokens, count);
+		constants = constantList.toArray();
+	}
+
+}
@@ -0,0 +1,25 @@
+/*
+ * The Closure class is the runtime value of a function declared in a program run by the VirtualMachine. It pairs a
+ * CompiledFunction with the Frame in scope at the point of declaration, in the manner of Function at the Interpreter.
+ * 
+ * */
+
+package virtual_machine;
+
+import interpretation.Frame;
+
+class Closure {
+	final CompiledFunction function;
+	final Frame frame;
+
+	Closure(CompiledFunction function, Frame frame) {
+		this.function = function;
+		this.frame = frame;
+	}
+
+	@Override
+	public String toString() {
+		return "<function " + function.name + "";
+	}
+
+}
@@ -0,0 +1,25 @@
+/*
+ * The CompiledFunction class is the output of the BytecodeCompiler for a single function declaration: its Chunk of
+ * bytecode together with what the VirtualMachine requires to call it, i.e. its arity and the size of the Frame that holds
+ * its parameters and local variables. The top-level program is compiled to a CompiledFunction of arity 0 named 'script'.
+ * CompiledFunctions are stored in the constant pool of the enclosing Chunk and become Closures when their declaration is
+ * executed.
+ * 
+ * */
+
+package virtual_machine;
+
+public class CompiledFunction {
+	final String name;
+	final int arity;
+	final int frameSize;
+	final Chunk chunk;
+
+	CompiledFunction(String name, int arity, int frameSize, Chunk chunk) {
+		this.name = name;
+		this.arity = arity;
+		this.frameSize = frameSize;
+		this.chunk = chunk;
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * OpCode is the site of the constants that signify the instructions of the Luria virtual machine. Each instruction is
+ * a single int word in a Chunk, followed by as many operand words as noted against it below. Constants are used in
+ * place of an enum so that the VirtualMachine's dispatch loop can switch directly on the words of its code array.
+ * STACK_EFFECT records by how much each instruction changes the depth of the operand stack; for CALL, TAIL_CALL and
+ * ARRAY, whose effect depends on their operand, it records the effect with an operand of 0.
+ * 
+ * */
+
+package virtual_machine;
+
+final class OpCode {
+/*	Values. Operand: constant pool index, for CONSTANT.*/
+	static final int CONSTANT = 0;
+	static final int NULL = 1;
+	static final int TRUE = 2;
+	static final int FALSE = 3;
+	static final int POP = 4;
+
+/*	Variables. Operands: depth and slot for locals, constant pool index of the signifier for globals.*/
+	static final int GET_LOCAL = 5;
+	static final int SET_LOCAL = 6;
+	static final int DEFINE_LOCAL = 7;
+	static final int GET_GLOBAL = 8;
+	static final int SET_GLOBAL = 9;
+	static final int DEFINE_GLOBAL = 10;
+
+/*	Arithmetic, comparison and equality.*/
+	static final int ADD = 11;
+	static final int SUBTRACT = 12;
+	static final int MULTIPLY = 13;
+	static final int DIVIDE = 14;
+	static final int MODULO = 15;
+	static final int EXPONENT = 16;
+	static final int GREATER = 17;
+	static final int GREATER_EQUAL = 18;
+	static final int LESS = 19;
+	static final int LESS_EQUAL = 20;
+	static final int EQUAL = 21;
+	static final int NOT_EQUAL = 22;
+	static final int NEGATE = 23;
+	static final int NOT = 24;
+
+/*	Control flow. Operand: jump offset relative to the following instruction.*/
+	static final int JUMP = 25;
+	static final int JUMP_IF_FALSE = 26;
+	static final int JUMP_IF_TRUE = 27;
+
+/*	Scope. Operand: frame size, for PUSH_FRAME.*/
+	static final int PUSH_FRAME = 28;
+	static final int POP_FRAME = 29;
+
+/*	Functions. Operands: constant pool index of a CompiledFunction, for CLOSURE; argument count, for CALL.*/
+	static final int CLOSURE = 30;
+	static final int CALL = 31;
+	static final int RETURN = 32;
+
+/*	Arrays. Operands: component count, for ARRAY; constant pool index of an error message, for CHECK_ARRAY.*/
+	static final int ARRAY = 33;
+	static final int CHECK_ARRAY = 34;
+	static final int INDEX = 35;
+	static final int CHECK_INDEX = 36;
+	static final int STORE_INDEX = 37;
+
+/*	Input and output.*/
+	static final int PRINT = 38;
+	static final int READ_NUMBER = 39;
+	static final int READ_STRING = 40;
+	static final int READ_BOOLEAN = 41;
+
+/*	Functions, continued. Operand: argument count. A CALL that replaces the calling function's CallFrame if it calls
+	itself, followed by a RETURN in case it does not.*/
+	static final int TAIL_CALL = 42;
+
+	static final int[] STACK_EFFECT = {
+		1, 1, 1, 1, -1,
+		1, 0, -1, 1, 0, -1,
+		-1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 0, 0,
+		0, 0, 0,
+		0, 0,
+		1, 0, -1,
+		1, 0, -1, 0, -2,
+		-1, 1, 1, 1,
+		0
+	};
+
+	private OpCode() {
+	}
+
+}
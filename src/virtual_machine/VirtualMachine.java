@@ -0,0 +1,466 @@
+/*
+ * The VirtualMachine class is an alternative backend to the Interpreter. Rather than walking the syntax tree by double
+ * dispatch, it has the BytecodeCompiler flatten the tree into Chunks of bytecode once and then executes these in a single
+ * dispatch loop, run(), over an operand stack. Luria function calls do not recurse in Java: each call pushes a CallFrame
+ * recording the function's instruction pointer and Frame, and each return pops it, so the depth of recursion in Luria is
+ * independent of the Java call stack. The number of calls in progress is instead limited to 'maxCallDepth', as at the
+ * Interpreter, and a self-recursive call in tail position, a TAIL_CALL, replaces the CallFrame of its caller rather than
+ * pushing another.
+ *
+ * Variables live in the same Frames and global MemoryEnvironment as at the Interpreter, and values are represented as at
+ * the Interpreter, so that output and error reporting are identical. Like the Interpreter, a VirtualMachine instance keeps
+ * its global scope between calls to interpret(), for the benefit of the prompt, and prints to, reads from and reports
+ * errors to the streams and ErrorReporter given upon construction.
+ *
+ * */
+
+package virtual_machine;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import interpretation.Callable;
+import interpretation.Frame;
+import interpretation.Interpreter;
+import interpretation.InterpreterError;
+import interpretation.LuriaArray;
+import interpretation.MemoryEnvironment;
+import interpretation.NativeFunction;
+import interpretation.NativeRegistry;
+import lexical_analysis.Symbol;
+import luria_interpreter.ErrorReporter;
+import luria_interpreter.LuriaInterpreter;
+import syntactic_analysis.Statement;
+
+public class VirtualMachine {
+	private static final NativeRegistry BUILTINS = NativeRegistry.standard();
+	public final MemoryEnvironment globalScope = new MemoryEnvironment();
+	private final PrintStream out;
+	private final InputStream in;
+	private final ErrorReporter errors;
+	private Object[] stack = new Object[256];
+	private CallFrame[] frames = new CallFrame[64];
+	private int maxCallDepth = Interpreter.DEFAULT_MAX_CALL_DEPTH;
+
+	/*
+	 * The nested CallFrame class records the state of a function call suspended
+	 * while it calls another: the function and the Closure by which it was called,
+	 * the position of its next instruction, its Frame of variables and the base of
+	 * its region of the operand stack. CallFrames are reused between calls.
+	 */
+	private static class CallFrame {
+		CompiledFunction function;
+		Closure closure;
+		int ip;
+		Frame environment;
+		int base;
+	}
+
+	public VirtualMachine() {
+		this(System.out, System.in, LuriaInterpreter.CONSOLE);
+	}
+
+	public VirtualMachine(PrintStream out, InputStream in, ErrorReporter errors) {
+		this.out = out;
+		this.in = in;
+		this.errors = errors;
+		BUILTINS.link(globalScope);
+	}
+
+	/*
+	 * setMaxCallDepth() sets the greatest number of Luria function calls that may
+	 * be in progress at once.
+	 */
+	public void setMaxCallDepth(int maxCallDepth) {
+		this.maxCallDepth = maxCallDepth;
+	}
+
+	/*
+	 * interpret() compiles the resolved statements and runs them.
+	 */
+	public boolean interpret(List<Statement> statements) {
+		return interpret(new BytecodeCompiler().compile(statements));
+	}
+
+	/*
+	 * interpret() runs a program already compiled, as by CompiledProgram. It is at
+	 * this point in the Java call stack that an InterpreterError is caught and
+	 * reported. interpret() returns false if an error was reported.
+	 */
+	public boolean interpret(CompiledFunction script) {
+		try {
+			run(script);
+			return true;
+		} catch (InterpreterError error) {
+			errors.interpreterError(error);
+			return false;
+		}
+	}
+
+	/*
+	 * error() constructs the InterpreterError for the instruction at the given
+	 * position of the given Chunk.
+	 */
+	private static InterpreterError error(Chunk chunk, int position, String message) {
+		return new InterpreterError(chunk.tokens[position], message);
+	}
+
+	/*
+	 * run() is the dispatch loop. The state of the executing function - its code,
+	 * constants, instruction pointer and Frame - and the stack pointer are held in
+	 * local variables, and only written back to a CallFrame upon a call. A
+	 * TAIL_CALL that cannot reuse the current Frame falls through to CALL.
+	 */
+	@SuppressWarnings("fallthrough")
+	private void run(CompiledFunction script) {
+		int frameCount = 0;
+		CallFrame current = callFrame(frameCount++);
+		current.function = script;
+		current.closure = null;
+		current.base = 0;
+
+		Chunk chunk = script.chunk;
+		int[] code = chunk.code;
+		Object[] constants = chunk.constants;
+		int ip = 0;
+		Frame environment = null;
+		Object[] stack = reserve(this.stack, 0, chunk.maxStack);
+		int sp = 0;
+
+		while (true) {
+			int position = ip;
+			int instruction = code[ip++];
+			switch (instruction) {
+			case OpCode.CONSTANT:
+				stack[sp++] = constants[code[ip++]];
+				break;
+			case OpCode.NULL:
+				stack[sp++] = null;
+				break;
+			case OpCode.TRUE:
+				stack[sp++] = true;
+				break;
+			case OpCode.FALSE:
+				stack[sp++] = false;
+				break;
+			case OpCode.POP:
+				sp--;
+				break;
+			case OpCode.GET_LOCAL: {
+				int depth = code[ip++];
+				stack[sp++] = environment.load(depth, code[ip++]);
+				break;
+			}
+			case OpCode.SET_LOCAL: {
+				int depth = code[ip++];
+				environment.store(depth, code[ip++], stack[sp - 1]);
+				break;
+			}
+			case OpCode.DEFINE_LOCAL:
+				environment.slots[code[ip++]] = stack[--sp];
+				break;
+			// The Token of the instruction, whose Symbol is the operand, locates any error.
+			case OpCode.GET_GLOBAL:
+				ip++;
+				stack[sp++] = globalScope.load(chunk.tokens[position]);
+				break;
+			case OpCode.SET_GLOBAL:
+				ip++;
+				globalScope.storeExisting(chunk.tokens[position], stack[sp - 1]);
+				break;
+			case OpCode.DEFINE_GLOBAL:
+				globalScope.store((Symbol) constants[code[ip++]], stack[--sp]);
+				break;
+			case OpCode.ADD: {
+				Object right = stack[--sp];
+				Object left = stack[sp - 1];
+				if (left instanceof Double && right instanceof Double) {
+					stack[sp - 1] = (double) left + (double) right;
+				} else if (left instanceof String && right instanceof String) {
+					stack[sp - 1] = (String) left + (String) right;
+				} else {
+					throw error(chunk, position, "Error: Operands must be of same type.");
+				}
+				break;
+			}
+			case OpCode.SUBTRACT:
+			case OpCode.MULTIPLY:
+			case OpCode.DIVIDE:
+			case OpCode.MODULO:
+			case OpCode.EXPONENT:
+			case OpCode.GREATER:
+			case OpCode.GREATER_EQUAL:
+			case OpCode.LESS:
+			case OpCode.LESS_EQUAL: {
+				Object right = stack[--sp];
+				Object left = stack[sp - 1];
+				if (!(left instanceof Double && right instanceof Double))
+					throw error(chunk, position, "Operands must be numbers.");
+				stack[sp - 1] = arithmetic(instruction, (double) left, (double) right);
+				break;
+			}
+			case OpCode.EQUAL: {
+				Object right = stack[--sp];
+				stack[sp - 1] = Interpreter.equal(stack[sp - 1], right);
+				break;
+			}
+			case OpCode.NOT_EQUAL: {
+				Object right = stack[--sp];
+				stack[sp - 1] = !Interpreter.equal(stack[sp - 1], right);
+				break;
+			}
+			case OpCode.NEGATE: {
+				Object operand = stack[sp - 1];
+				if (!(operand instanceof Double))
+					throw error(chunk, position, "Operand must be a number.");
+				stack[sp - 1] = -(double) operand;
+				break;
+			}
+			case OpCode.NOT:
+				stack[sp - 1] = !Interpreter.truthy(stack[sp - 1]);
+				break;
+			case OpCode.JUMP: {
+				int offset = code[ip++];
+				ip += offset;
+				break;
+			}
+			case OpCode.JUMP_IF_FALSE: {
+				int offset = code[ip++];
+				if (!Interpreter.truthy(stack[sp - 1]))
+					ip += offset;
+				break;
+			}
+			case OpCode.JUMP_IF_TRUE: {
+				int offset = code[ip++];
+				if (Interpreter.truthy(stack[sp - 1]))
+					ip += offset;
+				break;
+			}
+			case OpCode.PUSH_FRAME:
+				environment = new Frame(code[ip++], environment);
+				break;
+			case OpCode.POP_FRAME:
+				environment = environment.outer;
+				break;
+			case OpCode.CLOSURE:
+				stack[sp++] = new Closure((CompiledFunction) constants[code[ip++]], environment);
+				break;
+			case OpCode.TAIL_CALL: {
+				int argumentCount = code[ip];
+				Object called = stack[sp - argumentCount - 1];
+				if (called == current.closure && argumentCount == current.function.arity) {
+					Frame functionFrame = new Frame(current.function.frameSize, current.closure.frame);
+					System.arraycopy(stack, sp - argumentCount, functionFrame.slots, 0, argumentCount);
+					sp = current.base;
+					ip = 0;
+					environment = functionFrame;
+					break;
+				}
+				// Otherwise, a call as any other, followed by the RETURN emitted after it.
+				// FALL THROUGH to CALL, which reads the argument count again at 'ip'.
+			}
+			case OpCode.CALL: {
+				int argumentCount = code[ip++];
+				Object called = stack[sp - argumentCount - 1];
+				if (called instanceof Closure) {
+					Closure closure = (Closure) called;
+					CompiledFunction function = closure.function;
+					if (argumentCount != function.arity)
+						throw error(chunk, position, "Expecting " + function.arity + " arguments.");
+					if (frameCount > maxCallDepth)
+						throw error(chunk, position, Interpreter.CALL_DEPTH_EXCEEDED);
+					Frame functionFrame = new Frame(function.frameSize, closure.frame);
+					System.arraycopy(stack, sp - argumentCount, functionFrame.slots, 0, argumentCount);
+					sp -= argumentCount + 1;
+					current.ip = ip;
+					current.environment = environment;
+					current = callFrame(frameCount++);
+					current.function = function;
+					current.closure = closure;
+					current.base = sp;
+					chunk = function.chunk;
+					code = chunk.code;
+					constants = chunk.constants;
+					ip = 0;
+					environment = functionFrame;
+					stack = reserve(stack, sp, chunk.maxStack);
+				} else if (called instanceof NativeFunction) {
+					// A NativeFunction takes its arguments straight from the stack.
+					NativeFunction function = (NativeFunction) called;
+					if (argumentCount != function.arity())
+						throw error(chunk, position, "Expecting " + function.arity() + " arguments.");
+					int first = sp - argumentCount;
+					Object result;
+					try {
+						switch (argumentCount) {
+						case 0:
+							result = function.call0();
+							break;
+						case 1:
+							result = function.call1(stack[first]);
+							break;
+						case 2:
+							result = function.call2(stack[first], stack[first + 1]);
+							break;
+						default:
+							result = function.call3(stack[first], stack[first + 1], stack[first + 2]);
+						}
+					} catch (InterpreterError e) {
+						if (e.token == null)
+							throw error(chunk, position, e.getMessage());
+						throw e;
+					}
+					sp = first - 1;
+					stack[sp++] = result;
+				} else if (called instanceof Callable) {
+					Callable function = (Callable) called;
+					if (argumentCount != function.arity())
+						throw error(chunk, position, "Expecting " + function.arity() + " arguments.");
+					List<Object> arguments = new ArrayList<>(Arrays.asList(stack).subList(sp - argumentCount, sp));
+					sp -= argumentCount + 1;
+					try {
+						stack[sp++] = function.call(null, arguments);
+					} catch (InterpreterError e) {
+						if (e.token == null)
+							throw error(chunk, position, e.getMessage());
+						throw e;
+					}
+				} else {
+					throw error(chunk, position, "Expected function call.");
+				}
+				break;
+			}
+			case OpCode.RETURN: {
+				Object value = stack[--sp];
+				frames[--frameCount].environment = null;
+				current.closure = null;
+				if (frameCount == 0)
+					return;
+				sp = current.base;
+				current = frames[frameCount - 1];
+				chunk = current.function.chunk;
+				code = chunk.code;
+				constants = chunk.constants;
+				ip = current.ip;
+				environment = current.environment;
+				stack[sp++] = value;
+				break;
+			}
+			case OpCode.ARRAY: {
+				int size = code[ip++];
+				Object[] components = Arrays.copyOfRange(stack, sp - size, sp);
+				sp -= size;
+				stack[sp++] = LuriaArray.of(components);
+				break;
+			}
+			case OpCode.CHECK_ARRAY: {
+				int message = code[ip++];
+				if (!(stack[sp - 1] instanceof LuriaArray))
+					throw error(chunk, position, (String) constants[message]);
+				break;
+			}
+			case OpCode.INDEX: {
+				Object index = stack[--sp];
+				LuriaArray array = (LuriaArray) stack[sp - 1];
+				if (!(index instanceof Double))
+					throw error(chunk, position, "Error: integer expected.");
+				int i = ((Double) index).intValue();
+				if (i < 0 || i >= array.size())
+					throw error(chunk, position, "Error: index is beyond array range.");
+				stack[sp - 1] = array.get(i);
+				break;
+			}
+			case OpCode.CHECK_INDEX: {
+				Object index = stack[sp - 1];
+				if (!(index instanceof Double))
+					throw error(chunk, position, "Expected expression for array index.");
+				int i = ((Double) index).intValue();
+				if (i < 0 || i >= ((LuriaArray) stack[sp - 2]).size())
+					throw error(chunk, position, "Array index out of range.");
+				break;
+			}
+			case OpCode.STORE_INDEX: {
+				Object value = stack[--sp];
+				int i = ((Double) stack[--sp]).intValue();
+				((LuriaArray) stack[sp - 1]).store(i, value);
+				stack[sp - 1] = value;
+				break;
+			}
+			case OpCode.PRINT:
+				out.println(Interpreter.stringify(stack[--sp]));
+				break;
+			case OpCode.READ_NUMBER:
+				stack[sp++] = new Scanner(in).nextDouble();
+				break;
+			case OpCode.READ_STRING:
+				stack[sp++] = new Scanner(in).nextLine();
+				break;
+			case OpCode.READ_BOOLEAN: {
+				String input = new Scanner(in).nextLine();
+				if (!input.equals("true") && !input.equals("false"))
+					throw error(chunk, position, "Boolean value expected.");
+				stack[sp++] = input;
+				break;
+			}
+			default:
+				throw error(chunk, position, "Unknown instruction " + instruction + ".");
+			}
+		}
+	}
+
+	/*
+	 * arithmetic() applies the numeric binary operations, returning their Java
+	 * equivalents as at Interpreter.visitBinaryExpression().
+	 */
+	private static Object arithmetic(int instruction, double left, double right) {
+		switch (instruction) {
+		case OpCode.SUBTRACT:
+			return left - right;
+		case OpCode.MULTIPLY:
+			return left * right;
+		case OpCode.DIVIDE:
+			return left / right;
+		case OpCode.MODULO:
+			return left % right;
+		case OpCode.EXPONENT:
+			return Math.pow(left, right);
+		case OpCode.GREATER:
+			return left > right;
+		case OpCode.GREATER_EQUAL:
+			return left >= right;
+		case OpCode.LESS:
+			return left < right;
+		default:
+			return left <= right;
+		}
+	}
+
+	/*
+	 * reserve() returns an operand stack with room for 'size' further values above
+	 * 'sp', growing it if necessary.
+	 */
+	private Object[] reserve(Object[] stack, int sp, int size) {
+		if (stack.length - sp < size) {
+			stack = Arrays.copyOf(stack, Math.max(stack.length * 2, sp + size));
+			this.stack = stack;
+		}
+		return stack;
+	}
+
+	/*
+	 * callFrame() returns the reusable CallFrame at the given depth, growing the
+	 * array of CallFrames if necessary.
+	 */
+	private CallFrame callFrame(int depth) {
+		if (depth == frames.length)
+			frames = Arrays.copyOf(frames, depth * 2);
+		if (frames[depth] == null)
+			frames[depth] = new CallFrame();
+		return frames[depth];
+	}
+
+}
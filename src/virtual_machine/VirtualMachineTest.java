@@ -0,0 +1,274 @@
+package virtual_machine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import interpretation.Interpreter;
+import luria_interpreter.CompiledProgram;
+import luria_interpreter.PrintingErrorReporter;
+
+class VirtualMachineTest {
+	static final String[] OPERATORS = { "+", "-", "*", "/", "%", "^", "==", "!=", "<", "<=", ">", ">=", "and", "or" };
+
+	/*
+	 * run() compiles and runs the given source code by the Interpreter, or by the
+	 * VirtualMachine, and returns what it printed, errors included.
+	 */
+	static String run(String sourceCode, boolean vm) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bytes, true);
+		PrintingErrorReporter errors = new PrintingErrorReporter(out);
+		CompiledProgram program = CompiledProgram.compile(sourceCode, errors);
+		if (program != null) {
+			ByteArrayInputStream in = new ByteArrayInputStream(new byte[0]);
+			if (vm)
+				new VirtualMachine(out, in, errors).interpret(program.bytecode());
+			else
+				new Interpreter(out, in, errors).interpret(program.statements);
+		}
+		return bytes.toString().replace("\r\n", "\n");
+	}
+
+	static void assertAgrees(String expected, String sourceCode) {
+		String interpreted = run(sourceCode, false);
+		if (expected != null)
+			assertEquals(expected, interpreted, "Interpreter");
+		assertEquals(interpreted, run(sourceCode, true), sourceCode);
+	}
+
+	@Test
+	final void testArithmeticAndStrings() {
+		assertAgrees("7\n0.5\n1\n8\n-3\nab\ntrue\nnull\n", "print 1 + 2 * 3; print 1 / 2; print 7 % 3; print 2 ^ 3;"
+				+ " print -3; print \"a\" + \"b\"; print 1 < 2 and 2 <= 2; print !true or null;");
+	}
+
+	@Test
+	final void testClosures() {
+		assertAgrees("1\n2\n1\n3\n", "function counter() { variable c = 0;"
+				+ " function inc() { c = c + 1; return c; } return inc; }"
+				+ " variable f = counter(); print f(); print f(); variable g = counter(); print g(); print f();");
+	}
+
+	@Test
+	final void testLoopsAndScopes() {
+		assertAgrees("45\n2\n1\n", "variable sum = 0; variable i = 0; while (i < 10) { sum = sum + i; i = i + 1; }"
+				+ " print sum; variable x = 1; { variable x = 2; print x; } print x;");
+	}
+
+	@Test
+	final void testArrays() {
+		assertAgrees("[0.0, 7.0, 3.0]\n9\n[[1.0, 2.0], [9.0, 4.0]]\n", "variable a = [0, 0, 3]; a[1] = 7; print a;"
+				+ " variable m = [[1, 2], [3, 4]]; m[1][0] = 9; print m[1][0]; print m;");
+	}
+
+	@Test
+	final void testRecursionAndTailCalls() {
+		assertAgrees("3628800\n5050\n", "function fact(n) { if (n <= 1) return 1; return n * fact(n - 1); }"
+				+ " print fact(10); function sum(n, acc) { if (n == 0) return acc; return sum(n - 1, acc + n); }"
+				+ " print sum(100, 0);");
+	}
+
+	@Test
+	final void testRuntimeErrors() {
+		assertAgrees(null, "print 1;\nprint \"a\" - 1;\nprint 2;");
+		assertAgrees(null, "variable a = [1, 2];\nprint a[5];");
+		assertAgrees(null, "function f(x) { return x; }\nprint f(1, 2);");
+		assertAgrees(null, "variable g = 1;\nprint g();");
+		assertAgrees(null, "print -\"a\";");
+		assertAgrees(null, "print 1;\nprint missing;");
+		assertAgrees(null, "variable x = 1;\nmissing = x;");
+	}
+
+	/*
+	 * testLargeCodeAgrees() compiles code beyond any small limit of the bytecode:
+	 * a thousand constants, a jump over a thousand statements, a function with
+	 * three hundred locals and an expression nested two hundred deep.
+	 */
+	@Test
+	final void testLargeCodeAgrees() {
+		StringBuilder program = new StringBuilder("variable total = 0;\nif (total == 0) {\n");
+		for (int i = 0; i < 1000; i++) {
+			program.append("total = total + ").append(i).append(".5;\n");
+		}
+		program.append("}\nprint total;\nfunction wide(p) {\n");
+		for (int i = 0; i < 300; i++) {
+			program.append("variable l").append(i).append(" = p + ").append(i).append(";\n");
+		}
+		program.append("return l0 + l299;\n}\nprint wide(1);\nprint ");
+		for (int i = 0; i < 200; i++) {
+			program.append("(1 + ");
+		}
+		program.append("total - total");
+		for (int i = 0; i < 200; i++) {
+			program.append(")");
+		}
+		program.append(";\n");
+		assertAgrees("500000\n301\n200\n", program.toString());
+	}
+
+	/*
+	 * testLargeConstantPoolShared() compiles sixty thousand distinct numbers and
+	 * global names, then refers to ten of the names sixty thousand times more,
+	 * which must reuse their entries in the constant pool.
+	 */
+	@Test
+	final void testLargeConstantPoolShared() {
+		StringBuilder program = new StringBuilder("variable total = 0;\n");
+		for (int i = 0; i < 60000; i++) {
+			program.append("variable v").append(i).append(" = ").append(i).append(".5;\n");
+		}
+		for (int i = 0; i < 60000; i++) {
+			program.append("total = total + v").append(i % 10).append(";\n");
+		}
+		program.append("print total;\n");
+		CompiledProgram compiled = CompiledProgram.compile(program.toString(), new PrintingErrorReporter(System.err));
+		assertEquals(2 + 2 * 60000, compiled.bytecode().chunk.constants.length);
+		assertAgrees("300000\n", program.toString());
+	}
+
+	@Test
+	final void testTailCallsTakeNoStack() {
+		assertAgrees("1000000\nfalse\n", "function count(n, acc) { if (n == 0) return acc; return count(n - 1, acc + 10); }"
+				+ " print count(100000, 0);"
+				+ " function odd(n) { if (n == 0) return false; return odd(n - 2); } print odd(100000);");
+	}
+
+	@Test
+	final void testCallDepthLimited() {
+		String program = "function f(n) { if (n == 0) return 0; return 1 + f(n - 1); }\nprint f(100000);";
+		String printed = run(program, false);
+		assertTrue(printed.contains(Interpreter.CALL_DEPTH_EXCEEDED), printed);
+		assertEquals(printed, run(program, true));
+	}
+
+	/*
+	 * testRandomProgramsAgree() runs programs made at random, of declarations,
+	 * assignments, prints, blocks, bounded loops and calls of functions declared
+	 * before, by both the Interpreter and the VirtualMachine, which must print the
+	 * same, up to and including the first error.
+	 */
+	@Test
+	final void testRandomProgramsAgree() {
+		Random random = new Random(2024);
+		for (int n = 0; n < 500; n++) {
+			assertAgrees(null, new ProgramGenerator(random).program());
+		}
+	}
+
+	/*
+	 * The nested ProgramGenerator class writes a random Luria program. Every loop
+	 * runs a fixed number of times and no function calls itself, so that every
+	 * program ends.
+	 */
+	static final class ProgramGenerator {
+		private final Random random;
+		private final StringBuilder program = new StringBuilder();
+		private int variables = 0;
+		private int functions = 0;
+		private int loops = 0;
+
+		ProgramGenerator(Random random) {
+			this.random = random;
+		}
+
+		String program() {
+			program.append("variable a = [1, 2, 3];\n");
+			int statements = 1 + random.nextInt(12);
+			for (int i = 0; i < statements; i++) {
+				statement(2);
+			}
+			return program.toString();
+		}
+
+		private void statement(int depth) {
+			switch (random.nextInt(depth > 0 ? 8 : 4)) {
+			case 0:
+				program.append("variable v").append(variables++).append(" = ").append(expression(3)).append(";\n");
+				break;
+			case 1:
+				if (variables > 0)
+					program.append("v").append(random.nextInt(variables)).append(" = ").append(expression(3))
+							.append(";\n");
+				break;
+			case 2:
+				program.append("a[").append(random.nextInt(4)).append("] = ").append(expression(2)).append(";\n");
+				break;
+			case 3:
+				program.append("print ").append(expression(3)).append(";\n");
+				break;
+			case 4:
+				program.append("{\n");
+				statement(depth - 1);
+				statement(depth - 1);
+				program.append("}\n");
+				break;
+			case 5:
+				program.append("if (").append(expression(2)).append(") ");
+				block(depth - 1);
+				if (random.nextBoolean()) {
+					program.append(" else ");
+					block(depth - 1);
+				}
+				program.append("\n");
+				break;
+			case 6:
+				String counter = "i" + loops++;
+				program.append("variable ").append(counter).append(" = 0;\n");
+				program.append("while (").append(counter).append(" < ").append(random.nextInt(4)).append(") {\n");
+				program.append(counter).append(" = ").append(counter).append(" + 1;\n");
+				statement(depth - 1);
+				program.append("}\n");
+				break;
+			default:
+				program.append("function f").append(functions).append("(p, q) {\n");
+				program.append("variable r = ").append(expression(2)).append(";\n");
+				program.append("if (").append(expression(1)).append(") return p;\n");
+				program.append("return ").append(expression(2)).append(";\n}\n");
+				functions++;
+			}
+		}
+
+		private void block(int depth) {
+			program.append("{\n");
+			statement(depth);
+			program.append("}");
+		}
+
+		private String expression(int depth) {
+			switch (random.nextInt(depth > 0 ? 12 : 6)) {
+			case 0:
+				return Integer.toString(random.nextInt(10));
+			case 1:
+				return random.nextInt(4) + "." + random.nextInt(100);
+			case 2:
+				return random.nextBoolean() ? "\"s\"" : "\"t\"";
+			case 3:
+				return random.nextBoolean() ? "true" : random.nextBoolean() ? "false" : "null";
+			case 4:
+			case 5:
+				return variables > 0 ? "v" + random.nextInt(variables) : "a[" + random.nextInt(3) + "]";
+			case 6:
+			case 7:
+			case 8:
+				return expression(depth - 1) + " " + OPERATORS[random.nextInt(OPERATORS.length)] + " "
+						+ expression(depth - 1);
+			case 9:
+				return "(" + expression(depth - 1) + ")";
+			case 10:
+				return random.nextBoolean() ? "-" + random.nextInt(10) : "!true";
+			default:
+				if (functions == 0)
+					return "a[" + expression(depth - 1) + "]";
+				return "f" + random.nextInt(functions) + "(" + expression(depth - 1) + ", " + expression(depth - 1)
+						+ ")";
+			}
+		}
+	}
+
+}